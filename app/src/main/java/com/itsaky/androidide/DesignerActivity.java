@@ -62,6 +62,9 @@ import com.itsaky.androidide.fragments.sheets.AttrEditorSheet;
 import com.itsaky.androidide.fragments.sheets.ProgressSheet;
 import com.itsaky.androidide.models.UIWidget;
 import com.itsaky.androidide.models.UIWidgetGroup;
+import com.itsaky.androidide.services.WorkspaceWatcher;
+import com.itsaky.androidide.tasks.TaskExecutor;
+import com.itsaky.androidide.tasks.TaskScheduler.Priority;
 import com.itsaky.androidide.ui.WidgetDragData;
 import com.itsaky.androidide.ui.WidgetDragListener;
 import com.itsaky.androidide.ui.WidgetDragShadowBuilder;
@@ -73,6 +76,7 @@ import com.itsaky.layoutinflater.IInflateListener;
 import com.itsaky.layoutinflater.ILayoutInflater;
 import com.itsaky.layoutinflater.IView;
 import com.itsaky.layoutinflater.IViewGroup;
+import com.itsaky.layoutinflater.PreparedLayout;
 import com.itsaky.toaster.Toaster;
 
 import org.eclipse.lsp4j.jsonrpc.CompletableFutures;
@@ -84,12 +88,34 @@ import java.util.List;
 import java.util.Stack;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DesignerActivity extends StudioActivity implements WidgetItemAdapter.OnDragStartListener {
     
     private ActivityDesignerBinding mBinding;
     private UIWidgetGroup checkedWidgetCategory;
     private IViewGroup inflatedRoot;
+    private IView mRoot;
+    private volatile File mLayoutFile;
+    private volatile long mLayoutModified;
+    private volatile long mLayoutLength;
+    
+    /**
+     * Whether the layout has been edited in the designer. The edits are only written when the
+     * designer is closed, so external changes of the file are not applied after this.
+     */
+    private volatile boolean mHasUnsavedEdits = false;
+    private boolean mExternalChangeIgnored = false;
+    
+    /**
+     * Reads the layout in the background. Created on the main thread, used from the watcher too.
+     */
+    private TaskExecutor mPrepareExecutor;
+    
+    /**
+     * Incremented for each read of the changed layout file, so that only the last one is shown.
+     */
+    private final AtomicInteger mPrepareGeneration = new AtomicInteger ();
     
     private AttrEditorSheet mEditorSheet;
     
@@ -103,6 +129,44 @@ public class DesignerActivity extends StudioActivity implements WidgetItemAdapte
     private final boolean isTablet = DeviceUtils.isTablet ();
     private final List<UIWidgetGroup> widgetGroups = new ArrayList<> ();
     
+    // Updates the preview when the layout file is changed outside of the designer
+    private final WorkspaceWatcher.Listener mLayoutWatcher = (dir, recursive) -> {
+        final File file = mLayoutFile;
+        if (file == null || !isInside (file, dir, recursive)) {
+            return;
+        }
+        
+        final long modified = file.lastModified ();
+        final long length = file.length ();
+        if (modified == mLayoutModified && length == mLayoutLength) {
+            return;
+        }
+        
+        mLayoutModified = modified;
+        mLayoutLength = length;
+        
+        if (mHasUnsavedEdits) {
+            ThreadUtils.runOnUiThread (this::onExternalChangeIgnored);
+            return;
+        }
+        
+        // Read the new layout like the first one, only the views are updated on the main thread
+        final int generation = mPrepareGeneration.incrementAndGet ();
+        mPrepareExecutor.executeAsyncProvideError (() -> getApp ().getLayoutInflater ().prepare (file), (layout, error) -> {
+            if (generation != mPrepareGeneration.get ()) {
+                // The file has changed again meanwhile
+                return;
+            }
+            
+            if (error != null) {
+                // The layout is probably being edited. Keep the last preview.
+                LOG.warn ("Unable to read the layout", error);
+                return;
+            }
+            updateLayout (layout);
+        });
+    };
+    
     // This will make sure to apply listeners, background and data to view that are inflated from XML.
     private final IInflateListener mInflateListener = new IInflateListener () {
         
@@ -133,6 +197,11 @@ public class DesignerActivity extends StudioActivity implements WidgetItemAdapte
                 inflatedRoot = (IViewGroup) rootView;
             }
         }
+        
+        @Override
+        public void onFinishPhase (IInflateListener.Phase phase, long nanos) {
+            LOG.debug ("Inflation phase", phase, "took", nanos / 1000000, "ms");
+        }
     };
     
     @Override
@@ -166,23 +235,19 @@ public class DesignerActivity extends StudioActivity implements WidgetItemAdapte
         final var name = path.substring (path.lastIndexOf (File.separator) + 1);
         getSupportActionBar ().setTitle (name);
         
-        try {
-            final ILayoutInflater inflater = getApp ().getLayoutInflater ();
-            inflater.resetContextProvider (newContextProvider ());
-            inflater.registerInflateListener (this.mInflateListener);
-            final IView view = inflater.inflatePath (path, mBinding.layoutContainer);
-            
-            if (this.inflatedRoot != null) {
-                this.inflatedRoot.asView ().setOnDragListener (getOnDragListener (this.inflatedRoot));
-            }
-            
-            mBinding.layoutContainer.addView (view.asView ());
-            mBinding.layoutContainer.setOnClickListener (v -> mBinding.getRoot ().openDrawer (GravityCompat.START));
-        } catch (Throwable th) {
-            mBinding.layoutContainer.removeAllViews ();
-            mBinding.layoutContainer.addView (createErrorText (th));
-            LOG.error (getString (R.string.err_cannot_inflate_layout), th);
-        }
+        final ILayoutInflater inflater = getApp ().getLayoutInflater ();
+        inflater.resetContextProvider (newContextProvider ());
+        inflater.registerInflateListener (this.mInflateListener);
+        
+        final File layoutFile = new File (path);
+        this.mLayoutFile = layoutFile;
+        this.mLayoutModified = layoutFile.lastModified ();
+        this.mLayoutLength = layoutFile.length ();
+        mBinding.layoutContainer.setOnClickListener (v -> mBinding.getRoot ().openDrawer (GravityCompat.START));
+        
+        // Read the layout and its resources in the background, only the views are created on the main thread
+        mPrepareExecutor = TaskExecutor.with (this).withPriority (Priority.HIGH);
+        mPrepareExecutor.executeAsyncProvideError (() -> inflater.prepare (layoutFile), this::onLayoutPrepared);
         
         setupWidgets ();
         
@@ -194,6 +259,86 @@ public class DesignerActivity extends StudioActivity implements WidgetItemAdapte
         }
     }
     
+    private void onLayoutPrepared (PreparedLayout layout, Throwable error) {
+        if (error == null) {
+            try {
+                final IView view = getApp ().getLayoutInflater ().inflate (layout, mBinding.layoutContainer);
+                
+                if (this.inflatedRoot != null) {
+                    this.inflatedRoot.asView ().setOnDragListener (getOnDragListener (this.inflatedRoot));
+                }
+                
+                this.mRoot = view;
+                mBinding.layoutContainer.addView (view.asView ());
+                WorkspaceWatcher.getInstance ().addListener (mLayoutWatcher);
+                return;
+            } catch (Throwable th) {
+                error = th;
+            }
+        }
+        
+        mBinding.layoutContainer.removeAllViews ();
+        mBinding.layoutContainer.addView (createErrorText (error));
+        LOG.error (getString (R.string.err_cannot_inflate_layout), error);
+    }
+    
+    /**
+     * Update the preview to match the new content of the layout file. Only the views and the
+     * attributes that have changed are updated.
+     */
+    private void updateLayout (PreparedLayout layout) {
+        if (isDestroyed () || mRoot == null) {
+            return;
+        }
+        
+        if (mHasUnsavedEdits) {
+            onExternalChangeIgnored ();
+            return;
+        }
+        
+        final IView view;
+        try {
+            view = getApp ().getLayoutInflater ().update (mRoot, layout, mBinding.layoutContainer);
+        } catch (Throwable th) {
+            // The layout is probably being edited. Keep the last preview.
+            LOG.warn ("Unable to update the preview", th);
+            return;
+        }
+        
+        if (view != mRoot) {
+            mBinding.layoutContainer.removeAllViews ();
+            mBinding.layoutContainer.addView (view.asView ());
+            mRoot = view;
+        }
+        
+        if (this.inflatedRoot != null) {
+            this.inflatedRoot.asView ().setOnDragListener (getOnDragListener (this.inflatedRoot));
+        }
+    }
+    
+    /**
+     * Tell the user, once, that the layout file has changed but the preview was not updated.
+     */
+    private void onExternalChangeIgnored () {
+        if (isDestroyed () || mExternalChangeIgnored) {
+            return;
+        }
+        mExternalChangeIgnored = true;
+        getApp ().toast (R.string.msg_designer_external_change_ignored, Toaster.Type.INFO);
+    }
+    
+    private void onLayoutEdited () {
+        mHasUnsavedEdits = true;
+    }
+    
+    private static boolean isInside (@NonNull File file, @NonNull File dir, boolean recursive) {
+        final File parent = file.getParentFile ();
+        if (recursive) {
+            return file.getAbsolutePath ().startsWith (dir.getAbsolutePath () + File.separator);
+        }
+        return parent != null && parent.getAbsolutePath ().equals (dir.getAbsolutePath ());
+    }
+    
     @Override
     public void onBackPressed () {
         // When the user presses the back button, set the activity result and finish this activity
@@ -257,6 +402,7 @@ public class DesignerActivity extends StudioActivity implements WidgetItemAdapte
         }
         
         this.mEditorSheet = null;
+        WorkspaceWatcher.getInstance ().removeListener (mLayoutWatcher);
         
         // Release the reference to inflate listener and context from the layout inflater
         // Failing to do so will lead getSupportFragmentManager() to return a destroyed fragment manager
@@ -388,7 +534,10 @@ public class DesignerActivity extends StudioActivity implements WidgetItemAdapte
         return new WidgetDragListener (
                 this,
                 group,
-                this::setupInflatedView);
+                view -> {
+                    onLayoutEdited ();
+                    setupInflatedView (view);
+                });
     }
     
     private void setDragDataToInflatedView (@NonNull IView view) {
@@ -399,6 +548,7 @@ public class DesignerActivity extends StudioActivity implements WidgetItemAdapte
         return this.mEditorSheet == null
                 ? mEditorSheet = new AttrEditorSheet ()
                 .setDeletionFailedListener (this::onViewDeletionFailed)
+                .setViewEditedListener (view -> onLayoutEdited ())
                 : mEditorSheet;
     }
     
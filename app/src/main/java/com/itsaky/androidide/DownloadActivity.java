@@ -30,7 +30,7 @@ import android.view.View;
 import android.view.View.OnClickListener;
 import androidx.core.content.ContextCompat;
 import androidx.transition.TransitionManager;
-import com.blankj.utilcode.util.FileIOUtils;
+import com.blankj.utilcode.util.ConvertUtils;
 import com.blankj.utilcode.util.SizeUtils;
 import com.blankj.utilcode.util.ThreadUtils;
 import com.google.android.material.button.MaterialButton;
@@ -38,7 +38,9 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.itsaky.androidide.app.StudioActivity;
 import com.itsaky.androidide.databinding.ActivityDownloadBinding;
 import com.itsaky.androidide.fragments.sheets.ProgressSheet;
+import com.itsaky.androidide.managers.ArtifactExtractor;
 import com.itsaky.androidide.managers.PreferenceManager;
+import com.itsaky.androidide.managers.ToolsManager;
 import com.itsaky.androidide.shell.IProcessExecutor;
 import com.itsaky.androidide.shell.ProcessExecutorFactory;
 import com.itsaky.androidide.shell.ProcessStreamsHolder;
@@ -53,6 +55,7 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 public class DownloadActivity extends StudioActivity {
 	
@@ -113,41 +116,79 @@ public class DownloadActivity extends StudioActivity {
 		}
 	}
 	
-	private final String DONE = "DONE";
-    
+	/**
+	 * Extract every archive in the chosen directory. Archives are extracted in parallel and
+	 * the aggregated progress is shown. Archives that were already extracted and have not
+	 * changed are skipped. An interrupted installation resumes where it stopped.
+	 */
 	private void installAll() {
+		final File[] files = choosenDir.listFiles(ARCHIVE_FILTER);
+		if (files == null || files.length <= 0) {
+			onInstallationFailed(2);
+			return;
+		}
+		
 		showProgress();
 		getApp().getPrefManager().putBoolean(PreferenceManager.KEY_FRAMEWORK_DOWNLOADED, true);
 		
-        try {
-            final File script = createExtractScript();
-            final ProcessStreamsHolder holder = new ProcessStreamsHolder ();
-            final IProcessExecutor executor = ProcessExecutorFactory.commonExecutor();
-            
-            executor.execAsync(holder,
-                code -> onInstallProcessExit (code),
-                true,
-                Environment.BUSYBOX.getAbsolutePath(), "sh",// We use busybox's sh, because Environment.SHELL is not installed yet...
-                script.getAbsolutePath()
-            );
-            
-            final InputStreamLineReader reader = new InputStreamLineReader (holder.in, line -> onInstallationOutput (line));
-            new Thread (reader).start();
-            
-        } catch (DownloadActivity.InstallationException e) {
-            LOG.error(getString(R.string.err_installation), e);
-            onInstallationFailed(e.exitCode);
-        } catch (IOException e) {
-            LOG.error(getString(R.string.err_installation), e);
-            onInstallationFailed(5); // Exit code 5 : I/O Error
-        }
+		final List<ArtifactExtractor.Artifact> artifacts = new ArrayList<>();
+		for (File f : files) {
+			final ArtifactExtractor.Source source = ArtifactExtractor.fileSource(f);
+			if (f.getName().endsWith(".tar.xz")) {
+				final File dest = f.getName().startsWith("androidide-sysroot") ? Environment.SYSROOT.getParentFile() : Environment.HOME;
+				artifacts.add(new ArtifactExtractor.TarXzArtifact(f.getName(), source, dest));
+			} else {
+				// java.util.zip does not restore file modes, so zip archives are still extracted by busybox
+				artifacts.add(new ArtifactExtractor.CommandArtifact(f.getName(), source, Environment.HOME, Environment.HOME,
+					Environment.BUSYBOX.getAbsolutePath(), "unzip", "-o", "-q", f.getAbsolutePath()));
+			}
+		}
+		
+		final ArtifactExtractor extractor = new ArtifactExtractor(ToolsManager.getStateDir(getApp()));
+		TaskExecutor.with(this).executeAsyncProvideError(() -> extractor.run(artifacts, this::onInstallProgress), (result, error) -> {
+			if (error != null || result == null || !result.isSuccessful()) {
+				LOG.error(getString(R.string.err_installation), error != null ? error : result);
+				onInstallationFailed(5); // Exit code 5 : I/O Error
+				return;
+			}
+			
+			LOG.info("Installed tools:", result);
+			if (result.getExtracted().isEmpty()) {
+				onInstallProcessExit(0);
+			} else {
+				cleanBinaries();
+			}
+		});
+	}
+	
+	private void onInstallProgress(long done, long total) {
+		ThreadUtils.runOnUiThread(() -> {
+			final String size = ConvertUtils.byte2FitMemorySize(done) + " / " + ConvertUtils.byte2FitMemorySize(total);
+			getProgressSheet().setSubMessage(getString(R.string.msg_install_progress, total <= 0 ? 0 : done * 100 / total, size));
+		});
+	}
+	
+	/**
+	 * Remove the flags that are not supported by the dynamic linker from the extracted binaries.
+	 */
+	private void cleanBinaries() {
+		getProgressSheet().setSubMessage(getString(R.string.msg_cleaning_binaries));
+		try {
+			final ProcessStreamsHolder holder = new ProcessStreamsHolder ();
+			final IProcessExecutor executor = ProcessExecutorFactory.commonExecutor();
+			executor.execAsync(holder,
+				code -> onInstallProcessExit (code),
+				true,
+				Environment.BUSYBOX.getAbsolutePath(), "find", Environment.JAVA_HOME.getAbsolutePath(), "-type", "f", "-exec", "androidide-cleaner", "{}", ";"
+			);
+			
+			// Output of the cleaner is not shown, but it must be read
+			new Thread (new InputStreamLineReader (holder.in, line -> {})).start();
+		} catch (IOException e) {
+			LOG.error(getString(R.string.err_installation), e);
+			onInstallationFailed(5);
+		}
 	}
-    
-    private void onInstallationOutput (final String line) {
-        ThreadUtils.runOnUiThread(() -> {
-            getProgressSheet().setSubMessage(line);
-        });
-    }
     
     private void onInstallProcessExit (final int code) {
         ThreadUtils.runOnUiThread(() -> {
@@ -181,53 +222,6 @@ public class DownloadActivity extends StudioActivity {
         builder.show();
     }
 
-    private File createExtractScript() throws DownloadActivity.InstallationException {
-        final StringBuilder sb = new StringBuilder ();
-        sb.append("cd");
-        joiner(sb);
-        sb.append("echo 'Installing...'");
-        joiner(sb);
-        
-        File[] files = choosenDir.listFiles(ARCHIVE_FILTER);
-        
-        if (files == null || files.length <= 0) {
-            throw new InstallationException (2);
-        }
-        
-        for (File f : files) {
-            if(f.getName().endsWith(".tar.xz")) {
-                if(f.getName().startsWith("androidide-sysroot")) {
-                    sb.append("cd $SYSROOT/..");
-                    joiner(sb);
-                }
-                sb.append("$BUSYBOX tar xvJf '" + f.getAbsolutePath() + "'");
-                joiner(sb);
-                sb.append("cd $HOME");
-                joiner(sb);
-            } else if(f.getName().endsWith(".zip")) {
-                sb.append("$BUSYBOX unzip '" + f.getAbsolutePath() + "'");
-                joiner(sb);
-            }
-        }
-        
-        sb.append("echo 'Cleaning unsupported flags in binaries...'");
-        joiner(sb);
-        sb.append("$BUSYBOX find $JAVA_HOME -type f -exec androidide-cleaner {} \\;");
-        joiner(sb);
-        sb.append("echo " + DONE);
-        
-        final File script = new File (Environment.TMP_DIR, "extract_tools.sh");
-        if (!FileIOUtils.writeFileFromString(script, sb.toString())) {
-            throw new InstallationException (2);
-        }
-        
-        return script;
-    }
-    
-    private void joiner (StringBuilder sb) {
-        sb.append(" && ");
-    }
-
 	@Override
 	protected void onActivityResult(int requestCode, int resultCode, Intent data) {
 		super.onActivityResult(requestCode, resultCode, data);
@@ -240,7 +234,7 @@ public class DownloadActivity extends StudioActivity {
 						this.choosenDir = choosenDir;
 						setDone(binding.choose);
 						binding.install.setEnabled(true);
-						new TaskExecutor().executeAsync(new ListDirectoryCallable(choosenDir), __ -> {
+						TaskExecutor.with(this).executeAsync(new ListDirectoryCallable(choosenDir), __ -> {
 							binding.filesText.setText(getString(R.string.msg_installable_files, __));
 						});
 					} else {
@@ -300,11 +294,4 @@ public class DownloadActivity extends StudioActivity {
 			return p1.isFile() && (p1.getName().endsWith(".tar.xz") || p1.getName().endsWith(".zip"));
 		}
 	};
-    
-    private class InstallationException extends Exception {
-        private final int exitCode;
-        public InstallationException(int exitCode) {
-            this.exitCode = exitCode;
-        }
-    }
 }
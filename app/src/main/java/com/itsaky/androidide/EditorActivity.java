@@ -27,13 +27,17 @@ import android.content.IntentFilter;
 import android.graphics.Rect;
 import android.graphics.drawable.GradientDrawable;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.Gravity;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
 import android.widget.CheckBox;
 import android.widget.LinearLayout;
+import android.widget.ListView;
 
 import androidx.activity.result.ActivityResult;
 import androidx.activity.result.ActivityResultLauncher;
@@ -65,9 +69,11 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.itsaky.androidide.adapters.DiagnosticsAdapter;
 import com.itsaky.androidide.adapters.EditorPagerAdapter;
+import com.itsaky.androidide.adapters.SearchListAdapter;
 import com.itsaky.androidide.app.StudioActivity;
 import com.itsaky.androidide.databinding.ActivityEditorBinding;
 import com.itsaky.androidide.databinding.LayoutDiagnosticInfoBinding;
+import com.itsaky.androidide.databinding.LayoutDialogTextInputBinding;
 import com.itsaky.androidide.databinding.LayoutSearchProjectBinding;
 import com.itsaky.androidide.fragments.EditorFragment;
 import com.itsaky.androidide.fragments.FileTreeFragment;
@@ -80,23 +86,34 @@ import com.itsaky.androidide.handlers.FileOptionsHandler;
 import com.itsaky.androidide.handlers.IDEHandler;
 import com.itsaky.androidide.interfaces.DiagnosticClickListener;
 import com.itsaky.androidide.interfaces.EditorActivityProvider;
+import com.itsaky.androidide.language.logs.LogBuffer;
+import com.itsaky.androidide.language.logs.LogFilter;
 import com.itsaky.androidide.language.logs.LogLanguageImpl;
 import com.itsaky.androidide.lsp.LSP;
+import com.itsaky.androidide.lsp.LSPClientLauncher;
 import com.itsaky.androidide.lsp.LSPProvider;
 import com.itsaky.androidide.managers.PreferenceManager;
 import com.itsaky.androidide.project.AndroidProject;
 import com.itsaky.androidide.models.DiagnosticGroup;
-import com.itsaky.androidide.models.LogLine;
 import com.itsaky.androidide.models.SaveResult;
 import com.itsaky.androidide.models.SearchResult;
 import com.itsaky.androidide.models.SheetOption;
 import com.itsaky.androidide.project.IDEProject;
+import com.itsaky.androidide.project.ResourceTable;
 import com.itsaky.androidide.services.LogReceiver;
+import com.itsaky.androidide.services.TrigramIndex;
+import com.itsaky.androidide.services.WorkspaceIndex;
+import com.itsaky.androidide.services.WorkspaceWatcher;
 import com.itsaky.androidide.services.builder.IDEService;
 import com.itsaky.androidide.shell.ShellServer;
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE;
 import com.itsaky.androidide.tasks.TaskExecutor;
+import com.itsaky.androidide.tasks.TaskScheduler;
+import com.itsaky.androidide.utils.ConsoleOutputBuffer;
+import com.itsaky.androidide.utils.ContentPatcher;
 import com.itsaky.androidide.utils.DialogUtils;
+import com.itsaky.androidide.utils.FileLogSink;
+import com.itsaky.androidide.utils.FileUtil;
 import com.itsaky.layoutinflater.ILayoutInflater;
 import com.itsaky.androidide.utils.LSPUtils;
 import com.itsaky.androidide.utils.Logger;
@@ -115,12 +132,14 @@ import io.github.rosemoe.editor.widget.CodeEditor;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import me.piruin.quickaction.ActionItem;
 import me.piruin.quickaction.QuickAction;
@@ -151,6 +170,8 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
     private TreeNode mLastHolded;
     private CodeEditor buildView;
     private CodeEditor logView;
+    private ConsoleOutputBuffer mBuildOutput;
+    private FileLogSink mBuildOutputSpill;
     private RecyclerView diagnosticList;
     private RecyclerView searchResultList;
     private SymbolInputView symbolInput;
@@ -167,6 +188,7 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
     private TextSheetFragment mDaemonStatusFragment;
     private OptionsListFragment mFileOptionsFragment;
     private ProgressSheet mSearchingProgress;
+    private RecursiveFileSearcher.Search mProjectSearch;
     private ProjectInfoSheet mProjectInfoSheet;
     private AlertDialog mFindInProjectDialog;
     
@@ -179,11 +201,23 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
     private static final int ACTIONID_OTHERS = 101;
     private static final int ACTIONID_ALL = 102;
     
+    private static final int GO_TO_FILE_RESULTS = 50;
+    private static final long GO_TO_FILE_DELAY_MS = 150;
+    
+    /**
+     * The size after which the saved build output is started again, the previous part is kept as {@code build_output.txt.old}.
+     */
+    private static final long BUILD_OUTPUT_MAX_SIZE = 8 * 1024 * 1024;
+    
     public static final String EXTRA_PROJECT = "project";
     
     private ActivityResultLauncher<Intent> mUIDesignerLauncher;
     
-    private LogReceiver mLogReceiver = new LogReceiver ().setLogListener (line -> appendApkLog (line));
+    private final LogBuffer mLogBuffer = new LogBuffer ();
+    private volatile LogFilter mLogFilter = LogFilter.parse (null);
+    private ConsoleOutputBuffer mLogOutput;
+    private long mShownDroppedLogs = 0;
+    private LogReceiver mLogReceiver = new LogReceiver ().setLogListener (lines -> appendApkLogs (lines));
     
     /**
      * MenuItem(s) that are related to the build process
@@ -237,10 +271,13 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
         
         createQuickActions ();
         
+        mBuildOutput = new ConsoleOutputBuffer (() -> getBuildView (true), getApp ().getPrefManager ().getBuildOutputLineLimit ());
+        mLogOutput = new ConsoleOutputBuffer (() -> getLogView (true), mLogBuffer.getCapacity ());
         mBuildServiceHandler = new BuildServiceHandler (this);
         mFileOptionsHandler = new FileOptionsHandler (this);
         
         startServices ();
+        startWorkspaceServices ();
         
         KeyboardUtils.registerSoftInputChangedListener (this, __ -> onSoftInputChanged ());
         registerLogReceiver ();
@@ -303,6 +340,7 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
     @Override
     protected void onResume () {
         super.onResume ();
+        updateBuildOutputConfig ();
         try {
             mFileTreeFragment.listProjectFiles ();
         } catch (Throwable th) {
@@ -313,10 +351,19 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
     @Override
     protected void onDestroy () {
         closeProject (false);
+        mBuildOutput.setSpill (null);
         try {
             unregisterReceiver (mLogReceiver);
         } catch (Throwable th) {
         }
+        mLogReceiver.shutdown ();
+        WorkspaceWatcher.getInstance ().stop ();
+        TrigramIndex.getInstance ().disable ();
+        ResourceTable.getInstance ().disable ();
+        WorkspaceIndex.getInstance ().close ();
+        if (mProjectSearch != null) {
+            mProjectSearch.cancel ();
+        }
         super.onDestroy ();
     }
     
@@ -434,9 +481,9 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
         } else if (id == R.id.menuEditor_save) {
             /*
              * 1. Notify that all files are saved
-             * 2. If there were any XML files modified, call ':app:processDebugResources' task
+             * 2. If there were any XML files modified, update the R and view binding classes
              *
-             * This will make sure that we generate view bindings and R.jar at proper time
+             * They are generated in the IDE when possible, or by the ':app:processDebugResources' task
              * This will further result in updated code completion
              */
             saveAll (true, true);
@@ -454,6 +501,8 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
             this.mCurrentFragment.uncommentLine ();
         } else if (id == R.id.menuEditor_findFile && mCurrentFragment != null && this.mCurrentFragment.isVisible ()) {
             this.mCurrentFragment.beginSearch ();
+        } else if (id == R.id.menuEditor_gotoFile) {
+            showGoToFileDialog ();
         } else if (id == R.id.menuEditor_findProject) {
             AlertDialog d = getFindInProjectDialog ();
             if (d != null) {
@@ -465,6 +514,8 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
             }
         } else if (id == R.id.menuEditor_viewLayout && mCurrentFile != null) {
             previewLayout ();
+        } else if (id == R.id.menuEditor_lspStats) {
+            showLanguageServerStats ();
         }
         invalidateOptionsMenu ();
         return true;
@@ -502,7 +553,12 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
     }
     
     public void handleSearchResults (Map<File, List<SearchResult>> results) {
-        getSearchResultList ().setAdapter (new com.itsaky.androidide.adapters.SearchListAdapter (results, file -> {
+        createSearchResultsAdapter (results);
+        onSearchResultsAvailable ();
+    }
+    
+    private SearchListAdapter createSearchResultsAdapter (Map<File, List<SearchResult>> results) {
+        final SearchListAdapter adapter = new SearchListAdapter (results, file -> {
             openFile (file);
             hideSearchResults ();
             hideViewOptions ();
@@ -510,7 +566,12 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
             openFileAndSelect (match.file, match);
             hideSearchResults ();
             hideViewOptions ();
-        }));
+        });
+        getSearchResultList ().setAdapter (adapter);
+        return adapter;
+    }
+    
+    private void onSearchResultsAvailable () {
         mBinding.transformScrim.setVisibility (View.VISIBLE);
         mBinding.fabView.setVisibility (View.GONE);
         showSearchResults ();
@@ -520,29 +581,195 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
         }
     }
     
-    public void appendApkLog (LogLine line) {
-        getLogLanguage ().addLine (line);
-        appendLogOut (line.toString ());
+    /**
+     * Search in the given directories. The results are shown as soon as the first file with
+     * matches is found, and are added to the list while the search continues.
+     */
+    private void searchInProject (String text, boolean regex, List<String> exts, List<File> searchDirs) {
+        if (mProjectSearch != null) {
+            mProjectSearch.cancel ();
+        }
+        
+        final SearchListAdapter adapter = createSearchResultsAdapter (new HashMap<> ());
+        mProjectSearch = RecursiveFileSearcher.searchRecursiveAsync (text, regex, exts, searchDirs, new RecursiveFileSearcher.Callback () {
+            
+            @Override
+            public void onFileResult (File file, List<SearchResult> results) {
+                if (adapter.getItemCount () == 0) {
+                    onSearchResultsAvailable ();
+                }
+                adapter.addResults (file, results);
+            }
+            
+            @Override
+            public void onComplete (int files, int matches, boolean cancelled) {
+                if (!cancelled && files == 0) {
+                    onSearchResultsAvailable ();
+                }
+            }
+        });
+    }
+    
+    /**
+     * Parse the log lines into the log buffer and show the ones that match the current filter.
+     * Called on the log decoder thread.
+     */
+    public void appendApkLogs (List<String> lines) {
+        // The filter must not change while the lines are shown, see setLogFilter
+        synchronized (mLogBuffer) {
+            final LogFilter filter = mLogFilter;
+            for (String line : lines) {
+                final String formatted = mLogBuffer.append (line, filter);
+                if (formatted != null) {
+                    appendLogOut (formatted);
+                }
+            }
+        }
+        
+        final long dropped = mLogReceiver.getDroppedCount ();
+        if (dropped != mShownDroppedLogs) {
+            mShownDroppedLogs = dropped;
+            runOnUiThread (() -> mBinding.logOutToolbar.setSubtitle (getString (R.string.msg_logs_dropped, dropped)));
+        }
     }
     
     public void setIDEProject (IDEProject project) {
         this.mIDEProject = project;
     }
     
+    /**
+     * Append a line to the build output. Can be called from any thread.
+     * Lines are batched and appended to the build output view once per frame.
+     */
     public void appendBuildOut (final String str) {
-        runOnUiThread (() -> {
-            String strFinal = str.endsWith ("\n") ? str : str.concat ("\n");
-            getBuildView (true).getText ().append (strFinal);
-        });
+        mBuildOutput.append (str);
+    }
+    
+    private void updateBuildOutputConfig () {
+        final PreferenceManager prefs = getApp ().getPrefManager ();
+        mBuildOutput.setLineLimit (prefs.getBuildOutputLineLimit ());
+        if (prefs.isBuildOutputSpillEnabled ()) {
+            if (mBuildOutputSpill == null) {
+                // Lines are never dropped, but only the output of the recent builds is kept on the disk
+                mBuildOutputSpill = new FileLogSink (new File (FileUtil.getExternalStorageDir (), "ide_xlog/build_output.txt"), FileLogSink.UNBOUNDED, BUILD_OUTPUT_MAX_SIZE);
+                mBuildOutput.setSpill (mBuildOutputSpill);
+            }
+        } else {
+            mBuildOutputSpill = null;
+            mBuildOutput.setSpill (null);
+        }
     }
     
     public void appendLogOut (final String str) {
-        runOnUiThread (() -> {
-            String strFinal = str.endsWith ("\n") ? str : str.concat ("\n");
-            getLogView (true).getText ().append (strFinal);
+        mLogOutput.append (str);
+    }
+    
+    private void setLogFilter (LogFilter filter) {
+        // Lines decoded meanwhile are either selected here or shown with the new filter, never both
+        synchronized (mLogBuffer) {
+            mLogFilter = filter;
+            mLogOutput.clear ();
+            for (String line : mLogBuffer.select (filter)) {
+                mLogOutput.append (line);
+            }
+        }
+    }
+    
+    /**
+     * Let the user open a file of the project by typing a part of its name. The files are
+     * matched fuzzily with the workspace index.
+     */
+    private void showGoToFileDialog () {
+        final LayoutDialogTextInputBinding binding = LayoutDialogTextInputBinding.inflate (getLayoutInflater ());
+        final List<WorkspaceIndex.Entry> matches = new ArrayList<> ();
+        final ArrayAdapter<String> adapter = new ArrayAdapter<> (this, android.R.layout.simple_list_item_1);
+        final ListView list = new ListView (this);
+        list.setAdapter (adapter);
+        binding.getRoot ().addView (list, new LinearLayout.LayoutParams (ViewGroup.LayoutParams.MATCH_PARENT, SizeUtils.dp2px (300)));
+        binding.name.setCounterEnabled (false);
+        binding.name.getEditText ().setHint (R.string.hint_go_to_file);
+        
+        final String root = new File (mProject.getProjectPath ()).getAbsolutePath () + File.separator;
+        final TaskScheduler.Task[] search = new TaskScheduler.Task[1];
+        final Runnable findFiles = () -> {
+            if (search[0] != null) {
+                search[0].cancel ();
+            }
+            
+            final String query = binding.name.getEditText ().getText ().toString ();
+            if (query.isEmpty ()) {
+                matches.clear ();
+                adapter.clear ();
+                return;
+            }
+            
+            search[0] = TaskExecutor.with (this).withPool (TaskScheduler.Pool.CPU).executeAsync (() -> WorkspaceIndex.getInstance ().findFiles (query, GO_TO_FILE_RESULTS), found -> {
+                if (!query.equals (binding.name.getEditText ().getText ().toString ())) {
+                    // Typed meanwhile, another search is coming
+                    return;
+                }
+                
+                matches.clear ();
+                adapter.clear ();
+                if (found != null) {
+                    matches.addAll (found);
+                    for (WorkspaceIndex.Entry entry : found) {
+                        final String path = entry.file.getAbsolutePath ();
+                        adapter.add (path.startsWith (root) ? path.substring (root.length ()) : path);
+                    }
+                }
+            });
+        };
+        binding.name.getEditText ().addTextChangedListener (new TextWatcher () {
+            @Override
+            public void beforeTextChanged (CharSequence s, int start, int count, int after) {
+            }
+            
+            @Override
+            public void onTextChanged (CharSequence s, int start, int before, int count) {
+            }
+            
+            @Override
+            public void afterTextChanged (Editable s) {
+                // Search once the user stops typing
+                list.removeCallbacks (findFiles);
+                list.postDelayed (findFiles, GO_TO_FILE_DELAY_MS);
+            }
+        });
+        
+        final MaterialAlertDialogBuilder builder = DialogUtils.newMaterialDialogBuilder (this);
+        builder.setTitle (R.string.menu_go_to_file);
+        builder.setView (binding.getRoot ());
+        builder.setNegativeButton (android.R.string.cancel, null);
+        final AlertDialog dialog = builder.show ();
+        dialog.setOnDismissListener (d -> {
+            list.removeCallbacks (findFiles);
+            if (search[0] != null) {
+                search[0].cancel ();
+            }
+        });
+        list.setOnItemClickListener ((parent, view, position, id) -> {
+            dialog.dismiss ();
+            openFile (matches.get (position).file);
         });
     }
     
+    private void showLogFilterDialog () {
+        final LayoutDialogTextInputBinding binding = LayoutDialogTextInputBinding.inflate (getLayoutInflater ());
+        final MaterialAlertDialogBuilder builder = DialogUtils.newMaterialDialogBuilder (this);
+        binding.name.getEditText ().setHint (R.string.hint_log_filter);
+        binding.name.getEditText ().setText (mLogFilter.toString ());
+        builder.setTitle (R.string.title_filter_logs);
+        builder.setMessage (R.string.msg_log_filter);
+        builder.setView (binding.getRoot ());
+        builder.setPositiveButton (android.R.string.ok, (d, w) -> {
+            d.dismiss ();
+            setLogFilter (LogFilter.parse (binding.name.getEditText ().getText ().toString ()));
+        });
+        builder.setNegativeButton (android.R.string.cancel, null);
+        builder.show ();
+    }
+    
     public void showFiles () {
         if (mBinding.viewOptionsCard.getVisibility () == View.VISIBLE) {
             hideViewOptions ();
@@ -1022,8 +1249,36 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
         }
     }
     
+    /**
+     * Show the message statistics of the Java language server and write them to a file.
+     */
+    private void showLanguageServerStats () {
+        final LSPClientLauncher launcher = LSP.Java.getLauncher ();
+        if (launcher == null) {
+            getApp ().toast (R.string.msg_lsp_not_started, Toaster.Type.ERROR);
+            return;
+        }
+        
+        final String report = launcher.createTraceReport ();
+        final TextSheetFragment sheet = new TextSheetFragment ().setTextSelectable (true).setTitleText (R.string.menu_lsp_stats);
+        sheet.append (report);
+        sheet.show (getSupportFragmentManager (), "lsp_stats");
+        
+        final File dump = new File (FileUtil.getExternalStorageDir (), "ide_xlog/lsp_stats.txt");
+        TaskExecutor.with (this).executeAsyncProvideError (() -> {
+            launcher.getTracer ().dump (dump, launcher.getOutboundPipeline ());
+            return dump;
+        }, (result, error) -> {
+            if (error != null) {
+                LOG.error ("Unable to write language server statistics", error);
+                return;
+            }
+            getApp ().toast (getString (R.string.msg_lsp_stats_written, result.getAbsolutePath ()), Toaster.Type.INFO);
+        });
+    }
+    
     public void createServices () {
-        new TaskExecutor ().executeAsync (() -> {
+        TaskExecutor.with (this).executeAsync (() -> {
             IDELanguageServer javaServer = LSPProvider.getServerForLanguage (LSPProvider.LANGUAGE_JAVA);
             if (javaServer == null) {
                 return null;
@@ -1112,7 +1367,10 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
             final var data = result.getData ();
             if (data != null) {
                 final var code = data.getStringExtra (DesignerActivity.KEY_GENERATED_CODE);
-                mCurrentFragment.getEditor ().setText (code);
+                
+                // Edit only the changed lines. This keeps the undo history, and the whole
+                // file does not need to be analyzed again.
+                ContentPatcher.patch (mCurrentFragment.getEditor ().getText (), code);
                 saveAll ();
             } else {
                 final var msg = getString (R.string.msg_invalid_designer_result);
@@ -1183,6 +1441,17 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
         });
     }
     
+    private void startWorkspaceServices () {
+        final File projectDir = new File (mProject.getProjectPath ());
+        final File indexDir = new File (getFilesDir (), "index");
+        WorkspaceIndex.getInstance ().open (projectDir, indexDir);
+        ResourceTable.getInstance ().enable ();
+        if (getApp ().getPrefManager ().isSearchIndexEnabled ()) {
+            TrigramIndex.getInstance ().enable (indexDir);
+        }
+        WorkspaceWatcher.getInstance ().watch (projectDir);
+    }
+    
     private void getProjectFromIntent () {
         this.mProject = getIntent ().getParcelableExtra (EXTRA_PROJECT);
         getApp ().getPrefManager ().setOpenedProject (this.mProject.getProjectPath ());
@@ -1223,9 +1492,15 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
         getMenuInflater ().inflate (R.menu.menu_build_output, mBinding.buildOutToolbar.getMenu ());
         mBinding.buildOutToolbar.setOnMenuItemClickListener (item -> {
             if (item.getItemId () == R.id.buildOut_clear) {
-                getBuildView ().setText ("");
+                mBuildOutput.clear ();
                 setStatus ("");
                 return true;
+            } else if (item.getItemId () == R.id.buildOut_cancel) {
+                // Builds in the Gradle session are cancelled without stopping the daemon
+                if (getBuildService () != null && getBuildService ().isBuilding ()) {
+                    getBuildService ().cancelBuild ();
+                }
+                return true;
             }
             return false;
         });
@@ -1235,6 +1510,20 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
         mBinding.logOutToolbar.setNavigationOnClickListener (v -> hideLogResult ());
         mBinding.logOutToolbar.setOnClickListener (v -> hideLogResult ());
         
+        mBinding.logOutToolbar.getMenu ().clear ();
+        getMenuInflater ().inflate (R.menu.menu_log_output, mBinding.logOutToolbar.getMenu ());
+        mBinding.logOutToolbar.setOnMenuItemClickListener (item -> {
+            if (item.getItemId () == R.id.logOut_filter) {
+                showLogFilterDialog ();
+                return true;
+            } else if (item.getItemId () == R.id.logOut_clear) {
+                mLogBuffer.clear ();
+                mLogOutput.clear ();
+                return true;
+            }
+            return false;
+        });
+        
         mBinding.diagListContainer.addView (getDiagnosticsList (), new ViewGroup.LayoutParams (-1, -1));
         mBinding.diagContainer.setVisibility (View.GONE);
         mBinding.diagToolbar.setNavigationOnClickListener (v -> hideDiagnostics ());
@@ -1424,9 +1713,15 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
             if (searchDirs == null || searchDirs.isEmpty ()) {
                 getApp ().toast (R.string.msg_select_search_modules, Toaster.Type.ERROR);
             } else {
+                final boolean regex = binding.regex.isChecked ();
+                if (regex && !isValidRegex (text)) {
+                    getApp ().toast (R.string.msg_invalid_regex, Toaster.Type.ERROR);
+                    return;
+                }
+                
                 dialog.dismiss ();
                 getProgressSheet (R.string.msg_searching_project).show (getSupportFragmentManager (), "search_in_project_progress");
-                RecursiveFileSearcher.searchRecursiveAsync (text, exts, searchDirs, result -> handleSearchResults (result));
+                searchInProject (text, regex, exts, searchDirs);
             }
         });
         builder.setNegativeButton (android.R.string.cancel, (__, ___) -> __.dismiss ());
@@ -1434,6 +1729,15 @@ public class EditorActivity extends StudioActivity implements FileTreeFragment.F
         return mFindInProjectDialog;
     }
     
+    private boolean isValidRegex (String regex) {
+        try {
+            Pattern.compile (regex);
+            return true;
+        } catch (PatternSyntaxException e) {
+            return false;
+        }
+    }
+    
     private void registerLogReceiver () {
         IntentFilter filter = new IntentFilter ();
         filter.addAction (LogReceiver.APPEND_LOG);
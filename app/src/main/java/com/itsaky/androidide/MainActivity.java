@@ -176,6 +176,14 @@ public class MainActivity extends StudioActivity implements View.OnClickListener
         setMessage(taskName);
     }
 
+    @Override
+    public void onProgress(long written, long total) {
+        if (mProgressSheet != null) {
+            mProgressSheet.setSubMessageEnabled(true);
+            mProgressSheet.setSubMessage(getString(R.string.msg_project_write_progress, written * 100 / total));
+        }
+    }
+
     @Override
     public void onSuccess(File root) {
         if (mProgressSheet != null)
@@ -291,7 +299,7 @@ public class MainActivity extends StudioActivity implements View.OnClickListener
         mProgressSheet.setCancelable(false);
         mProgressSheet.show(getSupportFragmentManager(), "opening_project");
 
-        new TaskExecutor().executeAsync(new ProjectReader(root), project -> openEditor(project, false));
+        TaskExecutor.with(this).executeAsync(new ProjectReader(root), project -> openEditor(project, false));
     }
 
     private void pickProject() {
@@ -336,7 +344,7 @@ public class MainActivity extends StudioActivity implements View.OnClickListener
     }
 
     private void createProject(String appName, String packageName, int minSdk, int targetSdk) {
-        new TaskExecutor().executeAsync(new ProjectCreatorCallable(mTemplates.get(currentTemplateIndex), new NewProjectDetails(appName, packageName, minSdk, targetSdk), this), r -> {});
+        TaskExecutor.with(this).executeAsync(new ProjectCreatorCallable(mTemplates.get(currentTemplateIndex), new NewProjectDetails(appName, packageName, minSdk, targetSdk), this), r -> {});
     }
 
     private boolean isValid(String appName, String packageName, int minSdk, int targetSdk) {
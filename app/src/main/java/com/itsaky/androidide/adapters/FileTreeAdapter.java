@@ -0,0 +1,110 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.adapters;
+
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import com.itsaky.androidide.R;
+import com.itsaky.androidide.adapters.viewholders.FileTreeViewHolder;
+import com.itsaky.androidide.databinding.LayoutFiletreeItemBinding;
+import com.unnamed.b.atv.model.TreeNode;
+import java.io.File;
+
+/**
+ * Shows a file tree as a flat list of its visible nodes. Only the rows that are on the screen
+ * are bound.
+ *
+ * The rows are immutable snapshots of the nodes, so that the differences between two lists can
+ * be computed on a background thread while the nodes are being modified.
+ *
+ * @author Akash Yadav
+ */
+public class FileTreeAdapter extends ListAdapter<FileTreeAdapter.Row, FileTreeViewHolder> {
+
+    private static final DiffUtil.ItemCallback<Row> DIFF = new DiffUtil.ItemCallback<Row>() {
+
+        @Override
+        public boolean areItemsTheSame(@NonNull Row oldItem, @NonNull Row newItem) {
+            return oldItem.node == newItem.node;
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Row oldItem, @NonNull Row newItem) {
+            return oldItem.level == newItem.level
+                && oldItem.directory == newItem.directory
+                && oldItem.expanded == newItem.expanded
+                && oldItem.loading == newItem.loading
+                && oldItem.file.equals(newItem.file);
+        }
+    };
+
+    private final TreeNode.TreeNodeClickListener clickListener;
+    private final TreeNode.TreeNodeLongClickListener longClickListener;
+
+    public FileTreeAdapter(@Nullable TreeNode.TreeNodeClickListener clickListener, @Nullable TreeNode.TreeNodeLongClickListener longClickListener) {
+        super(DIFF);
+        this.clickListener = clickListener;
+        this.longClickListener = longClickListener;
+    }
+
+    @NonNull
+    @Override
+    public FileTreeViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        final LayoutFiletreeItemBinding binding = LayoutFiletreeItemBinding.inflate(LayoutInflater.from(parent.getContext()), parent, false);
+        binding.getRoot().setBackgroundResource(R.drawable.bg_ripple);
+        return new FileTreeViewHolder(binding);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull FileTreeViewHolder holder, int position) {
+        final Row row = getItem(position);
+        holder.bind(row);
+        holder.itemView.setOnClickListener(v -> {
+            if (clickListener != null) {
+                clickListener.onClick(row.node, row.file);
+            }
+        });
+        holder.itemView.setOnLongClickListener(v -> longClickListener != null && longClickListener.onLongClick(row.node, row.file));
+    }
+
+    /**
+     * A visible node of the tree.
+     */
+    public static class Row {
+
+        public final TreeNode node;
+        public final File file;
+        public final int level;
+        public final boolean directory;
+        public final boolean expanded;
+        public final boolean loading;
+
+        public Row(@NonNull TreeNode node, boolean directory, boolean loading) {
+            this.node = node;
+            this.file = node.getValue();
+            this.level = node.getLevel();
+            this.directory = directory;
+            this.expanded = node.isExpanded();
+            this.loading = loading;
+        }
+    }
+}
@@ -34,14 +34,17 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import androidx.lifecycle.LifecycleOwner;
 import androidx.transition.TransitionManager;
 import androidx.transition.ChangeBounds;
 import com.itsaky.androidide.tasks.TaskExecutor;
+import com.itsaky.androidide.tasks.TaskScheduler.Priority;
 import com.blankj.utilcode.util.FileUtils;
 import com.itsaky.androidide.app.StudioApp;
 import com.itsaky.toaster.Toaster;
 
 public class ProjectsListAdapter extends RecyclerView.Adapter<ProjectsListAdapter.VH> {
+	private final LifecycleOwner owner;
 	private ArrayList<AndroidProject> mProjects;
 	private OnProjectClickListener listener;
 	
@@ -53,7 +56,8 @@ public class ProjectsListAdapter extends RecyclerView.Adapter<ProjectsListAdapte
 		}
 	};
 
-	public ProjectsListAdapter(ArrayList<AndroidProject> mProjects, OnProjectClickListener listener) {
+	public ProjectsListAdapter(LifecycleOwner owner, ArrayList<AndroidProject> mProjects, OnProjectClickListener listener) {
+		this.owner = owner;
 		this.mProjects = mProjects;
 		this.listener = listener;
 		Collections.sort(this.mProjects, PROJECTS_SORTER);
@@ -86,7 +90,7 @@ public class ProjectsListAdapter extends RecyclerView.Adapter<ProjectsListAdapte
 		mProjects.remove(index);
 		notifyItemRemoved(index);
 		
-		new TaskExecutor().executeAsync(() -> FileUtils.delete(project.getProjectPath()), __ -> {
+		TaskExecutor.with(owner).withPriority(Priority.LOW).executeAsync(() -> FileUtils.delete(project.getProjectPath()), __ -> {
 			StudioApp.getInstance().toast(__ ? R.string.msg_project_deleted : R.string.msg_project_delete_failed, Toaster.Type.SUCCESS);
 		});
 	}
@@ -83,7 +83,19 @@ public class SearchListAdapter extends RecyclerView.Adapter<SearchListAdapter.VH
 
     @Override
     public int getItemCount() {
-        return results.size();
+        return keys.size();
+    }
+    
+    /**
+     * Add the matches found in a file. Used to show results while the search is running.
+     */
+    public void addResults(File file, List<SearchResult> matches) {
+        if (results.put(file, matches) == null) {
+            keys.add(file);
+            notifyItemInserted(keys.size() - 1);
+        } else {
+            notifyItemChanged(keys.indexOf(file));
+        }
     }
 
     public class ChildAdapter extends RecyclerView.Adapter<ChildVH> {
@@ -24,68 +24,59 @@ package com.itsaky.androidide.adapters.viewholders;
 import android.content.Context;
 import android.graphics.PorterDuff;
 import android.util.TypedValue;
-import android.view.LayoutInflater;
 import android.view.View;
-import android.widget.ImageView;
+import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.RecyclerView;
 import com.itsaky.androidide.R;
-import com.itsaky.androidide.app.StudioActivity;
+import com.itsaky.androidide.adapters.FileTreeAdapter;
 import com.itsaky.androidide.databinding.LayoutFiletreeItemBinding;
 import com.itsaky.androidide.utils.Environment;
-import com.unnamed.b.atv.model.TreeNode;
 import java.io.File;
 
-public class FileTreeViewHolder extends TreeNode.BaseNodeViewHolder<File> {
+public class FileTreeViewHolder extends RecyclerView.ViewHolder {
 	
-	private Context context;
-	private ImageView chevron;
-	private LayoutFiletreeItemBinding binding;
+	private final LayoutFiletreeItemBinding binding;
+	private final int basePadding;
+	private final int indent;
 
-	public FileTreeViewHolder(Context context) {
-		super(context);
-		this.context = context;
+	public FileTreeViewHolder(@NonNull LayoutFiletreeItemBinding binding) {
+		super(binding.getRoot());
+		this.binding = binding;
+		this.basePadding = binding.getRoot().getPaddingLeft();
+		this.indent = (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 15, binding.getRoot().getResources().getDisplayMetrics());
 	}
 
-	@Override
-	public View createNodeView(TreeNode node, File file) {
-		binding = LayoutFiletreeItemBinding.inflate(LayoutInflater.from(context));
-		int dp15 = context instanceof StudioActivity ? ((StudioActivity) context).dpToPx(15) : (int) (TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, 15, context.getResources().getDisplayMetrics()));
-		int icon = 0;
-		if (file.isDirectory())
-			icon = R.drawable.ic_folder;
-		else if (file.getName().endsWith(".java"))
-			icon = R.drawable.ic_language_java;
-		else if (file.getName().endsWith(".kt"))
-			icon = R.drawable.ic_language_kotlin;
-		else if (file.getName().endsWith(".xml"))
-			icon = R.drawable.ic_language_xml;
-		else if (file.getName().endsWith(".gradle"))
-			icon = R.drawable.ic_language_gradle;
-		else if (file.getName().endsWith(".json"))
-			icon = R.drawable.ic_language_json;
-		else
-			icon = R.drawable.ic_file_unknown;
-
+	public void bind(@NonNull FileTreeAdapter.Row row) {
+		final Context context = binding.getRoot().getContext();
+		final File file = row.file;
+		final int color = ContextCompat.getColor(context, row.loading ? R.color.secondaryColor : R.color.secondaryLightColor);
+		
 		final boolean isGradle = file.getAbsolutePath().equals(Environment.GRADLE_USER_HOME.getAbsolutePath());
-		chevron = binding.getRoot().findViewById(R.id.filetree_chevron);
 		binding.filetreeName.setText(isGradle ? "GRADLE_HOME" : file.getName());
-		binding.filetreeIcon.setImageResource(icon);
-		binding.getRoot().setPadding(binding.getRoot().getPaddingLeft() + (dp15 * (node.getLevel() - 1)), binding.getRoot().getPaddingTop(), binding.getRoot().getPaddingRight(), binding.getRoot().getPaddingBottom());
-		chevron.setVisibility(file.isFile() ? View.INVISIBLE : View.VISIBLE);
-		chevron.setImageResource(node.isExpanded() ? R.drawable.ic_chevron_down : R.drawable.ic_chevron_right);
-		chevron.getDrawable().setColorFilter(ContextCompat.getColor(context, R.color.secondaryLightColor), PorterDuff.Mode.SRC_ATOP);
+		binding.filetreeIcon.setImageResource(getIcon(file.getName(), row.directory));
 		binding.filetreeIcon.getDrawable().setColorFilter(ContextCompat.getColor(context, R.color.secondaryLightColor), PorterDuff.Mode.SRC_ATOP);
+		binding.getRoot().setPadding(basePadding + (indent * (row.level - 1)), binding.getRoot().getPaddingTop(), binding.getRoot().getPaddingRight(), binding.getRoot().getPaddingBottom());
 		
-		return binding.getRoot();
+		binding.filetreeChevron.setVisibility(row.directory ? View.VISIBLE : View.INVISIBLE);
+		binding.filetreeChevron.setImageResource(row.expanded ? R.drawable.ic_chevron_down : R.drawable.ic_chevron_right);
+		binding.filetreeChevron.getDrawable().setColorFilter(color, PorterDuff.Mode.SRC_ATOP);
 	}
 	
-	public void setLoading() {
-		chevron.getDrawable().setColorFilter(ContextCompat.getColor(context, R.color.secondaryLightColor), PorterDuff.Mode.SRC_ATOP);
-	}
-
-	public void updateChevron(boolean isExpanded) {
-		chevron.setImageResource(isExpanded ? R.drawable.ic_chevron_down : R.drawable.ic_chevron_right);
-		chevron.getDrawable().setColorFilter(ContextCompat.getColor(context, R.color.secondaryLightColor), PorterDuff.Mode.SRC_ATOP);
+	private static int getIcon(String name, boolean directory) {
+		if (directory)
+			return R.drawable.ic_folder;
+		else if (name.endsWith(".java"))
+			return R.drawable.ic_language_java;
+		else if (name.endsWith(".kt"))
+			return R.drawable.ic_language_kotlin;
+		else if (name.endsWith(".xml"))
+			return R.drawable.ic_language_xml;
+		else if (name.endsWith(".gradle"))
+			return R.drawable.ic_language_gradle;
+		else if (name.endsWith(".json"))
+			return R.drawable.ic_language_json;
+		else
+			return R.drawable.ic_file_unknown;
 	}
 }
-
@@ -17,6 +17,7 @@
 **************************************************************************************/
 package com.itsaky.androidide.app;
 
+import android.util.Log;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.itsaky.androidide.language.xml.completion.XMLCompletionService;
 import com.itsaky.androidide.project.ProjectResourceFinder;
@@ -24,14 +25,14 @@ import com.itsaky.androidide.services.MessagingService;
 import com.itsaky.layoutinflater.ILayoutInflater;
 import com.itsaky.layoutinflater.IResourceFinder;
 import com.itsaky.layoutinflater.LayoutInflaterConfiguration;
+import com.itsaky.layoutinflater.util.DrawableCache;
+import com.itsaky.androidide.utils.FileLogSink;
 import com.itsaky.androidide.utils.FileUtil;
 import com.itsaky.androidide.utils.Logger;
 import com.itsaky.apiinfo.ApiInfo;
 import com.itsaky.attrinfo.AttrInfo;
 import com.itsaky.widgets.WidgetInfo;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.util.Set;
 
 public class StudioApp extends BaseApplication {
@@ -43,6 +44,7 @@ public class StudioApp extends BaseApplication {
     private static WidgetInfo mWidgetInfo;
 
     private IResourceFinder mResFinder;
+    private FileLogSink mLogSink;
     
     private XMLCompletionService mXmlCompletionService;
     private ILayoutInflater mLayoutInflater;
@@ -56,28 +58,38 @@ public class StudioApp extends BaseApplication {
 		this.instance = this;
 		super.onCreate();
         
+        Logger.setLevel (DEBUG ? Log.VERBOSE : Log.INFO);
+        
 		FirebaseMessaging.getInstance().subscribeToTopic(MessagingService.TOPIC_UPDATE);
 		FirebaseMessaging.getInstance().subscribeToTopic(MessagingService.TOPIC_DEV_MSGS);
         
         initializeApiInformation();
 	}
     
+    @Override
+    public void onTrimMemory (int level) {
+        super.onTrimMemory (level);
+        
+        // The previews of the drawables are kept between designer sessions
+        DrawableCache.getInstance ().onTrimMemory (level);
+    }
+    
 	private void handleLog(CharSequence seq) {
 		if(seq == null)
 			return;
-		String line = seq.toString();
-		line = line.endsWith("\n") ? line : line + "\n";
-		
-		File log = new File(FileUtil.getExternalStorageDir(), "ide_xlog/idelog.txt");
-		try {
-			FileOutputStream os = new FileOutputStream(log, true);
-			os.write(line.getBytes());
-			os.close();
-		} catch (IOException e) {
-		    // ignored
-        }
+		getLogSink().append(seq);
 	}
     
+    /**
+     * Logs are written from several threads, all of them must use the same sink.
+     */
+    private synchronized FileLogSink getLogSink() {
+        if(mLogSink == null) {
+            mLogSink = new FileLogSink(new File(FileUtil.getExternalStorageDir(), "ide_xlog/idelog.txt"));
+        }
+        return mLogSink;
+    }
+    
     public void createInflater (LayoutInflaterConfiguration config) {
         this.mLayoutInflater = ILayoutInflater.newInstance(config);
     }
@@ -106,7 +118,14 @@ public class StudioApp extends BaseApplication {
     public void initializeApiInformation() {
         new Thread(() -> {
             try {
+                final long heapBefore = usedHeap ();
                 mApiInfo = new ApiInfo (StudioApp.this);
+                if (DEBUG) {
+                    LOG.debug ("API info:", mApiInfo.getClassCount (), "classes,",
+                            mApiInfo.getPooledNameCount (), "pooled names,",
+                            mApiInfo.getEncodedBytes (), "encoded bytes, heap delta:",
+                            (usedHeap () - heapBefore) / 1024, "KB");
+                }
                 mAttrInfo = new AttrInfo (StudioApp.this);
                 mWidgetInfo = new WidgetInfo (StudioApp.this);
                 
@@ -117,6 +136,11 @@ public class StudioApp extends BaseApplication {
         }, "SDK Information Loader").start();
     }
     
+    private long usedHeap () {
+        final Runtime runtime = Runtime.getRuntime ();
+        return runtime.totalMemory () - runtime.freeMemory ();
+    }
+    
     public void stopAllDaemons() {
         newShell(null).bgAppend("gradle --stop");
     }
@@ -35,6 +35,7 @@ import com.itsaky.androidide.project.AndroidProject;
 import com.itsaky.androidide.models.ConstantsBridge;
 import com.itsaky.androidide.syntax.colorschemes.SchemeAndroidIDE;
 import com.itsaky.androidide.tasks.TaskExecutor;
+import com.itsaky.androidide.tasks.TaskScheduler.Priority;
 import com.itsaky.androidide.tasks.callables.ReadFileTask;
 import com.itsaky.androidide.utils.LSPUtils;
 import com.itsaky.androidide.utils.TypefaceUtils;
@@ -162,7 +163,7 @@ public class EditorFragment extends BaseFragment implements EditorEventListener
 		configureEditorIfNeeded();
 		
         final Range range = fromArgs(getArguments());
-		new TaskExecutor().executeAsync(new ReadFileTask(mFile), result -> {
+		TaskExecutor.with(this).withPriority(Priority.HIGH).executeAsync(new ReadFileTask(mFile), result -> {
 			mBinding.editor.setText(result);
 			postRead();
             mBinding.editor.post(() -> {
@@ -21,42 +21,69 @@
 
 package com.itsaky.androidide.fragments;
 
-import android.content.Context;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.HorizontalScrollView;
 import android.widget.ProgressBar;
-import androidx.transition.ChangeBounds;
-import androidx.transition.TransitionManager;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import com.blankj.utilcode.util.FileIOUtils;
-import com.bumptech.glide.Glide;
+import com.blankj.utilcode.util.FileUtils;
+import com.blankj.utilcode.util.ThreadUtils;
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
-import com.itsaky.androidide.R;
-import com.itsaky.androidide.adapters.viewholders.FileTreeViewHolder;
-import com.itsaky.androidide.app.StudioApp;
+import com.itsaky.androidide.adapters.FileTreeAdapter;
 import com.itsaky.androidide.databinding.LayoutEditorFileTreeBinding;
 import com.itsaky.androidide.project.AndroidProject;
 import com.itsaky.androidide.tasks.TaskExecutor;
-import com.itsaky.androidide.tasks.callables.FileTreeCallable;
 import com.itsaky.androidide.utils.Environment;
-import com.itsaky.toaster.Toaster;
+import com.itsaky.androidide.utils.Logger;
 import com.unnamed.b.atv.model.TreeNode;
-import com.unnamed.b.atv.view.AndroidTreeView;
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
-import com.blankj.utilcode.util.FileUtils;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Shows the files of the project.
+ *
+ * The tree is shown as a flat list in a {@link RecyclerView}. Directories are listed on a
+ * background thread when they are expanded. Refreshing the tree lists again the expanded
+ * directories and keeps the existing nodes, so only the rows that changed are updated.
+ */
 public class FileTreeFragment extends BottomSheetDialogFragment implements TreeNode.TreeNodeClickListener, TreeNode.TreeNodeLongClickListener {
 	
+	private static final String KEY_EXPANDED = "expandedPaths";
+	private static final Logger LOG = Logger.instance("FileTreeFragment");
+	private static final Comparator<File> BY_NAME = (f1, f2) -> f1.getName().compareTo(f2.getName());
+	
 	private LayoutEditorFileTreeBinding binding;
-	private AndroidTreeView mFileTreeView;
+	private FileTreeAdapter mAdapter;
 	private FileActionListener mFileActionListener;
 	private AndroidProject mProject;
 	private TreeNode mRoot;
 	
+	/**
+	 * The nodes are only modified by the actions in this queue, which run one after the other on the
+	 * shared IO pool. The adapter gets immutable snapshots of the visible rows.
+	 */
+	private final TaskExecutor mTreeExecutor = TaskExecutor.with(this);
+	private final ArrayDeque<Runnable> mTreeActions = new ArrayDeque<>();
+	private boolean mDrainingTreeActions = false;
+	
+	// These are only accessed by the tree actions
+	private final Set<TreeNode> mDirectories = new HashSet<>();
+	private final Set<TreeNode> mLoading = new HashSet<>();
+	private final Set<String> mRestoredExpansion = new HashSet<>();
+	private TreeNode mGradleHome;
+	
 	public FileTreeFragment() {
 	}
 
@@ -84,10 +111,35 @@ public class FileTreeFragment extends BottomSheetDialogFragment implements TreeN
 		super.onViewCreated(view, savedInstanceState);
 		if (getActivity() == null || getArguments() == null || !getArguments().containsKey("project")) return;
 		mProject = getArguments().getParcelable("project");
+		
+		mAdapter = new FileTreeAdapter(this, this);
+		getListView().setLayoutManager(new LinearLayoutManager(getContext()));
+		getListView().setAdapter(mAdapter);
+		
+		if (savedInstanceState != null && savedInstanceState.containsKey(KEY_EXPANDED)) {
+			final ArrayList<String> expanded = savedInstanceState.getStringArrayList(KEY_EXPANDED);
+			post(() -> mRestoredExpansion.addAll(expanded));
+		}
         
 		listProjectFiles();
 	}
 	
+	@Override
+	public void onSaveInstanceState(@NonNull Bundle outState) {
+		super.onSaveInstanceState(outState);
+		if (mAdapter == null) {
+			return;
+		}
+		
+		final ArrayList<String> expanded = new ArrayList<>();
+		for (FileTreeAdapter.Row row : mAdapter.getCurrentList()) {
+			if (row.expanded) {
+				expanded.add(row.file.getAbsolutePath());
+			}
+		}
+		outState.putStringArrayList(KEY_EXPANDED, expanded);
+	}
+	
 	@Override
 	public void onClick(TreeNode node, Object p2) {
 		final File f = (File) p2;
@@ -98,55 +150,11 @@ public class FileTreeFragment extends BottomSheetDialogFragment implements TreeN
 		} else if(f.isDirectory() && f.exists()) {
 			if(node.isExpanded()) {
 				collapseNode(node);
-			} else if(f.getAbsolutePath().equals(Environment.GRADLE_USER_HOME.getAbsolutePath()) && !node.isExpanded()) {
-				expandNode(node);
 			} else {
-				setLoading(node);
-				listNode(node, true);
+				expandNode(node);
 			}
 		}
 	}
-	
-	private void listNode(TreeNode node, boolean wasClicked) {
-		node.getChildren().clear();
-		node.setExpanded(false);
-		new TaskExecutor().executeAsync(() -> {
-			getNodeFromFiles(node.getValue().listFiles(/* new FileTreeCallable.HiddenFilesFilter() */), node);
-			TreeNode temp = node;
-			while(temp.size() == 1) {
-				temp = temp.childAt(0);
-				if(!temp.getValue().isDirectory()) break;
-				getNodeFromFiles(temp.getValue().listFiles(/* new FileTreeCallable.HiddenFilesFilter() */), temp);
-				temp.setExpanded(true);
-			}
-			return null;
-		}, __ -> {
-			updateChevron(node);
-			expandNode(node);
-		});
-	}
-	
-	private void getNodeFromFiles(File[] files, TreeNode parent) {
-		Arrays.sort(files, new FileTreeCallable.SortFileName());
-		Arrays.sort(files, new FileTreeCallable.SortFolder());
-		for (File file : files) {
-			TreeNode node = new TreeNode(file);
-			node.setViewHolder(new FileTreeViewHolder(getContext()));
-			parent.addChild(node);
-		}
-	}
-	
-	private void setLoading(TreeNode node) {
-		if (node.getViewHolder() instanceof FileTreeViewHolder) {
-			((FileTreeViewHolder) node.getViewHolder()).setLoading();
-		}
-	}
-	
-	private void updateChevron(TreeNode node) {
-		if (node.getViewHolder() instanceof FileTreeViewHolder) {
-			((FileTreeViewHolder) node.getViewHolder()).updateChevron(!node.isExpanded());
-		}
-	}
 
 	@Override
 	public boolean onLongClick(TreeNode node, Object value) {
@@ -155,79 +163,229 @@ public class FileTreeFragment extends BottomSheetDialogFragment implements TreeN
 		return true;
 	}
 	
+	/**
+	 * List the given directory again and expand it. If the directory was listed before, it is
+	 * expanded immediately and updated once it has been listed.
+	 */
 	public void expandNode(TreeNode node) {
-		if(mFileTreeView == null) {
-			return;
-		}
-		
-		TransitionManager.beginDelayedTransition(binding.getRoot(), new ChangeBounds());
-		mFileTreeView.expandNode(node);
+		post(() -> {
+			if (node.size() > 0 || isGradleHome(node)) {
+				node.setExpanded(true);
+				publish();
+			} else {
+				mLoading.add(node);
+				publish();
+			}
+			
+			listNode(node);
+			mLoading.remove(node);
+			node.setExpanded(true);
+			publish();
+		});
 	}
 	
 	public void collapseNode(TreeNode node) {
-		if(mFileTreeView == null) {
-			return;
-		}
-		
-		TransitionManager.beginDelayedTransition(binding.getRoot(), new ChangeBounds());
-		mFileTreeView.collapseNode(node);
+		post(() -> {
+			node.setExpanded(false);
+			publish();
+		});
 	}
-	
 
+	/**
+	 * Show the files of the project. If they are already shown, the expanded directories are
+	 * listed again and only the differences are applied.
+	 */
 	public void listProjectFiles() {
 		if (mProject == null)
 			return;
 		
+		final File projectDir = new File(mProject.getProjectPath());
+		if (mRoot != null && projectDir.equals(mRoot.getValue())) {
+			post(() -> {
+				listNode(mRoot);
+				publish();
+			});
+			return;
+		}
+		
+		final TreeNode root = mRoot = TreeNode.root(projectDir);
+		getListView().setVisibility(View.GONE);
+		getLoadingProgress().setVisibility(View.VISIBLE);
+		post(() -> {
+			mDirectories.clear();
+			mLoading.clear();
+			mGradleHome = createGradleHomeNode();
+			listNode(root);
+			publish();
+			ThreadUtils.runOnUiThread(() -> {
+				if (binding != null) {
+					getListView().setVisibility(View.VISIBLE);
+					getLoadingProgress().setVisibility(View.GONE);
+				}
+			});
+		});
+	}
+	
+	private TreeNode createGradleHomeNode() {
 		final File gradleProps = Environment.GRADLE_PROPS;
 		final File gradleHome = Environment.GRADLE_USER_HOME;
-        final File root = StudioApp.getInstance().getRootDir().getParentFile();
-        File projectDir = new File(mProject.getProjectPath());
-//        projectDir = root;
-		mRoot = TreeNode.root(projectDir);
-		if(gradleHome.exists() && gradleHome.isDirectory()) {
-			if(!gradleProps.exists())
-				FileIOUtils.writeFileFromString(gradleProps, Environment.SAMPLE_GRADLE_PROP_CONTENTS);
-			TreeNode home = new TreeNode(gradleHome);
-			home.setViewHolder(new FileTreeViewHolder(getContext()));
-			TreeNode prop = new TreeNode(gradleProps);
-			prop.setViewHolder(new FileTreeViewHolder(getContext()));
-			home.addChild(prop);
-			mRoot.addChild(home);
-		}
-		mRoot.setViewHolder(new FileTreeViewHolder(getContext()));
+		if(!gradleHome.exists() || !gradleHome.isDirectory()) {
+			return null;
+		}
 		
-		getScrollView().setVisibility(View.GONE);
-		getLoadingProgress().setVisibility(View.VISIBLE);
-		new TaskExecutor().executeAsync(new FileTreeCallable(getContext(), mRoot, projectDir), (result) -> {
-			getScrollView().setVisibility(View.VISIBLE);
-			getLoadingProgress().setVisibility(View.GONE);
-			AndroidTreeView tree = createTreeView(mRoot);
-			if(tree != null) {
-				tree.setUseAutoToggle(false);
-				tree.setDefaultNodeClickListener(FileTreeFragment.this);
-				tree.setDefaultNodeLongClickListener(FileTreeFragment.this);
-				getScrollView().removeAllViews();
-				getScrollView().addView(tree.getView());
+		if(!gradleProps.exists())
+			FileIOUtils.writeFileFromString(gradleProps, Environment.SAMPLE_GRADLE_PROP_CONTENTS);
+		final TreeNode home = new TreeNode(gradleHome);
+		home.addChild(new TreeNode(gradleProps));
+		mDirectories.add(home);
+		return home;
+	}
+	
+	/**
+	 * List the files in the given directory and merge them with the existing children. Children that
+	 * are still present keep their node, and expanded children are listed again.
+	 *
+	 * Must be called from a tree action.
+	 */
+	private void listNode(TreeNode node) {
+		if (isGradleHome(node)) {
+			return;
+		}
+		
+		final Map<File, TreeNode> existing = new HashMap<>();
+		for (TreeNode child : node.getChildren()) {
+			if (!isGradleHome(child)) {
+				existing.put(child.getValue(), child);
 			}
-		});
+		}
+		final boolean firstListing = existing.isEmpty();
+		
+		final File[] files = node.getValue().listFiles();
+		final List<File> dirs = new ArrayList<>();
+		final List<File> regular = new ArrayList<>();
+		if (files != null) {
+			for (File file : files) {
+				(file.isDirectory() ? dirs : regular).add(file);
+			}
+		}
+		Collections.sort(dirs, BY_NAME);
+		Collections.sort(regular, BY_NAME);
+		
+		final List<TreeNode> children = new ArrayList<>(dirs.size() + regular.size() + 1);
+		if (node == mRoot && mGradleHome != null) {
+			children.add(mGradleHome);
+		}
+		for (File dir : dirs) {
+			final TreeNode child = nodeFor(dir, existing);
+			mDirectories.add(child);
+			children.add(child);
+		}
+		for (File file : regular) {
+			final TreeNode child = nodeFor(file, existing);
+			mDirectories.remove(child);
+			children.add(child);
+		}
+		for (TreeNode removed : existing.values()) {
+			forget(removed);
+		}
+		node.setChildren(children);
+		
+		for (TreeNode child : children) {
+			if (!mDirectories.contains(child) || isGradleHome(child)) {
+				continue;
+			}
+			
+			final boolean restored = mRestoredExpansion.remove(child.getValue().getAbsolutePath());
+			
+			// Directories with a single subdirectory (mostly packages) are expanded all at once
+			final boolean singleDir = firstListing && children.size() == 1;
+			if (child.isExpanded() || restored || singleDir) {
+				child.setExpanded(true);
+				listNode(child);
+			}
+		}
 	}
-
-	public AndroidTreeView createTreeView(TreeNode node) {
-		Context ctx = null;
-		if(getActivity() != null)
-			ctx = getActivity();
-		else if(getContext() != null) {
-			ctx = getContext();
+	
+	private TreeNode nodeFor(File file, Map<File, TreeNode> existing) {
+		final TreeNode node = existing.remove(file);
+		return node == null ? new TreeNode(file) : node;
+	}
+	
+	private void forget(TreeNode node) {
+		mDirectories.remove(node);
+		mLoading.remove(node);
+		for (TreeNode child : node.getChildren()) {
+			forget(child);
+		}
+	}
+	
+	/**
+	 * Send the visible rows to the adapter. Must be called from a tree action.
+	 */
+	private void publish() {
+		final List<FileTreeAdapter.Row> rows = new ArrayList<>();
+		if (mRoot != null) {
+			flatten(mRoot, rows);
 		}
 		
-		if(ctx == null)
-			return null;
+		ThreadUtils.runOnUiThread(() -> {
+			if (mAdapter != null) {
+				mAdapter.submitList(rows);
+			}
+		});
+	}
+	
+	private void flatten(TreeNode node, List<FileTreeAdapter.Row> rows) {
+		for (TreeNode child : node.getChildren()) {
+			final boolean directory = mDirectories.contains(child);
+			rows.add(new FileTreeAdapter.Row(child, directory, mLoading.contains(child)));
+			if (directory && child.isExpanded()) {
+				flatten(child, rows);
+			}
+		}
+	}
+	
+	private boolean isGradleHome(TreeNode node) {
+		return node == mGradleHome && node != null;
+	}
+	
+	/**
+	 * Queue an action which modifies the tree. Actions that are still queued when the fragment is
+	 * destroyed are dropped.
+	 */
+	private void post(Runnable action) {
+		synchronized (mTreeActions) {
+			mTreeActions.addLast(action);
+			if (mDrainingTreeActions) {
+				return;
+			}
+			mDrainingTreeActions = true;
+		}
 		
-		return mFileTreeView = new AndroidTreeView(ctx, node, R.drawable.bg_ripple);
+		mTreeExecutor.executeAsync(this::drainTreeActions, __ -> {});
+	}
+	
+	private Void drainTreeActions() {
+		while (true) {
+			final Runnable action;
+			synchronized (mTreeActions) {
+				action = mTreeActions.pollFirst();
+				if (action == null) {
+					mDrainingTreeActions = false;
+					return null;
+				}
+			}
+			
+			try {
+				action.run();
+			} catch (Throwable th) {
+				LOG.error("Unable to update the file tree", th);
+			}
+		}
 	}
 
-	public HorizontalScrollView getScrollView() {
-		return binding.filetreeHorizontalScrollView;
+	public RecyclerView getListView() {
+		return binding.filetreeList;
 	}
 
 	public ProgressBar getLoadingProgress() {
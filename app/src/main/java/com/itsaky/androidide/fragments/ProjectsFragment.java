@@ -75,7 +75,7 @@ public class ProjectsFragment extends BaseFragment {
 			getRecyclerView().setVisibility(View.GONE);
 			setLoading(true);
 			final ProjectsFragment frag = this;
-			new TaskExecutor().executeAsync(new GetProjectsTask(), (result) -> {
+			TaskExecutor.with(this).executeAsync(new GetProjectsTask(), (result) -> {
 				frag.setLoading(false);
 
 				if (frag.getProjectsList() == null || frag.getProjectsList().size() == 0) {
@@ -87,7 +87,7 @@ public class ProjectsFragment extends BaseFragment {
 					frag.getProgressBar().setVisibility(View.GONE);
 					frag.getRecyclerView().setVisibility(View.VISIBLE);
 					frag.getRecyclerView().setLayoutManager(new LinearLayoutManager(getActivity()));
-					frag.getRecyclerView().setAdapter(new ProjectsListAdapter(mProjects, (project) -> openProject(project)));
+					frag.getRecyclerView().setAdapter(new ProjectsListAdapter(frag, mProjects, (project) -> openProject(project)));
 				}
 			});
 		}
@@ -25,16 +25,19 @@ import android.os.Bundle;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceCategory;
 import androidx.preference.PreferenceScreen;
+import androidx.preference.SwitchPreference;
 import com.blankj.utilcode.util.FileUtils;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.itsaky.androidide.R;
 import com.itsaky.androidide.fragments.sheets.ProgressSheet;
 import com.itsaky.androidide.tasks.TaskExecutor;
+import com.itsaky.androidide.tasks.TaskScheduler.Priority;
 import com.itsaky.androidide.utils.DialogUtils;
 import com.itsaky.androidide.utils.Environment;
+import com.itsaky.androidide.managers.PreferenceManager;
 import java.io.File;
 
-public class BuildPreferences extends BasePreferenceFragment implements Preference.OnPreferenceClickListener {
+public class BuildPreferences extends BasePreferenceFragment implements Preference.OnPreferenceClickListener, Preference.OnPreferenceChangeListener {
 	
 	public static final String KEY_GRADLE_COMMAMDS = "idepref_build_gradleCommands";
 	public static final String KEY_GRADLE_CLEAR_CACHE = "idepref_build_gradleClearCache";
@@ -49,8 +52,12 @@ public class BuildPreferences extends BasePreferenceFragment implements Preferen
 		final PreferenceCategory categoryGradle = new PreferenceCategory(getContext());
 		final Preference customCommands = new Preference(getContext());
 		final Preference clearCache = new Preference(getContext());
+		final PreferenceCategory categoryOutput = new PreferenceCategory(getContext());
+		final Preference outputLimit = new Preference(getContext());
+		final SwitchPreference outputSpill = new SwitchPreference(getContext());
 		
 		screen.addPreference(categoryGradle);
+		screen.addPreference(categoryOutput);
 		
 		customCommands.setKey(KEY_GRADLE_COMMAMDS);
 		customCommands.setIcon(R.drawable.ic_bash_commands);
@@ -65,11 +72,29 @@ public class BuildPreferences extends BasePreferenceFragment implements Preferen
 		categoryGradle.setTitle(R.string.gradle);
 		categoryGradle.addPreference(customCommands);
 		categoryGradle.addPreference(clearCache);
+		
+		outputLimit.setKey(PreferenceManager.KEY_BUILD_OUTPUT_LINE_LIMIT);
+		outputLimit.setIcon(R.drawable.ic_build_output);
+		outputLimit.setTitle(R.string.idepref_build_outputLimit_title);
+		outputLimit.setSummary(R.string.idepref_build_outputLimit_summary);
+		
+		outputSpill.setKey(PreferenceManager.KEY_BUILD_OUTPUT_SPILL);
+		outputSpill.setIcon(R.drawable.ic_save);
+		outputSpill.setTitle(R.string.idepref_build_outputSpill_title);
+		outputSpill.setSummary(R.string.idepref_build_outputSpill_summary);
+		
+		categoryOutput.setTitle(R.string.build_output);
+		categoryOutput.addPreference(outputLimit);
+		categoryOutput.addPreference(outputSpill);
         
 		setPreferenceScreen(screen);
         
 		customCommands.setOnPreferenceClickListener(this);
 		clearCache.setOnPreferenceClickListener(this);
+		outputLimit.setOnPreferenceClickListener(this);
+		outputSpill.setOnPreferenceChangeListener(this);
+		
+		outputSpill.setChecked(getPrefManager().isBuildOutputSpillEnabled());
 	}
 
 	@Override
@@ -79,9 +104,41 @@ public class BuildPreferences extends BasePreferenceFragment implements Preferen
 			showGradleCommandsDialog();
 		} else if(key.equals(KEY_GRADLE_CLEAR_CACHE)) {
 			showClearCacheDialog();
+		} else if(key.equals(PreferenceManager.KEY_BUILD_OUTPUT_LINE_LIMIT)) {
+			showOutputLimitDialog();
+		}
+		return true;
+	}
+	
+	@Override
+	public boolean onPreferenceChange(Preference p1, Object p2) {
+		if(p1.getKey().equals(PreferenceManager.KEY_BUILD_OUTPUT_SPILL)) {
+			getPrefManager().putBoolean(PreferenceManager.KEY_BUILD_OUTPUT_SPILL, (Boolean) p2);
 		}
 		return true;
 	}
+	
+	private void showOutputLimitDialog() {
+		final int[] limits = {1000, 5000, 10000, 50000, 100000};
+		final String[] labels = new String[limits.length];
+		final int currentLimit = getPrefManager().getBuildOutputLineLimit();
+		int current = 2;
+		for(int i=0;i<limits.length;i++) {
+			labels[i] = String.valueOf(limits[i]);
+			if(limits[i] == currentLimit) {
+				current = i;
+			}
+		}
+		
+		final MaterialAlertDialogBuilder builder = DialogUtils.newMaterialDialogBuilder (getContext ());
+		builder.setTitle(R.string.idepref_build_outputLimit_title);
+		builder.setSingleChoiceItems(labels, current, (d, i) -> {
+			d.dismiss();
+			getPrefManager().putInt(PreferenceManager.KEY_BUILD_OUTPUT_LINE_LIMIT, limits[i]);
+		});
+		builder.setCancelable(true);
+		builder.show();
+	}
     
 	private void showGradleCommandsDialog() {
 		final String[] labels = {
@@ -128,7 +185,7 @@ public class BuildPreferences extends BasePreferenceFragment implements Preferen
 		builder.setPositiveButton(android.R.string.yes, (p1, p2) -> {
 			p1.dismiss();
 			getProgressSheet().show(getChildFragmentManager(), "progress_sheet");
-			new TaskExecutor().executeAsync(() -> deleteCaches(), __ -> {
+			TaskExecutor.with(this).withPriority(Priority.LOW).executeAsync(() -> deleteCaches(), __ -> {
 				getProgressSheet().dismiss();
 			});
 		});
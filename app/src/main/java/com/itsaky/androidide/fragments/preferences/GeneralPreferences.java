@@ -35,6 +35,7 @@ public class GeneralPreferences extends BasePreferenceFragment implements Prefer
         final PreferenceScreen screen = getPreferenceScreen();
 		final SwitchPreference openProjects = new SwitchPreference(getContext());
         final SwitchPreference confirmProjectOpen = new SwitchPreference(getContext());
+        final SwitchPreference searchIndex = new SwitchPreference(getContext());
         
         openProjects.setKey(KEY_OPEN_PROJECTS);
         openProjects.setTitle(R.string.title_open_projects);
@@ -46,16 +47,24 @@ public class GeneralPreferences extends BasePreferenceFragment implements Prefer
         confirmProjectOpen.setSummary(R.string.msg_confirm_project_open);
         confirmProjectOpen.setIcon(R.drawable.ic_open_project);
         
+        searchIndex.setKey(KEY_SEARCH_INDEX);
+        searchIndex.setTitle(R.string.title_search_index);
+        searchIndex.setSummary(R.string.msg_search_index);
+        searchIndex.setIcon(R.drawable.ic_search);
+        
         openProjects.setChecked(getPrefManager().autoOpenProject());
         confirmProjectOpen.setChecked(getPrefManager().confirmProjectOpen());
+        searchIndex.setChecked(getPrefManager().isSearchIndexEnabled());
         
         screen.addPreference(openProjects);
         screen.addPreference(confirmProjectOpen);
+        screen.addPreference(searchIndex);
         
         setPreferenceScreen(screen);
         
         openProjects.setOnPreferenceChangeListener(this);
         confirmProjectOpen.setOnPreferenceChangeListener(this);
+        searchIndex.setOnPreferenceChangeListener(this);
     }
 
     @Override
@@ -65,6 +74,8 @@ public class GeneralPreferences extends BasePreferenceFragment implements Prefer
             getPrefManager().putBoolean(KEY_OPEN_PROJECTS, checked);
         } else if(p1.getKey().equals(KEY_CONFIRM_PROJECT_OPEN)) {
             getPrefManager().putBoolean(KEY_CONFIRM_PROJECT_OPEN, checked);
+        } else if(p1.getKey().equals(KEY_SEARCH_INDEX)) {
+            getPrefManager().putBoolean(KEY_SEARCH_INDEX, checked);
         }
         return true;
     }
@@ -67,6 +67,7 @@ public class AttrEditorSheet extends BottomSheetDialogFragment implements Simple
     private LayoutAttrEditorSheetBinding binding;
     
     private OnViewDeletionFailedListener mDeletionFailedListener;
+    private OnViewEditedListener mViewEditedListener;
     
     private static final Logger LOG = Logger.instance ("AttrBottomSheet");
     
@@ -104,6 +105,17 @@ public class AttrEditorSheet extends BottomSheetDialogFragment implements Simple
         return this;
     }
     
+    public AttrEditorSheet setViewEditedListener (OnViewEditedListener listener) {
+        this.mViewEditedListener = listener;
+        return this;
+    }
+    
+    private void notifyViewEdited (IView view) {
+        if (mViewEditedListener != null) {
+            mViewEditedListener.onViewEdited (view);
+        }
+    }
+    
     private void setupViewData () {
         binding.actionsList.setAdapter (new SimpleIconTextAdapter (VIEW_ACTIONS).setOnBindListener (this));
         
@@ -175,6 +187,8 @@ public class AttrEditorSheet extends BottomSheetDialogFragment implements Simple
         if (!this.selectedView.updateAttribute (attribute.getNamespace (), attribute.getAttributeName (), newValue)) {
             StudioApp.getInstance ().toast ("Unable to update this attribute", Toaster.Type.ERROR);
         } else {
+            notifyViewEdited (this.selectedView);
+            
             // Update the view data
             // This will make sure that the attributes list has been updated
             setupViewData ();
@@ -201,6 +215,7 @@ public class AttrEditorSheet extends BottomSheetDialogFragment implements Simple
                 if (!handled) {
                     StudioApp.getInstance ().toast (getString(R.string.msg_view_deletion_failed), Toaster.Type.ERROR);
                 } else {
+                    notifyViewEdited (this.selectedView);
                     dismiss ();
                 }
             }, (dialog, which) -> dialog.dismiss ()).show ();
@@ -236,4 +251,12 @@ public class AttrEditorSheet extends BottomSheetDialogFragment implements Simple
          */
         boolean onDeletionFailed (IView view);
     }
+    
+    /**
+     * Notified when an attribute of a view has been changed, or when a view has been deleted.
+     */
+    public interface OnViewEditedListener {
+        
+        void onViewEdited (IView view);
+    }
 }
\ No newline at end of file
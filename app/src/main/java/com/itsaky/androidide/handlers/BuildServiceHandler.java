@@ -24,6 +24,7 @@ import com.itsaky.androidide.managers.PreferenceManager;
 import com.itsaky.androidide.project.AndroidProject;
 import com.itsaky.androidide.project.IDEModule;
 import com.itsaky.androidide.project.IDEProject;
+import com.itsaky.androidide.project.ResourceClassGenerator;
 import com.itsaky.androidide.services.builder.BuildListener;
 import com.itsaky.androidide.services.builder.IDEService;
 import com.itsaky.androidide.tasks.GradleTask;
@@ -92,6 +93,9 @@ public class BuildServiceHandler extends IDEHandler implements BuildListener {
 
             final List<String> paths = new ArrayList<String>(app.dependencies);
             paths.stream().filter(path -> isClasspathValid(path)).collect(Collectors.toList());
+            // The R class of the app is written from the resources in the IDE, it must not be in R.jar too
+            final ResourceClassGenerator generator = ResourceClassGenerator.getInstance();
+            paths.replaceAll(path -> generator.classpathEntry(app, path));
 
             provider.provideAndroidProject().setClassPaths(paths);
 
@@ -24,7 +24,6 @@ import com.blankj.utilcode.util.FileUtils;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.itsaky.androidide.EditorActivity;
 import com.itsaky.androidide.R;
-import com.itsaky.androidide.adapters.viewholders.FileTreeViewHolder;
 import com.itsaky.androidide.databinding.LayoutCreateFileJavaBinding;
 import com.itsaky.androidide.databinding.LayoutDialogTextInputBinding;
 import com.itsaky.androidide.fragments.EditorFragment;
@@ -35,7 +34,6 @@ import com.itsaky.androidide.utils.DialogUtils;
 import com.itsaky.androidide.utils.Environment;
 import com.itsaky.androidide.utils.ProjectWriter;
 import com.itsaky.toaster.Toaster;
-import com.unnamed.b.atv.model.TreeNode;
 import java.io.File;
 import java.util.regex.Pattern;
 
@@ -224,9 +222,6 @@ public class FileOptionsHandler extends IDEHandler implements OptionsListFragmen
                    LSP.notifyFileCreated(file);
                    activity(). getApp().toast(R.string.msg_file_created, Toaster.Type.SUCCESS);
                     if(activity().getLastHoldTreeNode() != null) {
-                        TreeNode node = new TreeNode(file);
-                        node.setViewHolder(new FileTreeViewHolder(activity()));
-                        activity().getLastHoldTreeNode().addChild(node);
                         activity().getFileTreeFragment().expandNode(activity().getLastHoldTreeNode());
                     } else {
                         activity().getFileTreeFragment().listProjectFiles();
@@ -261,9 +256,6 @@ public class FileOptionsHandler extends IDEHandler implements OptionsListFragmen
                     if(file.mkdirs()) {
                         activity(). getApp().toast(R.string.msg_folder_created, Toaster.Type.SUCCESS);
                         if(activity().getLastHoldTreeNode() != null) {
-                            TreeNode node = new TreeNode(file);
-                            node.setViewHolder(new FileTreeViewHolder(activity()));
-                            activity().getLastHoldTreeNode().addChild(node);
                             activity().getFileTreeFragment().expandNode(activity().getLastHoldTreeNode());
                         } else {
                             activity().getFileTreeFragment().listProjectFiles();
@@ -291,9 +283,7 @@ public class FileOptionsHandler extends IDEHandler implements OptionsListFragmen
             if(deleted) {
                 LSP.notifyFileDeleted(f);
                 if(activity().getLastHoldTreeNode() != null) {
-                    TreeNode parent = activity().getLastHoldTreeNode().getParent();
-                    parent.deleteChild(activity().getLastHoldTreeNode());
-                    activity().getFileTreeFragment().expandNode(parent);
+                    activity().getFileTreeFragment().expandNode(activity().getLastHoldTreeNode().getParent());
                 } else {
                     activity().getFileTreeFragment().listProjectFiles();
                 }
@@ -328,12 +318,7 @@ public class FileOptionsHandler extends IDEHandler implements OptionsListFragmen
             if(renamed) {
                 LSP.notifyFileRenamed(f, name);
                 if(activity().getLastHoldTreeNode() != null) {
-                    TreeNode parent = activity().getLastHoldTreeNode().getParent();
-                    parent.deleteChild(activity().getLastHoldTreeNode());
-                    TreeNode node = new TreeNode(new File(f.getParentFile(), name));
-                    node.setViewHolder(new FileTreeViewHolder(activity()));
-                    parent.addChild(node);
-                    activity().getFileTreeFragment().expandNode(parent);
+                    activity().getFileTreeFragment().expandNode(activity().getLastHoldTreeNode().getParent());
                 } else {
                     activity().getFileTreeFragment().listProjectFiles();
                 }
@@ -0,0 +1,389 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.language.logs;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded ring buffer of parsed logcat records.
+ *
+ * Records are kept in parallel primitive arrays. When the buffer is full, the oldest record is
+ * evicted. Every record has a sequence number, and the sequence numbers are indexed by priority,
+ * pid and tag so that filtered views can be built without scanning every record.
+ *
+ * Log lines are expected in the format sent by the log sender :
+ * <pre>date time pid tid priority tag message</pre>
+ * They are parsed without regular expressions.
+ *
+ * @author Akash Yadav
+ */
+public class LogBuffer {
+
+    public static final int DEFAULT_CAPACITY = 5000;
+
+    private static final int TAG_WIDTH = 25;
+
+    private final int capacity;
+    private final int[] pids;
+    private final int[] tids;
+    private final byte[] priorities;
+    private final String[] tags;
+    private final String[] lines;
+
+    private final SeqList[] byPriority = new SeqList[Log.ASSERT + 1];
+    private final Map<Integer, SeqList> byPid = new HashMap<> ();
+    private final Map<String, SeqList> byTag = new HashMap<> ();
+
+    /**
+     * Sequence number of the oldest record in the buffer.
+     */
+    private long first = 0;
+
+    /**
+     * Sequence number that will be assigned to the next record.
+     */
+    private long next = 0;
+
+    public LogBuffer () {
+        this (DEFAULT_CAPACITY);
+    }
+
+    public LogBuffer (int capacity) {
+        this.capacity = capacity;
+        this.pids = new int[capacity];
+        this.tids = new int[capacity];
+        this.priorities = new byte[capacity];
+        this.tags = new String[capacity];
+        this.lines = new String[capacity];
+
+        for (int i = 0; i < byPriority.length; i++) {
+            byPriority[i] = new SeqList ();
+        }
+    }
+
+    public int getCapacity () {
+        return capacity;
+    }
+
+    public synchronized int size () {
+        return (int) (next - first);
+    }
+
+    /**
+     * Parse the given log line and add it to the buffer.
+     *
+     * @param line The raw log line.
+     * @param filter The filter of the current view. May be null.
+     * @return The formatted line if it was parsed and matches the filter, {@code null} otherwise.
+     */
+    @Nullable
+    public synchronized String append (@Nullable String line, @Nullable LogFilter filter) {
+        if (line == null) {
+            return null;
+        }
+
+        final int length = line.length ();
+        final int[] bounds = new int[12];
+        int pos = 0;
+        for (int field = 0; field < 6; field++) {
+            pos = skipWhitespace (line, pos, length);
+            bounds[field * 2] = pos;
+            pos = skipToken (line, pos, length);
+            bounds[field * 2 + 1] = pos;
+            if (pos >= length && field < 5) {
+                return null;
+            }
+        }
+
+        // The message is the rest of the line, after a single separator
+        final String message = pos < length ? line.substring (pos + 1) : "";
+
+        final int pid = parseInt (line, bounds[4], bounds[5]);
+        final int tid = parseInt (line, bounds[6], bounds[7]);
+        final int priority = parsePriority (bounds[8] < bounds[9] ? line.charAt (bounds[8]) : 'D');
+        // The tag is followed by a colon, like 'ActivityManager:'
+        final String tag = internTag (LogFilter.stripColon (line.substring (bounds[10], bounds[11])));
+
+        if (next - first == capacity) {
+            evictOldest ();
+        }
+
+        final long seq = next++;
+        final int slot = slot (seq);
+        pids[slot] = pid;
+        tids[slot] = tid;
+        priorities[slot] = (byte) priority;
+        tags[slot] = tag;
+        lines[slot] = format (line, bounds, tag, message);
+
+        byPriority[priority].add (seq);
+        index (byPid, pid, seq);
+        index (byTag, tag, seq);
+
+        if (filter != null && !filter.matches (priority, tag, pid)) {
+            return null;
+        }
+        return lines[slot];
+    }
+
+    /**
+     * Select the formatted lines of the records that match the given filter, oldest first.
+     */
+    @NonNull
+    public synchronized List<String> select (@Nullable LogFilter filter) {
+        final List<String> result = new ArrayList<> ();
+        if (filter == null || filter.isEmpty ()) {
+            for (long seq = first; seq < next; seq++) {
+                result.add (lines[slot (seq)]);
+            }
+            return result;
+        }
+
+        // Walk the smallest index that applies and verify the rest of the filter on each record
+        SeqList candidates = null;
+        if (filter.tag != null) {
+            candidates = smaller (candidates, byTag.get (filter.tag));
+        }
+        if (filter.pid >= 0) {
+            candidates = smaller (candidates, byPid.get (filter.pid));
+        }
+
+        if (candidates != null) {
+            for (int i = 0; i < candidates.size (); i++) {
+                addIfMatches (candidates.get (i), filter, result);
+            }
+        } else if (filter.minPriority > Log.VERBOSE) {
+            // Only the priority is filtered. Merge the indexes of the accepted priorities.
+            final List<SeqList> lists = new ArrayList<> ();
+            for (int p = filter.minPriority; p < byPriority.length; p++) {
+                if (byPriority[p].size () > 0) {
+                    lists.add (byPriority[p]);
+                }
+            }
+            final int[] cursors = new int[lists.size ()];
+            while (true) {
+                int min = -1;
+                for (int i = 0; i < lists.size (); i++) {
+                    if (cursors[i] < lists.get (i).size () && (min == -1 || lists.get (i).get (cursors[i]) < lists.get (min).get (cursors[min]))) {
+                        min = i;
+                    }
+                }
+                if (min == -1) {
+                    break;
+                }
+                result.add (lines[slot (lists.get (min).get (cursors[min]++))]);
+            }
+        } else {
+            for (long seq = first; seq < next; seq++) {
+                addIfMatches (seq, filter, result);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void clear () {
+        Arrays.fill (tags, null);
+        Arrays.fill (lines, null);
+        for (SeqList list : byPriority) {
+            list.clear ();
+        }
+        byPid.clear ();
+        byTag.clear ();
+        first = next;
+    }
+
+    private void addIfMatches (long seq, LogFilter filter, List<String> result) {
+        final int slot = slot (seq);
+        if (filter.matches (priorities[slot], tags[slot], pids[slot])) {
+            result.add (lines[slot]);
+        }
+    }
+
+    private SeqList smaller (SeqList current, SeqList other) {
+        if (other == null) {
+            return SeqList.EMPTY;
+        }
+        return current == null || other.size () < current.size () ? other : current;
+    }
+
+    private void evictOldest () {
+        final int slot = slot (first);
+        byPriority[priorities[slot]].removeFirst ();
+        unindex (byPid, pids[slot]);
+        unindex (byTag, tags[slot]);
+        tags[slot] = null;
+        lines[slot] = null;
+        first++;
+    }
+
+    private <K> void index (Map<K, SeqList> index, K key, long seq) {
+        SeqList list = index.get (key);
+        if (list == null) {
+            index.put (key, list = new SeqList ());
+        }
+        list.add (seq);
+    }
+
+    private <K> void unindex (Map<K, SeqList> index, K key) {
+        final SeqList list = index.get (key);
+        if (list == null) {
+            return;
+        }
+        // Records are always evicted in order, so the evicted record is at the head
+        list.removeFirst ();
+        if (list.size () == 0) {
+            index.remove (key);
+        }
+    }
+
+    private String internTag (String tag) {
+        final SeqList list = byTag.get (tag);
+        if (list != null && list.size () > 0) {
+            return tags[slot (list.get (0))];
+        }
+        return tag;
+    }
+
+    private int slot (long seq) {
+        return (int) (seq % capacity);
+    }
+
+    private String format (String line, int[] bounds, String tag, String message) {
+        final StringBuilder sb = new StringBuilder (line.length () + 48);
+        pad (sb, line, bounds[0], bounds[1], 6);
+        pad (sb, line, bounds[2], bounds[3], 13);
+        pad (sb, line, bounds[4], bounds[5], 6);
+        pad (sb, line, bounds[6], bounds[7], 6);
+        pad (sb, line, bounds[8], bounds[9], 2);
+        if (tag.length () > TAG_WIDTH) {
+            final String shortTag = "..." + tag.substring (tag.length () - TAG_WIDTH);
+            pad (sb, shortTag, 0, shortTag.length (), 40);
+        } else {
+            pad (sb, tag, 0, tag.length (), 40);
+        }
+        sb.append (message);
+        return sb.toString ();
+    }
+
+    private void pad (StringBuilder sb, String src, int start, int end, int width) {
+        sb.append (src, start, end);
+        for (int i = end - start; i < width; i++) {
+            sb.append (' ');
+        }
+        sb.append (' ');
+    }
+
+    private static int skipWhitespace (String line, int pos, int length) {
+        while (pos < length && Character.isWhitespace (line.charAt (pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipToken (String line, int pos, int length) {
+        while (pos < length && !Character.isWhitespace (line.charAt (pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int parseInt (String line, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            final char c = line.charAt (i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return start < end ? value : -1;
+    }
+
+    /**
+     * Convert the logcat priority character to one of the priority constants in {@link Log}.
+     */
+    public static int parsePriority (char c) {
+        switch (Character.toUpperCase (c)) {
+            case 'V' :
+                return Log.VERBOSE;
+            case 'I' :
+                return Log.INFO;
+            case 'W' :
+                return Log.WARN;
+            case 'E' :
+                return Log.ERROR;
+            case 'F' :
+            case 'A' :
+                return Log.ASSERT;
+            default :
+                return Log.DEBUG;
+        }
+    }
+
+    /**
+     * Growable ring of sequence numbers in ascending order.
+     */
+    private static class SeqList {
+
+        static final SeqList EMPTY = new SeqList ();
+
+        private long[] values = new long[16];
+        private int head = 0;
+        private int size = 0;
+
+        void add (long seq) {
+            if (size == values.length) {
+                final long[] grown = new long[values.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = get (i);
+                }
+                values = grown;
+                head = 0;
+            }
+            values[(head + size) % values.length] = seq;
+            size++;
+        }
+
+        long get (int index) {
+            return values[(head + index) % values.length];
+        }
+
+        void removeFirst () {
+            if (size > 0) {
+                head = (head + 1) % values.length;
+                size--;
+            }
+        }
+
+        int size () {
+            return size;
+        }
+
+        void clear () {
+            head = 0;
+            size = 0;
+        }
+    }
+}
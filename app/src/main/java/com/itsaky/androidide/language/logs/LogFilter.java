@@ -0,0 +1,114 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.language.logs;
+
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Filter for the records in a {@link LogBuffer}.
+ *
+ * A filter can be created from a query like {@code "level:W tag:MyTag pid:1234"}.
+ * All parts of the query are optional.
+ *
+ * @author Akash Yadav
+ */
+public class LogFilter {
+
+    /**
+     * Minimum priority, one of the priority constants in {@link Log}.
+     */
+    public final int minPriority;
+
+    /**
+     * Exact tag to match, or {@code null}.
+     */
+    public final String tag;
+
+    /**
+     * Process id to match, or {@code -1}.
+     */
+    public final int pid;
+
+    public LogFilter (int minPriority, @Nullable String tag, int pid) {
+        this.minPriority = minPriority;
+        this.tag = tag;
+        this.pid = pid;
+    }
+
+    public boolean isEmpty () {
+        return minPriority <= Log.VERBOSE && tag == null && pid < 0;
+    }
+
+    public boolean matches (int priority, String tag, int pid) {
+        return priority >= minPriority
+            && (this.tag == null || this.tag.equals (tag))
+            && (this.pid < 0 || this.pid == pid);
+    }
+
+    /**
+     * Parse the filter from the given query. Unknown parts of the query are ignored.
+     */
+    @NonNull
+    public static LogFilter parse (@Nullable String query) {
+        int priority = Log.VERBOSE;
+        String tag = null;
+        int pid = -1;
+
+        if (query != null) {
+            for (String part : query.trim ().split (" ")) {
+                if (part.startsWith ("level:") && part.length () > 6) {
+                    priority = LogBuffer.parsePriority (part.charAt (6));
+                } else if (part.startsWith ("tag:") && part.length () > 4) {
+                    // Tags are stored without the colon that follows them in the log
+                    tag = stripColon (part.substring (4));
+                } else if (part.startsWith ("pid:")) {
+                    try {
+                        pid = Integer.parseInt (part.substring (4));
+                    } catch (NumberFormatException e) {
+                        pid = -1;
+                    }
+                }
+            }
+        }
+
+        return new LogFilter (priority, tag, pid);
+    }
+
+    @NonNull
+    static String stripColon (@NonNull String tag) {
+        return tag.length () > 1 && tag.endsWith (":") ? tag.substring (0, tag.length () - 1) : tag;
+    }
+
+    @NonNull
+    @Override
+    public String toString () {
+        final StringBuilder sb = new StringBuilder ();
+        if (minPriority > Log.VERBOSE) {
+            sb.append ("level:").append ("VVVDIWEA".charAt (minPriority)).append (' ');
+        }
+        if (tag != null) {
+            sb.append ("tag:").append (tag).append (' ');
+        }
+        if (pid >= 0) {
+            sb.append ("pid:").append (pid);
+        }
+        return sb.toString ().trim ();
+    }
+}
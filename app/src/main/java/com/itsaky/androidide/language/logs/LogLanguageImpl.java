@@ -21,15 +21,17 @@
 
 package com.itsaky.androidide.language.logs;
 
+import android.util.Log;
 import com.itsaky.androidide.language.BaseLanguage;
-import com.itsaky.androidide.models.LogLine;
 import com.itsaky.lsp.services.IDELanguageServer;
 import io.github.rosemoe.editor.interfaces.AutoCompleteProvider;
 import io.github.rosemoe.editor.interfaces.CodeAnalyzer;
 import io.github.rosemoe.editor.interfaces.NewlineHandler;
 import io.github.rosemoe.editor.text.Content;
+import io.github.rosemoe.editor.text.ContentLine;
 import io.github.rosemoe.editor.text.TextAnalyzeResult;
 import io.github.rosemoe.editor.text.TextAnalyzer;
+import io.github.rosemoe.editor.widget.EditorColorScheme;
 import io.github.rosemoe.editor.widget.SymbolPairMatch;
 import java.io.File;
 import java.util.ArrayList;
@@ -43,10 +45,6 @@ public class LogLanguageImpl extends BaseLanguage {
 	
 	private static final LogAnalyzer analyzer = new LogAnalyzer();
 	private static final LogCompletor completor = new LogCompletor();
-	
-	public LogAnalyzer addLine(LogLine line) {
-		return analyzer.addLine(line);
-	}
 
     @Override
     public IDELanguageServer getLanguageServer() {
@@ -98,28 +96,48 @@ public class LogLanguageImpl extends BaseLanguage {
 		return new NewlineHandler[0];
 	}
 	
+	/**
+	 * Colors every line according to its priority. The priority is read from the line itself
+	 * (fifth field of the lines formatted by {@link LogBuffer}), so the analyzer does not need
+	 * to keep its own copy of the records.
+	 */
 	private static class LogAnalyzer extends io.github.rosemoe.editor.langs.AbstractCodeAnalyzer {
 		
-		private static final List<LogLine> lines = new ArrayList<>();
-		
-		public LogAnalyzer addLine(LogLine line) {
-			if(line != null)
-				lines.add(line);
-				
-			return this;
-		}
-		
 		@Override
 		public void analyze(IDELanguageServer server, File file, Content content, TextAnalyzeResult colors, TextAnalyzer.AnalyzeThread.Delegate delegate) {
 			int lastLine = 0;
-			for(int i=0;i<lines.size() && delegate.shouldAnalyze();i++) {
+			for(int i=0;i<content.getLineCount() && delegate.shouldAnalyze();i++) {
 				if(i==0) colors.addNormalIfNull();
-				LogLine line = lines.get(i);
-				colors.addIfNeeded(i, 0, line.priority);
+				colors.addIfNeeded(i, 0, colorFor(priorityOf(content.getLine(i))));
 				lastLine = i;
 			}
 			colors.determine(lastLine);
 		}
+		
+		private int priorityOf(ContentLine line) {
+			final int length = line.length();
+			int pos = 0;
+			for(int field = 0; field < 4; field++) {
+				while(pos < length && line.charAt(pos) == ' ') pos++;
+				while(pos < length && line.charAt(pos) != ' ') pos++;
+			}
+			while(pos < length && line.charAt(pos) == ' ') pos++;
+			return pos < length ? LogBuffer.parsePriority(line.charAt(pos)) : Log.DEBUG;
+		}
+		
+		private int colorFor(int priority) {
+			switch(priority) {
+				case Log.INFO :
+					return EditorColorScheme.LOG_INFO;
+				case Log.WARN :
+					return EditorColorScheme.LOG_WARNING;
+				case Log.ERROR :
+				case Log.ASSERT :
+					return EditorColorScheme.LOG_ERROR;
+				default :
+					return EditorColorScheme.LOG_DEBUG;
+			}
+		}
 
         @Override
         public void setSemanticHighlights(SemanticHighlight highlights) {
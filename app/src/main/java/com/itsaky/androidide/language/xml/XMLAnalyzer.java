@@ -108,7 +108,8 @@ public class XMLAnalyzer extends io.github.rosemoe.editor.langs.AbstractCodeAnal
             }
             
             
-            LOG.debug ("XML token: " + token);
+            final Token current = token;
+            LOG.debug (() -> "XML token: " + current);
         }
         colors.determine (lastLine);
     }
@@ -23,6 +23,7 @@ import com.google.gson.JsonObject;
 import com.itsaky.androidide.R;
 import com.itsaky.androidide.app.StudioApp;
 import com.itsaky.androidide.lexers.xml.XMLLexer;
+import com.itsaky.androidide.project.ResourceTable;
 import com.itsaky.attrinfo.AttrInfo;
 import com.itsaky.attrinfo.models.Attr;
 import com.itsaky.widgets.WidgetInfo;
@@ -87,6 +88,18 @@ public class XMLCompletionService {
                                 result.add(valueAsCompletion(value));
                     }
                 }
+                
+                // References to project resources, like '@color/primary'
+                // The prefix does not include the '@'
+                final int slash = prefix.indexOf('/');
+                if (slash > 0) {
+                    final String type = prefix.substring(0, slash);
+                    final String resName = prefix.substring(slash + 1);
+                    for (String value : ResourceTable.getInstance().getNames(type)) {
+                        if (value.toLowerCase(Locale.US).startsWith(resName))
+                            result.add(resourceAsCompletion(type, value));
+                    }
+                }
 			} else {
 				for(Map.Entry<String, Attr> entry : attrs.getAttrs().entrySet()) {
 					Attr attr = entry.getValue();
@@ -125,6 +138,19 @@ public class XMLCompletionService {
 		return item;
 	}
 
+	@NonNull
+	private CompletionItem resourceAsCompletion(String type, String name) {
+		CompletionItem item = new CompletionItem();
+		item.setLabel(name);
+        item.setDetail("@" + type);
+        // Only the part after the '/' is replaced when the item is selected
+        item.setInsertText(name);
+        item.setInsertTextFormat(InsertTextFormat.PlainText);
+        item.setSortText("0" + name);
+        item.setKind(CompletionItemKind.Reference);
+		return item;
+	}
+
 	@NonNull
 	private CompletionItem attrAsCompletion(@NonNull Attr attr) {
 		CompletionItem item = new CompletionItem();
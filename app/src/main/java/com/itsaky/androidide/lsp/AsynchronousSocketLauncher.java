@@ -48,7 +48,7 @@ public class AsynchronousSocketLauncher extends LSPClientLauncher {
         serverSocket.bind(new InetSocketAddress(this.port));
         
         final AsynchronousSocketChannel server     = serverSocket.accept().get();
-        final OutputStream outWriter               = new OutputStreamWrapper(Channels.newOutputStream(server));
+        final OutputStream outWriter               = Channels.newOutputStream(server);
         final InputStream inReader                 = Channels.newInputStream(server);
         
         final Launcher<IDELanguageServer> launcher = createClientLauncher(languageClient, inReader, outWriter);
@@ -67,6 +67,7 @@ public class AsynchronousSocketLauncher extends LSPClientLauncher {
         if(this.server != null) {
             this.server.shutdown().whenComplete((a, b) -> {
                 this.server.exit();
+                closeOutbound();
             });
         }
         
@@ -460,7 +460,7 @@ public class IDELanguageClientImpl implements IDELanguageClient {
         progress.setMessage(activity().getString(R.string.msg_performing_fixes));
         progress.show(activity().getSupportFragmentManager(), "quick_fix_progress");
         
-        new TaskExecutor().executeAsyncProvideError(() -> performCodeActionAsync(editor, action), (a, b) -> {
+        TaskExecutor.with(activity()).executeAsyncProvideError(() -> performCodeActionAsync(editor, action), (a, b) -> {
             final Boolean complete = a;
             final Throwable error = b;
             
@@ -23,11 +23,11 @@ package com.itsaky.androidide.lsp;
 
 import com.itsaky.androidide.interfaces.EditorActivityProvider;
 import com.itsaky.androidide.lsp.handlers.JLSHandler;
+import com.itsaky.androidide.services.WorkspaceWatcher;
 import com.itsaky.androidide.utils.Logger;
 import com.itsaky.lsp.services.IDELanguageServer;
 import java.io.File;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -35,18 +35,12 @@ import org.eclipse.lsp4j.ClientCapabilities;
 import org.eclipse.lsp4j.ClientInfo;
 import org.eclipse.lsp4j.ColorProviderCapabilities;
 import org.eclipse.lsp4j.CompletionCapabilities;
-import org.eclipse.lsp4j.CreateFilesParams;
-import org.eclipse.lsp4j.DeleteFilesParams;
 import org.eclipse.lsp4j.DidChangeConfigurationCapabilities;
 import org.eclipse.lsp4j.DidChangeWatchedFilesCapabilities;
 import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
 import org.eclipse.lsp4j.ExecuteCommandCapabilities;
-import org.eclipse.lsp4j.FileCreate;
-import org.eclipse.lsp4j.FileDelete;
 import org.eclipse.lsp4j.FileOperationsWorkspaceCapabilities;
-import org.eclipse.lsp4j.FileRename;
 import org.eclipse.lsp4j.GeneralClientCapabilities;
-import org.eclipse.lsp4j.RenameFilesParams;
 import org.eclipse.lsp4j.SynchronizationCapabilities;
 import org.eclipse.lsp4j.TextDocumentClientCapabilities;
 import org.eclipse.lsp4j.WindowClientCapabilities;
@@ -75,72 +69,30 @@ public class LSP {
         PROVIDER = provider;
     }
     
+    /**
+     * Notify the language servers that the given file was created. The parent directory is
+     * checked by the {@link WorkspaceWatcher}, which sends the change along with any other
+     * change in the same debounce window.
+     */
     public static void notifyFileCreated(File file) {
         if(!shouldSendFileActionNotification(file)) return;
-        
-        final CreateFilesParams params =
-            new CreateFilesParams(
-                Collections.singletonList(
-                    new FileCreate(
-                        file.toURI().toString()
-                     )
-                 )
-             );
-        
-        for(Map.Entry<String, IDELanguageServer> entry : LSPProvider.getAvailableServers().entrySet()) {
-            final IDELanguageServer server = entry.getValue();
-            if(server == null) {
-                server.getWorkspaceService().didCreateFiles(params);
-            }
-        }
+        WorkspaceWatcher.getInstance().rescan(file.getParentFile());
     }
     
     public static void notifyFileDeleted(File file) {
         if(!shouldSendFileActionNotification(file)) return;
-        
-        final DeleteFilesParams params =
-            new DeleteFilesParams(
-            Collections.singletonList(
-                new FileDelete(
-                    file.toURI().toString()
-                )
-            )
-        );
-
-        for(Map.Entry<String, IDELanguageServer> entry : LSPProvider.getAvailableServers().entrySet()) {
-            final IDELanguageServer server = entry.getValue();
-            if(server == null) {
-                server.getWorkspaceService().didDeleteFiles(params);
-            }
-        }
+        WorkspaceWatcher.getInstance().rescan(file.getParentFile());
     }
     
     public static void notifyFileRenamed(File file, String newName) {
         if(!shouldSendFileActionNotification(file))  return;
-        
-        final File newFile = new File(file.getParentFile(), newName);
-        final RenameFilesParams params =
-            new RenameFilesParams(
-            Collections.singletonList(
-                new FileRename(
-                    file.toURI().toString(), // Old uri
-                    newFile.toURI().toString() // New uri
-                )
-            )
-        );
-
-        for(Map.Entry<String, IDELanguageServer> entry : LSPProvider.getAvailableServers().entrySet()) {
-            final IDELanguageServer server = entry.getValue();
-            if(server == null) {
-                server.getWorkspaceService().didRenameFiles(params);
-            }
-        }
+        WorkspaceWatcher.getInstance().rescan(file.getParentFile());
     }
     
     public static void notifyWatchedFilesChanged(final DidChangeWatchedFilesParams params) {
         for(Map.Entry<String, IDELanguageServer> entry : LSPProvider.getAvailableServers().entrySet()) {
             final IDELanguageServer server = entry.getValue();
-            if(server == null) {
+            if(server != null) {
                 server.getWorkspaceService().didChangeWatchedFiles(params);
             }
         }
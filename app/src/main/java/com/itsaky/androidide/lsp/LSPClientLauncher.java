@@ -19,13 +19,9 @@ package com.itsaky.androidide.lsp;
 
 import com.itsaky.androidide.utils.Logger;
 import com.itsaky.lsp.services.IDELanguageServer;
-import java.io.Closeable;
-import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Objects;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import org.eclipse.lsp4j.jsonrpc.Launcher;
 import java.util.Locale;
 import com.itsaky.androidide.app.StudioApp;
@@ -40,6 +36,8 @@ public abstract class LSPClientLauncher extends Thread {
     protected IDELanguageServer server;
     
     protected LaunchListener mLaunchListener;
+    protected OutboundMessagePipeline outbound;
+    protected final LSPMessageTracer tracer = new LSPMessageTracer();
     
     public LSPClientLauncher(IDELanguageClientImpl client) {
         Objects.requireNonNull(client);
@@ -88,15 +86,51 @@ public abstract class LSPClientLauncher extends Thread {
         }
     }
     
+    /**
+     * Returns the pipeline of the messages sent to the server, or {@code null} if the client
+     * has not been launched yet.
+     */
+    public OutboundMessagePipeline getOutboundPipeline() {
+        return this.outbound;
+    }
+    
+    /**
+     * Returns the tracer which records the statistics of the messages exchanged with the server.
+     */
+    public LSPMessageTracer getTracer() {
+        return this.tracer;
+    }
+    
+    /**
+     * Create a report of the message statistics of this client.
+     */
+    public String createTraceReport() {
+        return this.tracer.report(this.outbound);
+    }
+    
+    /**
+     * Create the launcher for the client. Messages to the server are written through an
+     * {@link OutboundMessagePipeline}, so {@code out} is never written on the caller's thread.
+     */
     protected Launcher<IDELanguageServer> createClientLauncher(IDELanguageClientImpl client, InputStream in, OutputStream out) {
-        return new Launcher.Builder<IDELanguageServer> ()
+        this.outbound = new OutboundMessagePipeline(out);
+        this.outbound.setTracer(this.tracer);
+        return this.outbound.install(new Launcher.Builder<IDELanguageServer> ()
             .setLocalService(client)
             .setRemoteInterface(IDELanguageServer.class)
-            .setInput(in)
-            .setOutput(out)
+            .setInput(this.tracer.countIncoming(in)))
             .create();
     }
     
+    /**
+     * Stop accepting messages for the server. Already queued messages are still written.
+     */
+    protected void closeOutbound() {
+        if (this.outbound != null) {
+            this.outbound.close();
+        }
+    }
+    
     /**
      * Notify the {@link LaunchListener} instance that the server is started.
      * Does nothing if the listener instance is {@code null}.
@@ -130,95 +164,5 @@ public abstract class LSPClientLauncher extends Thread {
         void onStarted (IDELanguageServer server);
     }
 
-    /**
-     * Wraps an output stream to make sure that we don't write on UI Thread
-     * Writing to a socket's output stream is considered as network operation
-     * Trying to write to a socket on UI Thread will result in NetworkOnMainThreadExeption
-     */
-    protected class OutputStreamWrapper extends OutputStream {
-        
-        private final AsyncWriter writer;
-        private final Thread writerThread;
-        
-        private final OutputStream actualStream;
-        
-        public OutputStreamWrapper(OutputStream actualStream) {
-            this.writer = new AsyncWriter(actualStream);
-            this.writerThread = new Thread(writer);
-            this.actualStream = actualStream;
-            
-            this.writerThread.start();
-        }
-        
-        @Override
-        public void write(int p1) throws IOException {
-            // Not needed
-        }
-        
-        
-        /**
-         * LSP4J always calls this method to write to remote proxy.
-         * See https://github.com/eclipse/lsp4j/blob/253aef9a702659f2524ecefaab7e829278c2ffd3/org.eclipse.lsp4j.jsonrpc/src/main/java/org/eclipse/lsp4j/jsonrpc/json/StreamMessageConsumer.java#L67
-         */
-        @Override
-        public void write(final byte[] b) throws IOException {
-            // Do not call super.write(b);
-            // If done, it will further call write(int)
-            this.writer.write(b);
-        }
-
-        @Override
-        public void close() throws IOException {
-            super.close();
-            this.writer.close();
-        }
-    }
-    
-    /**
-     * Actual implementation of the writer thread
-     */
-    private class AsyncWriter implements Runnable, Closeable {
-
-        private final OutputStream out;
-        private boolean closed;
-
-        private final BlockingQueue<Writable> writeQueue = new ArrayBlockingQueue<>(10);
-
-        public AsyncWriter(OutputStream out) {
-            this.out = out;
-            this.closed = false;
-        }
-
-        public void write(byte[] b) {
-            this.writeQueue.add(new Writable(b));
-        }
-
-        @Override
-        public void run() {
-            while (!closed) {
-                try {
-                    Writable data = writeQueue.take();
-                    this.out.write(data.data);
-                    this.out.flush();
-                } catch (Throwable e) {
-                    LOG.error (StudioApp.getInstance().getString(com.itsaky.androidide.R.string.err_cannot_write_socket), e);
-                }
-            }
-        }
-
-        @Override
-        public void close() throws IOException {
-            this.out.close();
-            this.closed = true;
-        }
-
-        class Writable {
-            byte[] data;
-            public Writable(byte[] data) {
-                this.data = data;
-            }
-        }
-    }
-
     protected static final Logger LOG = Logger.instance("LSPClientLauncher");
 }
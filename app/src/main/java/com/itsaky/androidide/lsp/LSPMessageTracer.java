@@ -0,0 +1,359 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.lsp;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.eclipse.lsp4j.jsonrpc.MessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.messages.Message;
+import org.eclipse.lsp4j.jsonrpc.messages.NotificationMessage;
+import org.eclipse.lsp4j.jsonrpc.messages.RequestMessage;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseMessage;
+
+/**
+ * Collects per method statistics of the messages exchanged with a language server.
+ *
+ * For every method, the tracer records the number of requests and notifications, the number
+ * of error responses, the requests which are still waiting for a response, the payload sizes
+ * and a histogram of the round trip latency.
+ *
+ * Outgoing messages are reported by the {@link OutboundMessagePipeline}: once when they are
+ * queued and once when they have been written. The time in between is reported separately
+ * as the queue time, so that time spent in serialization and writing can be told apart from
+ * time spent in the server. Incoming messages are reported by the consumer returned from
+ * {@link #wrapIncoming(MessageConsumer)}. Their sizes are measured with the stream returned
+ * from {@link #countIncoming(InputStream)}.
+ *
+ * @author Akash Yadav
+ */
+public class LSPMessageTracer {
+
+    /**
+     * Upper bounds of the latency histogram buckets, in milliseconds. The last bucket
+     * holds everything above the last bound.
+     */
+    public static final long[] LATENCY_BUCKETS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+
+    private final Map<String, MethodStats> methods = new ConcurrentHashMap<> ();
+
+    /**
+     * Requests sent to the server, by id.
+     */
+    private final Map<String, Pending> outgoing = new ConcurrentHashMap<> ();
+
+    /**
+     * Requests received from the server, by id.
+     */
+    private final Map<String, Pending> incoming = new ConcurrentHashMap<> ();
+
+    private final AtomicLong incomingBytes = new AtomicLong ();
+    private final long startTime = System.currentTimeMillis ();
+
+    /**
+     * Count the bytes read from the given stream. The bytes read since the previous incoming
+     * message are attributed to the next incoming message.
+     */
+    public InputStream countIncoming (InputStream in) {
+        return new FilterInputStream (in) {
+
+            @Override
+            public int read () throws IOException {
+                final int read = super.read ();
+                if (read != -1) {
+                    incomingBytes.incrementAndGet ();
+                }
+                return read;
+            }
+
+            @Override
+            public int read (byte[] b, int off, int len) throws IOException {
+                final int read = super.read (b, off, len);
+                if (read > 0) {
+                    incomingBytes.addAndGet (read);
+                }
+                return read;
+            }
+        };
+    }
+
+    /**
+     * Wrap the consumer of incoming messages so that they are traced before being handled.
+     */
+    public MessageConsumer wrapIncoming (MessageConsumer consumer) {
+        return message -> {
+            onIncoming (message, (int) incomingBytes.getAndSet (0));
+            consumer.consume (message);
+        };
+    }
+
+    /**
+     * Called when an outgoing message has been queued.
+     */
+    public void onQueued (Message message) {
+        final long now = System.nanoTime ();
+        if (message instanceof RequestMessage) {
+            final RequestMessage request = (RequestMessage) message;
+            final MethodStats stats = stats (request.getMethod ());
+            stats.requests.incrementAndGet ();
+            stats.inFlight.incrementAndGet ();
+            outgoing.put (request.getId (), new Pending (stats, now));
+        } else if (message instanceof NotificationMessage) {
+            stats (((NotificationMessage) message).getMethod ()).notifications.incrementAndGet ();
+        }
+    }
+
+    /**
+     * Called when an outgoing message has been serialized and written.
+     *
+     * @param bytes The size of the serialized message.
+     */
+    public void onWritten (Message message, int bytes) {
+        final long now = System.nanoTime ();
+        if (message instanceof RequestMessage) {
+            final Pending pending = outgoing.get (((RequestMessage) message).getId ());
+            if (pending != null) {
+                pending.stats.bytesOut.addAndGet (bytes);
+                pending.stats.queueNanos.addAndGet (now - pending.startNanos);
+            }
+        } else if (message instanceof NotificationMessage) {
+            stats (((NotificationMessage) message).getMethod ()).bytesOut.addAndGet (bytes);
+        } else if (message instanceof ResponseMessage) {
+            // Response to a request from the server. The latency is the time taken by this client.
+            final ResponseMessage response = (ResponseMessage) message;
+            final Pending pending = incoming.remove (response.getId ());
+            if (pending != null) {
+                pending.stats.bytesOut.addAndGet (bytes);
+                pending.stats.complete (now - pending.startNanos, response.getError () != null);
+            }
+        }
+    }
+
+    private void onIncoming (Message message, int bytes) {
+        final long now = System.nanoTime ();
+        if (message instanceof RequestMessage) {
+            final RequestMessage request = (RequestMessage) message;
+            final MethodStats stats = stats (request.getMethod ());
+            stats.requests.incrementAndGet ();
+            stats.inFlight.incrementAndGet ();
+            stats.bytesIn.addAndGet (bytes);
+            incoming.put (request.getId (), new Pending (stats, now));
+        } else if (message instanceof NotificationMessage) {
+            final MethodStats stats = stats (((NotificationMessage) message).getMethod ());
+            stats.notifications.incrementAndGet ();
+            stats.bytesIn.addAndGet (bytes);
+        } else if (message instanceof ResponseMessage) {
+            final ResponseMessage response = (ResponseMessage) message;
+            final Pending pending = outgoing.remove (response.getId ());
+            if (pending != null) {
+                pending.stats.bytesIn.addAndGet (bytes);
+                pending.stats.complete (now - pending.startNanos, response.getError () != null);
+            }
+        }
+    }
+
+    private MethodStats stats (String method) {
+        MethodStats stats = methods.get (method);
+        if (stats == null) {
+            final MethodStats created = new MethodStats (method);
+            stats = methods.putIfAbsent (method, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    @Nullable
+    public MethodStats getStats (String method) {
+        return methods.get (method);
+    }
+
+    /**
+     * @return Statistics of every method seen so far, most requested first.
+     */
+    @NonNull
+    public List<MethodStats> getAllStats () {
+        final List<MethodStats> all = new ArrayList<> (methods.values ());
+        all.sort ((a, b) -> Long.compare (b.requests.get () + b.notifications.get (), a.requests.get () + a.notifications.get ()));
+        return all;
+    }
+
+    /**
+     * Create a human readable report of the collected statistics.
+     *
+     * @param pipeline The outgoing pipeline whose counters should be included. May be null.
+     */
+    @NonNull
+    public String report (@Nullable OutboundMessagePipeline pipeline) {
+        final StringBuilder sb = new StringBuilder ();
+        sb.append ("Uptime: ").append ((System.currentTimeMillis () - startTime) / 1000).append ("s\n");
+        if (pipeline != null) {
+            sb.append ("Outbound: ").append (pipeline).append ("\n");
+        }
+        sb.append ('\n');
+        sb.append (String.format (Locale.ROOT, "%-40s %6s %6s %4s %4s %7s %7s %7s %7s %7s %7s %9s %9s%n",
+                "method", "req", "notif", "err", "fly", "avg", "p50", "p90", "p99", "max", "queue", "out", "in"));
+
+        for (MethodStats stats : getAllStats ()) {
+            final long completed = stats.completed.get ();
+            sb.append (String.format (Locale.ROOT, "%-40s %6d %6d %4d %4d %7s %7s %7s %7s %7s %7s %9d %9d%n",
+                    stats.method,
+                    stats.requests.get (),
+                    stats.notifications.get (),
+                    stats.errors.get (),
+                    stats.inFlight.get (),
+                    completed == 0 ? "-" : millis (stats.totalNanos.get () / completed),
+                    stats.percentile (0.5),
+                    stats.percentile (0.9),
+                    stats.percentile (0.99),
+                    completed == 0 ? "-" : millis (stats.maxNanos.get ()),
+                    stats.requests.get () == 0 ? "-" : millis (stats.queueNanos.get () / stats.requests.get ()),
+                    stats.bytesOut.get (),
+                    stats.bytesIn.get ()));
+        }
+
+        sb.append ("\nLatency histogram (ms)\n");
+        for (MethodStats stats : getAllStats ()) {
+            if (stats.completed.get () == 0) {
+                continue;
+            }
+            sb.append (stats.method).append (":");
+            for (int i = 0; i < stats.histogram.length (); i++) {
+                final long count = stats.histogram.get (i);
+                if (count > 0) {
+                    sb.append (' ')
+                        .append (i < LATENCY_BUCKETS.length ? "<=" + LATENCY_BUCKETS[i] : ">" + LATENCY_BUCKETS[LATENCY_BUCKETS.length - 1])
+                        .append ('=')
+                        .append (count);
+                }
+            }
+            sb.append ('\n');
+        }
+        return sb.toString ();
+    }
+
+    /**
+     * Write the report to the given file, replacing its contents.
+     */
+    public void dump (@NonNull File file, @Nullable OutboundMessagePipeline pipeline) throws IOException {
+        final File parent = file.getParentFile ();
+        if (parent != null && !parent.exists ()) {
+            parent.mkdirs ();
+        }
+
+        try (Writer writer = new OutputStreamWriter (new FileOutputStream (file), StandardCharsets.UTF_8)) {
+            writer.write (report (pipeline));
+        }
+    }
+
+    private static String millis (long nanos) {
+        return String.format (Locale.ROOT, "%.1f", nanos / 1_000_000.0);
+    }
+
+    private static class Pending {
+
+        final MethodStats stats;
+        final long startNanos;
+
+        Pending (MethodStats stats, long startNanos) {
+            this.stats = stats;
+            this.startNanos = startNanos;
+        }
+    }
+
+    /**
+     * Statistics of a single method.
+     */
+    public static class MethodStats {
+
+        public final String method;
+        public final AtomicLong requests = new AtomicLong ();
+        public final AtomicLong notifications = new AtomicLong ();
+        public final AtomicLong completed = new AtomicLong ();
+        public final AtomicLong errors = new AtomicLong ();
+        public final AtomicInteger inFlight = new AtomicInteger ();
+        public final AtomicLong totalNanos = new AtomicLong ();
+        public final AtomicLong maxNanos = new AtomicLong ();
+        public final AtomicLong queueNanos = new AtomicLong ();
+        public final AtomicLong bytesOut = new AtomicLong ();
+        public final AtomicLong bytesIn = new AtomicLong ();
+        public final AtomicLongArray histogram = new AtomicLongArray (LATENCY_BUCKETS.length + 1);
+
+        MethodStats (String method) {
+            this.method = method;
+        }
+
+        void complete (long nanos, boolean error) {
+            inFlight.decrementAndGet ();
+            completed.incrementAndGet ();
+            totalNanos.addAndGet (nanos);
+            if (error) {
+                errors.incrementAndGet ();
+            }
+
+            long max;
+            while (nanos > (max = maxNanos.get ()) && !maxNanos.compareAndSet (max, nanos)) {
+                // retry
+            }
+
+            final long ms = nanos / 1_000_000;
+            int bucket = 0;
+            while (bucket < LATENCY_BUCKETS.length && ms > LATENCY_BUCKETS[bucket]) {
+                bucket++;
+            }
+            histogram.incrementAndGet (bucket);
+        }
+
+        /**
+         * @return The upper bound of the histogram bucket which contains the given percentile,
+         * or {@code "-"} if no request has completed.
+         */
+        public String percentile (double p) {
+            final long total = completed.get ();
+            if (total == 0) {
+                return "-";
+            }
+
+            final long target = (long) Math.ceil (total * p);
+            long seen = 0;
+            for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+                seen += histogram.get (i);
+                if (seen >= target) {
+                    return String.valueOf (LATENCY_BUCKETS[i]);
+                }
+            }
+            return ">" + LATENCY_BUCKETS[LATENCY_BUCKETS.length - 1];
+        }
+    }
+}
@@ -0,0 +1,452 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.lsp;
+
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import com.itsaky.androidide.R;
+import com.itsaky.androidide.app.StudioApp;
+import com.itsaky.androidide.utils.Logger;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.lsp4j.DidChangeTextDocumentParams;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.eclipse.lsp4j.jsonrpc.Launcher;
+import org.eclipse.lsp4j.jsonrpc.MessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.json.StreamMessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.messages.Message;
+import org.eclipse.lsp4j.jsonrpc.messages.NotificationMessage;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseMessage;
+
+/**
+ * Outgoing message pipeline for a language server connection.
+ *
+ * Messages sent to the server are queued by {@link #consume(Message)} and written by a single
+ * writer thread, so that nothing is written to the socket on the UI thread.
+ * <ul>
+ *     <li>The queue is bounded. When it is full, a background caller waits until the writer
+ *     catches up. The main thread never waits, its messages are queued over the limit instead.
+ *     Responses and {@code $/cancelRequest} notifications are queued in a separate lane which
+ *     is written first and is not subject to the limit.</li>
+ *     <li>A full-sync {@code textDocument/didChange} that is the last queued message is replaced
+ *     by a newer one for the same document. If other messages were queued after it, they may
+ *     depend on its text, so the newer one is queued after them instead.</li>
+ *     <li>The writer serializes every queued message into one buffer and writes and flushes
+ *     the stream once per batch.</li>
+ * </ul>
+ *
+ * Install with {@link #install(Launcher.Builder)}.
+ *
+ * @author Akash Yadav
+ */
+public class OutboundMessagePipeline implements MessageConsumer, Closeable {
+
+    public static final int DEFAULT_CAPACITY = 128;
+    public static final int MAX_BATCH_SIZE = 64;
+
+    private static final String DID_CHANGE = "textDocument/didChange";
+    private static final String CANCEL_REQUEST = "$/cancelRequest";
+
+    private static final Logger LOG = Logger.instance ("OutboundMessagePipeline");
+
+    private final Object lock = new Object ();
+    private final ArrayDeque<Entry> urgent = new ArrayDeque<> ();
+    private final ArrayDeque<Entry> normal = new ArrayDeque<> ();
+    private final Map<String, Entry> pendingChanges = new HashMap<> ();
+    private final int capacity;
+    private final BatchingOutputStream output;
+    private final Thread writer;
+
+    private MessageConsumer serializer;
+    private LSPMessageTracer tracer;
+    private volatile boolean closed = false;
+
+    private final AtomicLong messages = new AtomicLong ();
+    private final AtomicLong batches = new AtomicLong ();
+    private final AtomicLong coalesced = new AtomicLong ();
+    private final AtomicLong overflowed = new AtomicLong ();
+    private final AtomicLong bytes = new AtomicLong ();
+    private volatile int maxDepth = 0;
+    private volatile long bytesPerSecond = 0;
+    private long windowStart = System.currentTimeMillis ();
+    private long windowBytes = 0;
+
+    public OutboundMessagePipeline (OutputStream out) {
+        this (out, DEFAULT_CAPACITY);
+    }
+
+    public OutboundMessagePipeline (OutputStream out, int capacity) {
+        this.output = new BatchingOutputStream (out);
+        this.capacity = capacity;
+        this.writer = new Thread (this::writeLoop, "LSPOutboundWriter");
+        this.writer.setDaemon (true);
+    }
+
+    /**
+     * Report every outgoing message to the given tracer. Incoming messages are reported as well
+     * if this is set before {@link #install(Launcher.Builder)} is called.
+     */
+    public void setTracer (LSPMessageTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Install this pipeline on the given launcher builder. The builder's output is set to
+     * the batching stream of this pipeline and outgoing messages are routed through it.
+     */
+    public <T> Launcher.Builder<T> install (Launcher.Builder<T> builder) {
+        return builder.setOutput (output).wrapMessages (this::wrap);
+    }
+
+    /**
+     * Outgoing messages are the only ones consumed by a {@link StreamMessageConsumer}.
+     * That consumer is kept as the serializer and replaced by this pipeline.
+     * Incoming messages are only traced.
+     */
+    private MessageConsumer wrap (MessageConsumer consumer) {
+        if (consumer instanceof StreamMessageConsumer && serializer == null) {
+            serializer = consumer;
+            writer.start ();
+            return this;
+        }
+        return tracer != null ? tracer.wrapIncoming (consumer) : consumer;
+    }
+
+    @Override
+    public void consume (Message message) {
+        if (closed) {
+            return;
+        }
+
+        final boolean isUrgent = isUrgent (message);
+        final String changedUri = fullSyncChangeUri (message);
+        if (tracer != null) {
+            tracer.onQueued (message);
+        }
+
+        synchronized (lock) {
+            if (changedUri != null) {
+                final Entry pending = pendingChanges.get (changedUri);
+                if (pending != null && pending == normal.peekLast ()) {
+                    pending.message = message;
+                    coalesced.incrementAndGet ();
+                    return;
+                }
+            }
+
+            if (!isUrgent && normal.size () >= capacity) {
+                if (Looper.getMainLooper ().isCurrentThread ()) {
+                    overflowed.incrementAndGet ();
+                } else {
+                    while (!closed && normal.size () >= capacity) {
+                        try {
+                            lock.wait ();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread ().interrupt ();
+                            return;
+                        }
+                    }
+                }
+            }
+
+            if (closed) {
+                return;
+            }
+
+            final Entry entry = new Entry (message, changedUri);
+            (isUrgent ? urgent : normal).addLast (entry);
+            if (changedUri != null) {
+                pendingChanges.put (changedUri, entry);
+            }
+
+            final int depth = urgent.size () + normal.size ();
+            if (depth > maxDepth) {
+                maxDepth = depth;
+            }
+            lock.notifyAll ();
+        }
+    }
+
+    public int getQueueDepth () {
+        synchronized (lock) {
+            return urgent.size () + normal.size ();
+        }
+    }
+
+    public int getMaxQueueDepth () {
+        return maxDepth;
+    }
+
+    public long getMessageCount () {
+        return messages.get ();
+    }
+
+    public long getBatchCount () {
+        return batches.get ();
+    }
+
+    /**
+     * @return Number of {@code didChange} notifications that were replaced by a newer one before being sent.
+     */
+    public long getCoalescedCount () {
+        return coalesced.get ();
+    }
+
+    /**
+     * @return Number of messages from the main thread that were queued while the queue was full.
+     */
+    public long getOverflowCount () {
+        return overflowed.get ();
+    }
+
+    public long getBytesWritten () {
+        return bytes.get ();
+    }
+
+    /**
+     * @return Bytes written per second, measured over the last complete window of at least one second.
+     */
+    public long getBytesPerSecond () {
+        return bytesPerSecond;
+    }
+
+    @NonNull
+    @Override
+    public String toString () {
+        return "OutboundMessagePipeline{"
+            + "depth=" + getQueueDepth ()
+            + ", maxDepth=" + maxDepth
+            + ", messages=" + messages.get ()
+            + ", batches=" + batches.get ()
+            + ", coalesced=" + coalesced.get ()
+            + ", overflowed=" + overflowed.get ()
+            + ", bytes=" + bytes.get ()
+            + ", bytesPerSecond=" + bytesPerSecond
+            + "}";
+    }
+
+    /**
+     * Stop accepting messages. Messages which are already queued are still written.
+     */
+    @Override
+    public void close () {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll ();
+        }
+    }
+
+    private void writeLoop () {
+        final List<Message> batch = new ArrayList<> ();
+        while (true) {
+            try {
+                takeBatch (batch);
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            output.beginBatch ();
+            for (Message message : batch) {
+                final int start = output.size ();
+                try {
+                    serializer.consume (message);
+                } catch (Throwable th) {
+                    LOG.error ("Unable to serialize message", th);
+                }
+                if (tracer != null) {
+                    tracer.onWritten (message, output.size () - start);
+                }
+            }
+
+            try {
+                record (batch.size (), output.endBatch ());
+            } catch (IOException e) {
+                LOG.error (StudioApp.getInstance ().getString (R.string.err_cannot_write_socket), e);
+                discard ();
+                return;
+            }
+            batch.clear ();
+        }
+    }
+
+    /**
+     * The stream is not writable anymore. Drop everything that is queued.
+     */
+    private void discard () {
+        synchronized (lock) {
+            closed = true;
+            urgent.clear ();
+            normal.clear ();
+            pendingChanges.clear ();
+            lock.notifyAll ();
+        }
+    }
+
+    private void takeBatch (List<Message> batch) throws InterruptedException {
+        synchronized (lock) {
+            while (urgent.isEmpty () && normal.isEmpty ()) {
+                if (closed) {
+                    throw new InterruptedException ();
+                }
+                lock.wait ();
+            }
+
+            while (batch.size () < MAX_BATCH_SIZE && !(urgent.isEmpty () && normal.isEmpty ())) {
+                final Entry entry = urgent.isEmpty () ? normal.pollFirst () : urgent.pollFirst ();
+                if (entry.changedUri != null) {
+                    // A newer change of the same document may still be queued
+                    pendingChanges.remove (entry.changedUri, entry);
+                }
+                batch.add (entry.message);
+            }
+
+            // Wake up the producers waiting for space
+            lock.notifyAll ();
+        }
+    }
+
+    private void record (int count, int written) {
+        messages.addAndGet (count);
+        batches.incrementAndGet ();
+        bytes.addAndGet (written);
+
+        final long now = System.currentTimeMillis ();
+        windowBytes += written;
+        if (now - windowStart >= 1000) {
+            bytesPerSecond = windowBytes * 1000 / (now - windowStart);
+            windowStart = now;
+            windowBytes = 0;
+        }
+    }
+
+    private static boolean isUrgent (Message message) {
+        return message instanceof ResponseMessage
+            || (message instanceof NotificationMessage && CANCEL_REQUEST.equals (((NotificationMessage) message).getMethod ()));
+    }
+
+    /**
+     * @return The URI of the document if the message is a {@code didChange} notification which only
+     * contains full document changes, {@code null} otherwise.
+     */
+    private static String fullSyncChangeUri (Message message) {
+        if (!(message instanceof NotificationMessage)) {
+            return null;
+        }
+
+        final NotificationMessage notification = (NotificationMessage) message;
+        if (!DID_CHANGE.equals (notification.getMethod ()) || !(notification.getParams () instanceof DidChangeTextDocumentParams)) {
+            return null;
+        }
+
+        final DidChangeTextDocumentParams params = (DidChangeTextDocumentParams) notification.getParams ();
+        if (params.getTextDocument () == null || params.getContentChanges () == null) {
+            return null;
+        }
+
+        for (TextDocumentContentChangeEvent change : params.getContentChanges ()) {
+            if (change.getRange () != null) {
+                return null;
+            }
+        }
+        return params.getTextDocument ().getUri ();
+    }
+
+    private static class Entry {
+
+        Message message;
+        final String changedUri;
+
+        Entry (Message message, String changedUri) {
+            this.message = message;
+            this.changedUri = changedUri;
+        }
+    }
+
+    /**
+     * Collects everything written during a batch and writes it to the actual stream at once.
+     * Flushes requested by the serializer during a batch are ignored.
+     */
+    private static class BatchingOutputStream extends OutputStream {
+
+        private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+        private final OutputStream out;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream (8192);
+        private boolean batching = false;
+
+        BatchingOutputStream (OutputStream out) {
+            this.out = out;
+        }
+
+        int size () {
+            return buffer.size ();
+        }
+
+        void beginBatch () {
+            batching = true;
+        }
+
+        int endBatch () throws IOException {
+            batching = false;
+            final int size = buffer.size ();
+            writeBuffer ();
+            if (size > MAX_RETAINED_BUFFER) {
+                buffer = new ByteArrayOutputStream (8192);
+            }
+            return size;
+        }
+
+        @Override
+        public void write (int b) {
+            buffer.write (b);
+        }
+
+        @Override
+        public void write (byte[] b, int off, int len) {
+            buffer.write (b, off, len);
+        }
+
+        @Override
+        public void flush () throws IOException {
+            if (!batching) {
+                writeBuffer ();
+            }
+        }
+
+        @Override
+        public void close () throws IOException {
+            out.close ();
+        }
+
+        private void writeBuffer () throws IOException {
+            if (buffer.size () > 0) {
+                buffer.writeTo (out);
+                buffer.reset ();
+            }
+            out.flush ();
+        }
+    }
+}
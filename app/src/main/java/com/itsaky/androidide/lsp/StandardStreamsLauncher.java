@@ -70,6 +70,7 @@ public class StandardStreamsLauncher extends LSPClientLauncher {
         if(server != null) {
             server.shutdown().whenComplete((a, b) -> {
                 server.exit();
+                closeOutbound();
             });
         }
         
@@ -135,6 +135,13 @@ public class JLSHandler implements LSPHandler {
         server.initialized(new InitializedParams());
     }
     
+    /**
+     * Returns the launcher of the Java language server client, or {@code null} if it was never started.
+     */
+    public LSPClientLauncher getLauncher() {
+        return mLauncher;
+    }
+    
     @Override
     public void shutdown() {
         if(mLauncher != null) {
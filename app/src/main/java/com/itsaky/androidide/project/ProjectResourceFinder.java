@@ -17,9 +17,11 @@
 **************************************************************************************/
 package com.itsaky.androidide.project;
 
+import com.itsaky.androidide.services.WorkspaceIndex;
 import com.itsaky.layoutinflater.IResourceFinder;
 import java.io.File;
 import java.io.FileFilter;
+import java.util.List;
 
 public class ProjectResourceFinder implements IResourceFinder {
     
@@ -33,6 +35,11 @@ public class ProjectResourceFinder implements IResourceFinder {
     
     @Override
     public File inflateDrawable(String name) {
+        final File indexed = findIndexed("drawable", name);
+        if (indexed != null) {
+            return indexed;
+        }
+        
         for (File drawable : drawables) {
             final File file = findFileWithName(drawable.listFiles(), name);
             if (file != null) {
@@ -44,27 +51,32 @@ public class ProjectResourceFinder implements IResourceFinder {
 
     @Override
     public File inflateLayout(String name) {
+        final File indexed = findIndexed("layout", name);
+        if (indexed != null) {
+            return indexed;
+        }
+        
         return findFileWithName(this.layout.listFiles(), name);
     }
 
     @Override
     public String findString(String name) {
-        return null;
+        return ResourceTable.getInstance().getValue("string", name);
     }
 
     @Override
     public String findColor(String name) {
-        return null;
+        return ResourceTable.getInstance().getValue("color", name);
     }
 
     @Override
     public String[] findArray(String name) {
-        return null;
+        return ResourceTable.getInstance().getArray(name);
     }
 
     @Override
     public String findDimension(String name) {
-        return null;
+        return ResourceTable.getInstance().getValue("dimen", name);
     }
 
     @Override
@@ -85,11 +97,40 @@ public class ProjectResourceFinder implements IResourceFinder {
         this.mipmaps = mipmaps == null ? new File [0] : mipmaps;
     }
     
+    /**
+     * Find a resource file using the resource table, or the workspace index if the table is not
+     * ready yet. A file in the res directory of the inflated file is preferred.
+     *
+     * @return The file, or {@code null} if the index does not know the resource.
+     */
+    private File findIndexed (String type, String name) {
+        final ResourceTable table = ResourceTable.getInstance();
+        if (table.isReady()) {
+            return table.getFile(type, name, resDir);
+        }
+        
+        final List<File> files = WorkspaceIndex.getInstance().findResources(type, name);
+        if (files == null || files.isEmpty()) {
+            return null;
+        }
+        
+        for (File file : files) {
+            if (resDir != null && resDir.equals(file.getParentFile().getParentFile())) {
+                return file;
+            }
+        }
+        return files.get(0);
+    }
+    
     private File findFileWithName (File[] files, String name) {
+        if (files == null) {
+            return null;
+        }
+        
         for (File file : files) {
             String simpleName = file.getName();
             if (simpleName.contains(".")) {
-                simpleName = simpleName.substring(simpleName.lastIndexOf(".") + 1);
+                simpleName = simpleName.substring(0, simpleName.indexOf("."));
             }
 
             if (simpleName.equals(name)) {
@@ -0,0 +1,637 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.project;
+
+import android.util.Xml;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.blankj.utilcode.util.FileIOUtils;
+import com.itsaky.androidide.services.WorkspaceWatcher;
+import com.itsaky.androidide.utils.Logger;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import javax.lang.model.element.Modifier;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Writes the {@code R} class and the view binding classes of the application module from the
+ * {@link ResourceTable}, so that the language server knows about changed resources as soon as
+ * they are saved. Running the resource tasks of Gradle for this takes a lot longer.
+ *
+ * The symbols of the libraries come from the {@code R.txt} file of the last build. The identifiers
+ * of the resources of the project are kept from that file when they are in it, new resources get
+ * identifiers that are not used yet. A binding class is only created again when one of the files
+ * of its layout has changed.
+ *
+ * Gradle does not write the {@code R} class as a source file, it puts it in an {@code R.jar}, along
+ * with the {@code R} classes of the libraries. The language server is given a copy of that jar
+ * without the class that is generated here, see {@link #classpathEntry(IDEModule, String)}. The
+ * classes are generated again after every build, as the symbols of the libraries may have changed.
+ * The binding classes are overwritten by Gradle when it builds.
+ *
+ * @author Akash Yadav
+ */
+public class ResourceClassGenerator implements ResourceTable.Listener {
+
+    private static final Logger LOG = Logger.instance ("ResourceClassGenerator");
+    private static ResourceClassGenerator mInstance;
+
+    /**
+     * Where the symbols of the last build can be found, for the different versions of the
+     * Android Gradle plugin.
+     */
+    private static final String[] SYMBOL_FILES = {
+        "build/intermediates/runtime_symbol_list/debug/R.txt",
+        "build/intermediates/symbols/debug/R.txt"
+    };
+
+    private static final String R_DIR = "build/generated/source/r/debug";
+    private static final String BINDING_DIR = "build/generated/data_binding_base_class_source_out/debug/out";
+    private static final String R_JAR_COPIES_DIR = "build/intermediates/androidide_r_jar";
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor (r -> {
+        final Thread thread = new Thread (r, "ResourceClassGenerator");
+        thread.setDaemon (true);
+        return thread;
+    });
+
+    private final AtomicBoolean pending = new AtomicBoolean ();
+
+    /**
+     * The XML files of the resources, by path. Only accessed on the executor thread.
+     */
+    private final Map<String, ViewBindingGenerator.XmlFile> xmlFiles = new HashMap<> ();
+
+    /**
+     * The files that the binding class of each layout was created from, with their modification
+     * time. Only accessed on the executor thread.
+     */
+    private final Map<String, String> bindingKeys = new HashMap<> ();
+
+    /**
+     * The copies of the {@code R.jar} files given to the language server, by the jar they were made from.
+     */
+    private final Map<File, File> rJarCopies = new ConcurrentHashMap<> ();
+
+    private volatile Target target;
+
+    /**
+     * The module that was last enabled, even if it has not been set up by the executor yet.
+     */
+    private volatile IDEModule module;
+
+    public static synchronized ResourceClassGenerator getInstance () {
+        if (mInstance == null) {
+            mInstance = new ResourceClassGenerator ();
+        }
+        return mInstance;
+    }
+
+    /**
+     * Start generating the classes of the given module. They are generated right away if the
+     * {@link ResourceTable} is ready, and every time the resources change after that.
+     */
+    public void enable (@NonNull IDEModule module) {
+        this.module = module;
+        executor.execute (() -> {
+            clear ();
+            ResourceTable.getInstance ().removeListener (this);
+            target = findTarget (module);
+            if (target == null) {
+                LOG.warn ("Unable to find the package of", module.projectDir, "- resource classes are generated by Gradle");
+                return;
+            }
+            ResourceTable.getInstance ().addListener (this);
+        });
+    }
+
+    /**
+     * Stop generating the classes. Like {@link #enable(IDEModule)}, this is done on the executor,
+     * so that an earlier call to enable cannot add the listener again afterwards.
+     */
+    public void disable () {
+        this.module = null;
+        this.target = null;
+        rJarCopies.clear ();
+        executor.execute (() -> {
+            ResourceTable.getInstance ().removeListener (this);
+            target = null;
+            clear ();
+        });
+    }
+
+    /**
+     * Get the path to put on the classpath of the language server for the given dependency of a
+     * module. For the {@code R.jar} of a module whose {@code R} class is written here, this is a copy
+     * of the jar without that class, so that it is not found twice. The {@code R} classes of the
+     * libraries in the jar are kept.
+     *
+     * @param module The module.
+     * @param path The path of the dependency.
+     * @return The path to use instead, or the given path.
+     */
+    @NonNull
+    public String classpathEntry (@NonNull IDEModule module, @NonNull String path) {
+        final Target target;
+        if (module != this.module || !path.endsWith (File.separator + "R.jar") || (target = findTarget (module)) == null) {
+            return path;
+        }
+
+        final String buildDir = new File (target.dir, "build").getAbsolutePath () + File.separator;
+        final File jar = new File (path).getAbsoluteFile ();
+        if (!jar.getPath ().startsWith (buildDir) || !jar.isFile ()) {
+            return path;
+        }
+
+        final File copy = new File (new File (target.dir, R_JAR_COPIES_DIR), jar.getPath ().substring (buildDir.length ()));
+        if (!copyWithoutR (jar, copy, target.packageName)) {
+            return path;
+        }
+
+        rJarCopies.put (jar, copy);
+        return copy.getAbsolutePath ();
+    }
+
+    /**
+     * @return Whether the classes can be generated here instead of by Gradle.
+     */
+    public boolean isEnabled () {
+        return target != null && ResourceTable.getInstance ().isReady ();
+    }
+
+    /**
+     * Generate the classes that have changed. Requests made while the classes are being generated
+     * are merged into one.
+     */
+    public void update () {
+        if (pending.compareAndSet (false, true)) {
+            executor.execute (() -> {
+                pending.set (false);
+                generate ();
+            });
+        }
+    }
+
+    @Override
+    public void onResourcesChanged () {
+        update ();
+    }
+
+    private void generate () {
+        final Target target = this.target;
+        final ResourceTable table = ResourceTable.getInstance ();
+        if (target == null || !table.isReady ()) {
+            return;
+        }
+
+        final long start = System.currentTimeMillis ();
+        final Map<String, List<ViewBindingGenerator.XmlFile>> layouts = new TreeMap<> ();
+        final Set<String> ids = readXmlFiles (table, target, layouts);
+        final List<File> written = new ArrayList<> ();
+
+        // The jars are replaced by the builds
+        for (Map.Entry<File, File> copy : rJarCopies.entrySet ()) {
+            copyWithoutR (copy.getKey (), copy.getValue (), target.packageName);
+        }
+
+        final Symbols symbols = readSymbols (target.dir);
+        addSymbols (symbols, table, ids);
+        write (JavaFile.builder (target.packageName, createR (symbols))
+            .addFileComment ("Generated by AndroidIDE from the resources of the project.")
+            .skipJavaLangImports (true)
+            .indent ("    ")
+            .build (), new File (target.dir, R_DIR), written);
+
+        if (target.viewBinding) {
+            writeBindings (target, layouts, written);
+        }
+
+        if (!written.isEmpty ()) {
+            WorkspaceWatcher.getInstance ().notifyWritten (written);
+        }
+        LOG.info ("Wrote", written.size (), "resource classes in", System.currentTimeMillis () - start, "ms");
+    }
+
+    /**
+     * Read the XML files of the resources that have changed since they were last read.
+     *
+     * @param layouts Filled with the files of each layout of the module, in all configurations.
+     * @return The IDs declared in all the files.
+     */
+    @NonNull
+    private Set<String> readXmlFiles (@NonNull ResourceTable table, @NonNull Target target, @NonNull Map<String, List<ViewBindingGenerator.XmlFile>> layouts) {
+        final Set<String> ids = new HashSet<> ();
+        final Set<String> seen = new HashSet<> ();
+        final String modulePrefix = target.dir.getAbsolutePath () + File.separator;
+        for (String type : table.getTypes ()) {
+            for (String name : table.getNames (type)) {
+                for (ResourceTable.Resource resource : table.getAll (type, name)) {
+                    final File file = resource.file;
+                    if (!file.getName ().endsWith (".xml") || file.getParentFile ().getName ().startsWith ("values")) {
+                        continue;
+                    }
+
+                    final String path = file.getAbsolutePath ();
+                    final boolean layout = "layout".equals (type);
+                    ViewBindingGenerator.XmlFile xml = xmlFiles.get (path);
+                    if (xml == null || xml.lastModified != file.lastModified ()) {
+                        try {
+                            xml = ViewBindingGenerator.read (file, layout);
+                        } catch (IOException | XmlPullParserException e) {
+                            // The file is probably being edited. Use what was read before.
+                            LOG.warn ("Unable to read", file, e.getMessage ());
+                        }
+                    }
+                    if (xml == null) {
+                        continue;
+                    }
+
+                    xmlFiles.put (path, xml);
+                    seen.add (path);
+                    ids.addAll (xml.ids);
+                    if (layout && path.startsWith (modulePrefix)) {
+                        layouts.computeIfAbsent (name, __ -> new ArrayList<> ()).add (xml);
+                    }
+                }
+            }
+        }
+
+        xmlFiles.keySet ().retainAll (seen);
+        return ids;
+    }
+
+    /**
+     * Add the resources of the project to the symbols of the last build.
+     */
+    private void addSymbols (@NonNull Symbols symbols, @NonNull ResourceTable table, @NonNull Set<String> ids) {
+        for (String type : table.getTypes ()) {
+            if ("declare-styleable".equals (type)) {
+                continue;
+            }
+            for (String name : table.getNames (type)) {
+                symbols.add (type, name);
+            }
+        }
+
+        for (String id : ids) {
+            symbols.add ("id", id);
+        }
+
+        // The indexes of the attributes of a styleable depend on the attributes it has now
+        for (String name : table.getNames ("declare-styleable")) {
+            final ResourceTable.Resource styleable = table.find ("declare-styleable", name, null);
+            if (styleable == null || styleable.items == null) {
+                continue;
+            }
+
+            final StringBuilder array = new StringBuilder ("{ ");
+            for (int i = 0; i < styleable.items.length; i++) {
+                final String attr = styleable.items[i];
+                final String attrName = attr.substring (attr.indexOf (':') + 1);
+                if (i > 0) {
+                    array.append (", ");
+                }
+                if (attr.startsWith ("android:")) {
+                    array.append ("android.R.attr.").append (fieldName (attrName));
+                } else {
+                    array.append (symbols.add ("attr", attrName));
+                }
+
+                final String prefix = attr.startsWith ("android:") ? "android_" : "";
+                symbols.put ("styleable", fieldName (name) + "_" + prefix + fieldName (attrName), String.valueOf (i));
+            }
+            symbols.put ("styleable", fieldName (name), array.append (" }").toString ());
+        }
+    }
+
+    @NonNull
+    private static TypeSpec createR (@NonNull Symbols symbols) {
+        final TypeSpec.Builder r = TypeSpec.classBuilder ("R").addModifiers (Modifier.PUBLIC, Modifier.FINAL);
+        for (Map.Entry<String, Map<String, String>> type : symbols.fields.entrySet ()) {
+            final TypeSpec.Builder inner = TypeSpec.classBuilder (type.getKey ())
+                .addModifiers (Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL);
+            for (Map.Entry<String, String> field : type.getValue ().entrySet ()) {
+                final String value = field.getValue ();
+                final TypeName fieldType = value.startsWith ("{") ? ArrayTypeName.of (int.class) : TypeName.INT;
+                inner.addField (FieldSpec.builder (fieldType, field.getKey (), Modifier.PUBLIC, Modifier.STATIC, Modifier.FINAL)
+                    .initializer ("$L", value)
+                    .build ());
+            }
+            r.addType (inner.build ());
+        }
+        return r.build ();
+    }
+
+    private void writeBindings (@NonNull Target target, @NonNull Map<String, List<ViewBindingGenerator.XmlFile>> layouts, @NonNull List<File> written) {
+        final File dir = new File (target.dir, BINDING_DIR);
+        final String bindingPackage = target.packageName + ".databinding";
+
+        // Layouts that do not exist anymore
+        final Iterator<String> names = bindingKeys.keySet ().iterator ();
+        while (names.hasNext ()) {
+            final String name = names.next ();
+            if (!layouts.containsKey (name)) {
+                names.remove ();
+                delete (bindingFile (dir, bindingPackage, name), written);
+            }
+        }
+
+        for (Map.Entry<String, List<ViewBindingGenerator.XmlFile>> layout : layouts.entrySet ()) {
+            final String name = layout.getKey ();
+            final StringBuilder key = new StringBuilder ();
+            final List<ViewBindingGenerator.XmlFile> configs = new ArrayList<> ();
+            final List<ViewBindingGenerator.XmlFile> files = layout.getValue ();
+            files.sort ((a, b) -> a.file.compareTo (b.file));
+            for (ViewBindingGenerator.XmlFile xml : files) {
+                key.append (xml.file.getAbsolutePath ()).append (':').append (xml.lastModified).append (';');
+                if (!xml.ignored) {
+                    configs.add (xml);
+                }
+            }
+
+            if (key.toString ().equals (bindingKeys.put (name, key.toString ()))) {
+                continue;
+            }
+
+            if (configs.isEmpty ()) {
+                delete (bindingFile (dir, bindingPackage, name), written);
+            } else {
+                write (JavaFile.builder (bindingPackage, ViewBindingGenerator.create (target.packageName, name, configs))
+                    .skipJavaLangImports (true)
+                    .indent ("    ")
+                    .build (), dir, written);
+            }
+        }
+    }
+
+    @NonNull
+    private static File bindingFile (@NonNull File dir, @NonNull String bindingPackage, @NonNull String layout) {
+        return new File (dir, bindingPackage.replace ('.', File.separatorChar) + File.separator + ViewBindingGenerator.bindingName (layout) + ".java");
+    }
+
+    /**
+     * Write the given file, if its contents are not already the same.
+     */
+    private static void write (@NonNull JavaFile javaFile, @NonNull File dir, @NonNull List<File> written) {
+        final File file = new File (dir, javaFile.packageName.replace ('.', File.separatorChar) + File.separator + javaFile.typeSpec.name + ".java");
+        final String contents = javaFile.toString ();
+        if (file.isFile () && contents.equals (FileIOUtils.readFile2String (file))) {
+            return;
+        }
+
+        if (FileIOUtils.writeFileFromString (file, contents)) {
+            written.add (file);
+        } else {
+            LOG.error ("Unable to write", file);
+        }
+    }
+
+    private static void delete (@NonNull File file, @NonNull List<File> written) {
+        if (file.isFile () && file.delete ()) {
+            written.add (file);
+        }
+    }
+
+    /**
+     * Read the symbols of the last build of the module, if there was one.
+     */
+    @NonNull
+    private static Symbols readSymbols (@NonNull File moduleDir) {
+        final Symbols symbols = new Symbols ();
+        for (String path : SYMBOL_FILES) {
+            final File file = new File (moduleDir, path);
+            if (!file.isFile ()) {
+                continue;
+            }
+
+            // Lines are like 'int string app_name 0x7f0f001b' or 'int[] styleable ActionBar { 0x7f040031, 0x7f040032 }'
+            try (BufferedReader reader = new BufferedReader (new FileReader (file))) {
+                String line;
+                while ((line = reader.readLine ()) != null) {
+                    final String[] parts = line.split (" ", 4);
+                    if (parts.length == 4) {
+                        symbols.put (parts[1], parts[2], parts[3]);
+                    }
+                }
+            } catch (IOException e) {
+                LOG.warn ("Unable to read the symbols of the last build from", file, e.getMessage ());
+            }
+            break;
+        }
+        return symbols;
+    }
+
+    /**
+     * Copy the given jar without the {@code R} class of the given package and its inner classes,
+     * unless the copy is already up to date.
+     *
+     * @return Whether the copy can be used.
+     */
+    private static synchronized boolean copyWithoutR (@NonNull File jar, @NonNull File copy, @NonNull String packageName) {
+        if (copy.isFile () && copy.lastModified () >= jar.lastModified ()) {
+            return true;
+        }
+
+        final String prefix = packageName.replace ('.', '/') + "/R";
+        final File tmp = new File (copy.getPath () + ".tmp");
+        final File parent = copy.getParentFile ();
+        if (parent != null && !parent.exists ()) {
+            parent.mkdirs ();
+        }
+
+        try (ZipInputStream in = new ZipInputStream (new BufferedInputStream (new FileInputStream (jar)));
+             ZipOutputStream out = new ZipOutputStream (new BufferedOutputStream (new FileOutputStream (tmp)))) {
+            final byte[] buffer = new byte[8192];
+            ZipEntry entry;
+            while ((entry = in.getNextEntry ()) != null) {
+                final String name = entry.getName ();
+                if (name.equals (prefix + ".class") || name.startsWith (prefix + "$")) {
+                    continue;
+                }
+
+                out.putNextEntry (new ZipEntry (name));
+                int read;
+                while ((read = in.read (buffer)) != -1) {
+                    out.write (buffer, 0, read);
+                }
+                out.closeEntry ();
+            }
+        } catch (IOException e) {
+            LOG.error ("Unable to copy", jar, e.getMessage ());
+            tmp.delete ();
+            return false;
+        }
+
+        copy.delete ();
+        if (!tmp.renameTo (copy)) {
+            LOG.error ("Unable to write", copy);
+            tmp.delete ();
+            return false;
+        }
+        return true;
+    }
+
+    @Nullable
+    private static Target findTarget (@NonNull IDEModule module) {
+        if (module.projectDir == null) {
+            return null;
+        }
+
+        final File dir = new File (module.projectDir);
+        String packageName = readPackageName (new File (dir, "src/main/AndroidManifest.xml"));
+        if (packageName == null) {
+            packageName = module.applicationId;
+        }
+        return packageName == null ? null : new Target (dir, packageName, module.viewBindingEnabled);
+    }
+
+    @Nullable
+    private static String readPackageName (@NonNull File manifest) {
+        if (!manifest.isFile ()) {
+            return null;
+        }
+
+        try (Reader reader = new BufferedReader (new InputStreamReader (new FileInputStream (manifest), StandardCharsets.UTF_8))) {
+            final XmlPullParser parser = Xml.newPullParser ();
+            parser.setFeature (XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+            parser.setInput (reader);
+            if (parser.nextTag () == XmlPullParser.START_TAG) {
+                return parser.getAttributeValue (null, "package");
+            }
+        } catch (IOException | XmlPullParserException e) {
+            LOG.warn ("Unable to read", manifest, e.getMessage ());
+        }
+        return null;
+    }
+
+    /**
+     * @return The name of the field of a resource, like {@code Theme_App} for {@code Theme.App}.
+     */
+    @NonNull
+    private static String fieldName (@NonNull String name) {
+        return name.replace ('.', '_').replace ('-', '_').replace (':', '_');
+    }
+
+    private void clear () {
+        xmlFiles.clear ();
+        bindingKeys.clear ();
+    }
+
+    /**
+     * The fields of the {@code R} class, by the name of its inner class.
+     */
+    private static final class Symbols {
+
+        final Map<String, Map<String, String>> fields = new TreeMap<> ();
+
+        /**
+         * The next free identifier of each type.
+         */
+        private final Map<String, Integer> nextIds = new HashMap<> ();
+
+        /**
+         * The type part of the identifiers of types that did not have any identifier yet.
+         */
+        private int nextType = 1;
+
+        void put (@NonNull String type, @NonNull String name, @NonNull String value) {
+            fields.computeIfAbsent (type, __ -> new TreeMap<> ()).put (name, value);
+            if ("styleable".equals (type) || value.startsWith ("{")) {
+                return;
+            }
+
+            try {
+                final int id = Long.decode (value).intValue ();
+                nextType = Math.max (nextType, ((id >> 16) & 0xff) + 1);
+                nextIds.merge (type, id + 1, Math::max);
+            } catch (NumberFormatException e) {
+                // Not an identifier
+            }
+        }
+
+        /**
+         * Add a resource, if it is not known yet.
+         *
+         * @param type The type of the resource.
+         * @param name The name of the resource.
+         * @return The identifier of the resource.
+         */
+        @NonNull
+        String add (@NonNull String type, @NonNull String name) {
+            final String field = fieldName (name);
+            final Map<String, String> names = fields.computeIfAbsent (type, __ -> new TreeMap<> ());
+            final String existing = names.get (field);
+            if (existing != null) {
+                return existing;
+            }
+
+            Integer id = nextIds.get (type);
+            if (id == null) {
+                id = 0x7f000000 | (nextType++ << 16);
+            }
+            nextIds.put (type, id + 1);
+
+            final String value = "0x" + Integer.toHexString (id);
+            names.put (field, value);
+            return value;
+        }
+    }
+
+    private static final class Target {
+
+        final File dir;
+        final String packageName;
+        final boolean viewBinding;
+
+        Target (File dir, String packageName, boolean viewBinding) {
+            this.dir = dir;
+            this.packageName = packageName;
+            this.viewBinding = viewBinding;
+        }
+    }
+}
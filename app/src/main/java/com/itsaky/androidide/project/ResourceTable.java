@@ -0,0 +1,655 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.project;
+
+import android.util.Xml;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.itsaky.androidide.services.WorkspaceIndex;
+import com.itsaky.androidide.utils.Logger;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Table of the resources of the opened project, including the resources of library modules and
+ * generated resources.
+ *
+ * Every resource is mapped by its type and name to its values in the different configurations
+ * (like {@code values-night} or {@code drawable-hdpi}). A value comes from a {@code values}
+ * directory, other resources are files.
+ *
+ * The table follows the {@link WorkspaceIndex}. It is filled when the project is opened, and only
+ * the files that are created, changed or deleted are read again after that. A {@link Listener}
+ * is told every time the resources have changed.
+ *
+ * @author Akash Yadav
+ */
+public class ResourceTable implements WorkspaceIndex.Listener {
+
+    /**
+     * Maximum number of references followed to resolve a value. Longer chains are treated as cycles.
+     */
+    private static final int MAX_REFERENCE_DEPTH = 16;
+
+    /**
+     * The names of the directories in a {@code res} directory, without qualifiers.
+     */
+    private static final Set<String> RES_DIR_TYPES = new HashSet<> (Arrays.asList (
+        "anim", "animator", "color", "drawable", "font", "interpolator", "layout", "menu",
+        "mipmap", "navigation", "raw", "transition", "values", "xml"));
+
+    private static final Logger LOG = Logger.instance ("ResourceTable");
+    private static ResourceTable mInstance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor (r -> {
+        final Thread thread = new Thread (r, "ResourceTable");
+        thread.setDaemon (true);
+        return thread;
+    });
+
+    /**
+     * Resources by {@code type/name}, in all configurations. The lists are never modified, they
+     * are replaced. Only modified on the executor thread.
+     */
+    private final Map<String, List<Resource>> resources = new ConcurrentHashMap<> ();
+
+    /**
+     * Names of the resources, by type. Only modified on the executor thread.
+     */
+    private final Map<String, Set<String>> names = new ConcurrentHashMap<> ();
+
+    /**
+     * Keys of the resources defined by each file, by path. Only accessed on the executor thread.
+     */
+    private final Map<String, List<String>> keysByFile = new HashMap<> ();
+
+    /**
+     * Resolved references, like {@code @color/primary}. Cleared when any resource changes.
+     */
+    private final Map<String, String> resolved = new ConcurrentHashMap<> ();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<> ();
+
+    private volatile boolean ready;
+    private File root;
+
+    public static synchronized ResourceTable getInstance () {
+        if (mInstance == null) {
+            mInstance = new ResourceTable ();
+        }
+        return mInstance;
+    }
+
+    /**
+     * Start following the project opened in the {@link WorkspaceIndex}.
+     */
+    public void enable () {
+        WorkspaceIndex.getInstance ().addListener (this);
+    }
+
+    public void disable () {
+        WorkspaceIndex.getInstance ().removeListener (this);
+        executor.execute (this::clear);
+    }
+
+    public boolean isReady () {
+        return ready;
+    }
+
+    /**
+     * Add a listener. If the table is already filled, {@link Listener#onResourcesChanged()} is
+     * called right away, on the table thread.
+     */
+    public void addListener (@NonNull Listener listener) {
+        listeners.add (listener);
+        executor.execute (() -> {
+            if (ready) {
+                listener.onResourcesChanged ();
+            }
+        });
+    }
+
+    public void removeListener (@NonNull Listener listener) {
+        listeners.remove (listener);
+    }
+
+    @Override
+    public void onIndexReady (WorkspaceIndex index) {
+        final File projectDir = index.getRoot ();
+        final List<WorkspaceIndex.Entry> entries = index.getEntries ();
+        executor.execute (() -> {
+            clear ();
+            if (projectDir == null) {
+                return;
+            }
+
+            root = projectDir;
+
+            final long start = System.currentTimeMillis ();
+            int count = 0;
+            for (WorkspaceIndex.Entry entry : entries) {
+                if (add (entry.file)) {
+                    count++;
+                }
+            }
+            ready = true;
+            LOG.info ("Read", resources.size (), "resources from", count, "files in", System.currentTimeMillis () - start, "ms");
+            dispatchChange ();
+        });
+    }
+
+    @Override
+    public void onFilesChanged (List<WorkspaceIndex.Entry> changed, List<File> removed) {
+        executor.execute (() -> {
+            if (root == null) {
+                return;
+            }
+
+            boolean modified = false;
+            for (File file : removed) {
+                modified |= remove (file);
+            }
+            for (WorkspaceIndex.Entry entry : changed) {
+                modified |= remove (entry.file);
+                modified |= add (entry.file);
+            }
+
+            if (modified) {
+                resolved.clear ();
+                dispatchChange ();
+            }
+        });
+    }
+
+    /**
+     * Find a resource.
+     *
+     * @param type The type of the resource, like {@code string} or {@code drawable}.
+     * @param name The name of the resource.
+     * @param resDir The preferred {@code res} directory. Can be {@code null}.
+     * @return The resource, or {@code null} if it was not found. The value in the preferred directory
+     *         and in the default configuration is returned first.
+     */
+    @Nullable
+    public Resource find (@NonNull String type, @NonNull String name, @Nullable File resDir) {
+        final List<Resource> found = resources.get (type + "/" + name);
+        if (found == null || found.isEmpty ()) {
+            return null;
+        }
+
+        Resource best = null;
+        int bestScore = -1;
+        for (Resource resource : found) {
+            int score = resource.qualifiers.isEmpty () ? 1 : 0;
+            if (resDir != null && resDir.equals (resource.resDir)) {
+                score += 2;
+            }
+
+            if (score > bestScore) {
+                best = resource;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the resolved value of a resource. References to other resources are followed.
+     *
+     * @return The value, or {@code null} if the resource does not exist or is not a value.
+     */
+    @Nullable
+    public String getValue (@NonNull String type, @NonNull String name) {
+        final Resource resource = find (type, name, null);
+        return resource == null ? null : resolve (resource.value);
+    }
+
+    /**
+     * @return The resolved items of the array with the given name, or {@code null}.
+     */
+    @Nullable
+    public String[] getArray (@NonNull String name) {
+        final Resource resource = find ("array", name, null);
+        if (resource == null || resource.items == null) {
+            return null;
+        }
+
+        final String[] items = new String[resource.items.length];
+        for (int i = 0; i < items.length; i++) {
+            final String item = resolve (resource.items[i]);
+            items[i] = item == null ? resource.items[i] : item;
+        }
+        return items;
+    }
+
+    /**
+     * @return The file of a file resource, like a drawable or a layout, or {@code null}.
+     */
+    @Nullable
+    public File getFile (@NonNull String type, @NonNull String name, @Nullable File resDir) {
+        final Resource resource = find (type, name, resDir);
+        return resource == null ? null : resource.file;
+    }
+
+    /**
+     * @return The resource with the given type and name in all the configurations.
+     */
+    @NonNull
+    public List<Resource> getAll (@NonNull String type, @NonNull String name) {
+        final List<Resource> found = resources.get (type + "/" + name);
+        return found == null ? Collections.emptyList () : found;
+    }
+
+    /**
+     * @return The types of all the resources, like {@code string} or {@code layout}.
+     */
+    @NonNull
+    public Set<String> getTypes () {
+        return Collections.unmodifiableSet (names.keySet ());
+    }
+
+    /**
+     * @return The names of all the resources of the given type.
+     */
+    @NonNull
+    public Set<String> getNames (@NonNull String type) {
+        final Set<String> found = names.get (type);
+        return found == null ? Collections.emptySet () : Collections.unmodifiableSet (found);
+    }
+
+    /**
+     * Follow the given reference (like {@code @color/primary}) until a value is found. Results are
+     * remembered until a resource changes. Values that are not references to project resources,
+     * like {@code #ffffff} or {@code @android:color/white}, are returned as they are.
+     *
+     * @return The value, or {@code null} if a referenced resource does not exist or the references
+     *         form a cycle.
+     */
+    @Nullable
+    public String resolve (@Nullable String value) {
+        if (value == null || !isReference (value)) {
+            return value;
+        }
+
+        final String cached = resolved.get (value);
+        if (cached != null) {
+            return cached;
+        }
+
+        String current = value;
+        for (int depth = 0; current != null && isReference (current); depth++) {
+            if (depth == MAX_REFERENCE_DEPTH) {
+                LOG.warn ("Cyclic resource reference:", value);
+                return null;
+            }
+
+            final int slash = current.indexOf ('/');
+            final Resource resource = find (current.substring (1, slash), current.substring (slash + 1), null);
+            current = resource == null ? null : resource.value;
+        }
+
+        if (current != null) {
+            resolved.put (value, current);
+        }
+        return current;
+    }
+
+    /**
+     * @return Whether the directory is a {@code res} directory of a source set, like
+     *         {@code src/main/res}, or a directory of generated resources, like
+     *         {@code build/generated/res/resValues/debug}.
+     */
+    private static boolean isResDir (@NonNull File dir) {
+        if ("res".equals (dir.getName ())) {
+            return true;
+        }
+
+        // Generated resources are in 'build/generated/res/<generator>/<variant>', variants can have several segments
+        for (File parent = dir.getParentFile (); parent != null; parent = parent.getParentFile ()) {
+            if ("res".equals (parent.getName ())) {
+                final File generated = parent.getParentFile ();
+                final File build = generated == null ? null : generated.getParentFile ();
+                return generated != null && "generated".equals (generated.getName ())
+                    && build != null && "build".equals (build.getName ());
+            }
+        }
+        return false;
+    }
+
+    private static boolean isReference (@NonNull String value) {
+        return value.startsWith ("@")
+            && !value.startsWith ("@android:")
+            && !value.startsWith ("@+")
+            && value.indexOf ('/') > 1;
+    }
+
+    /**
+     * Add the resources of the given file.
+     *
+     * @return {@code true} if the file is a resource file.
+     */
+    private boolean add (@NonNull File file) {
+        final File typeDir = file.getParentFile ();
+        final File resDir = typeDir == null ? null : typeDir.getParentFile ();
+        if (resDir == null) {
+            return false;
+        }
+
+        final String dirName = typeDir.getName ();
+        final int dash = dirName.indexOf ('-');
+        final String type = dash == -1 ? dirName : dirName.substring (0, dash);
+        final String qualifiers = dash == -1 ? "" : dirName.substring (dash + 1);
+        if (!RES_DIR_TYPES.contains (type) || !isResDir (resDir)) {
+            return false;
+        }
+
+        final List<String> keys = new ArrayList<> ();
+        if ("values".equals (type)) {
+            if (!file.getName ().endsWith (".xml")) {
+                return false;
+            }
+
+            for (Resource resource : readValues (file, resDir, qualifiers)) {
+                put (resource, keys);
+            }
+        } else {
+            String name = file.getName ();
+            final int dot = name.indexOf ('.');
+            if (dot != -1) {
+                name = name.substring (0, dot);
+            }
+            put (new Resource (type, name, qualifiers, resDir, file, null, null), keys);
+        }
+
+        keysByFile.put (file.getAbsolutePath (), keys);
+        return true;
+    }
+
+    private void put (@NonNull Resource resource, @NonNull List<String> keys) {
+        final String key = resource.type + "/" + resource.name;
+        resources.merge (key, Collections.singletonList (resource), (old, added) -> {
+            final List<Resource> list = new ArrayList<> (old.size () + 1);
+            list.addAll (old);
+            list.addAll (added);
+            return list;
+        });
+        names.computeIfAbsent (resource.type, __ -> ConcurrentHashMap.newKeySet ()).add (resource.name);
+        keys.add (key);
+    }
+
+    /**
+     * Remove the resources of the given file.
+     *
+     * @return {@code true} if resources were removed.
+     */
+    private boolean remove (@NonNull File file) {
+        final List<String> keys = keysByFile.remove (file.getAbsolutePath ());
+        if (keys == null) {
+            return false;
+        }
+
+        for (String key : keys) {
+            final List<Resource> old = resources.get (key);
+            if (old == null) {
+                continue;
+            }
+
+            final List<Resource> list = new ArrayList<> (old.size ());
+            for (Resource resource : old) {
+                if (!resource.file.equals (file)) {
+                    list.add (resource);
+                }
+            }
+
+            if (list.isEmpty ()) {
+                resources.remove (key);
+                final int slash = key.indexOf ('/');
+                final Set<String> typeNames = names.get (key.substring (0, slash));
+                if (typeNames != null) {
+                    typeNames.remove (key.substring (slash + 1));
+                }
+            } else {
+                resources.put (key, list);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the resources declared in a file of a {@code values} directory.
+     */
+    @NonNull
+    private List<Resource> readValues (@NonNull File file, @NonNull File resDir, @NonNull String qualifiers) {
+        final List<Resource> result = new ArrayList<> ();
+        try (Reader reader = new BufferedReader (new InputStreamReader (new FileInputStream (file), StandardCharsets.UTF_8))) {
+            final XmlPullParser parser = Xml.newPullParser ();
+            parser.setFeature (XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+            parser.setInput (reader);
+
+            int event;
+            while ((event = parser.next ()) != XmlPullParser.END_DOCUMENT) {
+                // Declarations are direct children of <resources>
+                if (event != XmlPullParser.START_TAG || parser.getDepth () != 2) {
+                    continue;
+                }
+
+                final String name = parser.getAttributeValue (null, "name");
+                final String type = typeOf (parser);
+                if (name == null || type == null) {
+                    continue;
+                }
+
+                if (type.equals ("array") || type.equals ("plurals")) {
+                    result.add (new Resource (type, name, qualifiers, resDir, file, null, readItems (parser)));
+                } else if (type.equals ("declare-styleable")) {
+                    final String[] attrs = readAttrNames (parser);
+                    result.add (new Resource (type, name, qualifiers, resDir, file, null, attrs));
+                    for (String attr : attrs) {
+                        // Attributes of the platform are only referenced
+                        if (!attr.startsWith ("android:")) {
+                            result.add (new Resource ("attr", attr, qualifiers, resDir, file, null, null));
+                        }
+                    }
+                } else if (type.equals ("style") || type.equals ("attr")) {
+                    skip (parser);
+                    result.add (new Resource (type, name, qualifiers, resDir, file, null, null));
+                } else {
+                    result.add (new Resource (type, name, qualifiers, resDir, file, readText (parser), null));
+                }
+            }
+        } catch (IOException | XmlPullParserException e) {
+            // The file is probably being edited. Keep what could be read.
+            LOG.warn ("Unable to read values from", file, e.getMessage ());
+        }
+        return result;
+    }
+
+    @Nullable
+    private static String typeOf (@NonNull XmlPullParser parser) {
+        final String tag = parser.getName ();
+        switch (tag) {
+            case "item":
+                return parser.getAttributeValue (null, "type");
+            case "string-array":
+            case "integer-array":
+                return "array";
+            case "public":
+            case "eat-comment":
+            case "skip":
+                return null;
+            default:
+                return tag;
+        }
+    }
+
+    /**
+     * Read the text content of the current element, including the text of nested elements
+     * like {@code <xliff:g>}.
+     */
+    @NonNull
+    private static String readText (@NonNull XmlPullParser parser) throws IOException, XmlPullParserException {
+        final StringBuilder text = new StringBuilder ();
+        final int depth = parser.getDepth ();
+        int event;
+        while ((event = parser.next ()) != XmlPullParser.END_DOCUMENT) {
+            if (event == XmlPullParser.END_TAG && parser.getDepth () == depth) {
+                break;
+            }
+            if (event == XmlPullParser.TEXT) {
+                text.append (parser.getText ());
+            }
+        }
+        return text.toString ().trim ();
+    }
+
+    @NonNull
+    private static String[] readItems (@NonNull XmlPullParser parser) throws IOException, XmlPullParserException {
+        final List<String> items = new ArrayList<> ();
+        final int depth = parser.getDepth ();
+        int event;
+        while ((event = parser.next ()) != XmlPullParser.END_DOCUMENT) {
+            if (event == XmlPullParser.END_TAG && parser.getDepth () == depth) {
+                break;
+            }
+            if (event == XmlPullParser.START_TAG && parser.getDepth () == depth + 1) {
+                items.add (readText (parser));
+            }
+        }
+        return items.toArray (new String[0]);
+    }
+
+    /**
+     * Read the names of the {@code <attr>} elements of a {@code <declare-styleable>}.
+     */
+    @NonNull
+    private static String[] readAttrNames (@NonNull XmlPullParser parser) throws IOException, XmlPullParserException {
+        final List<String> attrs = new ArrayList<> ();
+        final int depth = parser.getDepth ();
+        int event;
+        while ((event = parser.next ()) != XmlPullParser.END_DOCUMENT) {
+            if (event == XmlPullParser.END_TAG && parser.getDepth () == depth) {
+                break;
+            }
+            if (event == XmlPullParser.START_TAG && parser.getDepth () == depth + 1 && "attr".equals (parser.getName ())) {
+                final String attr = parser.getAttributeValue (null, "name");
+                if (attr != null) {
+                    attrs.add (attr);
+                }
+                skip (parser);
+            }
+        }
+        return attrs.toArray (new String[0]);
+    }
+
+    private static void skip (@NonNull XmlPullParser parser) throws IOException, XmlPullParserException {
+        final int depth = parser.getDepth ();
+        int event;
+        while ((event = parser.next ()) != XmlPullParser.END_DOCUMENT) {
+            if (event == XmlPullParser.END_TAG && parser.getDepth () == depth) {
+                break;
+            }
+        }
+    }
+
+    private void dispatchChange () {
+        for (Listener listener : listeners) {
+            listener.onResourcesChanged ();
+        }
+    }
+
+    private void clear () {
+        ready = false;
+        root = null;
+        resources.clear ();
+        names.clear ();
+        keysByFile.clear ();
+        resolved.clear ();
+    }
+
+    /**
+     * Listener for changes in the table.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the table thread when the project has been read, and every time resources
+         * have been added, changed or removed after that.
+         */
+        void onResourcesChanged ();
+    }
+
+    /**
+     * A resource in one configuration.
+     */
+    public static class Resource {
+
+        public final String type;
+        public final String name;
+
+        /**
+         * The configuration qualifiers, like {@code night-v21}. Empty for the default configuration.
+         */
+        public final String qualifiers;
+        public final File resDir;
+
+        /**
+         * The file that declares this resource. For a value, this is the file in the {@code values}
+         * directory.
+         */
+        public final File file;
+
+        /**
+         * The raw value, or {@code null} if this is a file resource or an array.
+         */
+        public final String value;
+
+        /**
+         * The raw items of an array or of plurals, the attributes of a {@code declare-styleable},
+         * or {@code null}.
+         */
+        public final String[] items;
+
+        Resource (String type, String name, String qualifiers, File resDir, File file, String value, String[] items) {
+            this.type = type;
+            this.name = name;
+            this.qualifiers = qualifiers;
+            this.resDir = resDir;
+            this.file = file;
+            this.value = value;
+            this.items = items;
+        }
+    }
+}
@@ -0,0 +1,455 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.project;
+
+import android.util.Xml;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.TypeSpec;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.Modifier;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Creates the view binding class of a layout, with the same fields and methods as the class
+ * generated by the Android Gradle plugin.
+ *
+ * When a layout has more than one configuration, a view that is not in all of them is
+ * {@code @Nullable}, and a view whose class is not the same in all of them is a {@code View}.
+ *
+ * @author Akash Yadav
+ */
+final class ViewBindingGenerator {
+
+    private static final ClassName VIEW = ClassName.get ("android.view", "View");
+    private static final ClassName VIEW_GROUP = ClassName.get ("android.view", "ViewGroup");
+    private static final ClassName LAYOUT_INFLATER = ClassName.get ("android.view", "LayoutInflater");
+    private static final ClassName VIEW_BINDING = ClassName.get ("androidx.viewbinding", "ViewBinding");
+    private static final ClassName NON_NULL = ClassName.get ("androidx.annotation", "NonNull");
+    private static final ClassName NULLABLE = ClassName.get ("androidx.annotation", "Nullable");
+
+    /**
+     * Views that are not in {@code android.widget}.
+     */
+    private static final Set<String> VIEW_PACKAGE = new HashSet<> (Arrays.asList ("View", "ViewGroup", "ViewStub", "SurfaceView", "TextureView"));
+
+    /**
+     * Elements of a layout that are not views.
+     */
+    private static final Set<String> NOT_VIEWS = new HashSet<> (Arrays.asList ("merge", "fragment", "requestFocus", "tag"));
+
+    /**
+     * Names used by the generated code, that a field cannot have.
+     */
+    private static final Set<String> RESERVED = new HashSet<> (Arrays.asList ("rootView", "id", "missingId"));
+
+    private ViewBindingGenerator () {
+    }
+
+    /**
+     * Read a resource XML file. The IDs it declares are always read, the views are read only for
+     * a layout.
+     */
+    @NonNull
+    static XmlFile read (@NonNull File file, boolean layout) throws IOException, XmlPullParserException {
+        final XmlFile result = new XmlFile (file);
+        try (Reader reader = new BufferedReader (new InputStreamReader (new FileInputStream (file), StandardCharsets.UTF_8))) {
+            final XmlPullParser parser = Xml.newPullParser ();
+            parser.setFeature (XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+            parser.setInput (reader);
+
+            int event;
+            while ((event = parser.next ()) != XmlPullParser.END_DOCUMENT) {
+                if (event != XmlPullParser.START_TAG) {
+                    continue;
+                }
+
+                for (int i = 0; i < parser.getAttributeCount (); i++) {
+                    final String value = parser.getAttributeValue (i);
+                    if (value.startsWith ("@+id/")) {
+                        result.ids.add (value.substring (5));
+                    }
+                }
+
+                if (layout) {
+                    readView (parser, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void readView (@NonNull XmlPullParser parser, @NonNull XmlFile result) {
+        final String tag = parser.getName ();
+        final boolean root = parser.getDepth () == 1;
+        if (root) {
+            result.merge = "merge".equals (tag);
+            result.ignored = "true".equals (parser.getAttributeValue (null, "tools:viewBindingIgnore"));
+            result.rootType = result.merge ? null : typeOf (parser, tag);
+        }
+
+        final String idValue = parser.getAttributeValue (null, "android:id");
+        final String id = idValue == null || idValue.startsWith ("@android:") ? null : nameOf (idValue);
+        if (id == null || NOT_VIEWS.contains (tag)) {
+            return;
+        }
+
+        if ("include".equals (tag)) {
+            final String layout = nameOf (parser.getAttributeValue (null, "layout"));
+            if (layout != null) {
+                result.views.add (new BoundView (id, null, layout, false));
+            }
+        } else {
+            result.views.add (new BoundView (id, typeOf (parser, tag), null, root));
+        }
+    }
+
+    @NonNull
+    private static String typeOf (@NonNull XmlPullParser parser, @NonNull String tag) {
+        String type = parser.getAttributeValue (null, "tools:viewBindingType");
+        if (type == null) {
+            type = "view".equals (tag) ? parser.getAttributeValue (null, "class") : tag;
+        }
+        if (type == null) {
+            return VIEW.canonicalName ();
+        }
+
+        if (type.indexOf ('.') != -1) {
+            return type;
+        } else if (VIEW_PACKAGE.contains (type)) {
+            return "android.view." + type;
+        } else if ("WebView".equals (type)) {
+            return "android.webkit." + type;
+        }
+        return "android.widget." + type;
+    }
+
+    /**
+     * @return The name in a reference like {@code @+id/name} or {@code @layout/name}.
+     */
+    @Nullable
+    private static String nameOf (@Nullable String reference) {
+        if (reference == null || !reference.startsWith ("@")) {
+            return null;
+        }
+        final int slash = reference.indexOf ('/');
+        return slash == -1 ? null : reference.substring (slash + 1);
+    }
+
+    /**
+     * @return The name of the binding class of a layout, like {@code ActivityMainBinding} for
+     *         {@code activity_main}.
+     */
+    @NonNull
+    static String bindingName (@NonNull String layout) {
+        final String name = toCamelCase (layout);
+        return Character.toUpperCase (name.charAt (0)) + name.substring (1) + "Binding";
+    }
+
+    @NonNull
+    private static String toCamelCase (@NonNull String name) {
+        final StringBuilder result = new StringBuilder (name.length ());
+        boolean upper = false;
+        for (int i = 0; i < name.length (); i++) {
+            final char c = name.charAt (i);
+            if (c == '_' || c == '.') {
+                upper = result.length () > 0;
+            } else {
+                result.append (upper ? Character.toUpperCase (c) : c);
+                upper = false;
+            }
+        }
+        return result.toString ();
+    }
+
+    /**
+     * Create the binding class of a layout.
+     *
+     * @param packageName The package of the {@code R} class of the module.
+     * @param layout The name of the layout.
+     * @param configs The files of the layout, in all configurations. Must not be empty.
+     */
+    @NonNull
+    static TypeSpec create (@NonNull String packageName, @NonNull String layout, @NonNull List<XmlFile> configs) {
+        final ClassName binding = ClassName.get (packageName + ".databinding", bindingName (layout));
+        final ClassName r = ClassName.get (packageName, "R");
+        final boolean merge = configs.get (0).merge;
+
+        ClassName rootType = null;
+        final Map<String, Field> fields = new LinkedHashMap<> ();
+        for (XmlFile config : configs) {
+            final ClassName type = config.rootType == null ? VIEW : classOf (config.rootType);
+            rootType = rootType == null || rootType.equals (type) ? type : VIEW;
+
+            for (BoundView view : config.views) {
+                final ClassName viewType = view.include != null
+                    ? ClassName.get (binding.packageName (), bindingName (view.include))
+                    : classOf (view.type);
+                final Field old = fields.get (view.id);
+                if (old == null) {
+                    fields.put (view.id, new Field (view, viewType));
+                } else {
+                    old.merge (view, viewType);
+                }
+            }
+        }
+
+        final TypeSpec.Builder builder = TypeSpec.classBuilder (binding)
+            .addModifiers (Modifier.PUBLIC, Modifier.FINAL)
+            .addSuperinterface (VIEW_BINDING)
+            .addField (FieldSpec.builder (rootType, "rootView", Modifier.PRIVATE, Modifier.FINAL).addAnnotation (NON_NULL).build ());
+
+        final MethodSpec.Builder constructor = MethodSpec.constructorBuilder ()
+            .addModifiers (Modifier.PRIVATE)
+            .addParameter (ParameterSpec.builder (rootType, "rootView").addAnnotation (NON_NULL).build ())
+            .addStatement ("this.rootView = rootView");
+
+        for (Field field : fields.values ()) {
+            field.nullable = field.count < configs.size ();
+            final ClassName annotation = field.nullable ? NULLABLE : NON_NULL;
+            builder.addField (FieldSpec.builder (field.type, field.name, Modifier.PUBLIC, Modifier.FINAL).addAnnotation (annotation).build ());
+            constructor.addParameter (ParameterSpec.builder (field.type, field.name).addAnnotation (annotation).build ())
+                .addStatement ("this.$N = $N", field.name, field.name);
+        }
+
+        builder.addMethod (constructor.build ());
+        builder.addMethod (MethodSpec.methodBuilder ("getRoot")
+            .addAnnotation (Override.class)
+            .addAnnotation (NON_NULL)
+            .addModifiers (Modifier.PUBLIC)
+            .returns (rootType)
+            .addStatement ("return rootView")
+            .build ());
+
+        final CodeBlock layoutId = CodeBlock.of ("$T.layout.$N", r, layout);
+        if (merge) {
+            builder.addMethod (MethodSpec.methodBuilder ("inflate")
+                .addAnnotation (NON_NULL)
+                .addModifiers (Modifier.PUBLIC, Modifier.STATIC)
+                .returns (binding)
+                .addParameter (ParameterSpec.builder (LAYOUT_INFLATER, "inflater").addAnnotation (NON_NULL).build ())
+                .addParameter (ParameterSpec.builder (VIEW_GROUP, "parent").addAnnotation (NON_NULL).build ())
+                .beginControlFlow ("if (parent == null)")
+                .addStatement ("throw new $T($S)", NullPointerException.class, "parent")
+                .endControlFlow ()
+                .addStatement ("inflater.inflate($L, parent)", layoutId)
+                .addStatement ("return bind(parent)")
+                .build ());
+        } else {
+            builder.addMethod (MethodSpec.methodBuilder ("inflate")
+                .addAnnotation (NON_NULL)
+                .addModifiers (Modifier.PUBLIC, Modifier.STATIC)
+                .returns (binding)
+                .addParameter (ParameterSpec.builder (LAYOUT_INFLATER, "inflater").addAnnotation (NON_NULL).build ())
+                .addStatement ("return inflate(inflater, null, false)")
+                .build ());
+            builder.addMethod (MethodSpec.methodBuilder ("inflate")
+                .addAnnotation (NON_NULL)
+                .addModifiers (Modifier.PUBLIC, Modifier.STATIC)
+                .returns (binding)
+                .addParameter (ParameterSpec.builder (LAYOUT_INFLATER, "inflater").addAnnotation (NON_NULL).build ())
+                .addParameter (ParameterSpec.builder (VIEW_GROUP, "parent").addAnnotation (NULLABLE).build ())
+                .addParameter (boolean.class, "attachToParent")
+                .addStatement ("$T root = inflater.inflate($L, parent, false)", VIEW, layoutId)
+                .beginControlFlow ("if (attachToParent)")
+                .addStatement ("parent.addView(root)")
+                .endControlFlow ()
+                .addStatement ("return bind(root)")
+                .build ());
+        }
+
+        builder.addMethod (createBind (binding, r, rootType, fields.values ()));
+        return builder.build ();
+    }
+
+    @NonNull
+    private static ClassName classOf (@NonNull String name) {
+        try {
+            return ClassName.bestGuess (name);
+        } catch (IllegalArgumentException e) {
+            // Not a valid class name, the layout is probably being edited
+            return VIEW;
+        }
+    }
+
+    /**
+     * Create the {@code bind(View)} method. Like the one from the Android Gradle plugin, it throws
+     * a {@link NullPointerException} with the name of the first required view that is missing.
+     */
+    @NonNull
+    private static MethodSpec createBind (@NonNull ClassName binding, @NonNull ClassName r, @NonNull ClassName rootType, @NonNull Iterable<Field> fields) {
+        final MethodSpec.Builder bind = MethodSpec.methodBuilder ("bind")
+            .addAnnotation (NON_NULL)
+            .addModifiers (Modifier.PUBLIC, Modifier.STATIC)
+            .returns (binding)
+            .addParameter (ParameterSpec.builder (VIEW, "rootView").addAnnotation (NON_NULL).build ());
+
+        final CodeBlock.Builder args = CodeBlock.builder ().add ("($T) rootView", rootType);
+        final CodeBlock.Builder lookups = CodeBlock.builder ();
+        for (Field field : fields) {
+            // A root view that is not in every configuration is looked up like the others
+            if (field.root && !field.nullable) {
+                args.add (", ($T) rootView", field.type);
+                continue;
+            }
+
+            final boolean include = field.include && !field.type.equals (VIEW);
+            lookups.addStatement ("id = $T.id.$N", r, field.id.replace ('.', '_'));
+            lookups.addStatement ("$T $N = rootView.findViewById(id)", include ? VIEW : field.type, field.name);
+            if (!field.nullable) {
+                lookups.beginControlFlow ("if ($N == null)", field.name)
+                    .addStatement ("break missingId")
+                    .endControlFlow ();
+            }
+
+            if (include) {
+                final String local = "binding_" + field.name;
+                if (field.nullable) {
+                    lookups.addStatement ("$T $N = $N != null ? $T.bind($N) : null", field.type, local, field.name, field.type, field.name);
+                } else {
+                    lookups.addStatement ("$T $N = $T.bind($N)", field.type, local, field.type, field.name);
+                }
+                args.add (", $N", local);
+            } else {
+                args.add (", $N", field.name);
+            }
+        }
+
+        if (lookups.isEmpty ()) {
+            return bind.beginControlFlow ("if (rootView == null)")
+                .addStatement ("throw new $T($S)", NullPointerException.class, "rootView")
+                .endControlFlow ()
+                .addStatement ("return new $T($L)", binding, args.build ())
+                .build ();
+        }
+
+        return bind.addStatement ("int id")
+            .beginControlFlow ("missingId:")
+            .addCode (lookups.build ())
+            .addStatement ("return new $T($L)", binding, args.build ())
+            .endControlFlow ()
+            .addStatement ("$T missingId = rootView.getResources().getResourceName(id)", String.class)
+            .addStatement ("throw new $T($S.concat(missingId))", NullPointerException.class, "Missing required view with ID: ")
+            .build ();
+    }
+
+    /**
+     * A resource XML file, as read by {@link #read(File, boolean)}.
+     */
+    static final class XmlFile {
+
+        final File file;
+        final long lastModified;
+
+        /**
+         * The IDs declared with {@code @+id/}.
+         */
+        final Set<String> ids = new HashSet<> ();
+
+        /**
+         * The views with an ID, in the order of the file. Only for layouts.
+         */
+        final List<BoundView> views = new ArrayList<> ();
+
+        /**
+         * The qualified class name of the root view, or {@code null} for a {@code <merge>} layout.
+         */
+        String rootType;
+        boolean merge;
+        boolean ignored;
+
+        XmlFile (@NonNull File file) {
+            this.file = file;
+            this.lastModified = file.lastModified ();
+        }
+    }
+
+    static final class BoundView {
+
+        final String id;
+
+        /**
+         * The qualified class name of the view, or {@code null} for an {@code <include>}.
+         */
+        final String type;
+
+        /**
+         * The name of the included layout, or {@code null}.
+         */
+        final String include;
+        final boolean root;
+
+        BoundView (String id, String type, String include, boolean root) {
+            this.id = id;
+            this.type = type;
+            this.include = include;
+            this.root = root;
+        }
+    }
+
+    /**
+     * A field of a binding class, merged from all the configurations of the layout.
+     */
+    private static final class Field {
+
+        final String id;
+        final String name;
+        ClassName type;
+        boolean include;
+        boolean root;
+        boolean nullable;
+        int count = 1;
+
+        Field (@NonNull BoundView view, @NonNull ClassName type) {
+            final String name = toCamelCase (view.id);
+            this.id = view.id;
+            this.name = RESERVED.contains (name) ? name + "_" : name;
+            this.type = type;
+            this.include = view.include != null;
+            this.root = view.root;
+        }
+
+        void merge (@NonNull BoundView view, @NonNull ClassName type) {
+            count++;
+            if (!this.type.equals (type)) {
+                this.type = VIEW;
+            }
+            this.include &= view.include != null;
+            this.root &= view.root;
+        }
+    }
+}
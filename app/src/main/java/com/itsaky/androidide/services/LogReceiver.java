@@ -24,51 +24,170 @@ package com.itsaky.androidide.services;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import com.itsaky.androidide.models.LogLine;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Receives the logs sent by the application that is being run.
+ *
+ * A broadcast may carry a single line ({@link #EXTRA_LINE}) or a batch of lines
+ * ({@link #EXTRA_LINES}). Batches may carry the sequence number of their first line
+ * ({@link #EXTRA_SEQ}) and the number of lines the sender had to drop ({@link #EXTRA_DROPPED}).
+ * Gaps in the sequence numbers are counted as dropped lines.
+ *
+ * {@link #onReceive(Context, Intent)} only queues the lines. They are decoded on a background
+ * thread and delivered to the {@link LogListener} in chunks, merging the batches that arrived
+ * while the previous chunk was being delivered.
+ */
 public class LogReceiver extends BroadcastReceiver {
 	
-	private LogListener listener;
+	private volatile LogListener listener;
+	private Thread decoder;
+	
+	private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(MAX_PENDING_BATCHES);
+	private final AtomicLong gapDropped = new AtomicLong();
+	private final AtomicLong senderDropped = new AtomicLong();
+	private final AtomicLong receiverDropped = new AtomicLong();
+	private final AtomicLong received = new AtomicLong();
+	
+	/**
+	 * Sequence number expected for the next batch. Only accessed from the decoder thread.
+	 */
+	private long expectedSeq = -1;
 	
 	public static final String APPEND_LOG = "com.itsaky.androidide.logs.APPEND_LOG";
 	public static final String EXTRA_LINE = "log_line";
+	public static final String EXTRA_LINES = "log_lines";
+	public static final String EXTRA_SEQ = "log_seq";
+	public static final String EXTRA_DROPPED = "log_dropped";
+	
+	/**
+	 * Maximum number of batches waiting to be decoded. When the queue is full, incoming batches are dropped.
+	 */
+	public static final int MAX_PENDING_BATCHES = 256;
     
-	public LogReceiver setLogListener(LogListener listener) {
+	public synchronized LogReceiver setLogListener(LogListener listener) {
 		this.listener = listener;
+		if(listener != null && decoder == null) {
+			decoder = new Thread(this::decodeLoop, "LogDecoder");
+			decoder.setDaemon(true);
+			decoder.start();
+		}
 		return this;
 	}
 	
+	/**
+	 * Stop the decoder thread. Lines received after this are ignored.
+	 */
+	public synchronized void shutdown() {
+		listener = null;
+		if(decoder != null) {
+			decoder.interrupt();
+			decoder = null;
+		}
+		queue.clear();
+	}
+	
+	/**
+	 * @return Number of lines received so far.
+	 */
+	public long getReceivedCount() {
+		return received.get();
+	}
+	
+	/**
+	 * @return Number of lines that were lost, either by the sender, in transit or because the
+	 * decoder could not keep up.
+	 */
+	public long getDroppedCount() {
+		return gapDropped.get() + senderDropped.get() + receiverDropped.get();
+	}
+	
 	@Override
 	public void onReceive(Context context, Intent intent) {
-		if(intent.getAction().equals(APPEND_LOG) && intent.hasExtra(EXTRA_LINE)) {
-			String line = intent.getStringExtra(EXTRA_LINE);
-			if(line == null) return;
-			try {
-				sendLogLine(line);
-			} catch (Throwable th) {}
+		if(listener == null || !APPEND_LOG.equals(intent.getAction())) {
+			return;
+		}
+		
+		String[] lines = null;
+		if(intent.hasExtra(EXTRA_LINES)) {
+			lines = intent.getStringArrayExtra(EXTRA_LINES);
+		} else if(intent.hasExtra(EXTRA_LINE)) {
+			final String line = intent.getStringExtra(EXTRA_LINE);
+			lines = line == null ? null : new String[] {line};
+		}
+		
+		if(lines == null || lines.length == 0) {
+			return;
+		}
+		
+		if(intent.hasExtra(EXTRA_DROPPED)) {
+			senderDropped.accumulateAndGet(intent.getLongExtra(EXTRA_DROPPED, 0), Math::max);
+		}
+		
+		final Batch batch = new Batch(intent.getLongExtra(EXTRA_SEQ, -1), lines);
+		if(!queue.offer(batch)) {
+			receiverDropped.addAndGet(lines.length);
 		}
 	}
-
-	private void sendLogLine(String line) {
-		final String[] split = line.split("\\s", 7);
-        final LogLine log = new LogLine(
-            split[0], // date
-            split[1], // time
-            split[2], // process id
-            split[3], // thread id
-            split[4], // priority
-            split[5], // tag
-            split[6]  // message
-        );
-        
-        if(listener != null) {
-            listener.appendLogLine(log);
-        }
+	
+	private void decodeLoop() {
+		final List<Batch> batches = new ArrayList<>();
+		try {
+			while(!Thread.currentThread().isInterrupted()) {
+				batches.add(queue.take());
+				queue.drainTo(batches);
+				
+				final List<String> chunk = new ArrayList<>();
+				for(Batch batch : batches) {
+					checkSequence(batch);
+					chunk.addAll(Arrays.asList(batch.lines));
+				}
+				batches.clear();
+				
+				received.addAndGet(chunk.size());
+				final LogListener local = listener;
+				if(local != null) {
+					local.appendLogLines(chunk);
+				}
+			}
+		} catch (InterruptedException e) {
+			// shutdown
+		}
+	}
+	
+	private void checkSequence(Batch batch) {
+		if(batch.seq < 0) {
+			return;
+		}
+		
+		if(expectedSeq >= 0 && batch.seq > expectedSeq) {
+			gapDropped.addAndGet(batch.seq - expectedSeq);
+		}
+		expectedSeq = batch.seq + batch.lines.length;
+	}
+	
+	private static class Batch {
+		
+		final long seq;
+		final String[] lines;
+		
+		Batch(long seq, String[] lines) {
+			this.seq = seq;
+			this.lines = lines;
+		}
 	}
 	
 	public static interface LogListener {
-		public void appendLogLine(LogLine line);
+		
+		/**
+		 * Called on the decoder thread with the raw log lines sent by the application,
+		 * oldest first. Parsing is left to the {@link com.itsaky.androidide.language.logs.LogBuffer}.
+		 */
+		public void appendLogLines(List<String> lines);
 	}
 }
@@ -0,0 +1,653 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.services;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.itsaky.androidide.utils.Logger;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trigram index of the text files of the opened project, used to find the files that can
+ * contain a literal search query without reading every file.
+ *
+ * For every file, the index records the distinct sequences of three bytes it contains. The
+ * files that can contain a query are the files that contain all the trigrams of the query. They
+ * still have to be searched to find the actual matches.
+ *
+ * The index follows the {@link WorkspaceIndex}. It is saved next to it and is updated when files
+ * are created, changed or deleted. Files that changed since they were indexed are always searched,
+ * so a stale index never hides a match. The index is built again in the background if the saved
+ * index cannot be used.
+ *
+ * @author Akash Yadav
+ */
+public class TrigramIndex implements WorkspaceIndex.Listener {
+
+    private static final int MAGIC = 0x54524958; // TRIX
+    private static final int VERSION = 1;
+    private static final long SAVE_DELAY_MS = 10000;
+    private static final long MAX_FILE_SIZE = 1024 * 1024;
+
+    /**
+     * Number of bytes checked at the start of a file to detect binary files.
+     */
+    private static final int BINARY_CHECK_LENGTH = 8000;
+
+    private static final Logger LOG = Logger.instance ("TrigramIndex");
+    private static TrigramIndex mInstance;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor (r -> {
+        final Thread thread = new Thread (r, "TrigramIndex");
+        thread.setDaemon (true);
+        thread.setPriority (Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * The indexed files, by id. Ids of removed files are set to {@code null}.
+     * Guarded by {@code this}, like all the other index data.
+     */
+    private final List<FileInfo> fileList = new ArrayList<> ();
+    private final Map<String, Integer> ids = new HashMap<> ();
+    private final Map<Integer, Postings> postings = new HashMap<> ();
+    private int removedCount;
+
+    private volatile boolean ready;
+    private File root;
+    private File indexDir;
+    private File indexFile;
+    private ScheduledFuture<?> scheduledSave;
+
+    private long buildMillis;
+    private long lastQueryMillis;
+
+    public static synchronized TrigramIndex getInstance () {
+        if (mInstance == null) {
+            mInstance = new TrigramIndex ();
+        }
+        return mInstance;
+    }
+
+    /**
+     * Start indexing the project opened in the {@link WorkspaceIndex}.
+     *
+     * @param indexDir The directory where the index is saved.
+     */
+    public void enable (@NonNull File indexDir) {
+        this.indexDir = indexDir;
+        WorkspaceIndex.getInstance ().addListener (this);
+    }
+
+    /**
+     * Save the index and stop indexing.
+     */
+    public void disable () {
+        WorkspaceIndex.getInstance ().removeListener (this);
+        executor.execute (() -> {
+            if (scheduledSave != null) {
+                save ();
+            }
+            clear ();
+        });
+    }
+
+    public boolean isReady () {
+        return ready;
+    }
+
+    @Override
+    public void onIndexReady (WorkspaceIndex index) {
+        final File projectDir = index.getRoot ();
+        final List<WorkspaceIndex.Entry> entries = index.getEntries ();
+        executor.execute (() -> {
+            if (projectDir == null || projectDir.equals (root)) {
+                return;
+            }
+
+            clear ();
+            root = projectDir;
+            indexFile = new File (indexDir, Integer.toHexString (projectDir.getAbsolutePath ().hashCode ()) + ".tri");
+
+            final long start = System.currentTimeMillis ();
+            final boolean loaded = load ();
+            if (loaded) {
+                ready = true;
+                LOG.info ("Loaded trigram index in", System.currentTimeMillis () - start, "ms.", this);
+            }
+
+            // Index the files that are new or have changed, and forget the ones that do not exist anymore
+            final Set<String> existing = new HashSet<> ();
+            int updated = 0;
+            for (WorkspaceIndex.Entry entry : entries) {
+                if (!isIndexable (entry)) {
+                    continue;
+                }
+
+                final String path = entry.file.getAbsolutePath ();
+                existing.add (path);
+                if (!isUpToDate (path, entry.size, entry.lastModified)) {
+                    index (entry);
+                    updated++;
+                }
+            }
+            updated += removeMissing (existing);
+            ready = true;
+
+            buildMillis = System.currentTimeMillis () - start;
+            LOG.info (loaded ? "Updated" : "Built", "trigram index in", buildMillis, "ms.", updated, "files indexed.", this);
+            if (updated > 0 || !loaded) {
+                save ();
+            }
+        });
+    }
+
+    @Override
+    public void onFilesChanged (List<WorkspaceIndex.Entry> changed, List<File> removed) {
+        executor.execute (() -> {
+            if (root == null) {
+                return;
+            }
+
+            for (File file : removed) {
+                remove (file.getAbsolutePath ());
+            }
+            for (WorkspaceIndex.Entry entry : changed) {
+                if (isIndexable (entry)) {
+                    index (entry);
+                }
+            }
+            compactIfNeeded ();
+            scheduleSave ();
+        });
+    }
+
+    /**
+     * Filter the given files, keeping only the ones that can contain the given literal text. Files
+     * that are not indexed, or that have changed since they were indexed, are kept.
+     *
+     * @param files The files to filter.
+     * @param literal The UTF-8 bytes of the searched text.
+     * @return The files to search, or {@code null} if the index cannot be used for the query.
+     */
+    @Nullable
+    public List<File> filter (@NonNull List<File> files, @NonNull byte[] literal) {
+        if (!ready || literal.length < 3) {
+            return null;
+        }
+
+        final long start = System.currentTimeMillis ();
+        final List<File> result = new ArrayList<> ();
+        synchronized (this) {
+            final int[] candidates = candidates (literal);
+            for (File file : files) {
+                final Integer id = ids.get (file.getAbsolutePath ());
+                if (id == null) {
+                    result.add (file);
+                    continue;
+                }
+
+                final FileInfo info = fileList.get (id);
+                if (info.lastModified != file.lastModified () || info.size != file.length ()) {
+                    // Changed since it was indexed
+                    result.add (file);
+                } else if (Arrays.binarySearch (candidates, id) >= 0) {
+                    result.add (file);
+                }
+            }
+        }
+
+        lastQueryMillis = System.currentTimeMillis () - start;
+        LOG.debug ("Trigram query matched", result.size (), "of", files.size (), "files in", lastQueryMillis, "ms");
+        return result;
+    }
+
+    /**
+     * @return The sorted ids of the files that contain all the trigrams of the given text.
+     */
+    private int[] candidates (byte[] literal) {
+        final int[] trigrams = trigrams (literal, literal.length);
+        final Postings[] lists = new Postings[trigrams.length];
+        for (int i = 0; i < trigrams.length; i++) {
+            lists[i] = postings.get (trigrams[i]);
+            if (lists[i] == null) {
+                return new int[0];
+            }
+        }
+
+        // Start with the rarest trigram
+        Arrays.sort (lists, (p1, p2) -> Integer.compare (p1.size, p2.size));
+        int[] result = Arrays.copyOf (lists[0].ids, lists[0].size);
+        for (int i = 1; i < lists.length && result.length > 0; i++) {
+            result = intersect (result, lists[i]);
+        }
+        return result;
+    }
+
+    private static int[] intersect (int[] ids, Postings other) {
+        final int[] result = new int[Math.min (ids.length, other.size)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < ids.length && j < other.size) {
+            if (ids[i] == other.ids[j]) {
+                result[count++] = ids[i];
+                i++;
+                j++;
+            } else if (ids[i] < other.ids[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf (result, count);
+    }
+
+    private void index (WorkspaceIndex.Entry entry) {
+        final String path = entry.file.getAbsolutePath ();
+        final int[] trigrams;
+        try {
+            trigrams = readTrigrams (entry.file);
+        } catch (IOException e) {
+            LOG.warn ("Unable to index", path, e);
+            remove (path);
+            return;
+        }
+
+        synchronized (this) {
+            remove (path);
+            if (trigrams == null) {
+                return;
+            }
+
+            // Ids only grow, so the postings stay sorted
+            final int id = fileList.size ();
+            fileList.add (new FileInfo (path, entry.size, entry.lastModified));
+            ids.put (path, id);
+            for (int trigram : trigrams) {
+                Postings list = postings.get (trigram);
+                if (list == null) {
+                    list = new Postings ();
+                    postings.put (trigram, list);
+                }
+                list.add (id);
+            }
+        }
+    }
+
+    private synchronized void remove (String path) {
+        final Integer id = ids.remove (path);
+        if (id != null) {
+            // The postings of removed files are dropped when the index is compacted
+            fileList.set (id, null);
+            removedCount++;
+        }
+    }
+
+    private synchronized int removeMissing (Set<String> existing) {
+        final List<String> missing = new ArrayList<> ();
+        for (String path : ids.keySet ()) {
+            if (!existing.contains (path)) {
+                missing.add (path);
+            }
+        }
+        for (String path : missing) {
+            remove (path);
+        }
+        compactIfNeeded ();
+        return missing.size ();
+    }
+
+    private synchronized boolean isUpToDate (String path, long size, long lastModified) {
+        final Integer id = ids.get (path);
+        if (id == null) {
+            return false;
+        }
+        final FileInfo info = fileList.get (id);
+        return info.size == size && info.lastModified == lastModified;
+    }
+
+    /**
+     * Drop the postings of removed files once they make up a good part of the index.
+     */
+    private synchronized void compactIfNeeded () {
+        if (removedCount < 256 || removedCount < ids.size ()) {
+            return;
+        }
+
+        final long start = System.currentTimeMillis ();
+        final int[] newIds = new int[fileList.size ()];
+        final List<FileInfo> newList = new ArrayList<> (ids.size ());
+        for (int i = 0; i < fileList.size (); i++) {
+            final FileInfo info = fileList.get (i);
+            if (info == null) {
+                newIds[i] = -1;
+            } else {
+                newIds[i] = newList.size ();
+                ids.put (info.path, newList.size ());
+                newList.add (info);
+            }
+        }
+
+        final List<Integer> empty = new ArrayList<> ();
+        for (Map.Entry<Integer, Postings> entry : postings.entrySet ()) {
+            final Postings list = entry.getValue ();
+            int count = 0;
+            for (int i = 0; i < list.size; i++) {
+                final int id = newIds[list.ids[i]];
+                if (id != -1) {
+                    list.ids[count++] = id;
+                }
+            }
+            list.size = count;
+            if (count == 0) {
+                empty.add (entry.getKey ());
+            }
+        }
+        for (Integer trigram : empty) {
+            postings.remove (trigram);
+        }
+
+        fileList.clear ();
+        fileList.addAll (newList);
+        removedCount = 0;
+        LOG.debug ("Compacted trigram index in", System.currentTimeMillis () - start, "ms");
+    }
+
+    private synchronized void clear () {
+        if (scheduledSave != null) {
+            scheduledSave.cancel (false);
+            scheduledSave = null;
+        }
+        ready = false;
+        root = null;
+        indexFile = null;
+        fileList.clear ();
+        ids.clear ();
+        postings.clear ();
+        removedCount = 0;
+    }
+
+    private void scheduleSave () {
+        if (scheduledSave != null) {
+            scheduledSave.cancel (false);
+        }
+        scheduledSave = executor.schedule (this::save, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Save the index. The file ids are compacted while saving.
+     */
+    private synchronized void save () {
+        scheduledSave = null;
+        if (root == null || indexFile == null) {
+            return;
+        }
+
+        final File parent = indexFile.getParentFile ();
+        if (parent != null && !parent.exists ()) {
+            parent.mkdirs ();
+        }
+
+        final File temp = new File (indexFile.getAbsolutePath () + ".tmp");
+        try (DataOutputStream out = new DataOutputStream (new BufferedOutputStream (new FileOutputStream (temp)))) {
+            out.writeInt (MAGIC);
+            out.writeInt (VERSION);
+            out.writeUTF (root.getAbsolutePath ());
+
+            final int[] newIds = new int[fileList.size ()];
+            out.writeInt (ids.size ());
+            int next = 0;
+            for (int i = 0; i < fileList.size (); i++) {
+                final FileInfo info = fileList.get (i);
+                if (info == null) {
+                    newIds[i] = -1;
+                    continue;
+                }
+                newIds[i] = next++;
+                out.writeUTF (info.path);
+                out.writeLong (info.size);
+                out.writeLong (info.lastModified);
+            }
+
+            out.writeInt (postings.size ());
+            for (Map.Entry<Integer, Postings> entry : postings.entrySet ()) {
+                final Postings list = entry.getValue ();
+                out.writeInt (entry.getKey ());
+
+                int count = 0;
+                for (int i = 0; i < list.size; i++) {
+                    if (newIds[list.ids[i]] != -1) {
+                        count++;
+                    }
+                }
+                writeVarInt (out, count);
+
+                // Delta encoded, as the ids are sorted
+                int previous = 0;
+                for (int i = 0; i < list.size; i++) {
+                    final int id = newIds[list.ids[i]];
+                    if (id != -1) {
+                        writeVarInt (out, id - previous);
+                        previous = id;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOG.error ("Unable to save the trigram index", e);
+            temp.delete ();
+            return;
+        }
+
+        if (!temp.renameTo (indexFile)) {
+            LOG.error ("Unable to replace", indexFile);
+            temp.delete ();
+        }
+    }
+
+    private synchronized boolean load () {
+        if (!indexFile.exists ()) {
+            return false;
+        }
+
+        try (DataInputStream in = new DataInputStream (new BufferedInputStream (new FileInputStream (indexFile)))) {
+            if (in.readInt () != MAGIC || in.readInt () != VERSION || !root.getAbsolutePath ().equals (in.readUTF ())) {
+                return false;
+            }
+
+            final int fileCount = in.readInt ();
+            for (int i = 0; i < fileCount; i++) {
+                final FileInfo info = new FileInfo (in.readUTF (), in.readLong (), in.readLong ());
+                ids.put (info.path, fileList.size ());
+                fileList.add (info);
+            }
+
+            final int trigramCount = in.readInt ();
+            for (int i = 0; i < trigramCount; i++) {
+                final int trigram = in.readInt ();
+                final int count = readVarInt (in);
+                final Postings list = new Postings (count);
+                int id = 0;
+                for (int j = 0; j < count; j++) {
+                    id += readVarInt (in);
+                    if (id >= fileCount) {
+                        throw new IOException ("Invalid file id " + id);
+                    }
+                    list.add (id);
+                }
+                postings.put (trigram, list);
+            }
+            return true;
+        } catch (IOException e) {
+            LOG.warn ("The trigram index is invalid. It will be built again.", e);
+            fileList.clear ();
+            ids.clear ();
+            postings.clear ();
+            return false;
+        }
+    }
+
+    private static boolean isIndexable (WorkspaceIndex.Entry entry) {
+        return entry.type != WorkspaceIndex.Type.IMAGE && entry.size > 0 && entry.size <= MAX_FILE_SIZE;
+    }
+
+    /**
+     * @return The distinct trigrams of the file, or {@code null} if it is a binary file.
+     */
+    private static int[] readTrigrams (File file) throws IOException {
+        final byte[] data = new byte[(int) Math.min (file.length (), MAX_FILE_SIZE)];
+        int length = 0;
+        try (InputStream in = new FileInputStream (file)) {
+            int read;
+            while (length < data.length && (read = in.read (data, length, data.length - length)) != -1) {
+                length += read;
+            }
+        }
+
+        final int check = Math.min (length, BINARY_CHECK_LENGTH);
+        for (int i = 0; i < check; i++) {
+            if (data[i] == 0) {
+                return null;
+            }
+        }
+        return trigrams (data, length);
+    }
+
+    /**
+     * @return The sorted, distinct trigrams of the given bytes.
+     */
+    static int[] trigrams (byte[] data, int length) {
+        if (length < 3) {
+            return new int[0];
+        }
+
+        final int[] trigrams = new int[length - 2];
+        int t = ((data[0] & 0xff) << 8) | (data[1] & 0xff);
+        for (int i = 2; i < length; i++) {
+            t = ((t << 8) | (data[i] & 0xff)) & 0xffffff;
+            trigrams[i - 2] = t;
+        }
+
+        Arrays.sort (trigrams);
+        int count = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (i == 0 || trigrams[i] != trigrams[i - 1]) {
+                trigrams[count++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf (trigrams, count);
+    }
+
+    private static void writeVarInt (DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte (value);
+    }
+
+    private static int readVarInt (DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift > 28) {
+                throw new IOException ("Invalid varint");
+            }
+            b = in.readUnsignedByte ();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString () {
+        long postingCount = 0;
+        for (Postings list : postings.values ()) {
+            postingCount += list.size;
+        }
+
+        final long diskSize = indexFile == null ? 0 : indexFile.length ();
+        return "TrigramIndex{files=" + ids.size ()
+            + ", trigrams=" + postings.size ()
+            + ", postings=" + postingCount
+            + ", memory~" + (postingCount * 4 / 1024) + "KB"
+            + ", disk=" + (diskSize / 1024) + "KB"
+            + ", buildMillis=" + buildMillis
+            + ", lastQueryMillis=" + lastQueryMillis
+            + "}";
+    }
+
+    private static class FileInfo {
+
+        final String path;
+        final long size;
+        final long lastModified;
+
+        FileInfo (String path, long size, long lastModified) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Sorted ids of the files containing a trigram.
+     */
+    private static class Postings {
+
+        int[] ids;
+        int size;
+
+        Postings () {
+            this (4);
+        }
+
+        Postings (int capacity) {
+            this.ids = new int[Math.max (1, capacity)];
+        }
+
+        void add (int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf (ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,753 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.services;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.itsaky.androidide.utils.Logger;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Index of the files of the opened project.
+ *
+ * The index keeps the path, size, last modified time and type of every file in the workspace
+ * (the directories watched by {@link WorkspaceWatcher}). It is saved to disk, so that it can be used
+ * as soon as the project is opened, while it is checked against the file system in the background.
+ * After that, it is updated from the directories reported by the {@link WorkspaceWatcher}.
+ *
+ * Other components can add a {@link Listener} to be told about the files that were created,
+ * changed or deleted.
+ *
+ * Queries never touch the file system. They return {@code null} when the index cannot answer
+ * them (for example, before the project is indexed), so that the callers can fall back to
+ * listing the files themselves.
+ *
+ * @author Akash Yadav
+ */
+public class WorkspaceIndex implements WorkspaceWatcher.Listener {
+
+    private static final int MAGIC = 0x49444558; // IDEX
+    private static final int VERSION = 1;
+    private static final long SAVE_DELAY_MS = 5000;
+
+    private static final Logger LOG = Logger.instance ("WorkspaceIndex");
+    private static WorkspaceIndex mInstance;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor (r -> {
+        final Thread thread = new Thread (r, "WorkspaceIndex");
+        thread.setDaemon (true);
+        return thread;
+    });
+
+    /**
+     * Indexed files, by path. Only modified on the executor thread.
+     */
+    private final Map<String, Entry> files = new ConcurrentHashMap<> ();
+
+    /**
+     * Indexed directories. Only modified on the executor thread.
+     */
+    private final Set<String> dirs = ConcurrentHashMap.newKeySet ();
+
+    /**
+     * Resource files, by {@code type/name}. Only modified on the executor thread.
+     */
+    private final Map<String, Set<File>> resources = new ConcurrentHashMap<> ();
+
+    /**
+     * Changes not yet sent to the listeners. Only accessed on the executor thread.
+     */
+    private final List<Entry> changed = new ArrayList<> ();
+    private final List<File> removed = new ArrayList<> ();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<> ();
+
+    private volatile File root;
+    private volatile boolean ready;
+    private File indexFile;
+    private ScheduledFuture<?> scheduledSave;
+
+    public static synchronized WorkspaceIndex getInstance () {
+        if (mInstance == null) {
+            mInstance = new WorkspaceIndex ();
+        }
+        return mInstance;
+    }
+
+    /**
+     * Open the index of the given project. The saved index is loaded if there is one, and is then
+     * checked against the files on the disk. Changes reported by the {@link WorkspaceWatcher} are
+     * applied after that.
+     *
+     * @param projectDir The project directory.
+     * @param indexDir The directory where the indexes are saved.
+     */
+    public void open (@NonNull File projectDir, @NonNull File indexDir) {
+        WorkspaceWatcher.getInstance ().addListener (this);
+        executor.execute (() -> {
+            if (projectDir.equals (root)) {
+                return;
+            }
+
+            clear ();
+            root = projectDir;
+            indexFile = new File (indexDir, Integer.toHexString (projectDir.getAbsolutePath ().hashCode ()) + ".idx");
+
+            final long start = System.currentTimeMillis ();
+            if (load ()) {
+                ready = true;
+                LOG.info ("Loaded", files.size (), "files from", indexFile, "in", System.currentTimeMillis () - start, "ms");
+            }
+
+            final int[] changes = new int[1];
+            final Set<String> stale = new HashSet<> (files.keySet ());
+            final Set<String> staleDirs = new HashSet<> (dirs);
+            walk (projectDir, stale, staleDirs, changes);
+            for (String path : stale) {
+                remove (path);
+                changes[0]++;
+            }
+            dirs.removeAll (staleDirs);
+            ready = true;
+
+            LOG.info ("Indexed", files.size (), "files in", dirs.size (), "directories in", System.currentTimeMillis () - start, "ms with", changes[0], "changes");
+            if (changes[0] > 0 || !indexFile.exists ()) {
+                save ();
+            }
+
+            changed.clear ();
+            removed.clear ();
+            for (Listener listener : listeners) {
+                listener.onIndexReady (this);
+            }
+        });
+    }
+
+    /**
+     * Add a listener. If the index is already open, {@link Listener#onIndexReady(WorkspaceIndex)} is
+     * called right away, on the index thread.
+     */
+    public void addListener (@NonNull Listener listener) {
+        listeners.add (listener);
+        executor.execute (() -> {
+            if (root != null && ready) {
+                listener.onIndexReady (this);
+            }
+        });
+    }
+
+    public void removeListener (@NonNull Listener listener) {
+        listeners.remove (listener);
+    }
+
+    /**
+     * Save and close the index. Queries return {@code null} after this.
+     */
+    public void close () {
+        WorkspaceWatcher.getInstance ().removeListener (this);
+        executor.execute (() -> {
+            if (root != null && scheduledSave != null) {
+                save ();
+            }
+            clear ();
+        });
+    }
+
+    public boolean isReady () {
+        return ready;
+    }
+
+    @Nullable
+    public File getRoot () {
+        return root;
+    }
+
+    public int size () {
+        return files.size ();
+    }
+
+    @Override
+    public void onDirectoryChanged (File dir, boolean recursive) {
+        executor.execute (() -> {
+            if (root == null || !WorkspaceWatcher.isInside (dir, root)) {
+                return;
+            }
+
+            if (update (dir, recursive) > 0) {
+                scheduleSave ();
+                dispatchChanges ();
+            }
+        });
+    }
+
+    /**
+     * @return All indexed files.
+     */
+    @NonNull
+    public List<Entry> getEntries () {
+        return new ArrayList<> (files.values ());
+    }
+
+    /**
+     * Find files whose name fuzzily matches the given query. The characters of the query must appear
+     * in the name in the same order. Consecutive characters and characters at the start of a word
+     * rank better.
+     *
+     * @param query The query.
+     * @param limit The maximum number of results.
+     * @return The matching files, best first, or {@code null} if the index is not ready.
+     */
+    @Nullable
+    public List<Entry> findFiles (@NonNull String query, int limit) {
+        if (!ready) {
+            return null;
+        }
+
+        final String q = query.toLowerCase (Locale.ROOT);
+        final List<Match> matches = new ArrayList<> ();
+        for (Entry entry : files.values ()) {
+            final int score = fuzzyScore (q, entry.file.getName ());
+            if (score > Integer.MIN_VALUE) {
+                matches.add (new Match (entry, score));
+            }
+        }
+
+        Collections.sort (matches, (m1, m2) -> {
+            if (m1.score != m2.score) {
+                return Integer.compare (m2.score, m1.score);
+            }
+            return Integer.compare (m1.entry.file.getPath ().length (), m2.entry.file.getPath ().length ());
+        });
+
+        final List<Entry> result = new ArrayList<> (Math.min (limit, matches.size ()));
+        for (int i = 0; i < matches.size () && i < limit; i++) {
+            result.add (matches.get (i).entry);
+        }
+        return result;
+    }
+
+    /**
+     * List the files in the given directory and its subdirectories.
+     *
+     * @param dir The directory.
+     * @param extensions The accepted file name endings. All files are accepted if this is {@code null} or empty.
+     * @return The files, or {@code null} if the directory is not covered by the index.
+     */
+    @Nullable
+    public List<File> listFiles (@NonNull File dir, @Nullable Collection<String> extensions) {
+        if (!ready || !dirs.contains (dir.getAbsolutePath ())) {
+            return null;
+        }
+
+        final String prefix = dir.getAbsolutePath () + File.separator;
+        final List<File> result = new ArrayList<> ();
+        for (Map.Entry<String, Entry> e : files.entrySet ()) {
+            if (e.getKey ().startsWith (prefix) && hasExtension (e.getKey (), extensions)) {
+                result.add (e.getValue ().file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * List every file of the given type.
+     *
+     * @return The files, or {@code null} if the index is not ready.
+     */
+    @Nullable
+    public List<File> listFiles (@NonNull Type type) {
+        if (!ready) {
+            return null;
+        }
+
+        final List<File> result = new ArrayList<> ();
+        for (Entry entry : files.values ()) {
+            if (entry.type == type) {
+                result.add (entry.file);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the resource files with the given type and name, in all configurations. For example,
+     * {@code findResources("drawable", "ic_launcher")} finds {@code res/drawable/ic_launcher.xml}
+     * and {@code res/drawable-hdpi/ic_launcher.png}.
+     *
+     * @return The resource files, or {@code null} if the index is not ready.
+     */
+    @Nullable
+    public List<File> findResources (@NonNull String type, @NonNull String name) {
+        if (!ready) {
+            return null;
+        }
+
+        final Set<File> found = resources.get (type + "/" + name);
+        return found == null ? Collections.emptyList () : new ArrayList<> (found);
+    }
+
+    /**
+     * Walk the given directory on open. Only the files that are not already indexed, or whose size
+     * or last modified time have changed are updated.
+     */
+    private void walk (File dir, Set<String> stale, Set<String> staleDirs, int[] changes) {
+        final String dirPath = dir.getAbsolutePath ();
+        staleDirs.remove (dirPath);
+        dirs.add (dirPath);
+
+        final File[] children = dir.listFiles ();
+        if (children == null) {
+            return;
+        }
+
+        for (File child : children) {
+            if (child.isDirectory ()) {
+                if (WorkspaceWatcher.shouldWatch (child)) {
+                    walk (child, stale, staleDirs, changes);
+                }
+                continue;
+            }
+
+            final String path = child.getAbsolutePath ();
+            stale.remove (path);
+            if (put (child)) {
+                changes[0]++;
+            }
+        }
+    }
+
+    /**
+     * Update the index for the given directory after a change.
+     *
+     * @return The number of changes.
+     */
+    private int update (File dir, boolean recursive) {
+        final String dirPath = dir.getAbsolutePath ();
+        if (!dir.isDirectory ()) {
+            return removeDirectory (dirPath);
+        }
+
+        int changes = 0;
+        if (!dirs.contains (dirPath)) {
+            final Set<String> stale = new HashSet<> ();
+            final int[] count = new int[1];
+            walk (dir, stale, new HashSet<> (), count);
+            return count[0];
+        }
+
+        final String prefix = dirPath + File.separator;
+        final Set<String> seen = new HashSet<> ();
+        final File[] children = dir.listFiles ();
+        if (children != null) {
+            for (File child : children) {
+                final String path = child.getAbsolutePath ();
+                seen.add (path);
+                if (child.isDirectory ()) {
+                    if (!WorkspaceWatcher.shouldWatch (child)) {
+                        continue;
+                    }
+                    if (recursive || !dirs.contains (path)) {
+                        changes += update (child, recursive);
+                    }
+                } else if (put (child)) {
+                    changes++;
+                }
+            }
+        }
+
+        // Direct children that do not exist anymore
+        final List<String> removed = new ArrayList<> ();
+        for (String path : files.keySet ()) {
+            if (isDirectChild (path, prefix) && !seen.contains (path)) {
+                removed.add (path);
+            }
+        }
+        for (String path : dirs) {
+            if (isDirectChild (path, prefix) && !seen.contains (path)) {
+                changes += removeDirectory (path);
+            }
+        }
+        for (String path : removed) {
+            remove (path);
+            changes++;
+        }
+        return changes;
+    }
+
+    private int removeDirectory (String dirPath) {
+        final String prefix = dirPath + File.separator;
+        int changes = 0;
+        final Iterator<String> iterator = files.keySet ().iterator ();
+        while (iterator.hasNext ()) {
+            final String path = iterator.next ();
+            if (path.startsWith (prefix)) {
+                removeResource (files.get (path));
+                removed.add (new File (path));
+                iterator.remove ();
+                changes++;
+            }
+        }
+
+        dirs.remove (dirPath);
+        final Iterator<String> dirIterator = dirs.iterator ();
+        while (dirIterator.hasNext ()) {
+            if (dirIterator.next ().startsWith (prefix)) {
+                dirIterator.remove ();
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Add or update the given file.
+     *
+     * @return {@code true} if the index has changed.
+     */
+    private boolean put (File file) {
+        final Entry entry = new Entry (file, file.length (), file.lastModified ());
+        final Entry old = files.put (file.getAbsolutePath (), entry);
+        if (old == null) {
+            addResource (entry);
+            changed.add (entry);
+            return true;
+        }
+
+        if (old.size != entry.size || old.lastModified != entry.lastModified) {
+            changed.add (entry);
+            return true;
+        }
+        return false;
+    }
+
+    private void remove (String path) {
+        final Entry entry = files.remove (path);
+        if (entry != null) {
+            removed.add (entry.file);
+        }
+        removeResource (entry);
+    }
+
+    private void dispatchChanges () {
+        if (changed.isEmpty () && removed.isEmpty ()) {
+            return;
+        }
+
+        final List<Entry> changedFiles = new ArrayList<> (changed);
+        final List<File> removedFiles = new ArrayList<> (removed);
+        changed.clear ();
+        removed.clear ();
+        for (Listener listener : listeners) {
+            listener.onFilesChanged (changedFiles, removedFiles);
+        }
+    }
+
+    private void addResource (Entry entry) {
+        final String key = resourceKey (entry.file);
+        if (key != null) {
+            resources.computeIfAbsent (key, __ -> ConcurrentHashMap.newKeySet ()).add (entry.file);
+        }
+    }
+
+    private void removeResource (Entry entry) {
+        if (entry == null) {
+            return;
+        }
+
+        final String key = resourceKey (entry.file);
+        final Set<File> set = key == null ? null : resources.get (key);
+        if (set != null) {
+            set.remove (entry.file);
+            if (set.isEmpty ()) {
+                resources.remove (key);
+            }
+        }
+    }
+
+    private void clear () {
+        if (scheduledSave != null) {
+            scheduledSave.cancel (false);
+            scheduledSave = null;
+        }
+        ready = false;
+        root = null;
+        indexFile = null;
+        files.clear ();
+        dirs.clear ();
+        resources.clear ();
+        changed.clear ();
+        removed.clear ();
+    }
+
+    private void scheduleSave () {
+        if (scheduledSave != null) {
+            scheduledSave.cancel (false);
+        }
+        scheduledSave = executor.schedule (this::save, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void save () {
+        scheduledSave = null;
+        if (root == null || indexFile == null) {
+            return;
+        }
+
+        final File parent = indexFile.getParentFile ();
+        if (parent != null && !parent.exists ()) {
+            parent.mkdirs ();
+        }
+
+        final File temp = new File (indexFile.getAbsolutePath () + ".tmp");
+        try (DataOutputStream out = new DataOutputStream (new BufferedOutputStream (new FileOutputStream (temp)))) {
+            out.writeInt (MAGIC);
+            out.writeInt (VERSION);
+            out.writeUTF (root.getAbsolutePath ());
+            out.writeInt (dirs.size ());
+            for (String dir : dirs) {
+                out.writeUTF (dir);
+            }
+            out.writeInt (files.size ());
+            for (Entry entry : files.values ()) {
+                out.writeUTF (entry.file.getAbsolutePath ());
+                out.writeLong (entry.size);
+                out.writeLong (entry.lastModified);
+            }
+        } catch (IOException e) {
+            LOG.error ("Unable to save the workspace index", e);
+            temp.delete ();
+            return;
+        }
+
+        if (!temp.renameTo (indexFile)) {
+            LOG.error ("Unable to replace", indexFile);
+            temp.delete ();
+        }
+    }
+
+    private boolean load () {
+        if (!indexFile.exists ()) {
+            return false;
+        }
+
+        try (DataInputStream in = new DataInputStream (new BufferedInputStream (new FileInputStream (indexFile)))) {
+            if (in.readInt () != MAGIC || in.readInt () != VERSION || !root.getAbsolutePath ().equals (in.readUTF ())) {
+                return false;
+            }
+
+            final int dirCount = in.readInt ();
+            for (int i = 0; i < dirCount; i++) {
+                dirs.add (in.readUTF ());
+            }
+
+            final int fileCount = in.readInt ();
+            for (int i = 0; i < fileCount; i++) {
+                final Entry entry = new Entry (new File (in.readUTF ()), in.readLong (), in.readLong ());
+                files.put (entry.file.getAbsolutePath (), entry);
+                addResource (entry);
+            }
+            return true;
+        } catch (IOException e) {
+            LOG.warn ("Unable to load the workspace index. It will be created again.", e);
+            files.clear ();
+            dirs.clear ();
+            resources.clear ();
+            return false;
+        }
+    }
+
+    private static boolean isDirectChild (String path, String prefix) {
+        return path.startsWith (prefix) && path.indexOf (File.separatorChar, prefix.length ()) == -1;
+    }
+
+    private static boolean hasExtension (String path, Collection<String> extensions) {
+        if (extensions == null || extensions.isEmpty ()) {
+            return true;
+        }
+
+        for (String extension : extensions) {
+            if (path.endsWith (extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The {@code type/name} key of the given resource file, or {@code null} if it is not
+     *         a file resource. Resources in {@code values} directories are not file resources.
+     */
+    @Nullable
+    static String resourceKey (File file) {
+        final File typeDir = file.getParentFile ();
+        final File resDir = typeDir == null ? null : typeDir.getParentFile ();
+        if (resDir == null || !"res".equals (resDir.getName ())) {
+            return null;
+        }
+
+        String type = typeDir.getName ();
+        final int dash = type.indexOf ('-');
+        if (dash != -1) {
+            type = type.substring (0, dash);
+        }
+        if ("values".equals (type)) {
+            return null;
+        }
+
+        String name = file.getName ();
+        final int dot = name.indexOf ('.');
+        if (dot != -1) {
+            name = name.substring (0, dot);
+        }
+        return type + "/" + name;
+    }
+
+    /**
+     * Score the given name for the given lower case query.
+     *
+     * @return The score, or {@link Integer#MIN_VALUE} if the name does not match.
+     */
+    static int fuzzyScore (String query, String name) {
+        if (query.isEmpty ()) {
+            return 0;
+        }
+
+        int score = 0;
+        int q = 0;
+        int last = -1;
+        for (int i = 0; i < name.length () && q < query.length (); i++) {
+            final char c = name.charAt (i);
+            if (Character.toLowerCase (c) != query.charAt (q)) {
+                continue;
+            }
+
+            if (last == i - 1) {
+                score += 5;
+            } else {
+                score -= Math.min (i - last - 1, 5);
+            }
+
+            if (i == 0) {
+                score += 10;
+            } else {
+                final char prev = name.charAt (i - 1);
+                if (!Character.isLetterOrDigit (prev) || (Character.isUpperCase (c) && Character.isLowerCase (prev))) {
+                    score += 8;
+                }
+            }
+
+            last = i;
+            q++;
+        }
+
+        if (q < query.length ()) {
+            return Integer.MIN_VALUE;
+        }
+
+        // Prefer shorter names
+        return score - (name.length () - query.length ()) / 4;
+    }
+
+    /**
+     * Listener for changes in the index. Methods are called on the index thread.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a project has been opened and its index has been checked against the disk.
+         */
+        void onIndexReady (WorkspaceIndex index);
+
+        /**
+         * Called when files have been created, changed or deleted.
+         */
+        void onFilesChanged (List<Entry> changed, List<File> removed);
+    }
+
+    /**
+     * Type of an indexed file.
+     */
+    public enum Type {
+        JAVA, KOTLIN, XML, GRADLE, JSON, IMAGE, OTHER;
+
+        static Type of (String name) {
+            if (name.endsWith (".java")) {
+                return JAVA;
+            } else if (name.endsWith (".kt")) {
+                return KOTLIN;
+            } else if (name.endsWith (".xml")) {
+                return XML;
+            } else if (name.endsWith (".gradle")) {
+                return GRADLE;
+            } else if (name.endsWith (".json")) {
+                return JSON;
+            } else if (name.endsWith (".png") || name.endsWith (".jpg") || name.endsWith (".jpeg") || name.endsWith (".webp")) {
+                return IMAGE;
+            }
+            return OTHER;
+        }
+    }
+
+    /**
+     * An indexed file.
+     */
+    public static class Entry {
+
+        public final File file;
+        public final long size;
+        public final long lastModified;
+        public final Type type;
+
+        Entry (File file, long size, long lastModified) {
+            this.file = file;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.type = Type.of (file.getName ());
+        }
+    }
+
+    private static class Match {
+
+        final Entry entry;
+        final int score;
+
+        Match (Entry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,488 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.services;
+
+import android.os.FileObserver;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.itsaky.androidide.lsp.LSP;
+import com.itsaky.androidide.utils.Logger;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
+import org.eclipse.lsp4j.FileChangeType;
+import org.eclipse.lsp4j.FileEvent;
+
+/**
+ * Watches the source files of the opened project and notifies the language servers about
+ * files that were created, changed or deleted.
+ *
+ * Every directory of the project has its own {@link FileObserver}. An event from an observer
+ * only marks its directory as dirty. Once no event has been received for {@link #DEBOUNCE_MS},
+ * the dirty directories are listed again and compared with the last snapshot, using the last
+ * modified time and the size of each file. Only the real differences are sent, as a single
+ * {@code workspace/didChangeWatchedFiles} notification.
+ *
+ * Hidden directories are not watched. In a {@code build} directory, only {@code generated} is watched.
+ *
+ * Other components can add a {@link Listener} to be told which directories have changed, whatever
+ * the type of the files in them.
+ *
+ * @author Akash Yadav
+ */
+public class WorkspaceWatcher {
+
+    public static final long DEBOUNCE_MS = 300;
+
+    private static final int EVENTS = FileObserver.CREATE
+        | FileObserver.DELETE
+        | FileObserver.CLOSE_WRITE
+        | FileObserver.MOVED_FROM
+        | FileObserver.MOVED_TO
+        | FileObserver.DELETE_SELF;
+
+    private static final Logger LOG = Logger.instance ("WorkspaceWatcher");
+    private static WorkspaceWatcher mInstance;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor (r -> {
+        final Thread thread = new Thread (r, "WorkspaceWatcher");
+        thread.setDaemon (true);
+        return thread;
+    });
+
+    /**
+     * Snapshot of every watched file, by path. Only accessed on the executor thread.
+     */
+    private final Map<String, FileState> snapshot = new HashMap<> ();
+
+    /**
+     * Observers of the watched directories, by path. Only accessed on the executor thread.
+     */
+    private final Map<String, DirObserver> observers = new HashMap<> ();
+
+    /**
+     * Directories to check in the next flush. A path ending with a separator is checked recursively.
+     * Only accessed on the executor thread.
+     */
+    private final Set<String> dirty = new LinkedHashSet<> ();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<> ();
+    private ScheduledFuture<?> scheduledFlush;
+    private File root;
+
+    public static synchronized WorkspaceWatcher getInstance () {
+        if (mInstance == null) {
+            mInstance = new WorkspaceWatcher ();
+        }
+        return mInstance;
+    }
+
+    /**
+     * Start watching the given project directory. If another directory was being watched,
+     * it is not watched anymore.
+     */
+    public void watch (@NonNull File projectDir) {
+        executor.execute (() -> {
+            stopObservers ();
+            root = projectDir;
+            register (projectDir, false);
+            LOG.info ("Watching", observers.size (), "directories and", snapshot.size (), "files in", projectDir);
+        });
+    }
+
+    /**
+     * Stop watching. Pending changes are discarded.
+     */
+    public void stop () {
+        executor.execute (() -> {
+            stopObservers ();
+            root = null;
+        });
+    }
+
+    /**
+     * Check the given directory and all of its subdirectories for changes, even if no event
+     * has been received for them. This is needed when a lot of files have changed at once, for
+     * example after a build, as the kernel drops events when its queue overflows.
+     */
+    public void rescan (@Nullable File dir) {
+        if (dir == null) {
+            return;
+        }
+
+        executor.execute (() -> {
+            if (root == null || !isInside (dir, root)) {
+                return;
+            }
+            markDirty (dir.getAbsolutePath (), true);
+        });
+    }
+
+    /**
+     * Tell the language servers right away about files that the IDE itself has written or deleted,
+     * without waiting for the events of the file system. The snapshot is updated, so the same
+     * changes are not sent again when the events arrive.
+     */
+    public void notifyWritten (@NonNull Collection<File> files) {
+        final List<File> copy = new ArrayList<> (files);
+        executor.execute (() -> {
+            if (root == null) {
+                return;
+            }
+
+            final List<FileEvent> events = new ArrayList<> ();
+            for (File file : copy) {
+                final String path = file.getAbsolutePath ();
+                final FileState old = snapshot.get (path);
+                if (!isInside (file, root) || !isWatchedFile (file) || !watchDirectory (file.getParentFile ())) {
+                    continue;
+                }
+
+                if (!file.isFile ()) {
+                    if (snapshot.remove (path) != null) {
+                        events.add (event (file, FileChangeType.Deleted));
+                    }
+                    continue;
+                }
+
+                final FileState state = new FileState (file);
+                if (old == null) {
+                    events.add (event (file, FileChangeType.Created));
+                } else if (!old.equals (state)) {
+                    events.add (event (file, FileChangeType.Changed));
+                }
+                snapshot.put (path, state);
+            }
+
+            if (!events.isEmpty ()) {
+                LSP.notifyWatchedFilesChanged (new DidChangeWatchedFilesParams (events));
+            }
+        });
+    }
+
+    public void addListener (@NonNull Listener listener) {
+        listeners.add (listener);
+    }
+
+    public void removeListener (@NonNull Listener listener) {
+        listeners.remove (listener);
+    }
+
+    private void onEvent (String dir) {
+        executor.execute (() -> markDirty (dir, false));
+    }
+
+    private void markDirty (String dir, boolean recursive) {
+        dirty.add (recursive ? dir + File.separator : dir);
+
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel (false);
+        }
+        scheduledFlush = executor.schedule (this::flush, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush () {
+        final List<String> dirs = new ArrayList<> (dirty);
+        dirty.clear ();
+
+        if (root == null) {
+            return;
+        }
+
+        final List<FileEvent> events = new ArrayList<> ();
+        for (String dir : dirs) {
+            final boolean recursive = dir.endsWith (File.separator);
+            final String path = recursive ? dir.substring (0, dir.length () - 1) : dir;
+            diff (new File (path), recursive, events);
+            for (Listener listener : listeners) {
+                listener.onDirectoryChanged (new File (path), recursive);
+            }
+        }
+
+        if (!events.isEmpty ()) {
+            LOG.debug (() -> "Sending " + events.size () + " file events for " + dirs.size () + " directories");
+            LSP.notifyWatchedFilesChanged (new DidChangeWatchedFilesParams (events));
+        }
+    }
+
+    /**
+     * Compare the contents of the given directory with the snapshot, update the snapshot and
+     * add an event for every difference.
+     */
+    private void diff (File dir, boolean recursive, List<FileEvent> events) {
+        final String prefix = dir.getAbsolutePath () + File.separator;
+
+        // Files that are in the snapshot but are not found anymore have been deleted
+        final Set<String> seen = new LinkedHashSet<> ();
+        final File[] children = dir.isDirectory () ? dir.listFiles () : null;
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory ()) {
+                    final String childPath = child.getAbsolutePath ();
+                    if (!observers.containsKey (childPath) && shouldWatch (child)) {
+                        // A new directory. Everything in it has been created.
+                        collectCreated (child, events);
+                    } else if (recursive && observers.containsKey (childPath)) {
+                        diff (child, true, events);
+                    }
+                    continue;
+                }
+
+                if (!isWatchedFile (child)) {
+                    continue;
+                }
+
+                final String path = child.getAbsolutePath ();
+                seen.add (path);
+                final FileState state = new FileState (child);
+                final FileState old = snapshot.put (path, state);
+                if (old == null) {
+                    events.add (event (child, FileChangeType.Created));
+                } else if (!old.equals (state)) {
+                    events.add (event (child, FileChangeType.Changed));
+                }
+            }
+        }
+
+        final Iterator<Map.Entry<String, FileState>> iterator = snapshot.entrySet ().iterator ();
+        while (iterator.hasNext ()) {
+            final String path = iterator.next ().getKey ();
+            if (path.startsWith (prefix) && path.indexOf (File.separatorChar, prefix.length ()) == -1 && !seen.contains (path)) {
+                iterator.remove ();
+                events.add (event (new File (path), FileChangeType.Deleted));
+            }
+        }
+
+        // Deleted subdirectories
+        final Iterator<Map.Entry<String, DirObserver>> dirs = observers.entrySet ().iterator ();
+        final List<String> removed = new ArrayList<> ();
+        while (dirs.hasNext ()) {
+            final Map.Entry<String, DirObserver> entry = dirs.next ();
+            final String path = entry.getKey ();
+            if (path.startsWith (prefix) && !new File (path).isDirectory ()) {
+                entry.getValue ().stopWatching ();
+                dirs.remove ();
+                removed.add (path + File.separator);
+            }
+        }
+
+        if (!removed.isEmpty ()) {
+            final Iterator<String> files = snapshot.keySet ().iterator ();
+            while (files.hasNext ()) {
+                final String path = files.next ();
+                for (String dirPrefix : removed) {
+                    if (path.startsWith (dirPrefix)) {
+                        files.remove ();
+                        events.add (event (new File (path), FileChangeType.Deleted));
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void collectCreated (File dir, List<FileEvent> events) {
+        final int before = snapshot.size ();
+        final List<String> created = new ArrayList<> ();
+        register (dir, true, created);
+        for (String path : created) {
+            events.add (event (new File (path), FileChangeType.Created));
+        }
+        LOG.debug (() -> "New directory " + dir + " with " + (snapshot.size () - before) + " files");
+    }
+
+    private void register (File dir, boolean report) {
+        register (dir, report, null);
+    }
+
+    /**
+     * Start observing the given directory and its subdirectories, and add their files to the snapshot.
+     */
+    private void register (File dir, boolean report, List<String> created) {
+        final String path = dir.getAbsolutePath ();
+        if (observers.containsKey (path)) {
+            return;
+        }
+
+        final DirObserver observer = new DirObserver (path);
+        observers.put (path, observer);
+        observer.startWatching ();
+
+        final File[] children = dir.listFiles ();
+        if (children == null) {
+            return;
+        }
+
+        for (File child : children) {
+            if (child.isDirectory ()) {
+                if (shouldWatch (child)) {
+                    register (child, report, created);
+                }
+            } else if (isWatchedFile (child)) {
+                snapshot.put (child.getAbsolutePath (), new FileState (child));
+                if (report && created != null) {
+                    created.add (child.getAbsolutePath ());
+                }
+            }
+        }
+    }
+
+    /**
+     * Make sure that the given directory is observed, if it is part of the watched workspace.
+     * Directories created by the IDE may not have been seen yet.
+     *
+     * @return Whether the directory is observed.
+     */
+    private boolean watchDirectory (@Nullable File dir) {
+        File top = null;
+        for (File current = dir; current != null && !observers.containsKey (current.getAbsolutePath ()); current = current.getParentFile ()) {
+            if (!isInside (current, root) || !shouldWatch (current)) {
+                return false;
+            }
+            top = current;
+        }
+
+        if (top != null) {
+            // The files that are already in it are not reported, they are written by the caller
+            register (top, false);
+        }
+        return true;
+    }
+
+    private void stopObservers () {
+        for (DirObserver observer : observers.values ()) {
+            observer.stopWatching ();
+        }
+        observers.clear ();
+        snapshot.clear ();
+        dirty.clear ();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel (false);
+            scheduledFlush = null;
+        }
+    }
+
+    /**
+     * @return Whether the given directory is part of the watched workspace.
+     */
+    static boolean shouldWatch (File dir) {
+        final String name = dir.getName ();
+        if (name.startsWith (".")) {
+            return false;
+        }
+
+        final File parent = dir.getParentFile ();
+        if (parent != null && isModuleBuildDir (parent)) {
+            return "generated".equals (name);
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether the directory is the build directory of a module. Source packages named
+     * {@code build} are not.
+     */
+    private static boolean isModuleBuildDir (File dir) {
+        final File module = dir.getParentFile ();
+        return "build".equals (dir.getName ())
+            && module != null
+            && (new File (module, "build.gradle").isFile () || new File (module, "build.gradle.kts").isFile ());
+    }
+
+    private static boolean isWatchedFile (File file) {
+        final String name = file.getName ();
+        return name.endsWith (".java") && !name.equals ("package-info.java");
+    }
+
+    /**
+     * @return Whether the file is the directory itself or is inside of it.
+     */
+    static boolean isInside (File file, File dir) {
+        final String path = file.getAbsolutePath ();
+        final String dirPath = dir.getAbsolutePath ();
+        return path.equals (dirPath) || path.startsWith (dirPath + File.separator);
+    }
+
+    private static FileEvent event (File file, FileChangeType type) {
+        return new FileEvent (file.toURI ().toString (), type);
+    }
+
+    /**
+     * Listener for changes in the watched directories. Called on the watcher thread, after the
+     * events have been debounced.
+     */
+    public interface Listener {
+
+        /**
+         * @param dir The directory whose contents have changed.
+         * @param recursive Whether the subdirectories must be checked as well.
+         */
+        void onDirectoryChanged (File dir, boolean recursive);
+    }
+
+    private static class FileState {
+
+        final long lastModified;
+        final long length;
+
+        FileState (File file) {
+            this.lastModified = file.lastModified ();
+            this.length = file.length ();
+        }
+
+        @Override
+        public boolean equals (Object obj) {
+            if (!(obj instanceof FileState)) {
+                return false;
+            }
+            final FileState other = (FileState) obj;
+            return lastModified == other.lastModified && length == other.length;
+        }
+
+        @Override
+        public int hashCode () {
+            return Long.hashCode (lastModified) * 31 + Long.hashCode (length);
+        }
+    }
+
+    private class DirObserver extends FileObserver {
+
+        private final String path;
+
+        DirObserver (String path) {
+            super (path, EVENTS);
+            this.path = path;
+        }
+
+        @Override
+        public void onEvent (int event, @Nullable String name) {
+            WorkspaceWatcher.this.onEvent (path);
+        }
+    }
+}
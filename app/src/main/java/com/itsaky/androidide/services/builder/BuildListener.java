@@ -76,7 +76,8 @@ public interface BuildListener {
     void saveFiles();
 
     /**
-     * Notifys the client to append the build output that should be shown to user
+     * Notifys the client to append the build output that should be shown to user.
+     * Unlike other callbacks, this is called on the thread that reads the build output.
      *
      * @param task Task that is currently running
      * @param text Output to append
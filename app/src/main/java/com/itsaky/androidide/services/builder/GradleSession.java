@@ -0,0 +1,269 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.services.builder;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.itsaky.androidide.shell.ProcessExecutorFactory;
+import com.itsaky.androidide.shell.ProcessStreamsHolder;
+import com.itsaky.androidide.utils.Environment;
+import com.itsaky.androidide.utils.InputStreamLineReader;
+import com.itsaky.androidide.utils.Logger;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * A build session that stays connected to a Gradle daemon, so that a build does not have to start
+ * a new Gradle client first. Builds report typed events for their tasks, and can be cancelled
+ * without stopping the daemon.
+ *
+ * The session uses the Tooling API of the Gradle distribution that the wrapper of the project
+ * has installed. The Tooling API cannot run in the IDE process, so it runs in a JVM of its own,
+ * started with {@code GradleSessionServer.java} from the assets. Commands and events are sent as
+ * lines of tab separated fields, the protocol is described in that file.
+ *
+ * A session can only be started once the distribution has been installed by a first build
+ * from the command line.
+ */
+class GradleSession {
+
+    private static final Logger LOG = Logger.instance("GradleSession");
+
+    private final Callback callback;
+    private final ProcessStreamsHolder holder = new ProcessStreamsHolder();
+    private Writer writer;
+    private volatile boolean alive;
+
+    private GradleSession(Callback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * Start a session for the given project.
+     *
+     * @return The session, or {@code null} if it cannot be started. Builds must use the command
+     *         line in that case.
+     */
+    @Nullable
+    static GradleSession start(@NonNull File projectRoot, @NonNull Callback callback) {
+        final File gradleHome = findDistribution(projectRoot);
+        if (gradleHome == null || !Environment.JAVA.canExecute() || !Environment.GRADLE_SESSION_SERVER.isFile()) {
+            return null;
+        }
+
+        final GradleSession session = new GradleSession(callback);
+        final String[] args = {
+            Environment.JAVA.getAbsolutePath(),
+            "-cp", new File(gradleHome, "lib").getAbsolutePath() + File.separator + "*",
+            Environment.GRADLE_SESSION_SERVER.getAbsolutePath(),
+            projectRoot.getAbsolutePath(),
+            gradleHome.getAbsolutePath(),
+            Environment.GRADLE_USER_HOME.getAbsolutePath()
+        };
+
+        session.alive = true;
+        try {
+            ProcessExecutorFactory.commonExecutor().execAsync(session.holder, code -> {
+                session.alive = false;
+                LOG.info("Gradle session exited with code", code);
+                callback.onSessionClosed(code);
+            }, projectRoot.getAbsolutePath(), true, args);
+        } catch (IOException e) {
+            LOG.error("Unable to start a Gradle session", e);
+            return null;
+        }
+
+        session.writer = new OutputStreamWriter(session.holder.out, StandardCharsets.UTF_8);
+
+        final Thread reader = new Thread(new InputStreamLineReader(session.holder.in, session::onLine), "GradleSessionReader");
+        reader.setDaemon(true);
+        reader.start();
+
+        LOG.info("Started a Gradle session with", gradleHome);
+        return session;
+    }
+
+    boolean isAlive() {
+        return alive;
+    }
+
+    /**
+     * Run a build. Its events are sent to the callback.
+     *
+     * @return Whether the build was requested. If not, the session has been closed.
+     */
+    boolean build(int id, @NonNull List<String> tasks, @NonNull List<String> arguments) {
+        final StringBuilder command = new StringBuilder("build\t").append(id);
+        for (String task : tasks) {
+            command.append('\t').append(task);
+        }
+        command.append("\t--");
+        for (String argument : arguments) {
+            command.append('\t').append(argument);
+        }
+        return send(command.toString());
+    }
+
+    void cancel(int id) {
+        send("cancel\t" + id);
+    }
+
+    /**
+     * Close the session. Running builds are cancelled.
+     */
+    void close() {
+        send("exit");
+        alive = false;
+    }
+
+    private synchronized boolean send(String command) {
+        if (!alive) {
+            return false;
+        }
+
+        try {
+            writer.write(command);
+            writer.write('\n');
+            writer.flush();
+            return true;
+        } catch (IOException e) {
+            LOG.error("Unable to send a command to the Gradle session", e);
+            alive = false;
+            return false;
+        }
+    }
+
+    private void onLine(String line) {
+        final String[] fields = line.split("\t", -1);
+        try {
+            switch (fields[0]) {
+                case "output":
+                    callback.onOutput(fields[1]);
+                    break;
+                case "started":
+                    callback.onBuildStarted(Integer.parseInt(fields[1]));
+                    break;
+                case "task-started":
+                    callback.onTaskStarted(Integer.parseInt(fields[1]), fields[2]);
+                    break;
+                case "task-finished":
+                    callback.onTaskFinished(Integer.parseInt(fields[1]), fields[2], fields[3], Long.parseLong(fields[4]));
+                    break;
+                case "finished":
+                    callback.onBuildFinished(Integer.parseInt(fields[1]), Result.valueOf(fields[2].toUpperCase(Locale.ROOT)), Long.parseLong(fields[3]), fields[4]);
+                    break;
+                case "ready":
+                    LOG.debug("Gradle session is ready");
+                    break;
+                case "error":
+                    LOG.error("Gradle session failed:", fields[1]);
+                    break;
+                default:
+                    // Not an event, like the output of the JVM itself
+                    callback.onOutput(line);
+                    break;
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Invalid event from the Gradle session:", line);
+        }
+    }
+
+    /**
+     * Find the Gradle distribution that the wrapper of the project uses, if it has been installed.
+     */
+    @Nullable
+    static File findDistribution(@NonNull File projectRoot) {
+        final File props = new File(projectRoot, "gradle/wrapper/gradle-wrapper.properties");
+        if (!props.isFile()) {
+            return null;
+        }
+
+        final Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(props)) {
+            properties.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+
+        // Installed like the wrapper does, in 'wrapper/dists/gradle-7.3-bin/<hash>/gradle-7.3'. The
+        // wrapper writes 'gradle-7.3-bin.zip.ok' next to it once the distribution has been unzipped.
+        final String url = properties.getProperty("distributionUrl");
+        if (url == null || !url.endsWith(".zip")) {
+            return null;
+        }
+        final String name = url.substring(url.lastIndexOf('/') + 1, url.length() - ".zip".length());
+        final File[] hashes = new File(Environment.GRADLE_USER_HOME, "wrapper/dists/" + name).listFiles();
+        if (hashes == null) {
+            return null;
+        }
+
+        for (File hash : hashes) {
+            final File[] markers = hash.listFiles(file -> file.isFile() && file.getName().endsWith(".ok"));
+            if (markers == null || markers.length == 0) {
+                // Still being installed, or the installation was interrupted
+                continue;
+            }
+
+            final File[] homes = hash.listFiles(file -> file.isDirectory() && new File(file, "lib").isDirectory());
+            if (homes != null && homes.length > 0) {
+                return homes[0];
+            }
+        }
+        return null;
+    }
+
+    enum Result {
+        SUCCESS,
+        FAILED,
+        CANCELLED
+    }
+
+    /**
+     * Events of a session. Called on the thread that reads the events.
+     */
+    interface Callback {
+
+        void onOutput(String line);
+
+        void onBuildStarted(int id);
+
+        void onTaskStarted(int id, String path);
+
+        /**
+         * @param id The build that ran the task.
+         * @param outcome The outcome of the task, as printed by the command line, like {@code UP-TO-DATE}.
+         * @param durationMs The time the task took to execute.
+         */
+        void onTaskFinished(int id, String path, String outcome, long durationMs);
+
+        void onBuildFinished(int id, Result result, long durationMs, String message);
+
+        /**
+         * Called when the process of the session has exited. Builds that were running have been stopped.
+         */
+        void onSessionClosed(int exitCode);
+    }
+}
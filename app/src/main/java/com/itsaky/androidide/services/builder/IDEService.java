@@ -25,10 +25,11 @@ import com.blankj.utilcode.util.ZipUtils;
 import com.google.gson.Gson;
 import com.itsaky.androidide.R;
 import com.itsaky.androidide.app.StudioApp;
-import com.itsaky.androidide.lsp.LSP;
 import com.itsaky.androidide.managers.PreferenceManager;
 import com.itsaky.androidide.project.IDEModule;
 import com.itsaky.androidide.project.IDEProject;
+import com.itsaky.androidide.project.ResourceClassGenerator;
+import com.itsaky.androidide.services.WorkspaceWatcher;
 import com.itsaky.androidide.shell.IProcessExecutor;
 import com.itsaky.androidide.shell.IProcessExitListener;
 import com.itsaky.androidide.shell.ProcessExecutorFactory;
@@ -42,7 +43,6 @@ import com.itsaky.androidide.utils.InputStreamLineReader;
 import com.itsaky.androidide.utils.Logger;
 import com.itsaky.toaster.Toaster;
 import java.io.File;
-import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.DateFormat;
@@ -51,14 +51,13 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
-import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
-import org.eclipse.lsp4j.FileChangeType;
-import org.eclipse.lsp4j.FileEvent;
 import org.eclipse.lsp4j.jsonrpc.CompletableFutures;
 
 import static com.itsaky.androidide.managers.ToolsManager.*;
@@ -77,10 +76,23 @@ public class IDEService {
     
     private boolean isBuilding = false;
     private boolean isRunning = false;
+    
+    private GradleSession session;
+    private boolean sessionStarted = false;
+    private boolean sessionUnavailable = false;
+    private volatile boolean sessionBuild = false;
+    private volatile int buildId = 0;
+    
+    /**
+     * The task to run once the build that is being cancelled has finished.
+     */
+    private volatile GradleTask queuedTask;
+    private final Map<String, Long> taskDurations = new LinkedHashMap<>();
 	
     private final String RUN_TASK = "> Task";
     private final String STARTING_DAEMON = "Starting a ";
     private final String PROJECT_INITIALIZED = ">>> PROJECT INITIALIZED <<<";
+    private final int SLOWEST_TASKS = 5;
     
     public static final int TASK_SHOW_DEPENDENCIES       = GradleTask.TASK_SHOW_DEPENDENCIES;
     public static final int TASK_ASSEMBLE_DEBUG          = GradleTask.TASK_ASSEMBLE_DEBUG;
@@ -119,6 +131,91 @@ public class IDEService {
         }
     };
     
+    private final GradleSession.Callback mSessionCallback = new GradleSession.Callback() {
+        @Override
+        public void onOutput(String line) {
+            onBuildOutput(line);
+        }
+        
+        @Override
+        public void onBuildStarted(int id) {
+            sessionStarted = true;
+        }
+        
+        @Override
+        public void onTaskStarted(int id, String path) {
+            if (id == buildId && listener != null) {
+                listener.onRunTask(currentTask, RUN_TASK + " " + path);
+            }
+        }
+        
+        @Override
+        public void onTaskFinished(int id, String path, String outcome, long durationMs) {
+            if (id != buildId) {
+                return;
+            }
+            
+            synchronized (taskDurations) {
+                taskDurations.put(path, durationMs);
+            }
+        }
+        
+        @Override
+        public void onBuildFinished(int id, GradleSession.Result result, long durationMs, String message) {
+            // Builds that were stopped with the daemons have already been reported
+            if (id != buildId || !sessionBuild) {
+                return;
+            }
+            
+            sessionBuild = false;
+            isBuilding = false;
+            if (listener != null) {
+                appendSlowestTasks();
+                if (result == GradleSession.Result.SUCCESS) {
+                    onBuildSuccessful(currentTask, getString(R.string.msg_build_finished, durationMs));
+                } else if (result == GradleSession.Result.CANCELLED) {
+                    onBuildFailed(currentTask, getString(R.string.msg_build_cancelled));
+                } else {
+                    onBuildFailed(currentTask, getString(R.string.msg_build_failed, durationMs, message));
+                }
+            }
+            
+            runQueuedTask();
+        }
+        
+        @Override
+        public void onSessionClosed(int exitCode) {
+            // A session that was closed before a newer one was started
+            if (session != null && session.isAlive()) {
+                return;
+            }
+            
+            if (!sessionBuild) {
+                return;
+            }
+            
+            sessionBuild = false;
+            if (!sessionStarted) {
+                // The session could not run any build, like when the Java runtime is too old
+                LOG.warn("Gradle session is not available, builds will use the command line");
+                sessionUnavailable = true;
+                if (queuedTask != null) {
+                    // The build was cancelled for another one
+                    isBuilding = false;
+                    runQueuedTask();
+                } else if (listener != null) {
+                    runInProcess(currentTask);
+                }
+            } else {
+                isBuilding = false;
+                if (listener != null) {
+                    onBuildFailed(currentTask, getString(R.string.msg_gradle_terminated, exitCode));
+                }
+                runQueuedTask();
+            }
+        }
+    };
+    
     public IDEService(File projectRoot) {
         this.projectRoot = projectRoot;
         this.app = StudioApp.getInstance();
@@ -153,7 +250,8 @@ public class IDEService {
         
         listener.appendOutput(currentTask, text);
         
-        if(line.startsWith(RUN_TASK)) {
+        // Builds in a session report their tasks with typed events
+        if(!sessionBuild && line.startsWith(RUN_TASK)) {
             listener.onRunTask(currentTask, line.trim());
         } else if(line.startsWith(STARTING_DAEMON)) {
             listener.onStartingGradleDaemon(currentTask);
@@ -193,6 +291,7 @@ public class IDEService {
                 Optional<IDEModule> appModule = mIDEProject.getModuleByPath(":app");
                 if(appModule.isPresent()) {
                     mAppModule = appModule.get();
+                    ResourceClassGenerator.getInstance().enable(mAppModule);
                 }
                 local.onProjectLoaded(mIDEProject, appModule);
             } else {
@@ -206,8 +305,10 @@ public class IDEService {
     }
 
     public void exit() {
+        closeSession();
         // Delete the tmp directory. It is not needed anymore...
         FileUtils.delete(Environment.TMP_DIR);
+        ResourceClassGenerator.getInstance().disable();
         isRunning = false;
     }
 
@@ -227,7 +328,10 @@ public class IDEService {
     }
     
     private void notifyExternalSourceChange() {
-        LSP.notifyWatchedFilesChanged(new DidChangeWatchedFilesParams(createSourceChangeEvents()));
+        rescanGeneratedSources();
+        
+        // The symbols of the libraries may have changed
+        ResourceClassGenerator.getInstance().update();
         
         if(listener != null) {
             listener.onBuildModified();
@@ -235,12 +339,10 @@ public class IDEService {
     }
     
     /**
-     * Returns a list of FileEvent representing the change in generated sources
-     *
-     * Takes care of adding changes from all modules
+     * Ask the workspace watcher to check the generated sources of all modules. Only the files
+     * that were actually created, changed or deleted by the build are sent to the language servers.
      */
-    private List<FileEvent> createSourceChangeEvents() {
-        final List<FileEvent> events = new ArrayList<>();
+    private void rescanGeneratedSources() {
         for(int i=0;i<mIDEProject.modules.size();i++) {
             IDEModule module = mIDEProject.modules.get(i);
             if(module == null
@@ -248,25 +350,28 @@ public class IDEService {
             || module.projectDir.trim().length() <= 0)
                 continue;
                 
-            File generated = new File(module.projectDir, "build/generated");
-            if(!(generated.exists() && generated.isDirectory())) continue;
-            
-            final List<File> sources = FileUtils.listFilesInDirWithFilter(generated, JAVA_FILTER, true);
-            if(sources == null) continue;
-            for(File source : sources) {
-                events.add(new FileEvent(source.toURI().toString(), FileChangeType.Changed));
-            }
+            WorkspaceWatcher.getInstance().rescan(new File(module.projectDir, "build/generated"));
         }
-        return events;
     }
 
     private String[] getArguments(List<String> tasks) {
-        final PreferenceManager prefs = app.getPrefManager();
         final List<String> args = new ArrayList<>();
         
         args.add(Environment.BUSYBOX_SH.getAbsolutePath());
         args.add(new File (projectRoot, "gradlew").getAbsolutePath());
         args.addAll(asAppTasks(tasks));
+        args.addAll(getGradleArguments());
+
+        return args.toArray(new String[args.size()]);
+    }
+    
+    /**
+     * @return The arguments for Gradle, other than the tasks. Used for both the command line and the session.
+     */
+    private List<String> getGradleArguments() {
+        final PreferenceManager prefs = app.getPrefManager();
+        final List<String> args = new ArrayList<>();
+        
         args.add("--init-script");
         args.add(Environment.INIT_SCRIPT.getAbsolutePath());
 
@@ -287,7 +392,7 @@ public class IDEService {
             args.add("all");
         }
 
-        return args.toArray(new String[args.size()]);
+        return args;
     }
 
     private Collection<? extends String> asAppTasks(List<String> tasks) {
@@ -311,7 +416,13 @@ public class IDEService {
 
     public void execTask(GradleTask task, boolean stopIfRunning) {
         if (stopIfRunning && isBuilding()) {
-            stopAllDaemons();
+            if (sessionBuild) {
+                // Run once the session reports that the cancelled build has finished
+                queuedTask = task;
+                cancelBuild();
+                return;
+            }
+            cancelBuild();
         } else if (isBuilding()) {
             return;
         }
@@ -343,22 +454,12 @@ public class IDEService {
             }
 
             if (listener != null) {
-                
-                final ProcessStreamsHolder holder = new ProcessStreamsHolder();
-                
                 listener.saveFiles();
                 Environment.mkdirIfNotExits(Environment.TMP_DIR);
                 currentTask = task;
                 listener.appendOutput(task, getString(R.string.msg_task_begin, currentTime(), task.getName()));
-                try {
-                    processExecutor.execAsync(holder, mProcessExitListener, projectRoot.getAbsolutePath(), true, getArguments(task.getTasks()));
-                    isBuilding = true;
-                    
-                    startReading (holder.in);
-                    
-                    listener.prepareBuild();
-                } catch (Throwable e) {
-                    listener.onBuildFailed(task, e.getMessage());
+                if (!runInSession(task)) {
+                    runInProcess(task);
                 }
             }
         };
@@ -367,6 +468,106 @@ public class IDEService {
         thread.setDaemon(true);
         thread.start();
     }
+    
+    /**
+     * Run the task in the Gradle session, if there is one.
+     *
+     * @return Whether the build was requested. If not, it must be run from the command line.
+     */
+    private boolean runInSession(GradleTask task) {
+        final GradleSession session = getSession();
+        if (session == null) {
+            return false;
+        }
+        
+        synchronized (taskDurations) {
+            taskDurations.clear();
+        }
+        
+        sessionBuild = true;
+        isBuilding = true;
+        if (!session.build(++buildId, new ArrayList<>(asAppTasks(task.getTasks())), getGradleArguments())) {
+            sessionBuild = false;
+            isBuilding = false;
+            return false;
+        }
+        
+        listener.prepareBuild();
+        return true;
+    }
+    
+    private void runInProcess(GradleTask task) {
+        final ProcessStreamsHolder holder = new ProcessStreamsHolder();
+        try {
+            processExecutor.execAsync(holder, mProcessExitListener, projectRoot.getAbsolutePath(), true, getArguments(task.getTasks()));
+            isBuilding = true;
+            
+            startReading (holder.in);
+            
+            listener.prepareBuild();
+        } catch (Throwable e) {
+            isBuilding = false;
+            listener.onBuildFailed(task, e.getMessage());
+        }
+    }
+    
+    /**
+     * Get the Gradle session, starting it if needed. A session can be started once the Gradle
+     * distribution of the project has been installed, by the first build from the command line.
+     */
+    private synchronized GradleSession getSession() {
+        if (sessionUnavailable) {
+            return null;
+        }
+        
+        if (session == null || !session.isAlive()) {
+            sessionStarted = false;
+            session = GradleSession.start(projectRoot, mSessionCallback);
+        }
+        
+        return session;
+    }
+    
+    private synchronized void closeSession() {
+        if (session != null) {
+            session.close();
+            session = null;
+        }
+    }
+    
+    /**
+     * Run the task that was requested while the last build was being cancelled, if there is one.
+     */
+    private void runQueuedTask() {
+        final GradleTask task = queuedTask;
+        queuedTask = null;
+        if (task != null) {
+            execTask(task);
+        }
+    }
+    
+    /**
+     * Append the tasks of the last build that took the most time.
+     */
+    private void appendSlowestTasks() {
+        final List<Map.Entry<String, Long>> tasks;
+        synchronized (taskDurations) {
+            tasks = taskDurations.entrySet().stream()
+                .filter(e -> e.getValue() > 0)
+                .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
+                .limit(SLOWEST_TASKS)
+                .collect(Collectors.toList());
+        }
+        
+        if (tasks.isEmpty()) {
+            return;
+        }
+        
+        listener.appendOutput(currentTask, getString(R.string.msg_slowest_tasks));
+        for (Map.Entry<String, Long> entry : tasks) {
+            listener.appendOutput(currentTask, String.format(Locale.US, "%8d ms  %s", entry.getValue(), entry.getKey()));
+        }
+    }
 
     private void startReading(InputStream in) {
         final Thread reader = new Thread (new InputStreamLineReader (in, mOutputReadListener), "GradleProcessOutputReader");
@@ -452,7 +653,24 @@ public class IDEService {
         execTask(BaseGradleTasks.CLEAN_BUILD);
     }
 
+    /**
+     * Cancel the running build. Builds in the Gradle session are cancelled without stopping the daemon,
+     * they are reported as cancelled once the session says they have stopped.
+     */
+    public void cancelBuild() {
+        final GradleSession session = this.session;
+        if (sessionBuild && session != null && session.isAlive()) {
+            session.cancel(buildId);
+            return;
+        }
+        
+        stopAllDaemons();
+    }
+
     public void stopAllDaemons() {
+        closeSession();
+        sessionBuild = false;
+        queuedTask = null;
         app.newShell(null).bgAppend(String.format(Locale.US, "cd '%s' && sh gradlew --stop", projectRoot.getAbsolutePath()));
         if(isBuilding()) {
             if(listener != null)
@@ -473,7 +691,18 @@ public class IDEService {
         execTask(BaseGradleTasks.LINT_RELEASE);
     }
     
+    /**
+     * Update the R and view binding classes after resources have changed. They are generated in
+     * the IDE from the resource table when possible, Gradle is only run when they cannot be.
+     * Release builds still process their resources with Gradle, as part of the build.
+     */
     public void updateResourceClasses() {
+        final ResourceClassGenerator generator = ResourceClassGenerator.getInstance();
+        if (generator.isEnabled()) {
+            generator.update();
+            return;
+        }
+        
         execTask(new UpdateResourceClassesTask(mAppModule != null && mAppModule.viewBindingEnabled));
     }
     
@@ -485,19 +714,6 @@ public class IDEService {
         return isBuilding;
     }
     
-    /**
-     * This FileFilter is used to list java source files in 'generated' dir
-     */
-    private static final FileFilter JAVA_FILTER = new FileFilter(){
-
-        @Override
-        public boolean accept(File p1) {
-            return p1.isFile()
-                && !p1.isHidden()
-                && p1.getName().endsWith(".java")
-                && !p1.getName().equals("package-info.java");
-        }
-    };
     
     public String typeString(int type) {
         switch (type) {
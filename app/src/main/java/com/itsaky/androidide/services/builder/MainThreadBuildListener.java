@@ -82,9 +82,8 @@ class MainThreadBuildListener implements BuildListener {
 
     @Override
     public void appendOutput(GradleTask task, CharSequence text) {
-        ThreadUtils.runOnUiThread(() -> {
-            listener.appendOutput(task, text);
-        });
+        // Output is batched by the client, posting every line to the main thread floods its queue
+        listener.appendOutput(task, text);
     }
 
     @Override
@@ -0,0 +1,111 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.tasks;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Tells tasks that their result is not needed anymore.
+ *
+ * A token created with {@link #of(LifecycleOwner)} is cancelled when the activity or fragment
+ * is destroyed. Tasks that are still queued are then skipped, running tasks are interrupted, and
+ * their callbacks are not called.
+ *
+ * @author Akash Yadav
+ */
+public class CancellationToken {
+
+    /**
+     * A token that is never cancelled.
+     */
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private static final Map<LifecycleOwner, CancellationToken> LIFECYCLE_TOKENS = new WeakHashMap<>();
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled;
+
+    /**
+     * Get the token of the given lifecycle owner. It is cancelled when the owner is destroyed.
+     * Must be called on the main thread.
+     */
+    @NonNull
+    public static CancellationToken of(@NonNull LifecycleOwner owner) {
+        CancellationToken token = LIFECYCLE_TOKENS.get(owner);
+        if (token != null) {
+            return token;
+        }
+
+        final CancellationToken newToken = new CancellationToken();
+        if (owner.getLifecycle().getCurrentState() == Lifecycle.State.DESTROYED) {
+            newToken.cancel();
+            return newToken;
+        }
+
+        owner.getLifecycle().addObserver((LifecycleEventObserver) (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                LIFECYCLE_TOKENS.remove(source);
+                newToken.cancel();
+            }
+        });
+        LIFECYCLE_TOKENS.put(owner, newToken);
+        return newToken;
+    }
+
+    public void cancel() {
+        if (this == NONE || cancelled) {
+            return;
+        }
+
+        cancelled = true;
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+        listeners.clear();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Run the given action when this token is cancelled. It is run right away if the token is already
+     * cancelled.
+     */
+    public void onCancel(@NonNull Runnable listener) {
+        if (this == NONE) {
+            return;
+        }
+
+        listeners.add(listener);
+        if (cancelled && listeners.remove(listener)) {
+            listener.run();
+        }
+    }
+
+    void removeListener(@NonNull Runnable listener) {
+        listeners.remove(listener);
+    }
+}
@@ -23,16 +23,61 @@ package com.itsaky.androidide.tasks;
 
 import android.os.Handler;
 import android.os.Looper;
-import com.blankj.utilcode.util.ThrowableUtils;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LifecycleOwner;
+import com.itsaky.androidide.tasks.TaskScheduler.Pool;
+import com.itsaky.androidide.tasks.TaskScheduler.Priority;
 import com.itsaky.androidide.utils.Logger;
+import java.util.concurrent.Callable;
 
+/**
+ * Runs tasks in the shared {@link TaskScheduler} and delivers their results on the main thread.
+ *
+ * Instances are cheap and hold no threads. Use {@link #with(LifecycleOwner)} from activities and
+ * fragments so that pending tasks are cancelled and callbacks are dropped once they are destroyed.
+ */
 public class TaskExecutor {
     
-    private final Executor executor = Executors.newSingleThreadExecutor();
-    private final Handler handler = new Handler(Looper.getMainLooper());
+    private static final Logger LOG = Logger.instance("TaskExecutor");
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    
+    private final Pool pool;
+    private final Priority priority;
+    private final CancellationToken token;
+    
+    public TaskExecutor() {
+        this(Pool.IO, Priority.NORMAL, CancellationToken.NONE);
+    }
+    
+    private TaskExecutor(Pool pool, Priority priority, CancellationToken token) {
+        this.pool = pool;
+        this.priority = priority;
+        this.token = token;
+    }
+    
+    /**
+     * Create an executor whose tasks are cancelled when the given owner is destroyed.
+     * Must be called on the main thread.
+     */
+    @NonNull
+    public static TaskExecutor with(@NonNull LifecycleOwner owner) {
+        return new TaskExecutor(Pool.IO, Priority.NORMAL, CancellationToken.of(owner));
+    }
+    
+    @NonNull
+    public TaskExecutor withPool(@NonNull Pool pool) {
+        return new TaskExecutor(pool, priority, token);
+    }
+    
+    @NonNull
+    public TaskExecutor withPriority(@NonNull Priority priority) {
+        return new TaskExecutor(pool, priority, token);
+    }
+    
+    @NonNull
+    public TaskExecutor withToken(@NonNull CancellationToken token) {
+        return new TaskExecutor(pool, priority, token);
+    }
 
     public interface Callback<R> {
         void complete(R result);
@@ -42,33 +87,29 @@ public class TaskExecutor {
         void complete(R result, Throwable error);
     }
 
-    public <R> void executeAsync(Callable<R> callable, Callback<R> callback) {
-        executor.execute(() -> {
-            try {
-				final R result = callable.call();
-				handler.post(() -> {
-					callback.complete(result);
-				});
-			} catch (Throwable th) {}
+    /**
+     * Run the callable and pass its result to the callback. If the callable fails, the error is logged
+     * and the callback is not called.
+     */
+    public <R> TaskScheduler.Task executeAsync(Callable<R> callable, Callback<R> callback) {
+        return TaskScheduler.getInstance().submit(pool, priority, token, callable, (result, error) -> {
+            if (error != null) {
+                LOG.error("Task failed", error);
+                return;
+            }
+            post(() -> callback.complete(result));
         });
     }
     
-    public <R> void executeAsyncProvideError(Callable<R> callable, CallbackWithError<R> callback) {
-        executor.execute(() -> {
-            Throwable error = null;
-            R result = null;
-            
-            try {
-                result = callable.call();
-            } catch (Throwable th) {
-                error = th;
+    public <R> TaskScheduler.Task executeAsyncProvideError(Callable<R> callable, CallbackWithError<R> callback) {
+        return TaskScheduler.getInstance().submit(pool, priority, token, callable, (result, error) -> post(() -> callback.complete(result, error)));
+    }
+    
+    private void post(Runnable action) {
+        handler.post(() -> {
+            if (!token.isCancelled()) {
+                action.run();
             }
-            final R resultCopied = result;
-            final Throwable errorCopied = error;
-            
-            handler.post(() -> {
-                callback.complete(resultCopied, errorCopied);
-            });
         });
     }
 }
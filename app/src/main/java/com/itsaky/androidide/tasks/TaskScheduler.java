@@ -0,0 +1,272 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.tasks;
+
+import androidx.annotation.NonNull;
+import com.itsaky.androidide.utils.Logger;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The thread pools shared by the whole app.
+ *
+ * Blocking work (files, processes, sockets) runs in the {@link Pool#IO} pool, which has more
+ * threads than there are processors. Computations run in the {@link Pool#CPU} pool, which has one
+ * thread per processor. Idle threads are stopped after a while.
+ *
+ * Queued tasks run by {@link Priority}, then in the order they were submitted. Each task can be
+ * bound to a {@link CancellationToken}.
+ *
+ * @author Akash Yadav
+ */
+public class TaskScheduler {
+
+    private static final Logger LOG = Logger.instance("TaskScheduler");
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final TaskScheduler INSTANCE = new TaskScheduler();
+
+    private final ThreadPoolExecutor io;
+    private final ThreadPoolExecutor cpu;
+    private final Metrics ioMetrics = new Metrics();
+    private final Metrics cpuMetrics = new Metrics();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public static TaskScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    private TaskScheduler() {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        this.io = createPool("IO", Math.max(4, Math.min(processors * 2, 16)));
+        this.cpu = createPool("CPU", Math.max(2, processors));
+    }
+
+    private static ThreadPoolExecutor createPool(String name, int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new PriorityBlockingQueue<>(), r -> {
+                final Thread thread = new Thread(r, "AndroidIDE-" + name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Submit a task.
+     *
+     * @param pool The pool to run the task in.
+     * @param priority The priority of the task.
+     * @param token The token that cancels the task.
+     * @param callable The task.
+     * @param callback Called on the task thread with the result or the error, unless the task was cancelled.
+     * @return A handle to cancel this task only.
+     */
+    @NonNull
+    public <R> Task submit(@NonNull Pool pool, @NonNull Priority priority, @NonNull CancellationToken token, @NonNull Callable<R> callable, @NonNull Completion<R> callback) {
+        final Task task = new Task(this, pool, priority, token, sequence.incrementAndGet(), self -> {
+            R result = null;
+            Throwable error = null;
+            try {
+                result = callable.call();
+            } catch (Throwable th) {
+                error = th;
+            }
+            if (!self.isCancelled()) {
+                callback.complete(result, error);
+            }
+            return error;
+        });
+        metrics(pool).submitted.incrementAndGet();
+        executor(pool).execute(task);
+        return task;
+    }
+
+    ThreadPoolExecutor executor(Pool pool) {
+        return pool == Pool.IO ? io : cpu;
+    }
+
+    Metrics metrics(Pool pool) {
+        return pool == Pool.IO ? ioMetrics : cpuMetrics;
+    }
+
+    /**
+     * @return A summary of the state and the statistics of the pools.
+     */
+    @NonNull
+    public String getMetrics() {
+        return describe(Pool.IO) + "\n" + describe(Pool.CPU);
+    }
+
+    private String describe(Pool pool) {
+        final ThreadPoolExecutor executor = executor(pool);
+        final Metrics metrics = metrics(pool);
+        final long completed = Math.max(1, metrics.completed.get());
+        return String.format(Locale.ROOT,
+            "%s: threads=%d/%d (largest %d), active=%d, queued=%d, submitted=%d, completed=%d, failed=%d, cancelled=%d, "
+                + "avgQueue=%.1fms, maxQueue=%.1fms, avgRun=%.1fms, maxRun=%.1fms",
+            pool, executor.getPoolSize(), executor.getMaximumPoolSize(), executor.getLargestPoolSize(),
+            executor.getActiveCount(), executor.getQueue().size(), metrics.submitted.get(), metrics.completed.get(),
+            metrics.failed.get(), metrics.cancelled.get(),
+            metrics.queueNanos.get() / 1e6 / completed, metrics.maxQueueNanos.get() / 1e6,
+            metrics.runNanos.get() / 1e6 / completed, metrics.maxRunNanos.get() / 1e6);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return getMetrics();
+    }
+
+    public enum Pool {
+        IO, CPU
+    }
+
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+
+    public interface Completion<R> {
+        void complete(R result, Throwable error);
+    }
+
+    /**
+     * A submitted task.
+     */
+    public static class Task implements Runnable, Comparable<Task> {
+
+        private final TaskScheduler scheduler;
+        private final Pool pool;
+        private final Priority priority;
+        private final CancellationToken token;
+        private final long sequence;
+        private final Function<Task, Throwable> body;
+        private final long submitTime = System.nanoTime();
+        private final Runnable onTokenCancelled = this::cancel;
+        private Thread runner;
+        private volatile boolean cancelled;
+
+        Task(TaskScheduler scheduler, Pool pool, Priority priority, CancellationToken token, long sequence, Function<Task, Throwable> body) {
+            this.scheduler = scheduler;
+            this.pool = pool;
+            this.priority = priority;
+            this.token = token;
+            this.sequence = sequence;
+            this.body = body;
+            token.onCancel(onTokenCancelled);
+        }
+
+        /**
+         * Cancel this task. If it is queued, it is removed from the queue. If it is running, its thread
+         * is interrupted. Its callback is not called.
+         */
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+
+            cancelled = true;
+            if (scheduler.executor(pool).remove(this)) {
+                scheduler.metrics(pool).cancelled.incrementAndGet();
+                token.removeListener(onTokenCancelled);
+                return;
+            }
+
+            synchronized (this) {
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled || token.isCancelled();
+        }
+
+        @Override
+        public void run() {
+            final Metrics metrics = scheduler.metrics(pool);
+            if (isCancelled()) {
+                metrics.cancelled.incrementAndGet();
+                token.removeListener(onTokenCancelled);
+                return;
+            }
+
+            final long start = System.nanoTime();
+            metrics.recordQueue(start - submitTime);
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+            try {
+                final Throwable error = body.apply(this);
+                if (error != null) {
+                    // The error was given to the callback
+                    metrics.failed.incrementAndGet();
+                }
+            } catch (Throwable th) {
+                metrics.failed.incrementAndGet();
+                LOG.error("Task callback failed", th);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    // Do not leak the interrupt to the next task
+                    Thread.interrupted();
+                }
+                token.removeListener(onTokenCancelled);
+                metrics.recordRun(System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            final int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    static class Metrics {
+
+        final AtomicLong submitted = new AtomicLong();
+        final AtomicLong completed = new AtomicLong();
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong cancelled = new AtomicLong();
+        final AtomicLong queueNanos = new AtomicLong();
+        final AtomicLong maxQueueNanos = new AtomicLong();
+        final AtomicLong runNanos = new AtomicLong();
+        final AtomicLong maxRunNanos = new AtomicLong();
+
+        void recordQueue(long nanos) {
+            queueNanos.addAndGet(nanos);
+            maxQueueNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        void recordRun(long nanos) {
+            completed.incrementAndGet();
+            runNanos.addAndGet(nanos);
+            maxRunNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.utils;
+
+import android.view.Choreographer;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import io.github.rosemoe.editor.text.Content;
+import io.github.rosemoe.editor.widget.CodeEditor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Collects output lines from any thread and appends them to a read-only {@link CodeEditor}
+ * at most once per frame, as a single {@link Content#append(CharSequence)}.
+ *
+ * The editor keeps at most {@code lineLimit} lines. When this limit is exceeded, the oldest
+ * lines are evicted. Optionally, every line is also written to a {@link FileLogSink} so that
+ * the full output is available even after lines have been evicted.
+ *
+ * Must be created on the main thread.
+ *
+ * @author Akash Yadav
+ */
+public class ConsoleOutputBuffer implements Choreographer.FrameCallback {
+
+    public static final int DEFAULT_LINE_LIMIT = 10000;
+
+    private final Supplier<CodeEditor> target;
+    private final Choreographer choreographer;
+    private final Object lock = new Object ();
+
+    private List<String> pending = new ArrayList<> ();
+    private boolean scheduled = false;
+    private volatile int lineLimit;
+    private volatile FileLogSink spill;
+
+    public ConsoleOutputBuffer (@NonNull Supplier<CodeEditor> target, int lineLimit) {
+        this.target = target;
+        this.choreographer = Choreographer.getInstance ();
+        this.lineLimit = Math.max (1, lineLimit);
+    }
+
+    public void setLineLimit (int lineLimit) {
+        this.lineLimit = Math.max (1, lineLimit);
+    }
+
+    /**
+     * Write every line to the given sink as well. Pass {@code null} to stop.
+     */
+    public void setSpill (@Nullable FileLogSink spill) {
+        if (this.spill != null && this.spill != spill) {
+            this.spill.close ();
+        }
+        this.spill = spill;
+    }
+
+    /**
+     * Queue a line. Can be called from any thread.
+     */
+    public void append (CharSequence line) {
+        if (line == null) {
+            return;
+        }
+
+        final String str = line.toString ();
+        final FileLogSink sink = spill;
+        if (sink != null) {
+            sink.append (str);
+        }
+
+        synchronized (lock) {
+            pending.add (str);
+
+            // Lines that could never be shown are dropped early
+            final int limit = lineLimit;
+            if (pending.size () > limit * 2) {
+                pending.subList (0, pending.size () - limit).clear ();
+            }
+
+            if (!scheduled) {
+                scheduled = true;
+                choreographer.postFrameCallback (this);
+            }
+        }
+    }
+
+    /**
+     * Discard pending lines and clear the editor. Must be called on the main thread.
+     */
+    public void clear () {
+        synchronized (lock) {
+            pending.clear ();
+        }
+        target.get ().setText ("");
+    }
+
+    @Override
+    public void doFrame (long frameTimeNanos) {
+        final List<String> lines;
+        synchronized (lock) {
+            lines = pending;
+            pending = new ArrayList<> ();
+            scheduled = false;
+        }
+
+        if (lines.isEmpty ()) {
+            return;
+        }
+
+        final int limit = lineLimit;
+        final int first = Math.max (0, lines.size () - limit);
+        final StringBuilder batch = new StringBuilder ();
+        for (int i = first; i < lines.size (); i++) {
+            final String line = lines.get (i);
+            batch.append (line);
+            if (!line.endsWith ("\n")) {
+                batch.append ('\n');
+            }
+        }
+
+        final Content content = target.get ().getText ();
+        content.append (batch);
+
+        // The last line is always empty as every batch ends with a new line
+        final int excess = content.getLineCount () - 1 - limit;
+        if (excess > 0) {
+            content.delete (0, 0, excess, 0);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.utils;
+
+import androidx.annotation.NonNull;
+import io.github.rosemoe.editor.text.Content;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Changes the text of an editor to a new text by editing only the lines that are different,
+ * instead of replacing the whole text. The undo history is kept, and all the edits are undone
+ * at once.
+ *
+ * The lines are compared with Myers' diff algorithm.
+ *
+ * @author Akash Yadav
+ */
+public class ContentPatcher {
+
+    /**
+     * If more lines than this need to be edited, the changed region is replaced as a whole.
+     */
+    private static final int MAX_EDITS = 1000;
+
+    /**
+     * Patch the content so that it matches the given text.
+     *
+     * @param content The content of the editor.
+     * @param text The new text.
+     * @return The number of regions that were edited.
+     */
+    public static int patch (@NonNull Content content, @NonNull CharSequence text) {
+        final String[] oldLines = new String[content.getLineCount ()];
+        for (int i = 0; i < oldLines.length; i++) {
+            oldLines[i] = content.getLineString (i);
+        }
+        final String[] newLines = text.toString ().split ("\n", -1);
+
+        final List<int[]> hunks = diff (oldLines, newLines);
+        if (hunks.isEmpty ()) {
+            return 0;
+        }
+
+        content.beginBatchEdit ();
+        try {
+            // Last hunk first, so that the line numbers of the other hunks stay valid
+            for (int i = hunks.size () - 1; i >= 0; i--) {
+                apply (content, hunks.get (i), newLines);
+            }
+        } finally {
+            content.endBatchEdit ();
+        }
+        return hunks.size ();
+    }
+
+    /**
+     * Replace the old lines {@code [a1, a2)} with the new lines {@code [b1, b2)}.
+     */
+    private static void apply (@NonNull Content content, @NonNull int[] hunk, @NonNull String[] newLines) {
+        final int a1 = hunk[0], a2 = hunk[1], b1 = hunk[2], b2 = hunk[3];
+        final int lineCount = content.getLineCount ();
+        final String replacement = String.join ("\n", Arrays.copyOfRange (newLines, b1, b2));
+
+        if (a1 < a2 && b1 < b2) {
+            content.replace (a1, 0, a2 - 1, content.getColumnCount (a2 - 1), replacement);
+        } else if (a1 == a2) {
+            // Insertion
+            if (a1 < lineCount) {
+                content.insert (a1, 0, replacement + "\n");
+            } else {
+                final int last = lineCount - 1;
+                content.insert (last, content.getColumnCount (last), "\n" + replacement);
+            }
+        } else if (a2 < lineCount) {
+            // Deletion, followed by another line
+            content.delete (a1, 0, a2, 0);
+        } else if (a1 > 0) {
+            // Deletion of the last lines
+            content.delete (a1 - 1, content.getColumnCount (a1 - 1), a2 - 1, content.getColumnCount (a2 - 1));
+        } else {
+            content.delete (0, 0, a2 - 1, content.getColumnCount (a2 - 1));
+        }
+    }
+
+    /**
+     * Compute the regions that differ between the two texts.
+     *
+     * @return The regions as {@code [a1, a2, b1, b2]}, in order. Old lines {@code [a1, a2)} are
+     *         replaced by new lines {@code [b1, b2)}.
+     */
+    @NonNull
+    static List<int[]> diff (@NonNull String[] a, @NonNull String[] b) {
+        // The common prefix and suffix are not compared again
+        int start = 0;
+        while (start < a.length && start < b.length && a[start].equals (b[start])) {
+            start++;
+        }
+
+        int endA = a.length, endB = b.length;
+        while (endA > start && endB > start && a[endA - 1].equals (b[endB - 1])) {
+            endA--;
+            endB--;
+        }
+
+        final List<int[]> hunks = new ArrayList<> ();
+        if (start == endA && start == endB) {
+            return hunks;
+        }
+
+        final int n = endA - start, m = endB - start;
+        final int max = Math.min (n + m, MAX_EDITS);
+        final int offset = max + 1;
+        final int[] v = new int[2 * max + 3];
+
+        // v before each step, for k in [-d, d]
+        final List<int[]> trace = new ArrayList<> ();
+        int found = -1;
+        for (int d = 0; d <= max && found == -1; d++) {
+            final int[] snapshot = new int[2 * d + 1];
+            System.arraycopy (v, offset - d, snapshot, 0, snapshot.length);
+            trace.add (snapshot);
+
+            for (int k = -d; k <= d; k += 2) {
+                int x = (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) ? v[offset + k + 1] : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[start + x].equals (b[start + y])) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    found = d;
+                    break;
+                }
+            }
+        }
+
+        if (found == -1) {
+            // Too many differences, replace the whole region
+            hunks.add (new int[] {start, endA, start, endB});
+            return hunks;
+        }
+
+        // Walk back from the end to find the edits
+        final List<int[]> edits = new ArrayList<> ();
+        int x = n, y = m;
+        for (int d = found; d > 0; d--) {
+            final int[] prev = trace.get (d);
+            final int k = x - y;
+            final int prevK = (k == -d || (k != d && prev[k - 1 + d] < prev[k + 1 + d])) ? k + 1 : k - 1;
+            final int prevX = prev[prevK + d];
+            final int prevY = prevX - prevK;
+
+            while (x > prevX && y > prevY) {
+                x--;
+                y--;
+            }
+
+            // An insertion if only y moved, a deletion if only x moved
+            edits.add (new int[] {prevX, prevY, x == prevX ? 1 : 0});
+            x = prevX;
+            y = prevY;
+        }
+
+        // Merge the adjacent edits
+        for (int i = edits.size () - 1; i >= 0; i--) {
+            final int[] edit = edits.get (i);
+            final int ex = edit[0] + start, ey = edit[1] + start;
+            final boolean insertion = edit[2] == 1;
+            int[] hunk = hunks.isEmpty () ? null : hunks.get (hunks.size () - 1);
+            if (hunk == null || hunk[1] != ex || hunk[3] != ey) {
+                hunk = new int[] {ex, ex, ey, ey};
+                hunks.add (hunk);
+            }
+
+            if (insertion) {
+                hunk[3]++;
+            } else {
+                hunk[1]++;
+            }
+        }
+        return hunks;
+    }
+}
@@ -21,19 +21,36 @@
 
 package com.itsaky.androidide.utils;
 
-import com.blankj.utilcode.util.FileIOUtils;
+import android.content.res.AssetFileDescriptor;
 import com.blankj.utilcode.util.FileUtils;
-import com.blankj.utilcode.util.ResourceUtils;
 import com.blankj.utilcode.util.ThreadUtils;
-import com.blankj.utilcode.util.ZipUtils;
 import com.itsaky.androidide.R;
 import com.itsaky.androidide.app.StudioApp;
 import com.itsaky.androidide.interfaces.ProjectWriterCallback;
 import com.itsaky.androidide.models.NewProjectDetails;
 import com.itsaky.androidide.models.ProjectTemplate;
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 public class ProjectWriter {
 	
@@ -140,72 +157,215 @@ public class ProjectWriter {
 		write(template.getId(), details, listener);
 	}
 	
+	/**
+	 * Create a new project from the template with the given id.
+	 *
+	 * The template zip is read straight from the assets. Every entry is written once, to its final
+	 * location in the project directory. Placeholders in the entry names and in the contents of
+	 * {@link #FILE_TO_CHANGE} are replaced while the entry is being written.
+	 */
 	public static void write(int id, NewProjectDetails details, ProjectWriterCallback listener) throws Exception {
 		callback = listener;
 		notifyBegin();
 		final StudioApp instance = StudioApp.getInstance();
-		final File temp = instance.getTempProjectDir();
 		final File projectDir = new File(instance.getProjectsDir(), details.name);
 		if(projectDir.exists()) {
 			notifyFailed(instance.getString(R.string.project_exists));
 			return;
 		}
-		if(temp == null) notifyFailed(instance.getString(R.string.cannot_create_temp));
-		if(!FileUtils.delete(temp) || !Environment.mkdirIfNotExits(temp).exists()) notifyFailed(instance.getString(R.string.cannot_create_temp));
-		notifyTask(instance.getString(R.string.copying_assets));
-		projectDir.mkdirs();
-		File destZip = new File(Environment.TMP_DIR, "templates/" + id + ".zip");
-		Environment.mkdirIfNotExits(destZip.getParentFile());
-		if(ResourceUtils.copyFileFromAssets("templates/" + destZip.getName(), destZip.getAbsolutePath())) {
-			ZipUtils.unzipFile(destZip, temp);
-			notifyTask(instance.getString(R.string.writing_files));
-			for(String s : FILE_TO_CHANGE) {
-				File file = new File(temp, s);
-				if(file.exists() && s.contains(PNAME)) {
-					s = s.replace(PNAME, details.packageName.replace(".", "/"));
-					File f = new File(temp, s);
-					FileUtils.move(file, f);
-					
-					try {
-						File f2 = file.getParentFile();
-						while(!f2.getName().contains(PNAME))
-							f2 = f2.getParentFile();
-						FileUtils.delete(f2);
-					} catch (Throwable t) {}
-					file = f;
+		if(!FileUtils.createOrExistsDir(projectDir)) {
+			notifyFailed(instance.getString(R.string.failed_create_project_dir));
+			return;
+		}
+		
+		final Map<String, String> tokens = new HashMap<>();
+		tokens.put(ANAME, details.name);
+		tokens.put(PNAME, details.packageName);
+		tokens.put(MSDK, String.valueOf(details.minSdk));
+		tokens.put(TSDK, String.valueOf(details.targetSdk));
+		tokens.put(ANDROIDIDE_PLUGIN, "1.0.6");
+		final TokenReplacer replacer = new TokenReplacer(tokens);
+		final String packagePath = details.packageName.replace(".", "/");
+		final Set<String> filesToChange = new HashSet<>(Arrays.asList(FILE_TO_CHANGE));
+		
+		final String asset = "templates/" + id + ".zip";
+		final long total = assetLength(instance, asset);
+		notifyTask(instance.getString(R.string.writing_files));
+		
+		final CountingInputStream counter;
+		try {
+			counter = new CountingInputStream(instance.getAssets().open(asset), total);
+		} catch (IOException e) {
+			FileUtils.delete(projectDir);
+			notifyFailed(instance.getString(R.string.asset_copy_failed));
+			return;
+		}
+		
+		String current = null;
+		try (ZipInputStream zip = new ZipInputStream(new BufferedInputStream(counter))) {
+			// With the separator, so that a sibling like 'MyApp2' is not inside 'MyApp'
+			final String projectPath = projectDir.getCanonicalPath() + File.separator;
+			ZipEntry entry;
+			while((entry = zip.getNextEntry()) != null) {
+				current = entry.getName();
+				final File out = new File(projectDir, entry.getName().replace(PNAME, packagePath));
+				if(!out.getCanonicalPath().startsWith(projectPath)) {
+					// Do not allow the entries to escape the project directory
+					continue;
 				}
-				if(file.exists()) {
-					String read = FileIOUtils.readFile2String(file);
-					read = read.replace(ANAME, details.name)
-							.replace(PNAME, details.packageName)
-							.replace(MSDK, String.valueOf(details.minSdk))
-							.replace(TSDK, String.valueOf(details.targetSdk))
-							.replace(ANDROIDIDE_PLUGIN, "1.0.6");
-					if(FileIOUtils.writeFileFromString(file, read, false)) {
-						continue;
-					} else {
-						notifyFailed(instance.getString(R.string.failed_write_file, file.getName()));
+				
+				if(entry.isDirectory()) {
+					out.mkdirs();
+					continue;
+				}
+				
+				Environment.mkdirIfNotExits(out.getParentFile());
+				if(filesToChange.contains(entry.getName())) {
+					final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8));
+					try {
+						// The reader is not closed as that would close the zip stream
+						replacer.replace(new InputStreamReader(zip, StandardCharsets.UTF_8), writer);
+					} finally {
+						writer.close();
+					}
+				} else {
+					try (OutputStream stream = new FileOutputStream(out)) {
+						copy(zip, stream);
 					}
 				}
+				zip.closeEntry();
 			}
-			notifyTask(instance.getString(R.string.copying_files));
-			if(FileUtils.createOrExistsDir(projectDir)) {
-				boolean success = true;
-				for(File f : temp.listFiles()) {
-					if(success &= FileUtils.copy(f, new File(projectDir, f.getName())))
-						continue;
-					else {
-						notifyFailed(instance.getString(R.string.failed_write_file, f.getName()));
+		} catch (IOException e) {
+			FileUtils.delete(projectDir);
+			notifyFailed(instance.getString(R.string.failed_write_file, current == null ? asset : current));
+			return;
+		}
+		
+		notifySuccess(projectDir);
+	}
+	
+	private static long assetLength(StudioApp app, String asset) {
+		// Only works for assets that are stored without compression, which is the case for zip files
+		try (AssetFileDescriptor fd = app.getAssets().openFd(asset)) {
+			return fd.getLength();
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+	
+	private static void copy(InputStream in, OutputStream out) throws IOException {
+		final byte[] buffer = new byte[8192];
+		int read;
+		while((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+	}
+	
+	/**
+	 * Replaces the placeholders of a template in a single pass over the input.
+	 * Placeholders start with a {@code $} followed by lowercase letters and underscores.
+	 * If several placeholders match, the longest one is used.
+	 */
+	static class TokenReplacer {
+		
+		private final Map<String, String> tokens;
+		private final int maxLength;
+		
+		TokenReplacer(Map<String, String> tokens) {
+			this.tokens = tokens;
+			int max = 0;
+			for(String token : tokens.keySet()) {
+				max = Math.max(max, token.length());
+			}
+			this.maxLength = max;
+		}
+		
+		void replace(Reader in, Writer out) throws IOException {
+			final StringBuilder candidate = new StringBuilder(maxLength);
+			int c = in.read();
+			while(c != -1) {
+				if(c != '$') {
+					out.write(c);
+					c = in.read();
+					continue;
+				}
+				
+				candidate.setLength(0);
+				candidate.append('$');
+				c = in.read();
+				while(c != -1 && candidate.length() < maxLength && isTokenChar(c)) {
+					candidate.append((char) c);
+					c = in.read();
+				}
+				
+				// Longest placeholder which is a prefix of the candidate
+				int end = candidate.length();
+				String replacement = null;
+				for(; end > 1; end--) {
+					replacement = tokens.get(candidate.substring(0, end));
+					if(replacement != null) {
 						break;
 					}
 				}
-				if(success)
-					notifySuccess(projectDir);
-			} else {
-				notifyFailed(instance.getString(R.string.failed_create_project_dir));
+				
+				if(replacement != null) {
+					out.write(replacement);
+					out.write(candidate.toString(), end, candidate.length() - end);
+				} else {
+					out.write(candidate.toString());
+				}
+			}
+		}
+		
+		private static boolean isTokenChar(int c) {
+			return (c >= 'a' && c <= 'z') || c == '_';
+		}
+	}
+	
+	/**
+	 * Counts the bytes read from the template and reports the progress whenever the
+	 * percentage changes.
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		
+		private final long total;
+		private long read = 0;
+		private int lastPercent = -1;
+		
+		CountingInputStream(InputStream in, long total) {
+			super(in);
+			this.total = total;
+		}
+		
+		@Override
+		public int read() throws IOException {
+			final int b = super.read();
+			if(b != -1) {
+				count(1);
+			}
+			return b;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			final int n = super.read(b, off, len);
+			if(n > 0) {
+				count(n);
+			}
+			return n;
+		}
+		
+		private void count(int n) {
+			read += n;
+			if(total <= 0) {
+				return;
+			}
+			
+			final int percent = (int) Math.min(100, read * 100 / total);
+			if(percent != lastPercent) {
+				lastPercent = percent;
+				notifyProgress(read, total);
 			}
-		} else {
-			notifyFailed(instance.getString(R.string.asset_copy_failed));
 		}
 	}
 	
@@ -223,6 +383,13 @@ public class ProjectWriter {
 		});
 	}
 	
+	private static void notifyProgress(long written, long total) {
+		ThreadUtils.runOnUiThread(() -> {
+			if(callback != null)
+				callback.onProgress(written, total);
+		});
+	}
+	
 	private static void notifySuccess(File root) {
 		ThreadUtils.runOnUiThread(() -> {
 			if(callback != null)
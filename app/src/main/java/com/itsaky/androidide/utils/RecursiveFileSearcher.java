@@ -21,19 +21,24 @@
 
 package com.itsaky.androidide.utils;
 
-import com.blankj.utilcode.util.FileIOUtils;
-import com.blankj.utilcode.util.FileUtils;
+import com.blankj.utilcode.util.ThreadUtils;
 import com.itsaky.androidide.models.SearchResult;
-import com.itsaky.androidide.tasks.TaskExecutor;
-import io.github.rosemoe.editor.text.CharPosition;
-import io.github.rosemoe.editor.text.Content;
+import com.itsaky.androidide.services.TrigramIndex;
+import com.itsaky.androidide.services.WorkspaceIndex;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.eclipse.lsp4j.Position;
@@ -42,12 +47,47 @@ import org.eclipse.lsp4j.Range;
 /**
  * This class provides API to search in files recursively
  *
+ * Files are searched in parallel on a work-stealing pool. Each file is read as bytes (large
+ * files are memory mapped) and searched with a byte matcher, so that files without matches are
+ * never decoded. Regular expressions are matched on the decoded text. Results are sent to the
+ * callback as soon as a file has been searched.
+ *
+ * For literal searches, the {@link TrigramIndex} is used when it is available, so that only the
+ * files that can contain the text are read.
+ *
  * @author Akash Yadav
  */
 public class RecursiveFileSearcher {
     
     private static final Logger logger = Logger.instance("RecursiveFileSearcher");
     
+    /**
+     * Files larger than this are memory mapped instead of being read.
+     */
+    private static final long MAP_THRESHOLD = 256 * 1024;
+    
+    /**
+     * Files larger than this are not searched.
+     */
+    private static final long MAX_FILE_SIZE = 32 * 1024 * 1024;
+    
+    /**
+     * Number of bytes checked at the start of a file to detect binary files.
+     */
+    private static final int BINARY_CHECK_LENGTH = 8000;
+    
+    /**
+     * Number of characters shown on each side of a match.
+     */
+    private static final int SNIPPET_CONTEXT = 30;
+    
+    /**
+     * Number of files searched by a task before it is split.
+     */
+    private static final int FILES_PER_TASK = 4;
+    
+    private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+    
     /**
      * Search the given text in files recursively in given search directories
      *
@@ -55,71 +95,368 @@ public class RecursiveFileSearcher {
      * @param exts Extentions of file to search. Maybe null.
      * @param searchDirs Directories to search in. Subdirectories will be included
      * @param callback A listener that will listen to the search result
+     * @return The running search, or {@code null} if nothing can be searched.
      */
-    public static void searchRecursiveAsync(String text, List<String> exts, List<File> searchDirs, Callback callback) {
+    public static Search searchRecursiveAsync(String text, List<String> exts, List<File> searchDirs, Callback callback) {
+        return searchRecursiveAsync(text, false, exts, searchDirs, callback);
+    }
+    
+    /**
+     * Search the given text in files recursively in given search directories
+     *
+     * @param text Text or regular expression to search
+     * @param regex Whether the text is a regular expression
+     * @param exts Extentions of file to search. Maybe null.
+     * @param searchDirs Directories to search in. Subdirectories will be included
+     * @param callback A listener that will listen to the search result
+     * @return The running search, or {@code null} if nothing can be searched.
+     * @throws java.util.regex.PatternSyntaxException If the regular expression is invalid.
+     */
+    public static Search searchRecursiveAsync(String text, boolean regex, List<String> exts, List<File> searchDirs, Callback callback) {
         // Cannot search empty or null text
         if(text == null || text.isEmpty()) {
-            return;
+            return null;
         }
         
         // If there is no listener to the search, search is meaningless
         if(callback == null) {
-            return;
+            return null;
         }
            
         // Avoid searching if no directories are specified
         if(searchDirs == null || searchDirs.isEmpty()) {
-            return;
+            return null;
         }
         
-        new TaskExecutor().executeAsync(new Searcher(text, exts, searchDirs), result -> callback.onResult(result));
+        final Search search = new Search(regex ? null : text.getBytes(StandardCharsets.UTF_8), regex ? Pattern.compile(text) : null, exts, searchDirs, callback);
+        POOL.execute(search::run);
+        return search;
     }
     
-    private static class Searcher implements Callable<Map<File, List<SearchResult>>> {
+    /**
+     * A running search.
+     */
+    public static class Search {
         
-        private final String query;
+        private final byte[] literal;
+        private final int[] shift;
+        private final Pattern pattern;
         private final List<String> exts;
         private final List<File> dirs;
+        private final Callback callback;
+        private final AtomicInteger matchedFiles = new AtomicInteger();
+        private final AtomicInteger matchCount = new AtomicInteger();
+        private volatile boolean cancelled;
 
-        public Searcher(String query, List<String> exts, List<File> dirs) {
-            this.query = query;
+        private Search(byte[] literal, Pattern pattern, List<String> exts, List<File> dirs, Callback callback) {
+            this.literal = literal;
+            this.shift = literal == null ? null : createShiftTable(literal);
+            this.pattern = pattern;
             this.exts = exts;
             this.dirs = dirs;
+            this.callback = callback;
         }
         
-        @Override
-        public Map<File, List<SearchResult>> call() throws Exception {
-            final Map<File, List<SearchResult>> result = new HashMap<>();
-            for(int i=0;i<dirs.size();i++) {
-                final File dir = dirs.get(i);
-                final List<File> files = FileUtils.listFilesInDirWithFilter(dir, new MultiFileFilter(exts), true);
-                for(int j=0;files != null && j < files.size();j++) {
-                    final File file = files.get(j);
-                    if(file.isDirectory()) continue;
-                    final String text = FileIOUtils.readFile2String(file);
-                    if(text == null || text.trim().isEmpty()) continue;
-                    final Content content = new Content(null, text);
-                    final List<SearchResult> ranges = new ArrayList<>();
-                    Matcher matcher = Pattern.compile(Pattern.quote(this.query)).matcher(text);
-                    while(matcher.find()) {
-                        final Range range = new Range();
-                        final CharPosition start = content.getIndexer().getCharPosition(matcher.start());
-                        final CharPosition end = content.getIndexer().getCharPosition(matcher.end());
-                        range.setStart(new Position(start.line, start.column));
-                        range.setEnd(new Position(end.line, end.column));
-                        String sub = "...".concat(text.substring(Math.max(0, matcher.start() - 30), Math.min(matcher.end() + 31, text.length()))).trim().concat("...");
-                        String match = content.subContent(start.line, start.column, end.line, end.column).toString();
-                        ranges.add(new SearchResult(range, file, sub.replaceAll("\\s+", " "), match));
+        /**
+         * Stop the search. Files that are being searched are finished, but their results are not sent.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+        
+        private void run() {
+            final long start = System.currentTimeMillis();
+            List<File> files = new ArrayList<>();
+            for(File dir : dirs) {
+                final List<File> found = listFiles(dir);
+                if(found != null) {
+                    files.addAll(found);
+                }
+            }
+            
+            // Only search the files that can contain the text, if the trigram index is available
+            if(literal != null) {
+                final List<File> candidates = TrigramIndex.getInstance().filter(files, literal);
+                if(candidates != null) {
+                    files = candidates;
+                }
+            }
+            
+            try {
+                new SearchTask(this, files, 0, files.size()).invoke();
+            } catch (Throwable th) {
+                logger.error("Search failed", th);
+            }
+            
+            logger.debug("Searched", files.size(), "files in", System.currentTimeMillis() - start, "ms. Found", matchCount.get(), "matches in", matchedFiles.get(), "files");
+            ThreadUtils.runOnUiThread(() -> callback.onComplete(matchedFiles.get(), matchCount.get(), cancelled));
+        }
+        
+        /**
+         * List the files to search in the given directory. The workspace index is used if it
+         * covers the directory, so that the directory does not need to be walked again.
+         */
+        private List<File> listFiles(File dir) {
+            final List<File> indexed = WorkspaceIndex.getInstance().listFiles(dir, exts);
+            if(indexed != null) {
+                return indexed;
+            }
+            final List<File> files = new ArrayList<>();
+            collectFiles(dir, new MultiFileFilter(exts), files);
+            return files;
+        }
+        
+        private void collectFiles(File dir, FileFilter filter, List<File> files) {
+            final File[] children = dir.listFiles(filter);
+            if(children == null) {
+                return;
+            }
+            
+            for(File child : children) {
+                if(child.isDirectory()) {
+                    collectFiles(child, filter, files);
+                } else {
+                    files.add(child);
+                }
+            }
+        }
+        
+        private void search(File file) {
+            if(cancelled) {
+                return;
+            }
+            
+            final List<SearchResult> results;
+            try {
+                results = pattern == null ? searchLiteral(file) : searchRegex(file);
+            } catch (IOException e) {
+                logger.warn("Unable to search in file", file, e);
+                return;
+            }
+            
+            if(results == null || results.isEmpty() || cancelled) {
+                return;
+            }
+            
+            matchedFiles.incrementAndGet();
+            matchCount.addAndGet(results.size());
+            ThreadUtils.runOnUiThread(() -> {
+                if(!cancelled) {
+                    callback.onFileResult(file, results);
+                }
+            });
+        }
+        
+        private List<SearchResult> searchLiteral(File file) throws IOException {
+            final ByteBuffer data = read(file);
+            if(data == null) {
+                return null;
+            }
+            
+            List<SearchResult> results = null;
+            final LineCounter counter = new LineCounter(data);
+            final int length = data.limit();
+            final int last = literal.length - 1;
+            int pos = 0;
+            while(pos <= length - literal.length) {
+                int i = last;
+                while(i >= 0 && data.get(pos + i) == literal[i]) {
+                    i--;
+                }
+                
+                if(i < 0) {
+                    final int end = pos + literal.length;
+                    final Position startPos = counter.advance(pos);
+                    final Position endPos = counter.advance(end);
+                    if(results == null) {
+                        results = new ArrayList<>();
                     }
-                    if(ranges.size() > 0) {
-                        result.put(file, ranges);
+                    results.add(new SearchResult(new Range(startPos, endPos), file, snippet(data, pos, end), new String(literal, StandardCharsets.UTF_8)));
+                    pos = end;
+                } else {
+                    pos += shift[data.get(pos + last) & 0xff];
+                }
+            }
+            return results;
+        }
+        
+        private List<SearchResult> searchRegex(File file) throws IOException {
+            final ByteBuffer data = read(file);
+            if(data == null) {
+                return null;
+            }
+            
+            final CharBuffer text = StandardCharsets.UTF_8.decode(data);
+            final Matcher matcher = pattern.matcher(text);
+            List<SearchResult> results = null;
+            int line = 0;
+            int lineStart = 0;
+            int scanned = 0;
+            while(matcher.find()) {
+                if(cancelled) {
+                    return null;
+                }
+                if(matcher.end() == matcher.start()) {
+                    // Empty matches are not useful
+                    continue;
+                }
+                
+                final int[] offsets = {matcher.start(), matcher.end()};
+                final Position[] positions = new Position[2];
+                for(int k = 0; k < 2; k++) {
+                    for(; scanned < offsets[k]; scanned++) {
+                        if(text.get(scanned) == '\n') {
+                            line++;
+                            lineStart = scanned + 1;
+                        }
                     }
+                    positions[k] = new Position(line, offsets[k] - lineStart);
+                }
+                
+                final int from = Math.max(0, matcher.start() - SNIPPET_CONTEXT);
+                final int to = Math.min(text.length(), matcher.end() + SNIPPET_CONTEXT + 1);
+                if(results == null) {
+                    results = new ArrayList<>();
+                }
+                results.add(new SearchResult(new Range(positions[0], positions[1]), file, formatSnippet(text.subSequence(from, to).toString()), matcher.group()));
+            }
+            return results;
+        }
+    }
+    
+    /**
+     * Splits the list of files until there are only a few files to search, so that idle threads can
+     * steal the remaining work.
+     */
+    private static class SearchTask extends RecursiveAction {
+        
+        private final Search search;
+        private final List<File> files;
+        private final int from;
+        private final int to;
+
+        SearchTask(Search search, List<File> files, int from, int to) {
+            this.search = search;
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if(search.cancelled) {
+                return;
+            }
+            
+            if(to - from <= FILES_PER_TASK) {
+                for(int i = from; i < to; i++) {
+                    search.search(files.get(i));
                 }
+                return;
             }
-            return result;
+            
+            final int mid = (from + to) >>> 1;
+            invokeAll(new SearchTask(search, files, from, mid), new SearchTask(search, files, mid, to));
         }
     }
     
+    /**
+     * Computes line and column of increasing byte offsets with a single scan. Columns are counted in
+     * UTF-16 units, like the positions in the editor.
+     */
+    private static class LineCounter {
+        
+        private final ByteBuffer data;
+        private int line = 0;
+        private int column = 0;
+        private int offset = 0;
+
+        LineCounter(ByteBuffer data) {
+            this.data = data;
+        }
+        
+        Position advance(int target) {
+            for(; offset < target; offset++) {
+                final int b = data.get(offset) & 0xff;
+                if(b == '\n') {
+                    line++;
+                    column = 0;
+                } else if((b & 0xc0) != 0x80) {
+                    // Characters outside the BMP take two UTF-16 units
+                    column += (b & 0xf8) == 0xf0 ? 2 : 1;
+                }
+            }
+            return new Position(line, column);
+        }
+    }
+    
+    /**
+     * Read the given file. Large files are memory mapped.
+     *
+     * @return The contents, or {@code null} if the file is too big or is a binary file.
+     */
+    private static ByteBuffer read(File file) throws IOException {
+        try(FileInputStream in = new FileInputStream(file); FileChannel channel = in.getChannel()) {
+            final long size = channel.size();
+            if(size <= 0 || size > MAX_FILE_SIZE) {
+                return null;
+            }
+            
+            final ByteBuffer data;
+            if(size >= MAP_THRESHOLD) {
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                data = ByteBuffer.allocate((int) size);
+                while(data.hasRemaining() && channel.read(data) != -1);
+                data.flip();
+            }
+            
+            final int check = Math.min(data.limit(), BINARY_CHECK_LENGTH);
+            for(int i = 0; i < check; i++) {
+                if(data.get(i) == 0) {
+                    return null;
+                }
+            }
+            return data;
+        }
+    }
+    
+    private static int[] createShiftTable(byte[] pattern) {
+        final int[] shift = new int[256];
+        Arrays.fill(shift, pattern.length);
+        for(int i = 0; i < pattern.length - 1; i++) {
+            shift[pattern[i] & 0xff] = pattern.length - 1 - i;
+        }
+        return shift;
+    }
+    
+    private static String snippet(ByteBuffer data, int start, int end) {
+        int from = Math.max(0, start - SNIPPET_CONTEXT);
+        int to = Math.min(data.limit(), end + SNIPPET_CONTEXT + 1);
+        
+        // Do not cut characters in half
+        while(from > 0 && (data.get(from) & 0xc0) == 0x80) {
+            from--;
+        }
+        while(to < data.limit() && (data.get(to) & 0xc0) == 0x80) {
+            to++;
+        }
+        
+        final byte[] bytes = new byte[to - from];
+        for(int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(from + i);
+        }
+        return formatSnippet(new String(bytes, StandardCharsets.UTF_8));
+    }
+    
+    private static String formatSnippet(String text) {
+        return "...".concat(text).trim().concat("...").replaceAll("\\s+", " ");
+    }
+    
     private static class MultiFileFilter implements FileFilter {
         
         private final List<String> exts;
@@ -130,23 +467,38 @@ public class RecursiveFileSearcher {
         
         @Override
         public boolean accept(File file) {
-            boolean accept = false;
-            if(exts == null || exts.isEmpty() || file.isDirectory()) {
-                accept = true;
-            } else {
-                for(String ext : exts) {
-                    if(file.getName().endsWith(ext)) {
-                        accept = true;
-                        break;
-                    }
-                }
+            if(file.isDirectory()) {
+                // Build outputs and hidden directories are not searched
+                return !file.getName().equals("build") && !file.getName().startsWith(".");
+            }
+            
+            if(exts == null || exts.isEmpty()) {
+                return true;
             }
             
-            return accept && FileUtils.isUtf8(file);
+            for(String ext : exts) {
+                if(file.getName().endsWith(ext)) {
+                    return true;
+                }
+            }
+            return false;
         }
     }
     
     public static interface Callback {
-        void onResult(Map<File, List<SearchResult>> results);
+        
+        /**
+         * Called on the main thread for every file that has matches.
+         */
+        void onFileResult(File file, List<SearchResult> results);
+        
+        /**
+         * Called on the main thread once all the files have been searched, or the search was cancelled.
+         *
+         * @param files The number of files with matches.
+         * @param matches The total number of matches.
+         * @param cancelled Whether the search was cancelled.
+         */
+        default void onComplete(int files, int matches, boolean cancelled) {}
     }
 }
@@ -200,7 +200,7 @@ public class TextAnalyzer {
                         }
                     } while (waiting);
                     
-                    LOG.debug ("Text analyzed, spans: " + colors.mSpanMap);
+                    LOG.debug (() -> "Text analyzed, spans: " + colors.mSpanMap);
                     
                     mObjContainer.blockLines = mResult.mBlocks;
                     mObjContainer.spanMap = mResult.mSpanMap;
@@ -0,0 +1,243 @@
+/*
+ *  This file is part of AndroidIDE.
+ *
+ *  AndroidIDE is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  AndroidIDE is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *   along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.gradle.tooling.BuildCancelledException;
+import org.gradle.tooling.BuildLauncher;
+import org.gradle.tooling.CancellationTokenSource;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProjectConnection;
+import org.gradle.tooling.ResultHandler;
+import org.gradle.tooling.events.OperationType;
+import org.gradle.tooling.events.ProgressEvent;
+import org.gradle.tooling.events.task.TaskFailureResult;
+import org.gradle.tooling.events.task.TaskFinishEvent;
+import org.gradle.tooling.events.task.TaskOperationDescriptor;
+import org.gradle.tooling.events.task.TaskOperationResult;
+import org.gradle.tooling.events.task.TaskSkippedResult;
+import org.gradle.tooling.events.task.TaskStartEvent;
+import org.gradle.tooling.events.task.TaskSuccessResult;
+
+/**
+ * Build session used by AndroidIDE. Keeps a connection to a Gradle daemon open, through the
+ * Tooling API of the installed Gradle distribution, and runs the builds requested on the
+ * standard input.
+ *
+ * Started by AndroidIDE as a single-file program:
+ *   java -cp <gradle home>/lib/* GradleSessionServer.java <project dir> <gradle home> <gradle user home>
+ *
+ * Commands are read one per line, with tab separated fields:
+ *   build    <id> <task>... -- <argument>...
+ *   cancel   <id>
+ *   exit
+ *
+ * Events are written one per line, with tab separated fields:
+ *   ready
+ *   error          <message>
+ *   output         <line>
+ *   started        <id>
+ *   task-started   <id> <path>
+ *   task-finished  <id> <path> <outcome> <duration in ms>
+ *   finished       <id> <success|failed|cancelled> <duration in ms> <message>
+ *
+ * DO NOT MODIFY
+ * Unless you know what this does.
+ */
+public class GradleSessionServer {
+
+    private static final PrintStream OUT = new PrintStream(System.out, true);
+    private static final Map<String, CancellationTokenSource> BUILDS = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        final GradleConnector connector = GradleConnector.newConnector()
+                .forProjectDirectory(new File(args[0]))
+                .useInstallation(new File(args[1]));
+        if (args.length > 2) {
+            connector.useGradleUserHomeDir(new File(args[2]));
+        }
+
+        final ProjectConnection connection;
+        try {
+            connection = connector.connect();
+        } catch (Exception e) {
+            send("error", String.valueOf(e.getMessage()));
+            System.exit(1);
+            return;
+        }
+
+        send("ready");
+        try {
+            final BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                final String[] command = line.split("\t");
+                if ("build".equals(command[0]) && command.length > 1) {
+                    build(connection, command);
+                } else if ("cancel".equals(command[0]) && command.length > 1) {
+                    final CancellationTokenSource build = BUILDS.get(command[1]);
+                    if (build != null) {
+                        build.cancel();
+                    }
+                } else if ("exit".equals(command[0])) {
+                    break;
+                }
+            }
+        } finally {
+            for (CancellationTokenSource build : BUILDS.values()) {
+                build.cancel();
+            }
+            connection.close();
+        }
+        System.exit(0);
+    }
+
+    private static void build(ProjectConnection connection, String[] command) {
+        final String id = command[1];
+        final List<String> tasks = new ArrayList<>();
+        final List<String> arguments = new ArrayList<>();
+        List<String> target = tasks;
+        for (int i = 2; i < command.length; i++) {
+            if (target == tasks && "--".equals(command[i])) {
+                target = arguments;
+            } else {
+                target.add(command[i]);
+            }
+        }
+
+        final CancellationTokenSource cancellation = GradleConnector.newCancellationTokenSource();
+        BUILDS.put(id, cancellation);
+
+        final BuildLauncher launcher = connection.newBuild()
+                .forTasks(tasks.toArray(new String[0]))
+                .withArguments(arguments.toArray(new String[0]))
+                .withCancellationToken(cancellation.token())
+                .setStandardOutput(new LineOutputStream())
+                .setStandardError(new LineOutputStream())
+                .setColorOutput(false);
+        launcher.addProgressListener(event -> onProgress(id, event), EnumSet.of(OperationType.TASK));
+
+        final long start = System.currentTimeMillis();
+        send("started", id);
+        launcher.run(new ResultHandler<Void>() {
+            @Override
+            public void onComplete(Void result) {
+                BUILDS.remove(id);
+                send("finished", id, "success", String.valueOf(System.currentTimeMillis() - start), "");
+            }
+
+            @Override
+            public void onFailure(GradleConnectionException failure) {
+                BUILDS.remove(id);
+                final String result = failure instanceof BuildCancelledException ? "cancelled" : "failed";
+                send("finished", id, result, String.valueOf(System.currentTimeMillis() - start), rootMessage(failure));
+            }
+        });
+    }
+
+    private static void onProgress(String id, ProgressEvent event) {
+        if (!(event.getDescriptor() instanceof TaskOperationDescriptor)) {
+            return;
+        }
+
+        final String path = ((TaskOperationDescriptor) event.getDescriptor()).getTaskPath();
+        if (event instanceof TaskStartEvent) {
+            send("task-started", id, path);
+        } else if (event instanceof TaskFinishEvent) {
+            final TaskOperationResult result = ((TaskFinishEvent) event).getResult();
+            send("task-finished", id, path, outcome(result), String.valueOf(result.getEndTime() - result.getStartTime()));
+        }
+    }
+
+    /**
+     * @return The outcome of a task, as printed by the command line, like {@code UP-TO-DATE}.
+     */
+    private static String outcome(TaskOperationResult result) {
+        if (result instanceof TaskFailureResult) {
+            return "FAILED";
+        } else if (result instanceof TaskSkippedResult) {
+            return ((TaskSkippedResult) result).getSkipMessage();
+        } else if (result instanceof TaskSuccessResult) {
+            final TaskSuccessResult success = (TaskSuccessResult) result;
+            if (success.isFromCache()) {
+                return "FROM-CACHE";
+            }
+            return success.isUpToDate() ? "UP-TO-DATE" : "SUCCESS";
+        }
+        return "UNKNOWN";
+    }
+
+    private static String rootMessage(Throwable failure) {
+        Throwable cause = failure;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return String.valueOf(cause.getMessage());
+    }
+
+    private static synchronized void send(String... fields) {
+        final StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            // Fields cannot contain the separators
+            line.append(fields[i].replace('\t', ' ').replace('\r', ' ').replace('\n', ' '));
+        }
+        OUT.println(line);
+    }
+
+    /**
+     * Sends the output of a build line by line.
+     */
+    private static class LineOutputStream extends OutputStream {
+
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        @Override
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                flushLine();
+            } else {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            if (line.size() > 0) {
+                flushLine();
+            }
+        }
+
+        private void flushLine() {
+            send("output", new String(line.toByteArray(), StandardCharsets.UTF_8));
+            line.reset();
+        }
+    }
+}
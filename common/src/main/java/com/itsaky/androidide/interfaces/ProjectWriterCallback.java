@@ -22,6 +22,15 @@ import java.io.File;
 public interface ProjectWriterCallback {
 	public void beforeBegin();
 	public void onProcessTask(String taskName);
+	
+	/**
+	 * Called when the progress of the current task changes.
+	 *
+	 * @param written Number of bytes processed so far.
+	 * @param total Total number of bytes to process.
+	 */
+	public default void onProgress(long written, long total) {}
+	
 	public void onSuccess(File rootDir);
 	public void onFailed(String reason);
 }
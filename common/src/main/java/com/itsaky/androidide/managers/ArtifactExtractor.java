@@ -0,0 +1,715 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.managers;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.system.ErrnoException;
+import android.system.Os;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.itsaky.androidide.utils.Environment;
+import com.itsaky.androidide.utils.Logger;
+import com.itsaky.androidide.utils.TarReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Installs artifacts such as tools, archives and scripts.
+ *
+ * Artifacts are installed in parallel. For every artifact, a small state file records the
+ * stamp, length and SHA-256 hash of the source and how many entries have been written:
+ * <ul>
+ *     <li>If the stamp and length of the source have not changed since the artifact was
+ *     installed, it is skipped without reading the source.</li>
+ *     <li>If they have changed, the source is hashed first and the artifact is only extracted
+ *     again if its content has actually changed.</li>
+ *     <li>If an extraction was interrupted, it resumes after the last recorded entry.</li>
+ * </ul>
+ * The progress of all artifacts is reported as a single byte count.
+ *
+ * @author Akash Yadav
+ */
+public class ArtifactExtractor {
+
+    private static final int CHECKPOINT_INTERVAL = 200;
+    private static final Logger LOG = Logger.instance("ArtifactExtractor");
+
+    private final File stateDir;
+    private final int threads;
+
+    public ArtifactExtractor(@NonNull File stateDir) {
+        this(stateDir, Math.max(2, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public ArtifactExtractor(@NonNull File stateDir, int threads) {
+        this.stateDir = stateDir;
+        this.threads = threads;
+    }
+
+    /**
+     * Install the given artifacts and wait until all of them are done.
+     *
+     * @param listener Notified about the progress from the worker threads. May be null.
+     */
+    @NonNull
+    public Result run(@NonNull List<? extends Artifact> artifacts, @Nullable ProgressListener listener) throws InterruptedException {
+        final long start = System.currentTimeMillis();
+        final Result result = new Result();
+        if (artifacts.isEmpty()) {
+            return result;
+        }
+
+        long total = 0;
+        for (Artifact artifact : artifacts) {
+            total += Math.max(0, artifact.source.length());
+        }
+
+        final Progress progress = new Progress(total, listener);
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, artifacts.size()));
+        try {
+            final Map<Artifact, Future<Boolean>> futures = new LinkedHashMap<>();
+            for (Artifact artifact : artifacts) {
+                futures.put(artifact, executor.submit(() -> install(artifact, progress)));
+            }
+
+            for (Map.Entry<Artifact, Future<Boolean>> entry : futures.entrySet()) {
+                final String id = entry.getKey().id;
+                try {
+                    (entry.getValue().get() ? result.extracted : result.skipped).add(id);
+                } catch (ExecutionException e) {
+                    LOG.error("Unable to install", id, e.getCause());
+                    result.failed.put(id, e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        result.durationMillis = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /**
+     * @return {@code true} if the artifact was extracted, {@code false} if it was up to date.
+     */
+    private boolean install(Artifact artifact, Progress progress) throws IOException {
+        final State state = State.load(new File(stateDir, artifact.id + ".state"));
+        final long length = artifact.source.length();
+        final long stamp = artifact.source.stamp();
+
+        if (state.complete && state.probe != null && new File(state.probe).exists()) {
+            if (state.stamp == stamp && state.length == length) {
+                progress.add(Math.max(0, length));
+                return false;
+            }
+
+            if (hash(artifact.source).equals(state.hash)) {
+                state.stamp = stamp;
+                state.length = length;
+                state.save();
+                progress.add(Math.max(0, length));
+                return false;
+            }
+        }
+
+        final boolean resume = !state.complete && state.stamp == stamp && state.length == length;
+        final int resumeFrom = resume ? state.entries : 0;
+        state.complete = false;
+        state.stamp = stamp;
+        state.length = length;
+        state.entries = resumeFrom;
+        state.save();
+
+        final MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(progress.count(artifact.source.open()), digest)) {
+            final File probe = artifact.extract(in, resumeFrom, entries -> {
+                state.entries = entries;
+                if (entries % CHECKPOINT_INTERVAL == 0) {
+                    try {
+                        state.save();
+                    } catch (IOException e) {
+                        LOG.warn("Unable to save the state of", artifact.id, e);
+                    }
+                }
+            });
+
+            // The whole source is hashed, even if the extractor did not read all of it
+            drain(in);
+            state.probe = probe == null ? null : probe.getAbsolutePath();
+        }
+
+        state.hash = toHex(digest.digest());
+        state.complete = true;
+        state.save();
+        return true;
+    }
+
+    private static String hash(Source source) throws IOException {
+        final MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(source.open(), digest)) {
+            drain(in);
+        }
+        return toHex(digest.digest());
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        final byte[] buffer = new byte[8192];
+        while (in.read(buffer) != -1) {
+            // Only read for the digest
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    static void copy(InputStream in, OutputStream out) throws IOException {
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * Source of an asset. The stamp is the last update time of the application,
+     * as assets can only change when the application is updated.
+     */
+    @NonNull
+    public static Source assetSource(@NonNull Context context, @NonNull String path) {
+        long stamp;
+        try {
+            stamp = context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (Throwable th) {
+            stamp = -1;
+        }
+
+        long length;
+        try (AssetFileDescriptor fd = context.getAssets().openFd(path)) {
+            length = fd.getLength();
+        } catch (IOException e) {
+            // Compressed assets cannot be opened as a file descriptor
+            length = -1;
+        }
+
+        final long finalStamp = stamp;
+        final long finalLength = length;
+        return new Source() {
+            @Override
+            public InputStream open() throws IOException {
+                return context.getAssets().open(path);
+            }
+
+            @Override
+            public long length() {
+                return finalLength;
+            }
+
+            @Override
+            public long stamp() {
+                return finalStamp;
+            }
+        };
+    }
+
+    /**
+     * Source of a file. The stamp is its last modified time.
+     */
+    @NonNull
+    public static Source fileSource(@NonNull File file) {
+        return new Source() {
+            @Override
+            public InputStream open() throws IOException {
+                return new FileInputStream(file);
+            }
+
+            @Override
+            public long length() {
+                return file.length();
+            }
+
+            @Override
+            public long stamp() {
+                return file.lastModified();
+            }
+        };
+    }
+
+    public interface ProgressListener {
+
+        /**
+         * @param done Number of bytes processed, over all artifacts.
+         * @param total Number of bytes to process, or 0 if unknown.
+         */
+        void onProgress(long done, long total);
+    }
+
+    public interface Source {
+
+        InputStream open() throws IOException;
+
+        /**
+         * @return The length of the source, or -1 if it is not known.
+         */
+        long length();
+
+        /**
+         * @return A value which changes whenever the content of the source may have changed.
+         */
+        long stamp();
+    }
+
+    public static abstract class Artifact {
+
+        protected final String id;
+        protected final Source source;
+
+        protected Artifact(@NonNull String id, @NonNull Source source) {
+            this.id = id;
+            this.source = source;
+        }
+
+        /**
+         * Extract the artifact from the given stream.
+         *
+         * @param in The content of the source.
+         * @param resumeFrom Number of entries that were already written by an interrupted extraction.
+         *                   These entries must be skipped.
+         * @param checkpoint Must be called with the number of entries written after each entry.
+         * @return A file which exists as long as the artifact is installed.
+         */
+        @Nullable
+        protected abstract File extract(InputStream in, int resumeFrom, IntConsumer checkpoint) throws IOException;
+    }
+
+    /**
+     * Copies the source to a file. The file is written next to the target first and then
+     * renamed, so an interrupted copy never leaves a partial file behind.
+     */
+    public static class CopyArtifact extends Artifact {
+
+        private final File target;
+        private final boolean executable;
+
+        public CopyArtifact(@NonNull String id, @NonNull Source source, @NonNull File target, boolean executable) {
+            super(id, source);
+            this.target = target;
+            this.executable = executable;
+        }
+
+        @Override
+        protected File extract(InputStream in, int resumeFrom, IntConsumer checkpoint) throws IOException {
+            Environment.mkdirIfNotExits(target.getParentFile());
+            final File part = new File(target.getParentFile(), target.getName() + ".part");
+            try (OutputStream out = new FileOutputStream(part)) {
+                copy(in, out);
+            }
+            if (!part.renameTo(target)) {
+                throw new IOException("Unable to rename " + part + " to " + target);
+            }
+            if (executable) {
+                target.setExecutable(true);
+            }
+            checkpoint.accept(1);
+            return target;
+        }
+    }
+
+    /**
+     * Extracts a zip archive into a directory.
+     */
+    public static class ZipArtifact extends Artifact {
+
+        private final File destination;
+
+        public ZipArtifact(@NonNull String id, @NonNull Source source, @NonNull File destination) {
+            super(id, source);
+            this.destination = destination;
+        }
+
+        @Override
+        protected File extract(InputStream in, int resumeFrom, IntConsumer checkpoint) throws IOException {
+            final ZipInputStream zip = new ZipInputStream(new BufferedInputStream(in));
+            File probe = null;
+            int index = 0;
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                final File out = resolve(destination, entry.getName());
+                if (out != null && index >= resumeFrom) {
+                    if (entry.isDirectory()) {
+                        out.mkdirs();
+                    } else {
+                        Environment.mkdirIfNotExits(out.getParentFile());
+                        try (OutputStream stream = new FileOutputStream(out)) {
+                            copy(zip, stream);
+                        }
+                    }
+                }
+                if (probe == null && out != null && !entry.isDirectory()) {
+                    probe = out;
+                }
+                checkpoint.accept(++index);
+            }
+            return probe;
+        }
+    }
+
+    /**
+     * Extracts an xz compressed tar archive into a directory.
+     *
+     * The archive is decompressed by busybox, as there is no xz decoder in the platform.
+     * The tar stream is read in this process, so the entries are not listed by the command
+     * and modes, symbolic links and hard links are restored here.
+     */
+    public static class TarXzArtifact extends Artifact {
+
+        private final File destination;
+
+        public TarXzArtifact(@NonNull String id, @NonNull Source source, @NonNull File destination) {
+            super(id, source);
+            this.destination = destination;
+        }
+
+        @Override
+        protected File extract(InputStream in, int resumeFrom, IntConsumer checkpoint) throws IOException {
+            final Process process = new ProcessBuilder(Environment.BUSYBOX.getAbsolutePath(), "xzcat").start();
+            final IOException[] pumpError = new IOException[1];
+            final Thread pump = new Thread(() -> {
+                try (OutputStream out = process.getOutputStream()) {
+                    copy(in, out);
+                } catch (IOException e) {
+                    pumpError[0] = e;
+                }
+            }, "TarXzPump-" + id);
+            final Thread errors = new Thread(() -> {
+                try (InputStream err = process.getErrorStream()) {
+                    final byte[] message = new byte[4096];
+                    int read;
+                    while ((read = err.read(message)) != -1) {
+                        LOG.warn(id, new String(message, 0, read));
+                    }
+                } catch (IOException ignored) {
+                }
+            }, "TarXzErrors-" + id);
+            pump.start();
+            errors.start();
+
+            File probe = null;
+            try (InputStream tar = new BufferedInputStream(process.getInputStream(), 64 * 1024)) {
+                final TarReader reader = new TarReader(tar);
+                int index = 0;
+                TarReader.Entry entry;
+                while ((entry = reader.next()) != null) {
+                    final File out = resolve(destination, entry.name);
+                    if (out != null && index >= resumeFrom) {
+                        write(reader, entry, out);
+                    }
+                    if (probe == null && out != null && entry.isFile()) {
+                        probe = out;
+                    }
+                    checkpoint.accept(++index);
+                }
+
+                // Read the padding after the end of the archive so that xzcat can exit
+                drain(tar);
+                pump.join();
+                final int exit = process.waitFor();
+                if (pumpError[0] != null) {
+                    throw pumpError[0];
+                }
+                if (exit != 0) {
+                    throw new IOException("xzcat exited with code " + exit);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            } finally {
+                process.destroy();
+            }
+            return probe;
+        }
+
+        private void write(TarReader reader, TarReader.Entry entry, File out) throws IOException {
+            try {
+                if (entry.isDirectory()) {
+                    out.mkdirs();
+                    chmod(out, entry.mode);
+                } else if (entry.isSymlink()) {
+                    Environment.mkdirIfNotExits(out.getParentFile());
+                    out.delete();
+                    Os.symlink(entry.linkName, out.getAbsolutePath());
+                } else if (entry.isHardLink()) {
+                    final File target = resolve(destination, entry.linkName);
+                    if (target != null) {
+                        out.delete();
+                        Os.link(target.getAbsolutePath(), out.getAbsolutePath());
+                    }
+                } else if (entry.isFile()) {
+                    Environment.mkdirIfNotExits(out.getParentFile());
+                    out.delete();
+                    try (OutputStream stream = new FileOutputStream(out)) {
+                        copy(reader.content(), stream);
+                    }
+                    chmod(out, entry.mode);
+                }
+            } catch (ErrnoException e) {
+                throw new IOException("Unable to write " + out, e);
+            }
+        }
+    }
+
+    private static void chmod(File file, int mode) throws ErrnoException {
+        // Some archives do not store modes. Keep the defaults for those.
+        if ((mode & 0777) != 0) {
+            Os.chmod(file.getAbsolutePath(), mode & 07777);
+        }
+    }
+
+    /**
+     * Runs a command once the source has been read. Used for archives which can only be
+     * extracted by an external tool.
+     */
+    public static class CommandArtifact extends Artifact {
+
+        private final File probe;
+        private final File workingDir;
+        private final String[] command;
+
+        public CommandArtifact(@NonNull String id, @NonNull Source source, @NonNull File probe, @NonNull File workingDir, @NonNull String... command) {
+            super(id, source);
+            this.probe = probe;
+            this.workingDir = workingDir;
+            this.command = command;
+        }
+
+        @Override
+        protected File extract(InputStream in, int resumeFrom, IntConsumer checkpoint) throws IOException {
+            drain(in);
+            final Process process = new ProcessBuilder(command)
+                .directory(Environment.mkdirIfNotExits(workingDir))
+                .redirectErrorStream(true)
+                .start();
+            try (InputStream output = process.getInputStream()) {
+                drain(output);
+                final int exit = process.waitFor();
+                if (exit != 0) {
+                    throw new IOException(command[0] + " exited with code " + exit);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted", e);
+            }
+            checkpoint.accept(1);
+            return probe;
+        }
+    }
+
+    /**
+     * Resolve the entry name against the directory. Returns {@code null} for names which
+     * would resolve outside of the directory.
+     */
+    @Nullable
+    static File resolve(File dir, String name) {
+        for (String segment : name.split("/")) {
+            if (segment.equals("..")) {
+                return null;
+            }
+        }
+        return new File(dir, name);
+    }
+
+    public static class Result {
+
+        private final List<String> extracted = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> skipped = Collections.synchronizedList(new ArrayList<>());
+        private final Map<String, Throwable> failed = Collections.synchronizedMap(new LinkedHashMap<>());
+        private long durationMillis;
+
+        public List<String> getExtracted() {
+            return extracted;
+        }
+
+        public List<String> getSkipped() {
+            return skipped;
+        }
+
+        public Map<String, Throwable> getFailed() {
+            return failed;
+        }
+
+        public boolean isSuccessful() {
+            return failed.isEmpty();
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "extracted=" + extracted + ", skipped=" + skipped + ", failed=" + failed.keySet() + ", took " + durationMillis + "ms";
+        }
+    }
+
+    private static class Progress {
+
+        private final long total;
+        private final ProgressListener listener;
+        private final AtomicLong done = new AtomicLong();
+        private volatile int lastPermille = -1;
+
+        Progress(long total, ProgressListener listener) {
+            this.total = total;
+            this.listener = listener;
+        }
+
+        void add(long bytes) {
+            final long value = done.addAndGet(bytes);
+            if (listener == null) {
+                return;
+            }
+
+            // Report at most 1000 times, however many bytes are read
+            final int permille = total <= 0 ? 0 : (int) Math.min(1000, value * 1000 / total);
+            if (permille != lastPermille) {
+                lastPermille = permille;
+                listener.onProgress(value, total);
+            }
+        }
+
+        InputStream count(InputStream in) {
+            return new FilterInputStream(in) {
+
+                @Override
+                public int read() throws IOException {
+                    final int b = super.read();
+                    if (b != -1) {
+                        add(1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    final int read = super.read(b, off, len);
+                    if (read > 0) {
+                        add(read);
+                    }
+                    return read;
+                }
+            };
+        }
+    }
+
+    private static class State {
+
+        final File file;
+        long stamp = Long.MIN_VALUE;
+        long length = -1;
+        String hash;
+        String probe;
+        int entries = 0;
+        boolean complete = false;
+
+        State(File file) {
+            this.file = file;
+        }
+
+        static State load(File file) {
+            final State state = new State(file);
+            if (!file.exists()) {
+                return state;
+            }
+
+            final Properties props = new Properties();
+            try (InputStream in = new FileInputStream(file)) {
+                props.load(in);
+                state.stamp = Long.parseLong(props.getProperty("stamp", String.valueOf(Long.MIN_VALUE)));
+                state.length = Long.parseLong(props.getProperty("length", "-1"));
+                state.hash = props.getProperty("hash");
+                state.probe = props.getProperty("probe");
+                state.entries = Integer.parseInt(props.getProperty("entries", "0"));
+                state.complete = Boolean.parseBoolean(props.getProperty("complete", "false"));
+            } catch (IOException | NumberFormatException e) {
+                // Treat as not installed
+                return new State(file);
+            }
+            return state;
+        }
+
+        void save() throws IOException {
+            final Properties props = new Properties();
+            props.setProperty("stamp", String.valueOf(stamp));
+            props.setProperty("length", String.valueOf(length));
+            props.setProperty("entries", String.valueOf(entries));
+            props.setProperty("complete", String.valueOf(complete));
+            if (hash != null) {
+                props.setProperty("hash", hash);
+            }
+            if (probe != null) {
+                props.setProperty("probe", probe);
+            }
+
+            Environment.mkdirIfNotExits(file.getParentFile());
+            final File part = new File(file.getParentFile(), file.getName() + ".part");
+            try (OutputStream out = new FileOutputStream(part)) {
+                props.store(out, null);
+            }
+            if (!part.renameTo(file)) {
+                throw new IOException("Unable to write " + file);
+            }
+        }
+    }
+}
@@ -33,6 +33,7 @@ public class PreferenceManager {
     
     public static final String KEY_OPEN_PROJECTS = "idepref_general_autoOpenProjects";
     public static final String KEY_CONFIRM_PROJECT_OPEN = "idepref_general_confirmProjectOpen";
+    public static final String KEY_SEARCH_INDEX = "idepref_general_searchIndex";
     
     public static final String KEY_EDITORFLAG_WS_LEADING = "idepref_editor_wsLeading";
     public static final String KEY_EDITORFLAG_WS_TRAILING = "idepref_editor_wsTrailing";
@@ -52,6 +53,9 @@ public class PreferenceManager {
     public static final String KEY_GRADLECMD_INFO = "idepref_gradleCmd_info";
     public static final String KEY_GRADLECMD_WARNINGMODE = "idepref_gradleCmd_warningMode";
 
+    public static final String KEY_BUILD_OUTPUT_LINE_LIMIT = "idepref_build_outputLineLimit";
+    public static final String KEY_BUILD_OUTPUT_SPILL = "idepref_build_outputSpill";
+    
     public static final String KEY_LOGSENDER_CURRENT_VERSION = "logsender_currentVersion";
 
     public static final String KEY_LAST_OPENED_PROJECT = "ide_last_project";
@@ -173,6 +177,14 @@ public class PreferenceManager {
     public PreferenceManager setGradleWarningEnabled(boolean enabled) {
         return putBoolean(KEY_GRADLECMD_WARNINGMODE, enabled);
     }
+
+    public int getBuildOutputLineLimit() {
+        return getInt(KEY_BUILD_OUTPUT_LINE_LIMIT, 10000);
+    }
+    
+    public boolean isBuildOutputSpillEnabled() {
+        return getBoolean(KEY_BUILD_OUTPUT_SPILL, false);
+    }
     
     public int getEditorTabSize() {
         return getInt(KEY_EDITOR_TAB_SIZE, 4);
@@ -185,4 +197,8 @@ public class PreferenceManager {
     public boolean confirmProjectOpen() {
         return getBoolean(KEY_CONFIRM_PROJECT_OPEN, false);
     }
+    
+    public boolean isSearchIndexEnabled() {
+        return getBoolean(KEY_SEARCH_INDEX, true);
+    }
 }
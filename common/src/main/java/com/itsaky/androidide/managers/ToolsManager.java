@@ -20,8 +20,6 @@ package com.itsaky.androidide.managers;
 import androidx.annotation.NonNull;
 
 import com.blankj.utilcode.util.FileIOUtils;
-import com.blankj.utilcode.util.ResourceUtils;
-import com.blankj.utilcode.util.ZipUtils;
 import com.itsaky.androidide.app.BaseApplication;
 import com.itsaky.androidide.utils.Environment;
 import com.itsaky.androidide.utils.Logger;
@@ -29,97 +27,77 @@ import com.itsaky.androidide.utils.Logger;
 import org.jetbrains.annotations.Contract;
 
 import java.io.File;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class ToolsManager {
     
-    private static PreferenceManager prefs;
-    
-    public static final int JLS_VERSION = 27;
-    public static final int LOGSENDER_VERSION = 2;
-    
-    public static final String KEY_JLS_VERSION = "tools_jlsVersion";
-    public static final String KEY_LOGSENDER_VERSION = "tools_logsenderVersion";
-    
     public static String ARCH_SPECIFIC_ASSET_DATA_DIR = "data/" + BaseApplication.getArch();
     public static String COMMON_ASSET_DATA_DIR = "data/common";
     
+    private static final String PROJECT_DATA_PLACEHOLDER = "/**********************/";
+    
+    private static long lastInitDuration = -1;
+    
+    /**
+     * Install the tools bundled in the assets. Tools are extracted in parallel and only if
+     * they have changed since they were last extracted.
+     */
     public static void init(@NonNull BaseApplication app, Runnable onFinish) {
-        prefs = app.getPrefManager();
-        copyBusyboxIfNeeded();
-        extractJlsIfNeeded();
-        extractLogsenderIfNeeded();
-        extractLibHooks();
+        final long start = System.currentTimeMillis();
+        final List<ArtifactExtractor.Artifact> artifacts = new ArrayList<>();
+        artifacts.add(new ArtifactExtractor.CopyArtifact("busybox", asset(app, getArchSpecificAsset("busybox")), Environment.BUSYBOX, true));
+        artifacts.add(new ArtifactExtractor.CopyArtifact("jls", asset(app, getCommonAsset("jls.jar")), Environment.JLS_JAR, false));
+        artifacts.add(new ArtifactExtractor.ZipArtifact("logsender", asset(app, getCommonAsset("logsender.zip")), Environment.HOME));
+        artifacts.add(new ArtifactExtractor.CopyArtifact("libhook", asset(app, getArchSpecificAsset("libhook.so")), Environment.LIBHOOK, false));
+        artifacts.add(new ArtifactExtractor.CopyArtifact("libhook2", asset(app, getArchSpecificAsset("libhook2.so")), Environment.LIBHOOK2, false));
+        artifacts.add(new ArtifactExtractor.CopyArtifact("init-script", asset(app, getCommonAsset("androidide.init.gradle")), Environment.INIT_SCRIPT, false));
+        artifacts.add(new ArtifactExtractor.CopyArtifact("gradle-session", asset(app, getCommonAsset("GradleSessionServer.java")), Environment.GRADLE_SESSION_SERVER, false));
+        
+        try {
+            final ArtifactExtractor.Result result = new ArtifactExtractor(getStateDir(app)).run(artifacts, null);
+            LOG.info("Tools:", result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.error("Interrupted while installing tools", e);
+        }
         
-        writeInitScript();
+        resetProjectData();
         
-        rewriteProjectData();
+        lastInitDuration = System.currentTimeMillis() - start;
+        LOG.info("Tools initialized in", lastInitDuration, "ms");
         
         if(onFinish != null)
             onFinish.run();
     }
-
-    private static void extractLibHooks() {
-        if(!Environment.LIBHOOK.exists()) {
-            ResourceUtils.copyFileFromAssets(getArchSpecificAsset("libhook.so"), Environment.LIBHOOK.getAbsolutePath());
-        }
-        
-        if(!Environment.LIBHOOK2.exists()) {
-            ResourceUtils.copyFileFromAssets(getArchSpecificAsset("libhook2.so"), Environment.LIBHOOK2.getAbsolutePath());
-        }
-    }
-
-    private static void rewriteProjectData() {
-        FileIOUtils.writeFileFromString(Environment.PROJECT_DATA_FILE, "/**********************/");
-    }
-
-    private static void copyBusyboxIfNeeded() {
-        File exec = Environment.BUSYBOX;
-        if(exec.exists()) return;
-        Environment.mkdirIfNotExits(exec.getParentFile());
-        ResourceUtils.copyFileFromAssets(getArchSpecificAsset("busybox"), exec.getAbsolutePath());
-        if(!exec.canExecute()) {
-            exec.setExecutable(true);
-        }
-    }
     
-    private static void writeInitScript() {
-        FileIOUtils.writeFileFromString(Environment.INIT_SCRIPT, readInitScript());
+    /**
+     * @return Time taken by the last call to {@link #init(BaseApplication, Runnable)} in milliseconds,
+     * or -1 if it has not been called.
+     */
+    public static long getLastInitDuration() {
+        return lastInitDuration;
     }
-
+    
+    /**
+     * Directory where the {@link ArtifactExtractor} keeps the state of the installed artifacts.
+     */
     @NonNull
-    private static String readInitScript() {
-        return ResourceUtils.readAssets2String(getCommonAsset("androidide.init.gradle"));
+    public static File getStateDir(@NonNull BaseApplication app) {
+        return new File(app.getIDEDataDir(), "artifacts");
     }
-
-    private static void extractJlsIfNeeded() {
-        final boolean isOld = JLS_VERSION > prefs.getInt(KEY_JLS_VERSION, 0);
-        
-        if(!Environment.JLS_JAR.exists() || isOld) {
-            try {
-                extractJls();
-            } catch (Throwable e) {
-                LOG.error("Error extracting Java language server.", e);
-            }
-        }
+    
+    private static ArtifactExtractor.Source asset(BaseApplication app, String path) {
+        return ArtifactExtractor.assetSource(app, path);
     }
 
-    private static void extractJls(){
-        ResourceUtils.copyFileFromAssets(getCommonAsset("jls.jar"), Environment.JLS_JAR.getAbsolutePath());
-    }
-    
-    private static void extractLogsenderIfNeeded() {
-        try {
-            final boolean isOld = LOGSENDER_VERSION > prefs.getInt(KEY_LOGSENDER_VERSION, 0);
-            if(isOld) {
-                final File logsenderZip = new File(Environment.JLS_HOME, "logsender.zip");
-                ResourceUtils.copyFileFromAssets(getCommonAsset("logsender.zip"), logsenderZip.getAbsolutePath());
-                ZipUtils.unzipFile(logsenderZip, Environment.HOME);
-                prefs.putInt(KEY_LOGSENDER_VERSION, LOGSENDER_VERSION);
-            }
-        } catch (IOException e) {
-            LOG.error("Error extracting log sender", e);
+    private static void resetProjectData() {
+        final File file = Environment.PROJECT_DATA_FILE;
+        if(file.exists() && file.length() == PROJECT_DATA_PLACEHOLDER.length()
+            && PROJECT_DATA_PLACEHOLDER.equals(FileIOUtils.readFile2String(file))) {
+            return;
         }
+        FileIOUtils.writeFileFromString(file, PROJECT_DATA_PLACEHOLDER);
     }
     
     @NonNull
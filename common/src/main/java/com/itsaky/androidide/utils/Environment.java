@@ -48,6 +48,7 @@ public final class Environment {
     public static final File LIBHOOK2;
     
     public static final File INIT_SCRIPT;
+    public static final File GRADLE_SESSION_SERVER;
     public static final File PROJECT_DATA_FILE;
     public static final File JLS_JAR;
     
@@ -90,6 +91,7 @@ public final class Environment {
         JLS_JAR = new File(JLS_HOME, "jls.jar");
         
         INIT_SCRIPT = new File(mkdirIfNotExits(new File(app.getIDEDataDir(), "init")), "data/common/androidide.init.gradle");
+        GRADLE_SESSION_SERVER = new File(INIT_SCRIPT.getParentFile(), "GradleSessionServer.java");
         BOOTCLASSPATH = new File("");
         GRADLE_USER_HOME = new File(HOME, ".gradle");
         GRADLE_PROPS = new File(GRADLE_USER_HOME, "gradle.properties");
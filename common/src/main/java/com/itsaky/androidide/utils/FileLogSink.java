@@ -0,0 +1,169 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.utils;
+
+import androidx.annotation.NonNull;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends log lines to a file from a background thread.
+ *
+ * Lines are queued by {@link #append(CharSequence)} and written by a single daemon thread
+ * through a buffered writer which is kept open. The writer is flushed whenever the queue
+ * has been drained. If the queue is full, the line is dropped and counted instead of
+ * blocking the caller. A sink created with {@link #UNBOUNDED} never drops lines.
+ *
+ * A sink can be given a maximum file size. Once the file is larger, it is renamed with an
+ * {@code .old} suffix, replacing the previous one, and a new file is started. At most about twice
+ * the maximum size is kept on the disk.
+ *
+ * @author Akash Yadav
+ */
+public class FileLogSink {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int UNBOUNDED = 0;
+    public static final long NO_SIZE_LIMIT = 0;
+
+    private final File file;
+    private final long maxSize;
+    private final BlockingQueue<String> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writerThread;
+
+    public FileLogSink(@NonNull File file) {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The maximum number of queued lines, or {@link #UNBOUNDED} to keep every line.
+     */
+    public FileLogSink(@NonNull File file, int capacity) {
+        this(file, capacity, NO_SIZE_LIMIT);
+    }
+
+    /**
+     * @param capacity The maximum number of queued lines, or {@link #UNBOUNDED} to keep every line.
+     * @param maxSize The size in bytes after which the file is started again, or {@link #NO_SIZE_LIMIT}.
+     */
+    public FileLogSink(@NonNull File file, int capacity, long maxSize) {
+        this.file = file;
+        this.maxSize = maxSize;
+        this.queue = capacity == UNBOUNDED ? new LinkedBlockingQueue<>() : new ArrayBlockingQueue<>(capacity);
+        this.writerThread = new Thread(this::writeLoop, "FileLogSink");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queue the line to be written to the file. A line separator is added if needed.
+     */
+    public void append(CharSequence seq) {
+        if(seq == null) {
+            return;
+        }
+
+        String line = seq.toString();
+        line = line.endsWith("\n") ? line : line + "\n";
+        if(!queue.offer(line)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return Number of lines dropped because the queue was full.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public void close() {
+        writerThread.interrupt();
+    }
+
+    private void writeLoop() {
+        final File parent = file.getParentFile();
+        if(parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+
+        Writer writer = null;
+        try {
+            long size = file.length();
+            writer = open();
+            try {
+                while(true) {
+                    String line = queue.take();
+                    do {
+                        writer.write(line);
+                        size += line.length();
+                    } while((line = queue.poll()) != null);
+                    writer.flush();
+
+                    if(maxSize != NO_SIZE_LIMIT && size > maxSize) {
+                        writer.close();
+                        rotate();
+                        writer = open();
+                        size = 0;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Closed. Write whatever is still queued.
+                String line;
+                while((line = queue.poll()) != null) {
+                    writer.write(line);
+                }
+            }
+        } catch (IOException e) {
+            // ignored
+        } finally {
+            if(writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // ignored
+                }
+            }
+        }
+    }
+
+    @NonNull
+    private Writer open() throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    private void rotate() {
+        final File old = new File(file.getPath() + ".old");
+        if(old.exists()) {
+            old.delete();
+        }
+        if(!file.renameTo(old)) {
+            file.delete();
+        }
+    }
+}
@@ -20,6 +20,7 @@ package com.itsaky.androidide.utils;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import com.blankj.utilcode.util.ThrowableUtils;
+import java.util.function.Supplier;
 import org.jetbrains.annotations.Contract;
 
 /**
@@ -28,16 +29,30 @@ import org.jetbrains.annotations.Contract;
  * If a {@link Throwable} is passed to any of the logging methods, whole stack trace of the throwable
  * is printed. Any modifications to this class will affect every log message in the IDE.
  *
+ * Messages below the current level (see {@link #setLevel(int)}) are dropped before they are formatted.
+ * Callers on hot paths should use the {@link Supplier} variants so that the message itself is
+ * not built when the level is disabled.
+ *
  * @author Akash Yadav
  */
 public class Logger {
     
+    /**
+     * Compile time switch. When {@code false}, debug and verbose messages are never logged,
+     * irrespective of the level set with {@link #setLevel(int)}.
+     */
+    public static final boolean DEBUG_LOGS = com.itsaky.androidide.common.BuildConfig.DEBUG;
+    
     private static Logger instance;
-    private static String TAG = "AndroidIDE";
+    private static final String DEFAULT_TAG = "AndroidIDE";
     private static final String MSG_SEPARATOR = " "; // Separate messages with a space.
     
+    private static volatile int level = DEBUG_LOGS ? Log.VERBOSE : Log.INFO;
+    
+    private final String tag;
+    
     public static Logger instance() {
-        return instance == null ? instance = createInstance(TAG) : instance;
+        return instance == null ? instance = createInstance(DEFAULT_TAG) : instance;
     }
 
     @NonNull
@@ -52,32 +67,86 @@ public class Logger {
         return createInstance(tag);
     }
     
+    /**
+     * Set the minimum priority of the messages that will be logged.
+     *
+     * @param priority One of the priority constants in {@link Log}.
+     */
+    public static void setLevel(int priority) {
+        level = priority;
+    }
+    
+    public static int getLevel() {
+        return level;
+    }
+    
     private Logger(String tag) {
-        TAG = tag;
+        this.tag = tag;
     }
-
+    
+    /**
+     * Check if the messages with the given priority will be logged.
+     *
+     * @param priority One of the priority constants in {@link Log}.
+     */
+    public static boolean isLoggable(int priority) {
+        if(priority < Log.INFO && !DEBUG_LOGS) {
+            return false;
+        }
+        return priority >= level;
+    }
+    
     public Logger warn(Object... messages) {
-        Log.w(TAG, generateMessage(messages));
-        return this;
+        return log(Log.WARN, messages);
     }
     
     public Logger debug(Object... messages) {
-        Log.d(TAG, generateMessage(messages));
-        return this;
+        return log(Log.DEBUG, messages);
     }
     
     public Logger error(Object... messages) {
-        Log.e(TAG, generateMessage(messages));
-        return this;
+        return log(Log.ERROR, messages);
     }
     
     public Logger verbose(Object... messages) {
-        Log.v(TAG, generateMessage(messages));
-        return this;
+        return log(Log.VERBOSE, messages);
     }
     
     public Logger info(Object... messages) {
-        Log.i(TAG, generateMessage(messages));
+        return log(Log.INFO, messages);
+    }
+    
+    public Logger warn(Supplier<String> message) {
+        return log(Log.WARN, message);
+    }
+    
+    public Logger debug(Supplier<String> message) {
+        return log(Log.DEBUG, message);
+    }
+    
+    public Logger error(Supplier<String> message) {
+        return log(Log.ERROR, message);
+    }
+    
+    public Logger verbose(Supplier<String> message) {
+        return log(Log.VERBOSE, message);
+    }
+    
+    public Logger info(Supplier<String> message) {
+        return log(Log.INFO, message);
+    }
+    
+    private Logger log(int priority, Object... messages) {
+        if(isLoggable(priority)) {
+            Log.println(priority, tag, generateMessage(messages));
+        }
+        return this;
+    }
+    
+    private Logger log(int priority, Supplier<String> message) {
+        if(isLoggable(priority)) {
+            Log.println(priority, tag, message == null ? "null" : String.valueOf(message.get()));
+        }
         return this;
     }
 
@@ -0,0 +1,306 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.androidide.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal sequential reader for tar archives.
+ *
+ * Supports ustar and GNU archives, including GNU long names ({@code L}, {@code K}) and
+ * the {@code path} and {@code linkpath} records of pax extended headers.
+ *
+ * @author Akash Yadav
+ */
+public class TarReader {
+
+    private static final int BLOCK = 512;
+
+    public static final char TYPE_FILE = '0';
+    public static final char TYPE_HARD_LINK = '1';
+    public static final char TYPE_SYMLINK = '2';
+    public static final char TYPE_DIRECTORY = '5';
+
+    private final InputStream in;
+    private final byte[] header = new byte[BLOCK];
+    private long remaining = 0;
+    private long padding = 0;
+
+    public TarReader(@NonNull InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Move to the next entry. The unread content of the current entry is skipped.
+     *
+     * @return The next entry, or {@code null} at the end of the archive.
+     */
+    @Nullable
+    public Entry next() throws IOException {
+        skipContent();
+
+        String longName = null;
+        String longLink = null;
+        while (true) {
+            if (!readBlock(header)) {
+                return null;
+            }
+            if (isZeroBlock(header)) {
+                return null;
+            }
+
+            final Entry entry = new Entry();
+            entry.type = header[156] == 0 ? TYPE_FILE : (char) header[156];
+            entry.size = parseNumber(header, 124, 12);
+            entry.mode = (int) parseNumber(header, 100, 8);
+            entry.name = parseString(header, 0, 100);
+            entry.linkName = parseString(header, 157, 100);
+            // Only POSIX headers have a prefix, GNU headers ("ustar  ") keep times there
+            if (isPosixUstar(header)) {
+                final String prefix = parseString(header, 345, 155);
+                if (!prefix.isEmpty()) {
+                    entry.name = prefix + "/" + entry.name;
+                }
+            }
+
+            remaining = entry.size;
+            padding = (BLOCK - entry.size % BLOCK) % BLOCK;
+
+            if (entry.type == 'L') {
+                longName = readContentAsString();
+                continue;
+            } else if (entry.type == 'K') {
+                longLink = readContentAsString();
+                continue;
+            } else if (entry.type == 'x') {
+                final String pax = readContentAsString();
+                final String path = paxValue(pax, "path");
+                final String linkPath = paxValue(pax, "linkpath");
+                longName = path != null ? path : longName;
+                longLink = linkPath != null ? linkPath : longLink;
+                continue;
+            } else if (entry.type == 'g') {
+                skipContent();
+                continue;
+            }
+
+            if (longName != null) {
+                entry.name = longName;
+            }
+            if (longLink != null) {
+                entry.linkName = longLink;
+            }
+            return entry;
+        }
+    }
+
+    private static boolean isPosixUstar(byte[] header) {
+        return parseString(header, 257, 5).equals("ustar")
+            && header[262] == 0
+            && header[263] == '0'
+            && header[264] == '0';
+    }
+
+    /**
+     * @return A stream of the content of the current entry. It must not be closed.
+     */
+    @NonNull
+    public InputStream content() {
+        return new InputStream() {
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                final int b = in.read();
+                if (b == -1) {
+                    throw new EOFException();
+                }
+                remaining--;
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                final int read = in.read(b, off, (int) Math.min(len, remaining));
+                if (read == -1) {
+                    throw new EOFException();
+                }
+                remaining -= read;
+                return read;
+            }
+        };
+    }
+
+    private String readContentAsString() throws IOException {
+        final byte[] data = new byte[(int) remaining];
+        readFully(data, data.length);
+        remaining = 0;
+        skipContent();
+        int end = data.length;
+        while (end > 0 && data[end - 1] == 0) {
+            end--;
+        }
+        return new String(data, 0, end, StandardCharsets.UTF_8);
+    }
+
+    private void skipContent() throws IOException {
+        skip(remaining + padding);
+        remaining = 0;
+        padding = 0;
+    }
+
+    private void skip(long count) throws IOException {
+        final byte[] buffer = new byte[8192];
+        while (count > 0) {
+            final int read = in.read(buffer, 0, (int) Math.min(buffer.length, count));
+            if (read == -1) {
+                throw new EOFException();
+            }
+            count -= read;
+        }
+    }
+
+    private boolean readBlock(byte[] block) throws IOException {
+        int offset = 0;
+        while (offset < BLOCK) {
+            final int read = in.read(block, offset, BLOCK - offset);
+            if (read == -1) {
+                if (offset == 0) {
+                    return false;
+                }
+                throw new EOFException();
+            }
+            offset += read;
+        }
+        return true;
+    }
+
+    private void readFully(byte[] data, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            final int read = in.read(data, offset, length - offset);
+            if (read == -1) {
+                throw new EOFException();
+            }
+            offset += read;
+        }
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String parseString(byte[] block, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && block[end] != 0) {
+            end++;
+        }
+        return new String(block, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static long parseNumber(byte[] block, int offset, int length) {
+        if ((block[offset] & 0x80) != 0) {
+            // GNU base-256 encoding for large values
+            long value = block[offset] & 0x7f;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (block[i] & 0xff);
+            }
+            return value;
+        }
+
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            final byte b = block[i];
+            if (b == 0 || b == ' ') {
+                if (value != 0) {
+                    break;
+                }
+                continue;
+            }
+            value = (value << 3) + (b - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Find the value of the given key in pax records of the form {@code "<length> <key>=<value>\n"}.
+     */
+    private static String paxValue(String pax, String key) {
+        int pos = 0;
+        while (pos < pax.length()) {
+            final int space = pax.indexOf(' ', pos);
+            if (space == -1) {
+                break;
+            }
+
+            final int length;
+            try {
+                length = Integer.parseInt(pax.substring(pos, space));
+            } catch (NumberFormatException e) {
+                break;
+            }
+
+            final String record = pax.substring(space + 1, Math.min(pax.length(), pos + length - 1));
+            if (record.startsWith(key + "=")) {
+                return record.substring(key.length() + 1);
+            }
+            pos += length;
+        }
+        return null;
+    }
+
+    public static class Entry {
+
+        public String name;
+        public String linkName;
+        public char type;
+        public long size;
+        public int mode;
+
+        public boolean isDirectory() {
+            return type == TYPE_DIRECTORY || (type == TYPE_FILE && name.endsWith("/"));
+        }
+
+        public boolean isSymlink() {
+            return type == TYPE_SYMLINK;
+        }
+
+        public boolean isHardLink() {
+            return type == TYPE_HARD_LINK;
+        }
+
+        public boolean isFile() {
+            return (type == TYPE_FILE || type == '7') && !name.endsWith("/");
+        }
+    }
+}
@@ -50,6 +50,12 @@ final class CodeWriter {
   private final LineWrapper out;
   private int indentLevel;
 
+  /**
+   * True if this writer only collects the types to import. Nothing is written, so the text is not
+   * formatted at all.
+   */
+  private final boolean collectingImports;
+
   private boolean javadoc = false;
   private boolean comment = false;
   private String packageName = NO_PACKAGE;
@@ -83,6 +89,16 @@ final class CodeWriter {
       Map<String, ClassName> importedTypes,
       Set<String> staticImports,
       Set<String> alwaysQualify) {
+    this(out, indent, importedTypes, staticImports, alwaysQualify, false);
+  }
+
+  private CodeWriter(Appendable out,
+      String indent,
+      Map<String, ClassName> importedTypes,
+      Set<String> staticImports,
+      Set<String> alwaysQualify,
+      boolean collectingImports) {
+    this.collectingImports = collectingImports;
     this.out = new LineWrapper(out, indent, 100);
     this.indent = checkNotNull(indent, "indent == null");
     this.importedTypes = checkNotNull(importedTypes, "importedTypes == null");
@@ -94,6 +110,17 @@ final class CodeWriter {
     }
   }
 
+  /**
+   * Returns a writer that writes nothing and only collects the types to import. See
+   * {@link #suggestedImports()}.
+   */
+  static CodeWriter importsCollector(String indent, Set<String> staticImports,
+      Set<String> alwaysQualify) {
+    Appendable nothing = new StringBuilder(0);
+    return new CodeWriter(nothing, indent, Collections.emptyMap(), staticImports, alwaysQualify,
+        true);
+  }
+
   public Map<String, ClassName> importedTypes() {
     return importedTypes;
   }
@@ -246,6 +273,7 @@ final class CodeWriter {
 
         case "$S":
           String string = (String) codeBlock.args.get(a++);
+          if (collectingImports) break;
           // Emit null as a literal null: no quotes.
           emitAndIndent(string != null
               ? stringLiteralWithDoubleQuotes(string, indent)
@@ -294,11 +322,11 @@ final class CodeWriter {
           break;
 
         case "$W":
-          out.wrappingSpace(indentLevel + 2);
+          if (!collectingImports) out.wrappingSpace(indentLevel + 2);
           break;
 
         case "$Z":
-          out.zeroWidthSpace(indentLevel + 2);
+          if (!collectingImports) out.zeroWidthSpace(indentLevel + 2);
           break;
 
         default:
@@ -318,14 +346,14 @@ final class CodeWriter {
           break;
       }
     }
-    if (ensureTrailingNewline && out.lastChar() != '\n') {
+    if (ensureTrailingNewline && !collectingImports && out.lastChar() != '\n') {
       emit("\n");
     }
     return this;
   }
 
   public CodeWriter emitWrappingSpace() throws IOException {
-    out.wrappingSpace(indentLevel + 2);
+    if (!collectingImports) out.wrappingSpace(indentLevel + 2);
     return this;
   }
 
@@ -470,6 +498,9 @@ final class CodeWriter {
    * unnecessary trailing whitespace.
    */
   CodeWriter emitAndIndent(String s) throws IOException {
+    // Only type names matter when collecting imports, and they are looked up before this.
+    if (collectingImports) return this;
+
     boolean first = true;
     for (String line : LINE_BREAKING_PATTERN.split(s, -1)) {
       // Emit a newline character. Make sure blank lines in Javadoc & comments look good.
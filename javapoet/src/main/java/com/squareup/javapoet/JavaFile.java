@@ -41,18 +41,6 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 
 /** A Java file containing a single top level class. */
 public final class JavaFile {
-  private static final Appendable NULL_APPENDABLE = new Appendable() {
-    @Override public Appendable append(CharSequence charSequence) {
-      return this;
-    }
-    @Override public Appendable append(CharSequence charSequence, int start, int end) {
-      return this;
-    }
-    @Override public Appendable append(char c) {
-      return this;
-    }
-  };
-
   public final CodeBlock fileComment;
   public final String packageName;
   public final TypeSpec typeSpec;
@@ -61,6 +49,9 @@ public final class JavaFile {
   private final Set<String> alwaysQualify;
   private final String indent;
 
+  /** The types to import. Computed on the first write, this file cannot change after that. */
+  private volatile Map<String, ClassName> suggestedImports;
+
   private JavaFile(Builder builder) {
     this.fileComment = builder.fileComment.build();
     this.packageName = builder.packageName;
@@ -82,22 +73,27 @@ public final class JavaFile {
   }
 
   public void writeTo(Appendable out) throws IOException {
-    // First pass: emit the entire class, just to collect the types we'll need to import.
-    CodeWriter importsCollector = new CodeWriter(
-        NULL_APPENDABLE,
-        indent,
-        staticImports,
-        alwaysQualify
-    );
-    emit(importsCollector);
-    Map<String, ClassName> suggestedImports = importsCollector.suggestedImports();
-
-    // Second pass: write the code, taking advantage of the imports.
+    // Write the code, taking advantage of the imports.
     CodeWriter codeWriter
-        = new CodeWriter(out, indent, suggestedImports, staticImports, alwaysQualify);
+        = new CodeWriter(out, indent, suggestedImports(), staticImports, alwaysQualify);
     emit(codeWriter);
   }
 
+  /**
+   * Returns the types this file should import. The first call walks the entire class to collect
+   * the types, without formatting any code. Later calls, including later writes, reuse the result.
+   */
+  private Map<String, ClassName> suggestedImports() throws IOException {
+    Map<String, ClassName> result = suggestedImports;
+    if (result == null) {
+      CodeWriter importsCollector = CodeWriter.importsCollector(indent, staticImports, alwaysQualify);
+      emit(importsCollector);
+      result = Collections.unmodifiableMap(importsCollector.suggestedImports());
+      suggestedImports = result;
+    }
+    return result;
+  }
+
   /** Writes this to {@code directory} as UTF-8 using the standard directory structure. */
   public void writeTo(Path directory) throws IOException {
     writeToPath(directory);
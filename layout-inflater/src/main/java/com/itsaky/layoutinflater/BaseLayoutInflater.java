@@ -60,6 +60,12 @@ public abstract class BaseLayoutInflater extends ILayoutInflater {
         }
     }
     
+    protected void postPhase (IInflateListener.Phase phase, long nanos) {
+        for (IInflateListener listener : inflateListeners) {
+            listener.onFinishPhase(phase, nanos);
+        }
+    }
+    
     protected Set<IInflateListener> getInflateListeners () {
         return this.inflateListeners;
     }
@@ -54,4 +54,35 @@ public interface IInflateListener {
      * @param The root rootView of the inflated layout
      */
     void onFinishInflate (IView rootView);
+    
+    /**
+     * Called after a {@link PreparedLayout} has been inflated, once for each phase of the inflation.
+     * Always called on the main thread.
+     *
+     * @param phase The phase
+     * @param nanos The time the phase took, in nanoseconds
+     */
+    void onFinishPhase (Phase phase, long nanos);
+    
+    /**
+     * The phases of the inflation of a {@link PreparedLayout}.
+     */
+    enum Phase {
+        
+        /**
+         * Reading the XML code. Runs on a background thread.
+         */
+        PARSE,
+        
+        /**
+         * Resolving resources, decoding drawables and loading the view classes. Runs on a
+         * background thread.
+         */
+        RESOLVE,
+        
+        /**
+         * Creating the views and applying the resolved attributes. Runs on the main thread.
+         */
+        CONSTRUCT
+    }
 }
@@ -21,13 +21,18 @@ import android.content.Context;
 import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import com.blankj.utilcode.util.FileIOUtils;
 import com.blankj.utilcode.util.FileUtils;
+import com.google.common.io.CharSource;
 import com.itsaky.androidide.ui.util.Preconditions;
 import com.itsaky.layoutinflater.IView;
+import java.io.BufferedReader;
 import java.io.File;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 
 /**
  * A layout inflater which inflates layout from a raw XML file
@@ -36,22 +41,54 @@ import java.util.regex.Pattern;
  */
 public abstract class ILayoutInflater {
     
-    private static final Pattern XML_DECL = Pattern.compile("<\\?xml.*\\?>");
-    
     /**
      * The file whose content is currently being inflated.
      */
     private File currentlyInflatingFile;
     
     /**
-     * Acatual implementation of the layout inflation
+     * Acatual implementation of the layout inflation. The layout is read as a stream,
+     * views are created while the XML is being parsed.
      *
-     * @param layout The layout to inflate
+     * @param reader The reader to read the layout from
      * @return The inflated view
      * @throws InflateException when there was an error inflating the layout
      */
     @NonNull
-    protected abstract IView doInflate (String layout, ViewGroup parent) throws InflateException;
+    protected abstract IView doInflate (Reader reader, ViewGroup parent) throws InflateException;
+    
+    /**
+     * Actual implementation of the first phase of a two-phase inflation. Reads the layout and
+     * resolves its resources. Must not touch any view.
+     *
+     * @param reader The reader to read the layout from
+     * @return The prepared layout
+     * @throws InflateException when there was an error reading the layout
+     */
+    @NonNull
+    protected abstract PreparedLayout doPrepare (Reader reader) throws InflateException;
+    
+    /**
+     * Actual implementation of the second phase of a two-phase inflation. Creates the views of
+     * the prepared layout.
+     *
+     * @param layout The prepared layout
+     * @return The inflated view
+     * @throws InflateException when there was an error creating the views
+     */
+    @NonNull
+    protected abstract IView doInflate (PreparedLayout layout, ViewGroup parent) throws InflateException;
+    
+    /**
+     * Actual implementation of the incremental update of an inflated layout.
+     *
+     * @param root The root of the previously inflated layout
+     * @param layout The new layout
+     * @return The root of the updated layout
+     * @throws InflateException when there was an error updating the layout
+     */
+    @NonNull
+    protected abstract IView doUpdate (IView root, PreparedLayout layout, ViewGroup parent) throws InflateException;
     
     /**
      * Reset the {@link ContextProvider} of this inflater
@@ -100,6 +137,66 @@ public abstract class ILayoutInflater {
      */
     @NonNull
     public IView inflate (File file, ViewGroup parent) throws InflateException {
+        try (Reader reader = openFile(file)) {
+            return doInflate(reader, parent);
+        } catch (IOException e) {
+            throw new InflateException ("Unable to read file", e);
+        }
+    }
+    
+    /**
+     * Read the layout from the given file and resolve the resources it uses. The views are not
+     * created, this can be called from a background thread. Layouts are prepared one at a time,
+     * as the file being read is shared with the resource finder.
+     *
+     * @param file The file to read the layout from
+     * @return The prepared layout. Inflate it with {@link #inflate(PreparedLayout, ViewGroup)}.
+     * @throws InflateException when there was an error reading the layout
+     */
+    @NonNull
+    public synchronized PreparedLayout prepare (File file) throws InflateException {
+        try (Reader reader = openFile(file)) {
+            return doPrepare(reader);
+        } catch (IOException e) {
+            throw new InflateException ("Unable to read file", e);
+        }
+    }
+    
+    /**
+     * Read the layout from the given XML content and resolve the resources it uses. The views
+     * are not created, this can be called from a background thread.
+     *
+     * @param content The XML layout code
+     * @return The prepared layout. Inflate it with {@link #inflate(PreparedLayout, ViewGroup)}.
+     * @throws InflateException when there was an error reading the layout
+     */
+    @NonNull
+    public synchronized PreparedLayout prepare (CharSequence content) throws InflateException {
+        Preconditions.assertNotnull(content, "Cannot inflate null content");
+        
+        try (Reader reader = CharSource.wrap(content).openStream()) {
+            return doPrepare(reader);
+        } catch (IOException e) {
+            throw new InflateException ("Unable to read layout", e);
+        }
+    }
+    
+    /**
+     * Create the views of a prepared layout. Must be called on the main thread.
+     *
+     * @param layout The prepared layout
+     * @return The inflated layout
+     * @throws InflateException when there was an error creating the views
+     */
+    @NonNull
+    public IView inflate (PreparedLayout layout, ViewGroup parent) throws InflateException {
+        Preconditions.assertNotnull(layout, "Cannot inflate null layout");
+        
+        return doInflate(layout, parent);
+    }
+    
+    @NonNull
+    private Reader openFile (File file) throws InflateException, IOException {
         
         Preconditions.assertNotnull(file, "Cannot inflate null file");
         
@@ -118,7 +215,73 @@ public abstract class ILayoutInflater {
         }
         
         this.currentlyInflatingFile = file;
-        return inflate(FileIOUtils.readFile2String(file), parent);
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Inflate the layout from the given XML content without copying it. Can be used to
+     * inflate the content of an editor directly.
+     *
+     * @param content The XML layout code
+     * @return The inflated layout
+     * @throws InflateException when there was an error inflating the layout
+     */
+    @NonNull
+    public IView inflate (CharSequence content, ViewGroup parent) throws InflateException {
+        Preconditions.assertNotnull(content, "Cannot inflate null content");
+        
+        try (Reader reader = CharSource.wrap(content).openStream()) {
+            return doInflate(reader, parent);
+        } catch (IOException e) {
+            throw new InflateException ("Unable to read layout", e);
+        }
+    }
+    
+    /**
+     * Update a previously inflated layout so that it matches the given XML code.
+     * <p>
+     * The new code is compared with the inflated views. Only the attributes that have changed are
+     * applied again, and only the views that were added, removed or moved are touched. A view is
+     * created again only when its tag has changed or when one of its attributes was removed.
+     * </p>
+     *
+     * @param root The root of the inflated layout
+     * @param content The new XML layout code
+     * @param parent The parent of the root
+     * @return The root of the updated layout. This is a new view only if the root element was replaced.
+     * @throws InflateException when there was an error reading the new layout
+     */
+    @NonNull
+    public IView update (IView root, CharSequence content, ViewGroup parent) throws InflateException {
+        Preconditions.assertNotnull(content, "Cannot inflate null content");
+        
+        if (root == null) {
+            return inflate(content, parent);
+        }
+        
+        return doUpdate(root, prepare(content), parent);
+    }
+    
+    /**
+     * Update a previously inflated layout so that it matches the given prepared layout. Must be
+     * called on the main thread.
+     *
+     * @param root The root of the inflated layout, or {@code null}
+     * @param layout The new layout
+     * @param parent The parent of the root
+     * @return The root of the updated layout
+     * @throws InflateException when there was an error updating the layout
+     * @see #update(IView, CharSequence, ViewGroup)
+     */
+    @NonNull
+    public IView update (IView root, PreparedLayout layout, ViewGroup parent) throws InflateException {
+        Preconditions.assertNotnull(layout, "Cannot inflate null layout");
+        
+        if (root == null) {
+            return doInflate(layout, parent);
+        }
+        
+        return doUpdate(root, layout, parent);
     }
     
     /**
@@ -133,15 +296,8 @@ public abstract class ILayoutInflater {
         
         Preconditions.assertNotBlank(layout, "Layout is blank!");
         
-        // Trim the layout code
-        layout = layout.trim();
-        
-        final Matcher matcher = XML_DECL.matcher(layout);
-        if (matcher.find()) {
-            layout = layout.substring(matcher.end()).trim();
-        }
-        
-        return doInflate(layout, parent);
+        // The XML declaration must be at the very beginning
+        return doInflate(new StringReader(layout.trim()), parent);
     }
     
     /**
@@ -17,6 +17,8 @@
 **************************************************************************************/
 package com.itsaky.layoutinflater;
 
+import android.content.Context;
+import android.graphics.drawable.Drawable;
 import java.io.File;
 
 /**
@@ -34,6 +36,17 @@ public interface IResourceFinder {
      */
     File inflateDrawable (String name);
     
+    /**
+     * Find the drawable with the provided name and decode it.
+     *
+     * @param name The name of the drawable
+     * @param ctx The context of the view that will show the drawable
+     * @return The decoded drawable, or {@code null} if it cannot be found or decoded.
+     */
+    default Drawable findDrawable (String name, Context ctx) {
+        return null;
+    }
+    
     /**
      * Find the layout file with the specified name.
      *
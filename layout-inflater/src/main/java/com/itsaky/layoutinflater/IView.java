@@ -22,6 +22,8 @@ import android.view.View;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Set;
 
@@ -170,11 +172,31 @@ public interface IView {
     Object getExtraData ();
 
     /**
-     * Get the layout resource code for this file.
+     * Write the layout resource code for this view, and its children, to the given output.
+     * The code of the children is written to the same output, nothing is copied.
      *
+     * @param out The output to write to.
      * @param indentationLength The number of spaces to indent.
+     * @throws IOException If the output cannot be written to.
      */
-    String generateCode (int indentationLength);
+    void generateCode (Appendable out, int indentationLength) throws IOException;
+
+    /**
+     * Get the layout resource code for this file.
+     *
+     * @param indentationLength The number of spaces to indent.
+     * @see #generateCode(Appendable, int)
+     */
+    default String generateCode (int indentationLength) {
+        final StringBuilder sb = new StringBuilder();
+        try {
+            generateCode(sb, indentationLength);
+        } catch (IOException e) {
+            // A StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
 
     /**
      * @see #generateCode(int)
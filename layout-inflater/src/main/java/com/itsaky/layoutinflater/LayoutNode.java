@@ -0,0 +1,64 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.layoutinflater;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An element of a layout, as read from the XML code. Used to compare the new code of a layout
+ * with the views that were inflated from the old code.
+ *
+ * @author Akash Yadav
+ */
+final class LayoutNode {
+
+    final String name;
+    final String[] namespaces;
+    final String[] names;
+    final String[] values;
+    final List<LayoutNode> children = new ArrayList<>();
+
+    /**
+     * The qualified name of the view class, once it has been resolved.
+     */
+    String className;
+
+    LayoutNode(@NonNull String name, int attributeCount) {
+        this.name = name;
+        this.namespaces = new String[attributeCount];
+        this.names = new String[attributeCount];
+        this.values = new String[attributeCount];
+    }
+
+    int getAttributeCount() {
+        return names.length;
+    }
+
+    @Nullable
+    String getAttribute(@NonNull String namespace, @NonNull String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name) && namespaces[i].equals(namespace)) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,59 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.layoutinflater;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A layout that has been read and whose resources have been resolved, but whose views have not
+ * been created yet.
+ *
+ * Created with {@link ILayoutInflater#prepare(java.io.File)} on a background thread, then
+ * inflated with {@link ILayoutInflater#inflate(PreparedLayout, android.view.ViewGroup)} on the
+ * main thread.
+ *
+ * @author Akash Yadav
+ */
+public final class PreparedLayout {
+
+    final LayoutNode root;
+    final ResolvedResources.Values values;
+    final long parseNanos;
+    final long resolveNanos;
+
+    PreparedLayout(@NonNull LayoutNode root, @NonNull ResolvedResources.Values values, long parseNanos, long resolveNanos) {
+        this.root = root;
+        this.values = values;
+        this.parseNanos = parseNanos;
+        this.resolveNanos = resolveNanos;
+    }
+
+    /**
+     * @return The time it took to read the XML code, in nanoseconds.
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    /**
+     * @return The time it took to resolve the resources and the view classes, in nanoseconds.
+     */
+    public long getResolveNanos() {
+        return resolveNanos;
+    }
+}
@@ -0,0 +1,241 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.layoutinflater;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.DisplayMetrics;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.itsaky.layoutinflater.util.DrawableCache;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A resource finder that answers from values resolved in advance, and asks the configured
+ * resource finder for anything else.
+ *
+ * The values of a layout are resolved with {@link Values#resolve(String, int, int)} while the layout is
+ * prepared on a background thread. The attribute adapters then find them here while the views
+ * are created on the main thread, without touching the disk.
+ *
+ * @author Akash Yadav
+ */
+final class ResolvedResources implements IResourceFinder {
+
+    private final IResourceFinder finder;
+
+    /**
+     * The values of the layout whose views are being created. Only accessed on the main thread.
+     */
+    private Values current;
+
+    ResolvedResources(@NonNull IResourceFinder finder) {
+        this.finder = finder;
+    }
+
+    @NonNull
+    Values newValues() {
+        return new Values(finder);
+    }
+
+    /**
+     * Use the given values until this is called again.
+     *
+     * @param values The values, or {@code null} to ask the resource finder directly.
+     */
+    void use(@Nullable Values values) {
+        this.current = values;
+    }
+
+    @Override
+    public File inflateDrawable(String name) {
+        final Object value = find("drawable", name);
+        return value != null ? asType(value, File.class) : finder.inflateDrawable(name);
+    }
+
+    @Override
+    public Drawable findDrawable(String name, Context ctx) {
+        Object value = find("bitmap", name);
+        if (value == null) {
+            // Not resolved in advance, the size of the view is not known
+            final DisplayMetrics dm = Resources.getSystem().getDisplayMetrics();
+            value = decode(inflateDrawable(name), dm.widthPixels, dm.heightPixels);
+        }
+
+        final Bitmap bitmap = asType(value, Bitmap.class);
+        if (bitmap == null) {
+            return finder.findDrawable(name, ctx);
+        }
+
+        // Each view needs a drawable of its own. The bitmap can be shared.
+        return new BitmapDrawable(ctx.getResources(), bitmap);
+    }
+
+    @Override
+    public File inflateLayout(String name) {
+        final Object value = find("layout", name);
+        return value != null ? asType(value, File.class) : finder.inflateLayout(name);
+    }
+
+    @Override
+    public String findString(String name) {
+        final Object value = find("string", name);
+        return value != null ? asType(value, String.class) : finder.findString(name);
+    }
+
+    @Override
+    public String findColor(String name) {
+        final Object value = find("color", name);
+        return value != null ? asType(value, String.class) : finder.findColor(name);
+    }
+
+    @Override
+    public String[] findArray(String name) {
+        final Object value = find("array", name);
+        return value != null ? asType(value, String[].class) : finder.findArray(name);
+    }
+
+    @Override
+    public String findDimension(String name) {
+        final Object value = find("dimen", name);
+        return value != null ? asType(value, String.class) : finder.findDimension(name);
+    }
+
+    @Override
+    public void setInflatingFile(File file) {
+        finder.setInflatingFile(file);
+    }
+
+    @Nullable
+    private Object find(@NonNull String type, String name) {
+        final Values values = current;
+        return values == null ? null : values.map.get(type + "/" + name);
+    }
+
+    @Nullable
+    private static <T> T asType(@Nullable Object value, @NonNull Class<T> type) {
+        return type.isInstance(value) ? type.cast(value) : null;
+    }
+
+    @Nullable
+    private static Bitmap decode(@Nullable File file, int width, int height) {
+        return file == null ? null : DrawableCache.getInstance().getBitmap(file, width, height);
+    }
+
+    /**
+     * The resources referenced by one layout. Filled on the thread that prepares the layout,
+     * and only read once the layout is handed to the main thread.
+     */
+    static final class Values {
+
+        /**
+         * Stored for resources that could not be found, so that they are not looked up again.
+         */
+        private static final Object MISSING = new Object();
+
+        private final IResourceFinder finder;
+        private final Map<String, Object> map = new HashMap<>();
+
+        /**
+         * The size the bitmap of each drawable has been decoded for. A drawable used by more than
+         * one view is decoded for the largest of them, smaller views scale it down.
+         */
+        private final Map<String, int[]> bitmapSizes = new HashMap<>();
+
+        private Values(@NonNull IResourceFinder finder) {
+            this.finder = finder;
+        }
+
+        /**
+         * Resolve the resource the given attribute value refers to, if it refers to a resource
+         * of the project.
+         *
+         * @param width The expected width of the view, in pixels. Drawables are decoded for this size.
+         * @param height The expected height of the view, in pixels.
+         */
+        void resolve(@Nullable String value, int width, int height) {
+            if (value == null || !value.startsWith("@") || value.startsWith("@android:") || value.startsWith("@+")) {
+                return;
+            }
+
+            final int slash = value.indexOf('/');
+            if (slash == -1) {
+                return;
+            }
+
+            final String type = value.substring(1, slash);
+            final String name = value.substring(slash + 1);
+            final String key = type + "/" + name;
+            if (map.containsKey(key)) {
+                if (type.equals("drawable")) {
+                    resolveBitmap(name, asType(map.get(key), File.class), width, height);
+                }
+                return;
+            }
+
+            final Object resolved;
+            switch (type) {
+                case "string":
+                    resolved = finder.findString(name);
+                    break;
+                case "color":
+                    resolved = finder.findColor(name);
+                    break;
+                case "dimen":
+                    resolved = finder.findDimension(name);
+                    break;
+                case "array":
+                    resolved = finder.findArray(name);
+                    break;
+                case "layout":
+                    resolved = finder.inflateLayout(name);
+                    break;
+                case "drawable":
+                    final File file = finder.inflateDrawable(name);
+                    resolveBitmap(name, file, width, height);
+                    resolved = file;
+                    break;
+                default:
+                    // Not used by the attribute adapters
+                    return;
+            }
+
+            map.put(key, resolved == null ? MISSING : resolved);
+        }
+
+        private void resolveBitmap(String name, @Nullable File file, int width, int height) {
+            final int[] size = bitmapSizes.get(name);
+            if (size != null) {
+                if (width <= size[0] && height <= size[1]) {
+                    return;
+                }
+                width = Math.max(width, size[0]);
+                height = Math.max(height, size[1]);
+            }
+
+            final Bitmap bitmap = decode(file, width, height);
+            map.put("bitmap/" + name, bitmap == null ? MISSING : bitmap);
+            bitmapSizes.put(name, new int[] {width, height});
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.layoutinflater;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.itsaky.androidide.app.BaseApplication;
+import com.itsaky.androidide.utils.Logger;
+import com.itsaky.layoutinflater.adapters.android.view.ViewAttrAdapter;
+import com.itsaky.layoutinflater.adapters.android.view.ViewGroupAttrAdapter;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers what the inflater finds out with reflection, so that inflating the same layout
+ * again does not do any reflection.
+ *
+ * Failures are remembered too. A view class that has no attribute adapter of its own uses the
+ * adapter of its closest superclass that has one.
+ *
+ * @author Akash Yadav
+ */
+final class ViewMetadataCache {
+
+    private static final Logger LOG = Logger.instance("ViewMetadataCache");
+    private static final String ADAPTERS_PACKAGE = "com.itsaky.layoutinflater.adapters.";
+
+    /**
+     * Constructors of the view classes mapped by the class name. If the constructor could not be
+     * found, the error is stored instead.
+     */
+    private final Map<String, Object> constructors = new ConcurrentHashMap<>();
+    private final Map<Class<?>, IAttributeAdapter> adapters = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Method> layoutParamsMethods = new ConcurrentHashMap<>();
+    private final IResourceFinder resFinder;
+
+    ViewMetadataCache(IResourceFinder resFinder) {
+        this.resFinder = resFinder;
+    }
+
+    /**
+     * Get the {@code (Context)} constructor of the given view class.
+     *
+     * @throws InflateException If the class does not exist or is not a view.
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    Constructor<? extends View> getConstructor(@NonNull String className) throws InflateException {
+        final Object found = constructors.computeIfAbsent(className, name -> {
+            try {
+                return Class.forName(name).asSubclass(View.class).getConstructor(Context.class);
+            } catch (Throwable th) {
+                return th;
+            }
+        });
+
+        if (found instanceof Throwable) {
+            throw new InflateException("Cannot find constructor for " + className, (Throwable) found);
+        }
+
+        return (Constructor<? extends View>) found;
+    }
+
+    /**
+     * Get the attribute adapter for the given view class. The same adapter instance is shared by
+     * every view of that class.
+     */
+    @NonNull
+    IAttributeAdapter getAttributeAdapter(@NonNull Class<?> viewClass) {
+        IAttributeAdapter adapter = adapters.get(viewClass);
+        if (adapter != null) {
+            return adapter;
+        }
+
+        adapter = loadAdapter(viewClass);
+        if (adapter == null) {
+            final Class<?> superclass = viewClass.getSuperclass();
+            if (superclass != null && View.class.isAssignableFrom(superclass)) {
+                adapter = getAttributeAdapter(superclass);
+            } else {
+                adapter = ViewGroup.class.isAssignableFrom(viewClass) ? new ViewGroupAttrAdapter() : new ViewAttrAdapter();
+                adapter.setResourceFinder(resFinder);
+            }
+        }
+
+        adapters.put(viewClass, adapter);
+        return adapter;
+    }
+
+    @Nullable
+    private IAttributeAdapter loadAdapter(@NonNull Class<?> viewClass) {
+        final String name = ADAPTERS_PACKAGE.concat(viewClass.getName()).concat(XMLLayoutInflater.ATTR_ADAPTER_SUFFIX);
+        final Class<? extends IAttributeAdapter> adapterClass;
+        try {
+            adapterClass = Class.forName(name, true, getClass().getClassLoader()).asSubclass(IAttributeAdapter.class);
+        } catch (ClassNotFoundException e) {
+            // This class does not have an adapter of its own
+            return null;
+        }
+
+        try {
+            final IAttributeAdapter adapter = adapterClass.newInstance();
+            adapter.setResourceFinder(resFinder);
+            return adapter;
+        } catch (Throwable th) {
+            LOG.error(BaseApplication.getBaseInstance().getString(R.string.err_no_attr_adapter, viewClass.getName()), th);
+            return null;
+        }
+    }
+
+    /**
+     * Get the {@code generateDefaultLayoutParams()} method of the given view group class.
+     */
+    @NonNull
+    Method getLayoutParamsMethod(@NonNull Class<?> groupClass) throws NoSuchMethodException {
+        Method method = layoutParamsMethods.get(groupClass);
+        if (method != null) {
+            return method;
+        }
+
+        // The method is protected. Look for the closest class that declares it.
+        for (Class<?> clazz = groupClass; clazz != null && method == null; clazz = clazz.getSuperclass()) {
+            try {
+                method = clazz.getDeclaredMethod("generateDefaultLayoutParams");
+            } catch (NoSuchMethodException e) {
+                // Try the superclass
+            }
+        }
+
+        if (method == null) {
+            throw new NoSuchMethodException("generateDefaultLayoutParams() not found in " + groupClass.getName());
+        }
+
+        method.setAccessible(true);
+        layoutParamsMethods.put(groupClass, method);
+        return method;
+    }
+}
@@ -18,35 +18,43 @@
 package com.itsaky.layoutinflater;
 
 import android.content.Context;
+import android.content.res.Resources;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+import android.util.Xml;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.StringRes;
 import androidx.core.content.ContextCompat;
-import com.itsaky.androidide.app.BaseApplication;
 import com.itsaky.androidide.ui.util.Preconditions;
 import com.itsaky.androidide.utils.Logger;
 import com.itsaky.attrinfo.AttrInfo;
-import com.itsaky.layoutinflater.adapters.android.view.ViewAttrAdapter;
-import com.itsaky.layoutinflater.adapters.android.view.ViewGroupAttrAdapter;
 import com.itsaky.layoutinflater.impl.BaseView;
 import com.itsaky.layoutinflater.impl.UiAttribute;
 import com.itsaky.layoutinflater.impl.UiView;
 import com.itsaky.layoutinflater.impl.UiViewGroup;
+import com.itsaky.layoutinflater.util.AndroidResTable;
 import com.itsaky.widgets.WidgetInfo;
 import com.itsaky.widgets.models.Widget;
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.regex.Pattern;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Attribute;
-import org.jsoup.nodes.Attributes;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.parser.Parser;
+import java.util.concurrent.ConcurrentHashMap;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
 
 import static com.itsaky.androidide.ui.util.Preconditions.*;
 
@@ -56,6 +64,9 @@ class XMLLayoutInflater extends BaseLayoutInflater {
     private final AttrInfo attrInfo;
     private final WidgetInfo widgetInfo;
     private final IResourceFinder resFinder;
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+    private final ViewMetadataCache metadata;
+    private final ResolvedResources resources;
     
     private ContextProvider contextProvider;
     
@@ -74,11 +85,14 @@ class XMLLayoutInflater extends BaseLayoutInflater {
         this.contextProvider = config.contextProvider;
         
         Preconditions.assertAllNotNull("LayoutInflater parameters cannot be null", resDirs, attrInfo, widgetInfo, resFinder);
+        
+        this.resources = new ResolvedResources (resFinder);
+        this.metadata = new ViewMetadataCache (resources);
     }
 
     @Override
     @NonNull
-    protected IView doInflate(String layout, ViewGroup parent) throws InflateException {
+    protected IView doInflate(Reader reader, ViewGroup parent) throws InflateException {
         try {
             
             IDTable.newRound();
@@ -86,18 +100,62 @@ class XMLLayoutInflater extends BaseLayoutInflater {
             // Notify
             preInflate();
             
-            final Document doc = Jsoup.parse(layout, "", Parser.xmlParser());
+            final XmlPullParser parser = newParser(reader);
+            final Deque<IView> views = new ArrayDeque<>();
+            IView root = null;
+            int roots = 0;
             
-            if (doc.childrenSize() <= 0) {
-                throw new InflateException ("No views added");
-            }
+            // The depth of the element whose children are being skipped
+            int skipDepth = -1;
             
-            if (doc.childrenSize() > 1) {
-                throw new InflateException ("More than one root element was found. An XML layout can have only one root element.");
+            int event;
+            while ((event = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                if (event == XmlPullParser.START_TAG) {
+                    if (skipDepth != -1) {
+                        continue;
+                    }
+                    
+                    final IView parentView = views.peek();
+                    if (parentView == null && ++roots > 1) {
+                        throw new InflateException ("More than one root element was found. An XML layout can have only one root element.");
+                    }
+                    
+                    if (parentView != null && !canAddChildren(parentView)) {
+                        skipDepth = parser.getDepth();
+                        continue;
+                    }
+                    
+                    final IView view = onCreateView(parser, parentView == null ? parent : (ViewGroup) parentView.asView());
+                    if (view == null) {
+                        skipDepth = parser.getDepth();
+                        continue;
+                    }
+                    
+                    if (parentView == null) {
+                        root = view;
+                    }
+                    
+                    views.push(view);
+                } else if (event == XmlPullParser.END_TAG) {
+                    if (skipDepth != -1) {
+                        if (parser.getDepth() == skipDepth) {
+                            skipDepth = -1;
+                        }
+                        continue;
+                    }
+                    
+                    final IView view = views.pop();
+                    postCreateView(view);
+                    
+                    final IView parentView = views.peek();
+                    if (parentView != null) {
+                        final IViewGroup group = (IViewGroup) parentView;
+                        group.addView(view);
+                        view.setParent(group);
+                    }
+                }
             }
             
-            IView root = onCreateView(doc.child(0), parent);
-            
             if (root == null) {
                 root = onCreateErrorView(TextView.class.getName(), "No views added");
             }
@@ -116,71 +174,427 @@ class XMLLayoutInflater extends BaseLayoutInflater {
         this.contextProvider = provider;
     }
     
-    protected IView onCreateView (Element tag, ViewGroup parent) throws InflateException {
-        if (tag == null) {
+    @Override
+    @NonNull
+    protected PreparedLayout doPrepare(Reader reader) throws InflateException {
+        try {
+            final File file = getFile();
+            if (file != null) {
+                resFinder.setInflatingFile(file);
+            }
+            
+            final long start = System.nanoTime();
+            final LayoutNode root = parseTree(reader);
+            final long parsed = System.nanoTime();
+            
+            final ResolvedResources.Values values = resources.newValues();
+            resolve(root, values);
+            
+            return new PreparedLayout(root, values, parsed - start, System.nanoTime() - parsed);
+        } catch (Throwable th) {
+            throw new InflateException("Unable to read layout", th);
+        }
+    }
+    
+    @Override
+    @NonNull
+    protected IView doInflate(PreparedLayout layout, ViewGroup parent) throws InflateException {
+        try {
+            
+            IDTable.newRound();
+            
+            // Notify
+            preInflate();
+            
+            final long start = System.nanoTime();
+            IView root;
+            resources.use(layout.values);
+            try {
+                root = createTree(layout.root, parent);
+            } finally {
+                resources.use(null);
+            }
+            
+            if (root == null) {
+                root = onCreateErrorView(TextView.class.getName(), "No views added");
+            }
+            
+            // Notify
+            postInflate(root);
+            postPhases(layout, System.nanoTime() - start);
+            
+            return root;
+        } catch (Throwable th) {
+            throw new InflateException("Unable to inflate layout", th);
+        }
+    }
+    
+    @Override
+    @NonNull
+    protected IView doUpdate(IView root, PreparedLayout layout, ViewGroup parent) throws InflateException {
+        try {
+            
+            // Notify
+            preInflate();
+            
+            final long start = System.nanoTime();
+            IView updated;
+            resources.use(layout.values);
+            try {
+                updated = reconcile(root, layout.root, parent);
+            } finally {
+                resources.use(null);
+            }
+            
+            if (updated == null) {
+                updated = onCreateErrorView(TextView.class.getName(), "No views added");
+            }
+            
+            // Notify
+            postInflate(updated);
+            postPhases(layout, System.nanoTime() - start);
+            
+            return updated;
+        } catch (Throwable th) {
+            throw new InflateException("Unable to update layout", th);
+        }
+    }
+    
+    private void postPhases(@NonNull PreparedLayout layout, long constructNanos) {
+        postPhase(IInflateListener.Phase.PARSE, layout.parseNanos);
+        postPhase(IInflateListener.Phase.RESOLVE, layout.resolveNanos);
+        postPhase(IInflateListener.Phase.CONSTRUCT, constructNanos);
+    }
+    
+    @NonNull
+    private XmlPullParser newParser(Reader reader) throws XmlPullParserException {
+        final XmlPullParser parser = Xml.newPullParser();
+        
+        // Namespace prefixes are split by us, the parser does not need to resolve them
+        parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+        parser.setInput(reader);
+        return parser;
+    }
+    
+    @NonNull
+    private LayoutNode parseTree(Reader reader) throws XmlPullParserException, IOException {
+        final XmlPullParser parser = newParser(reader);
+        final Deque<LayoutNode> nodes = new ArrayDeque<>();
+        LayoutNode root = null;
+        
+        int event;
+        while ((event = parser.next()) != XmlPullParser.END_DOCUMENT) {
+            if (event == XmlPullParser.START_TAG) {
+                final LayoutNode node = new LayoutNode(parser.getName().trim(), parser.getAttributeCount());
+                for (int i = 0; i < node.getAttributeCount(); i++) {
+                    final String key = parser.getAttributeName(i);
+                    node.namespaces[i] = namespaceOf(key);
+                    node.names[i] = nameOf(key);
+                    node.values[i] = parser.getAttributeValue(i);
+                }
+                
+                final LayoutNode parentNode = nodes.peek();
+                if (parentNode != null) {
+                    parentNode.children.add(node);
+                } else if (root != null) {
+                    throw new InflateException ("More than one root element was found. An XML layout can have only one root element.");
+                } else {
+                    root = node;
+                }
+                nodes.push(node);
+            } else if (event == XmlPullParser.END_TAG) {
+                nodes.pop();
+            }
+        }
+        
+        if (root == null) {
+            throw new InflateException ("No views added");
+        }
+        
+        return root;
+    }
+    
+    /**
+     * Resolve everything the given node and its children need that does not have to be done on
+     * the main thread: the view classes, their attribute adapters and the referenced resources.
+     */
+    private void resolve(@NonNull LayoutNode node, @NonNull ResolvedResources.Values values) {
+        if (!node.name.equals("include")) {
+            node.className = resolveClassName(node.name);
+            try {
+                // Loads and caches the class, its constructor and its attribute adapter
+                metadata.getAttributeAdapter(metadata.getConstructor(node.className).getDeclaringClass());
+            } catch (InflateException e) {
+                // An error view will be shown for this node
+            }
+        }
+        
+        // Drawables are decoded for the size of the view. The size is known only if it is
+        // given in the layout, otherwise the view can be as large as the screen.
+        final DisplayMetrics dm = Resources.getSystem().getDisplayMetrics();
+        final int width = expectedSize(node.getAttribute("android", "layout_width"), dm.widthPixels, dm);
+        final int height = expectedSize(node.getAttribute("android", "layout_height"), dm.heightPixels, dm);
+        for (int i = 0; i < node.getAttributeCount(); i++) {
+            values.resolve(node.values[i], width, height);
+        }
+        
+        for (LayoutNode child : node.children) {
+            resolve(child, values);
+        }
+    }
+    
+    /**
+     * @return The size in pixels given by a dimension like {@code 48dp}, or the maximum size if
+     *         the value is not a dimension.
+     */
+    private int expectedSize(@Nullable String value, int max, @NonNull DisplayMetrics dm) {
+        if (value != null && value.startsWith("@dimen/")) {
+            value = resFinder.findDimension(value.substring("@dimen/".length()));
+        }
+        
+        if (value == null) {
+            return max;
+        }
+        
+        int end = 0;
+        while (end < value.length() && (Character.isDigit(value.charAt(end)) || value.charAt(end) == '.')) {
+            end++;
+        }
+        
+        final int unit;
+        switch (value.substring(end)) {
+            case "dp":
+            case "dip":
+                unit = TypedValue.COMPLEX_UNIT_DIP;
+                break;
+            case "sp":
+                unit = TypedValue.COMPLEX_UNIT_SP;
+                break;
+            case "px":
+                unit = TypedValue.COMPLEX_UNIT_PX;
+                break;
+            default:
+                return max;
+        }
+        
+        try {
+            return Math.min(max, (int) TypedValue.applyDimension(unit, Float.parseFloat(value.substring(0, end)), dm));
+        } catch (NumberFormatException e) {
+            return max;
+        }
+    }
+    
+    /**
+     * Update the given view and its children so that they match the given node.
+     *
+     * @return The given view, or a new view if it had to be created again.
+     */
+    @Nullable
+    private IView reconcile(@Nullable IView view, @NonNull LayoutNode node, ViewGroup parent) throws InflateException {
+        if (view == null || !canUpdate(view, node)) {
+            return createTree(node, parent);
+        }
+        
+        for (int i = 0; i < node.getAttributeCount(); i++) {
+            final IAttribute attr = view.getAttribute(node.namespaces[i], node.names[i]);
+            if (attr == null) {
+                addAttribute(view, node.namespaces[i], node.names[i], node.values[i]);
+            } else if (!Objects.equals(attr.getValue(), node.values[i])) {
+                view.updateAttribute(node.namespaces[i], node.names[i], node.values[i]);
+                postApplyAttribute(attr, view);
+            }
+        }
+        
+        if (canAddChildren(view)) {
+            reconcileChildren((IViewGroup) view, node);
+        }
+        
+        return view;
+    }
+    
+    private boolean canUpdate(@NonNull IView view, @NonNull LayoutNode node) {
+        if (view.isPlaceholder() || !view.asView().getClass().getName().equals(resolveClassName(node.name))) {
+            return false;
+        }
+        
+        // The style is only used when the view is created
+        final IAttribute style = view.getAttribute("", "style");
+        if (!Objects.equals(style == null ? null : style.getValue(), node.getAttribute("", "style"))) {
+            return false;
+        }
+        
+        // The attribute adapters cannot reset an attribute that was removed
+        for (IAttribute attr : view.getAttributes()) {
+            if (node.getAttribute(attr.getNamespace(), attr.getAttributeName()) == null) {
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Match the children of the group with the child nodes, by ID or else by class and position,
+     * then update the matched views, create the new ones, remove the old ones and move the
+     * views whose position has changed.
+     */
+    private void reconcileChildren(@NonNull IViewGroup group, @NonNull LayoutNode node) throws InflateException {
+        final Map<String, IView> existing = new HashMap<>();
+        final List<IView> stale = new ArrayList<>();
+        final Map<String, Integer> counts = new HashMap<>();
+        for (IView child : group.getChildren()) {
+            final IAttribute id = child.getAttribute("android", "id");
+            final String key = keyOf(id == null ? null : id.getValue(), child.asView().getClass().getName(), counts);
+            if (existing.putIfAbsent(key, child) != null) {
+                stale.add(child);
+            }
+        }
+        
+        counts.clear();
+        final List<IView> wanted = new ArrayList<>(node.children.size());
+        for (LayoutNode childNode : node.children) {
+            final String key = keyOf(childNode.getAttribute("android", "id"), resolveClassName(childNode.name), counts);
+            final IView old = existing.get(key);
+            final IView child = reconcile(old, childNode, (ViewGroup) group.asView());
+            if (child != null && child == old) {
+                existing.remove(key);
+            }
+            
+            if (child != null) {
+                wanted.add(child);
+            }
+        }
+        
+        // Views that are not in the layout anymore or that were created again
+        stale.addAll(existing.values());
+        for (IView view : stale) {
+            group.removeView(view);
+        }
+        
+        for (int i = 0; i < wanted.size(); i++) {
+            final IView child = wanted.get(i);
+            if (i < group.getChildCount() && group.getChildAt(i) == child) {
+                continue;
+            }
+            
+            if (group.indexOfChild(child) != -1) {
+                group.removeView(child);
+            }
+            
+            group.addView(child, i);
+            child.setParent(group);
+        }
+    }
+    
+    @NonNull
+    private String keyOf(@Nullable String id, @NonNull String className, @NonNull Map<String, Integer> counts) {
+        if (id != null) {
+            return id.substring(id.indexOf('/') + 1);
+        }
+        
+        // The n-th child of this class without an ID
+        return className + "#" + counts.merge(className, 1, Integer::sum);
+    }
+    
+    @NonNull
+    private String resolveClassName(@NonNull String name) {
+        if (name.indexOf('.') != -1) {
+            return name;
+        }
+        
+        final Widget widget = widgetInfo.getWidgetBySimpleName(name);
+        return widget == null ? name : widget.name;
+    }
+    
+    @Nullable
+    private IView createTree(@NonNull LayoutNode node, ViewGroup parent) throws InflateException {
+        final IView view = onCreateView(node, parent);
+        if (view == null) {
             return null;
         }
         
-        final String name = tag.tagName().trim();
+        if (canAddChildren(view)) {
+            final IViewGroup group = (IViewGroup) view;
+            for (LayoutNode childNode : node.children) {
+                final IView child = createTree(childNode, (ViewGroup) view.asView());
+                if (child != null) {
+                    group.addView(child);
+                    child.setParent(group);
+                }
+            }
+        }
+        
+        postCreateView(view);
+        return view;
+    }
+    
+    /**
+     * Create the view for the tag at the current position of the parser and apply its attributes.
+     * The children of the tag are not inflated here.
+     */
+    protected IView onCreateView (XmlPullParser tag, ViewGroup parent) throws InflateException {
+        final IView root = createView (tag.getName().trim(), tag.getAttributeValue(null, "style"), parent);
 
-        if (name.equals("include")) {
-            return createFromInclude (tag.attributes(), parent);
+        if (root == null) {
+            return null;
         }
 
-        IView root = null;
-        int style = tag.hasAttr("style") ? parseFrameworkStyle (tag.attr("style")) : 0;
-        if (!name.contains(".")) {
-            root = createFromSimpleName (name, parent, style);
-        } else {
-            root = createFromQualifiedName (name, parent, style);
+        for (int i = 0; i < tag.getAttributeCount(); i++) {
+            final String key = tag.getAttributeName(i);
+            addAttribute(root, namespaceOf(key), nameOf(key), tag.getAttributeValue(i));
         }
 
+        return root;
+    }
+    
+    /**
+     * Create the view for the given node and apply its attributes. The children of the node
+     * are not inflated here.
+     */
+    protected IView onCreateView (LayoutNode node, ViewGroup parent) throws InflateException {
+        final IView root = createView (node.className != null ? node.className : node.name, node.getAttribute("", "style"), parent);
+        
         if (root == null) {
             return null;
         }
         
-        registerAttributeAdaptersTo (root);
-
-        if (!tag.attributes().isEmpty()) {
-            addAttributesTo(root, tag.attributes());
-        }
-
-        if (root instanceof IViewGroup) {
-            addChildren (tag, (IViewGroup) root, parent);
+        for (int i = 0; i < node.getAttributeCount(); i++) {
+            addAttribute(root, node.namespaces[i], node.names[i], node.values[i]);
         }
         
-        postCreateView(root);
-
         return root;
     }
-
-    protected void addChildren(@NonNull Element tag, IViewGroup root, ViewGroup parent) {
-        if (tag.childrenSize() > 0 && !root.isPlaceholder()) {
-            for (Element child : tag.children()) {
-                final BaseView created = (BaseView) onCreateView(child, (ViewGroup) root.asView());
-                if(created != null) {
-                    root.addView(created);
-                    created.setParent(root);
-                }
-            }
+    
+    private IView createView (@NonNull String name, @Nullable String style, ViewGroup parent) throws InflateException {
+        if (name.equals("include")) {
+            return createFromInclude (parent);
+        }
+        
+        final IView view = create (name, parent, style != null ? parseFrameworkStyle (style) : 0);
+        if (view != null) {
+            registerAttributeAdaptersTo (view);
         }
+        return view;
+    }
+    
+    protected boolean canAddChildren (@NonNull IView view) {
+        return view instanceof IViewGroup && !view.isPlaceholder();
     }
 
     protected int parseFrameworkStyle (String value) throws InflateException{
 
-        try {
-            if (value.startsWith("?android:attr/")) {
-                final String name = underscorize (value.substring("?android:attr/".length()));
-                return (int) android.R.attr.class.getField(name).get(null);
-            } else if (value.startsWith("@android:style/")) {
-                final String name = underscorize (value.substring("@android:style/".length()));
-                return (int) android.R.style.class.getField(name).get(null);
-            }
-        } catch (Throwable th) {
-            throw new InflateException (th);
+        int id = 0;
+        if (value.startsWith("?android:attr/")) {
+            id = AndroidResTable.getId("attr", underscorize (value.substring("?android:attr/".length())));
+        } else if (value.startsWith("@android:style/")) {
+            id = AndroidResTable.getId("style", underscorize (value.substring("@android:style/".length())));
+        }
+        
+        if (id == AndroidResTable.NOT_FOUND) {
+            throw new InflateException ("Unknown framework style: " + value);
         }
 
-        return 0;
+        return id;
     }
 
     @NonNull
@@ -193,45 +607,40 @@ class XMLLayoutInflater extends BaseLayoutInflater {
     }
     
     protected IAttributeAdapter onCreateAttributeAdapter(View view) {
-        try {
-            final String adapterName = view.getClass().getName().concat(ATTR_ADAPTER_SUFFIX);
-            final String name = "com.itsaky.layoutinflater.adapters.".concat(adapterName);
-            final Class <? extends IAttributeAdapter> adapterClass = getClass()
-                .getClassLoader()
-                .loadClass(name)
-                .asSubclass(IAttributeAdapter.class);
-           final var adapter = adapterClass.newInstance();
-           adapter.setResourceFinder (resFinder);
-           return adapter;
-        } catch (Throwable th) {
-            LOG.error (BaseApplication.getBaseInstance().getString(com.itsaky.layoutinflater.R.string.err_no_attr_adapter, view.getClass().getName()), th);
-        }
-        
-        // If we cannot find a suitable adapter, fall back to using common adapters
-        IAttributeAdapter adapter = null;
-        if (view instanceof ViewGroup) {
-            adapter = new ViewGroupAttrAdapter ();
-        } else {
-            adapter = new ViewAttrAdapter ();
-        }
-        return adapter;
+        return metadata.getAttributeAdapter(view.getClass());
     }
 
-    protected void addAttributesTo(IView view, Attributes attributes) {
-        assertNotnull(attributes, "Cannot apply null attributes!");
-
-        for (Attribute attr : attributes) {
-            final String key = attr.getKey();
-            final String[] split = !key.contains(":") ? new String[] {"", key} : key.split(Pattern.quote(":"), 2);
-            final String namespace = split[0];
-            final String name = split[1];
-            final String value = attr.getValue();
+    protected void addAttribute(IView view, @NonNull String namespace, @NonNull String name, String value) {
+        final IAttribute iAttr = asAttribute (namespace, name, value);
+        view.addAttribute(iAttr);
 
-            final IAttribute iAttr = asAttribute (namespace, name, value);
-            view.addAttribute(iAttr);
-
-            postApplyAttribute(iAttr, view);
-        }
+        postApplyAttribute(iAttr, view);
+    }
+    
+    /**
+     * @param key The qualified name of an attribute, like {@code android:layout_width}.
+     * @return The namespace prefix, or an empty string.
+     */
+    @NonNull
+    private String namespaceOf(@NonNull String key) {
+        final int colon = key.indexOf(':');
+        return colon == -1 ? "" : intern(key.substring(0, colon));
+    }
+    
+    @NonNull
+    private String nameOf(@NonNull String key) {
+        final int colon = key.indexOf(':');
+        return intern(colon == -1 ? key : key.substring(colon + 1));
+    }
+    
+    /**
+     * Attribute names repeat a lot in a layout. Share one instance of each name between
+     * all the inflated attributes.
+     */
+    @NonNull
+    private String intern(@NonNull String name) {
+        final String existing = names.putIfAbsent(name, name);
+        return existing == null ? name : existing;
     }
 
     protected IAttribute asAttribute(String namespace, String name, String value) {
@@ -239,14 +648,14 @@ class XMLLayoutInflater extends BaseLayoutInflater {
     }
 
     protected IView create (@NonNull String name, ViewGroup parent, int style) throws InflateException {
-        if (!name.contains(".")) {
+        if (name.indexOf('.') == -1) {
             return createFromSimpleName (name, parent, style);
         } else {
             return createFromQualifiedName (name, parent, style);
         }
     }
 
-    protected IView createFromInclude (Attributes attrs, ViewGroup parent) {
+    protected IView createFromInclude (ViewGroup parent) {
         throw new UnsupportedOperationException ("Inflating from <include> is not supported yet!");
     }
 
@@ -279,9 +688,8 @@ class XMLLayoutInflater extends BaseLayoutInflater {
     }
 
     @NonNull
-    protected View createAndroidViewForName(String name) throws ClassNotFoundException, NoSuchMethodException, IllegalAccessException, InstantiationException, java.lang.reflect.InvocationTargetException {
-        final Class<? extends View> loaded = Class.forName(name).asSubclass(View.class);
-        final Constructor<? extends View> constructor = loaded.getConstructor(Context.class /*, AttributeSet.class, int.class*/);
+    protected View createAndroidViewForName(String name) throws ReflectiveOperationException {
+        final Constructor<? extends View> constructor = metadata.getConstructor(name);
         final View created = constructor.newInstance(contextProvider.getContext()/*, null, style*/);
         return created;
     }
@@ -314,20 +722,7 @@ class XMLLayoutInflater extends BaseLayoutInflater {
     @NonNull
     protected ViewGroup.LayoutParams generateLayoutParams (ViewGroup parent) {
         try {
-            final Class<?> clazz = parent.getClass();
-            Method method = null;
-            try {
-                method = clazz.getDeclaredMethod("generateDefaultLayoutParams");
-            } catch (NoSuchMethodException | SecurityException e) {
-                // If the method is not implicitly declared in this ViewGroup,
-                // Then try to get the method from its superclass
-                method = clazz.getMethod ("generateDefaultLayoutParams");
-            }
-            
-            // No null check here
-            // If we reach here, then method is definitely not null
-            
-            method.setAccessible(true);
+            final Method method = metadata.getLayoutParamsMethod(parent.getClass());
             return (ViewGroup.LayoutParams) method.invoke(parent);
         } catch (Throwable th) {
             throw new InflateException ("Unable to create layout params for parent: " + parent, th);
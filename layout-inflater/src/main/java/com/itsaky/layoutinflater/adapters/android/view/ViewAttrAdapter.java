@@ -41,9 +41,8 @@ import com.itsaky.layoutinflater.IAttribute;
 import com.itsaky.layoutinflater.IAttributeAdapter;
 import com.itsaky.layoutinflater.IDTable;
 import com.itsaky.layoutinflater.IResourceFinder;
+import com.itsaky.layoutinflater.util.AndroidResTable;
 
-import java.io.File;
-import java.lang.reflect.Field;
 import java.util.regex.Pattern;
 
 /**
@@ -591,8 +590,10 @@ public class ViewAttrAdapter implements IAttributeAdapter {
             } else {
                 // We found a reference to another resource
                 if (value.startsWith("@drawable/")) {
-                    final File drawable = resFinder.inflateDrawable(value.substring("@drawable/".length()));
-                    // TODO Parse drawables
+                    final Drawable drawable = resFinder.findDrawable(value.substring("@drawable/".length()), ctx);
+                    if (drawable != null) {
+                        return drawable;
+                    }
                 } else if (value.startsWith("@color/")) {
                     final String color = resFinder.findColor(value.substring("@color/".length()));
                     // TODO Check if this color resource is a selector
@@ -604,14 +605,7 @@ public class ViewAttrAdapter implements IAttributeAdapter {
     }
 
     private int findAndroidResId(String type, String name) {
-        try {
-            final Class<?> typeClass = android.R.class.getClassLoader().loadClass("android.R$" + type);
-            final Field typeField = typeClass.getDeclaredField(name);
-            typeField.setAccessible(true);
-            return (int) typeField.get(null);
-        } catch (Throwable th) {
-            return -1;
-        }
+        return AndroidResTable.getId(type, name);
     }
     
     protected int parseColor (String color, final Context ctx) {
@@ -28,6 +28,7 @@ import com.itsaky.layoutinflater.IAttributeAdapter;
 import com.itsaky.layoutinflater.IView;
 import com.itsaky.layoutinflater.IViewGroup;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -46,6 +47,7 @@ public abstract class BaseView implements IView {
     private boolean isPlaceholder;
 
     protected final Logger LOG = Logger.instance(getClass().getSimpleName());
+    private static final String SPACES = "                                ";
 
     public BaseView(String qualifiedName, View view) {
         this(qualifiedName, view, false);
@@ -218,31 +220,25 @@ public abstract class BaseView implements IView {
      *     the layout code for its children will also be printed.
      * </p>
      *
+     * @param out The output to write to. The children write to the same output.
      * @param indentCount The number of tabs to indent. To define custom tab size,
      *                    see {@link IView#DEFAULT_INDENTATION_LENGTH}.
-     * @return The generated XML code. Never null.
      */
-    @NonNull
     @Override
-    public String generateCode(int indentCount) {
-        final var sb = new StringBuilder();
-        sb.append("<");
-        sb.append(getXmlTag());
-
-        if (!attributes.isEmpty()) {
-            for (var attr : attributes) {
-                newLine(sb, indentCount + 1); // Attributes must be indented by one tab (4 spaces by default)
-                attr.getNamespace();
-                if (attr.getNamespace().trim().length() > 0) {
-                    sb.append(attr.getNamespace());
-                    sb.append(":");
-                }
-                sb.append(attr.getAttributeName());
-                sb.append("=");
-                sb.append("\"");
-                sb.append(attr.getValue());
-                sb.append("\"");
+    public void generateCode(@NonNull Appendable out, int indentCount) throws IOException {
+        out.append("<");
+        out.append(getXmlTag());
+
+        for (var attr : attributes) {
+            newLine(out, indentCount + 1); // Attributes must be indented by one tab (4 spaces by default)
+            if (attr.getNamespace().trim().length() > 0) {
+                out.append(attr.getNamespace());
+                out.append(":");
             }
+            out.append(attr.getAttributeName());
+            out.append("=\"");
+            out.append(attr.getValue());
+            out.append("\"");
         }
 
         var hasChildren = false;
@@ -251,11 +247,11 @@ public abstract class BaseView implements IView {
             hasChildren = group.getChildCount() > 0;
 
             if (hasChildren) {
-                sb.append(">");
-                newLine(sb, indentCount + 1);
+                out.append(">");
+                newLine(out, indentCount + 1);
                 for (var child : group.getChildren()) {
-                    newLine(sb, indentCount + 1);
-                    sb.append(child.generateCode(indentCount + 1));
+                    newLine(out, indentCount + 1);
+                    child.generateCode(out, indentCount + 1);
                 }
             }
         }
@@ -263,16 +259,14 @@ public abstract class BaseView implements IView {
         if (hasChildren) {
             // Closing '>' is already printed, no need to print it here.
             // Leave one line and append the closing tag.
-            newLine(sb, indentCount);
-            newLine(sb, indentCount - 1);
-            sb.append("</");
-            sb.append(getXmlTag());
-            sb.append(">");
+            newLine(out, indentCount);
+            newLine(out, indentCount - 1);
+            out.append("</");
+            out.append(getXmlTag());
+            out.append(">");
         } else {
-            sb.append("/>");
+            out.append("/>");
         }
-
-        return sb.toString();
     }
 
     @Override
@@ -294,14 +288,15 @@ public abstract class BaseView implements IView {
         return Objects.hash(attributes, attrAdapters, qualifiedName, view, getParent(), stored, isPlaceholder());
     }
 
-    private void newLine (@NonNull StringBuilder stringBuilder, int indentCount) {
-        stringBuilder.append("\n");
-        indent(stringBuilder, indentCount);
+    private void newLine (@NonNull Appendable out, int indentCount) throws IOException {
+        out.append("\n");
+        indent(out, indentCount);
     }
     
-    private void indent (StringBuilder sb, int count) {
-        for (var i = 0; i < DEFAULT_INDENTATION_LENGTH * count; i++) {
-            sb.append(" ");
+    private void indent (Appendable out, int count) throws IOException {
+        // Indentation is written in chunks instead of one space at a time
+        for (int remaining = DEFAULT_INDENTATION_LENGTH * count; remaining > 0; remaining -= SPACES.length()) {
+            out.append(SPACES, 0, Math.min(remaining, SPACES.length()));
         }
     }
 }
@@ -0,0 +1,78 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ **************************************************************************************/
+package com.itsaky.layoutinflater.util;
+
+import androidx.annotation.NonNull;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The IDs of the framework resources ({@code android.R}).
+ *
+ * The IDs of a resource type are read with reflection the first time that type is used,
+ * later lookups are plain map lookups.
+ *
+ * @author Akash Yadav
+ */
+public class AndroidResTable {
+
+    public static final int NOT_FOUND = -1;
+
+    private static final Map<String, Map<String, Integer>> TYPES = new ConcurrentHashMap<>();
+
+    /**
+     * Get the ID of a framework resource.
+     *
+     * @param type The type of the resource. For example, {@code color}.
+     * @param name The name of the resource. For example, {@code white}.
+     * @return The ID or {@link #NOT_FOUND}.
+     */
+    public static int getId(@NonNull String type, @NonNull String name) {
+        final Integer id = TYPES.computeIfAbsent(type, AndroidResTable::readIds).get(name);
+        return id == null ? NOT_FOUND : id;
+    }
+
+    @NonNull
+    private static Map<String, Integer> readIds(@NonNull String type) {
+        final Class<?> typeClass;
+        try {
+            typeClass = Class.forName("android.R$" + type);
+        } catch (ClassNotFoundException e) {
+            return Collections.emptyMap();
+        }
+
+        final Field[] fields = typeClass.getFields();
+        final Map<String, Integer> ids = new HashMap<>(fields.length);
+        for (Field field : fields) {
+            if (field.getType() != int.class || !Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+
+            try {
+                ids.put(field.getName(), field.getInt(null));
+            } catch (IllegalAccessException e) {
+                // Not a public field
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,146 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ **************************************************************************************/
+package com.itsaky.layoutinflater.util;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * The decoded images of the drawables shown in the layout designer.
+ *
+ * Images are decoded with sampling so that they are not much larger than the view that shows
+ * them, and are kept until the cache is full. An image is keyed by the path and the modification
+ * time of its file and by the requested size, so a changed file is decoded again.
+ *
+ * The cache is shared by all the inflations, and by all the designer sessions.
+ *
+ * @author Akash Yadav
+ */
+public class DrawableCache {
+
+    private static final DrawableCache INSTANCE = new DrawableCache();
+
+    private final LruCache<String, Bitmap> bitmaps;
+
+    private DrawableCache() {
+        // Use an eighth of the available memory, measured in kilobytes
+        final int maxSize = (int) (Runtime.getRuntime().maxMemory() / 1024 / 8);
+        this.bitmaps = new LruCache<String, Bitmap>(maxSize) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount() / 1024;
+            }
+        };
+    }
+
+    @NonNull
+    public static DrawableCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the image in the given file, decoded for a view of the given size.
+     *
+     * @param file The image file. Only PNG, JPEG and WebP files can be decoded.
+     * @param width The width of the view, in pixels.
+     * @param height The height of the view, in pixels.
+     * @return The image, or {@code null} if the file cannot be decoded.
+     */
+    @Nullable
+    public Bitmap getBitmap(@NonNull File file, int width, int height) {
+        if (!isBitmap(file.getName())) {
+            return null;
+        }
+
+        final String key = file.getAbsolutePath() + ':' + file.lastModified() + ':' + width + 'x' + height;
+        Bitmap bitmap = bitmaps.get(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        bitmap = decode(file, width, height);
+        if (bitmap != null) {
+            bitmaps.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Release memory when the system asks for it.
+     *
+     * @param level The level passed to {@link ComponentCallbacks2#onTrimMemory(int)}.
+     */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            bitmaps.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            bitmaps.trimToSize(bitmaps.maxSize() / 2);
+        }
+    }
+
+    public void clear() {
+        bitmaps.evictAll();
+    }
+
+    private static boolean isBitmap(@NonNull String name) {
+        // XML drawables need to be compiled before they can be inflated
+        return name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".webp");
+    }
+
+    @Nullable
+    private static Bitmap decode(@NonNull File file, int width, int height) {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, width, height);
+        options.inJustDecodeBounds = false;
+        return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+    }
+
+    /**
+     * @return The largest power of two that keeps the decoded image at least as large as the view.
+     */
+    private static int sampleSize(int imageWidth, int imageHeight, int width, int height) {
+        int sampleSize = 1;
+        if (width <= 0 || height <= 0) {
+            return sampleSize;
+        }
+
+        while (imageWidth / (sampleSize * 2) >= width && imageHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "DrawableCache{size=%dkB/%dkB, hits=%d, misses=%d, evictions=%d}",
+            bitmaps.size(), bitmaps.maxSize(), bitmaps.hitCount(), bitmaps.missCount(), bitmaps.evictionCount());
+    }
+}
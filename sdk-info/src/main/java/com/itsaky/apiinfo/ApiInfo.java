@@ -19,37 +19,46 @@ package com.itsaky.apiinfo;
 
 import android.content.Context;
 import android.content.res.Resources;
+import android.util.LruCache;
+import android.util.Xml;
 import com.itsaky.apiinfo.models.ClassInfo;
-import com.itsaky.apiinfo.models.FieldInfo;
-import com.itsaky.apiinfo.models.MethodInfo;
-import java.io.BufferedReader;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.HashMap;
-import java.util.Map;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import java.util.ArrayList;
+import java.util.List;
+import org.xmlpull.v1.XmlPullParser;
 
+/**
+ * Provides API version information of the Android SDK classes and their members.
+ *
+ * The versions file is read once with a streaming parser into a compact {@link EncodedApiTable}.
+ * {@link ClassInfo} objects are materialized only when they are requested and the most recently
+ * used ones are kept in an LRU cache.
+ */
 public class ApiInfo {
     
-    private boolean read = false;
+    private volatile boolean read = false;
     
-    private final Map<String, ClassInfo> classInfos;
+    private final EncodedApiTable table;
+    private final LruCache<String, ClassInfo> decodedClasses;
     
     public static final String NAME = "name";
     public static final String SINCE = "since";
     public static final String DEPRECATED = "deprecated";
     public static final String REMOVED = "removed";
+    public static final String CLASS = "class";
     public static final String EXTENDS = "extends";
     public static final String IMPLEMENTS = "implements";
     public static final String FIELD = "field";
     public static final String METHOD = "method";
     
+    /**
+     * Maximum number of decoded {@link ClassInfo} objects kept in memory.
+     */
+    public static final int DECODED_CACHE_SIZE = 128;
+    
     public ApiInfo(Context ctx) throws Exception {
-        this.classInfos = new HashMap<String, ClassInfo>();
+        this.table = new EncodedApiTable();
+        this.decodedClasses = new LruCache<>(DECODED_CACHE_SIZE);
         doRead(ctx.getResources());
     }
     
@@ -58,7 +67,39 @@ public class ApiInfo {
     }
     
     public ClassInfo getClassByName(String qualifiedName) {
-        return classInfos.get(qualifiedName);
+        if(!read || qualifiedName == null) {
+            return null;
+        }
+        
+        ClassInfo info = decodedClasses.get(qualifiedName);
+        if(info == null) {
+            info = table.decode(qualifiedName);
+            if(info != null) {
+                decodedClasses.put(qualifiedName, info);
+            }
+        }
+        return info;
+    }
+    
+    /**
+     * @return Number of classes in the API table.
+     */
+    public int getClassCount() {
+        return table.classCount();
+    }
+    
+    /**
+     * @return Number of unique names (classes, members, supertypes) shared by the records.
+     */
+    public int getPooledNameCount() {
+        return table.pooledNameCount();
+    }
+    
+    /**
+     * @return Size of the encoded class records, in bytes.
+     */
+    public int getEncodedBytes() {
+        return table.encodedBytes();
     }
     
     public void doRead(Resources resources) throws Exception {
@@ -66,121 +107,104 @@ public class ApiInfo {
         if(in == null) {
             throw new Resources.NotFoundException("Cannot find versions.xml");
         }
-        Document doc = Jsoup.parse(readStream(in));
-        Elements classes = doc.getElementsByTag("api").first().getElementsByTag("class");
-        if(classes == null || classes.size() <= 0) {
-            return;
-        }
-
-        for(Element clazz : classes) {
-            ClassInfo info = parseClassInfo(clazz);
-            if(info != null)
-                classInfos.put(info.name, info);
+        
+        try {
+            final XmlPullParser parser = Xml.newPullParser();
+            parser.setInput(in, null);
+            readClasses(parser);
+        } finally {
+            in.close();
         }
-
+        
+        table.seal();
         read = true;
     }
 
-    private String readStream(InputStream in) throws IOException {
-        final StringBuilder sb = new StringBuilder();
-        final BufferedReader reader = new BufferedReader(new InputStreamReader(in));
-        String line;
-        while((line = reader.readLine()) != null) {
-            sb.append(line.trim());
-            sb.append("\n");
-        }
-        return sb.substring(sb.indexOf("<api"));
-    }
-
-    private ClassInfo parseClassInfo(Element clazz) {
-        if(!clazz.hasAttr(NAME)) return null;
-        ClassInfo info = new ClassInfo();
-        
-        info.name = clazz.attr(NAME)
-                    .replace("/", ".")
-                    .replace("$", ".");
-        
-        if(clazz.hasAttr(SINCE)) {
-            info.since = Integer.parseInt(clazz.attr(SINCE));
-        }
-        
-        if(clazz.hasAttr(DEPRECATED)) {
-            info.deprecated = Integer.parseInt(clazz.attr(DEPRECATED));
-        }
-        
-        if(clazz.hasAttr(REMOVED)) {
-            info.removed = Integer.parseInt(clazz.attr(REMOVED));
-        }
-        
-        Elements superClass = clazz.getElementsByTag(EXTENDS);
-        if(superClass != null && superClass.size() == 1) {
-            info.superClass = superClass.first().attr(NAME);
-        }
-        
-        Elements interfaces = clazz.getElementsByTag(IMPLEMENTS);
-        if(interfaces != null && interfaces.size() > 0) {
-            for(Element iface : interfaces) {
-                info.interfaces.add(iface.attr(NAME));
+    private void readClasses(XmlPullParser parser) throws Exception {
+        final PendingClass clazz = new PendingClass();
+        int event;
+        while((event = parser.next()) != XmlPullParser.END_DOCUMENT) {
+            if(event == XmlPullParser.END_TAG) {
+                if(CLASS.equals(parser.getName()) && clazz.name != null) {
+                    clazz.writeTo(table);
+                    clazz.reset();
+                }
+                continue;
             }
-        }
-        
-        Elements fields = clazz.getElementsByTag(FIELD);
-        if(fields != null && fields.size() > 0) {
-            for(Element field : fields) {
-                putField(field, info);
+            
+            if(event != XmlPullParser.START_TAG) {
+                continue;
             }
-        }
-        
-        Elements methods = clazz.getElementsByTag(METHOD);
-        if(methods != null && methods.size() > 0) {
-            for(Element method : methods) {
-                putMethod(method, info);
+            
+            final String tag = parser.getName();
+            final String name = parser.getAttributeValue(null, NAME);
+            if(CLASS.equals(tag)) {
+                clazz.reset();
+                if(name == null) continue;
+                clazz.name = name.replace("/", ".").replace("$", ".");
+                clazz.versions = readVersions(parser);
+            } else if(clazz.name == null || name == null) {
+                continue;
+            } else if(EXTENDS.equals(tag)) {
+                clazz.superClass = name;
+                clazz.superClassCount++;
+            } else if(IMPLEMENTS.equals(tag)) {
+                clazz.interfaces.add(name);
+            } else if(FIELD.equals(tag)) {
+                clazz.fields.add(name);
+                clazz.fieldVersions.add(readVersions(parser));
+            } else if(METHOD.equals(tag)) {
+                clazz.methods.add(name);
+                clazz.methodVersions.add(readVersions(parser));
             }
         }
-        
-        return info;
     }
-
-    private void putField(Element field, ClassInfo clazz) {
-        if(!field.hasAttr(NAME)) return;
-        FieldInfo info = new FieldInfo();
-
-        info.name = field.attr(NAME);
-
-        if(field.hasAttr(SINCE)) {
-            info.since = Integer.parseInt(field.attr(SINCE));
-        }
-
-        if(field.hasAttr(DEPRECATED)) {
-            info.deprecated = Integer.parseInt(field.attr(DEPRECATED));
-        }
-
-        if(field.hasAttr(REMOVED)) {
-            info.removed = Integer.parseInt(field.attr(REMOVED));
-        }
-        
-        clazz.fields.put(info.name, info);
+    
+    private int[] readVersions(XmlPullParser parser) {
+        return new int[] {
+            parseVersion(parser.getAttributeValue(null, SINCE)),
+            parseVersion(parser.getAttributeValue(null, DEPRECATED)),
+            parseVersion(parser.getAttributeValue(null, REMOVED))
+        };
     }
-
-    private void putMethod(Element method, ClassInfo clazz) {
-        if(!method.hasAttr(NAME)) return;
-        MethodInfo info = new MethodInfo();
-
-        info.name = method.attr(NAME);
-        info.simpleName = info.name.substring(0, info.name.indexOf("("));
-
-        if(method.hasAttr(SINCE)) {
-            info.since = Integer.parseInt(method.attr(SINCE));
-        }
-
-        if(method.hasAttr(DEPRECATED)) {
-            info.deprecated = Integer.parseInt(method.attr(DEPRECATED));
+    
+    private int parseVersion(String value) {
+        return value == null ? -1 : Integer.parseInt(value.trim());
+    }
+    
+    /**
+     * Holds the data of the class element that is currently being parsed,
+     * until it is written to the table. A single instance is reused for all the classes.
+     */
+    private static class PendingClass {
+        
+        String name;
+        int[] versions;
+        String superClass;
+        int superClassCount;
+        final List<String> interfaces = new ArrayList<>();
+        final List<String> fields = new ArrayList<>();
+        final List<int[]> fieldVersions = new ArrayList<>();
+        final List<String> methods = new ArrayList<>();
+        final List<int[]> methodVersions = new ArrayList<>();
+        
+        void writeTo(EncodedApiTable table) {
+            table.beginClass(name);
+            table.writeHeader(versions[0], versions[1], versions[2], superClassCount == 1 ? superClass : null, interfaces);
+            table.writeMembers(fields, fieldVersions);
+            table.writeMembers(methods, methodVersions);
         }
-
-        if(method.hasAttr(REMOVED)) {
-            info.removed = Integer.parseInt(method.attr(REMOVED));
+        
+        void reset() {
+            name = null;
+            versions = null;
+            superClass = null;
+            superClassCount = 0;
+            interfaces.clear();
+            fields.clear();
+            fieldVersions.clear();
+            methods.clear();
+            methodVersions.clear();
         }
-
-        clazz.methods.put(info.name, info);
     }
 }
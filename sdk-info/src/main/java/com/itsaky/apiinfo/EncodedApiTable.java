@@ -0,0 +1,215 @@
+/************************************************************************************
+ * This file is part of AndroidIDE.
+ *
+ * AndroidIDE is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * AndroidIDE is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with AndroidIDE.  If not, see <https://www.gnu.org/licenses/>.
+ *
+**************************************************************************************/
+package com.itsaky.apiinfo;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.itsaky.apiinfo.models.ClassInfo;
+import com.itsaky.apiinfo.models.FieldInfo;
+import com.itsaky.apiinfo.models.MethodInfo;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, encoded form of the API version table.
+ *
+ * Every class is stored as a small record of varints in one shared byte array.
+ * Class names, member signatures, superclass and interface names are stored once in
+ * a string pool and records only refer to them by index. A {@link ClassInfo} is
+ * materialized only when it is requested by {@link #decode(String)}.
+ *
+ * Record layout :
+ * <pre>
+ *   since+1, deprecated+1, removed+1, superClass+1 (0 if none),
+ *   interfaceCount, interface...,
+ *   fieldCount, (name, since+1, deprecated+1, removed+1)...,
+ *   methodCount, (name, since+1, deprecated+1, removed+1)...
+ * </pre>
+ *
+ * @author Akash Yadav
+ */
+final class EncodedApiTable {
+
+    private final ArrayList<String> pool = new ArrayList<>();
+    private final Map<String, Integer> classOffsets = new HashMap<>();
+
+    private Map<String, Integer> poolIndex = new HashMap<>();
+    private byte[] data = new byte[64 * 1024];
+    private int size = 0;
+
+    int classCount() {
+        return classOffsets.size();
+    }
+
+    int pooledNameCount() {
+        return pool.size();
+    }
+
+    int encodedBytes() {
+        return size;
+    }
+
+    /**
+     * Start a new class record. Must be followed by the header and member writes
+     * of that class before another record is started.
+     */
+    void beginClass(String name) {
+        classOffsets.put(intern(name), size);
+    }
+
+    void writeHeader(int since, int deprecated, int removed, @Nullable String superClass, @NonNull List<String> interfaces) {
+        writeVarInt(since + 1);
+        writeVarInt(deprecated + 1);
+        writeVarInt(removed + 1);
+        writeVarInt(superClass == null ? 0 : indexOf(superClass) + 1);
+        writeVarInt(interfaces.size());
+        for(String iface : interfaces) {
+            writeVarInt(indexOf(iface));
+        }
+    }
+
+    void writeMembers(@NonNull List<String> names, @NonNull List<int[]> versions) {
+        writeVarInt(names.size());
+        for(int i=0;i<names.size();i++) {
+            final int[] v = versions.get(i);
+            writeVarInt(indexOf(names.get(i)));
+            writeVarInt(v[0] + 1);
+            writeVarInt(v[1] + 1);
+            writeVarInt(v[2] + 1);
+        }
+    }
+
+    /**
+     * Called once all the classes have been written. Releases the build-time
+     * structures and trims the data array.
+     */
+    void seal() {
+        poolIndex = null;
+        data = Arrays.copyOf(data, size);
+        pool.trimToSize();
+    }
+
+    /**
+     * Materialize the {@link ClassInfo} for the given class.
+     *
+     * @param name Fully qualified name of the class.
+     * @return The decoded class info or {@code null} if there is no such class.
+     */
+    @Nullable
+    ClassInfo decode(String name) {
+        final Integer offset = classOffsets.get(name);
+        if(offset == null) {
+            return null;
+        }
+
+        final Cursor cursor = new Cursor(offset);
+        final ClassInfo info = new ClassInfo();
+        info.name = name;
+        info.since = cursor.next() - 1;
+        info.deprecated = cursor.next() - 1;
+        info.removed = cursor.next() - 1;
+
+        final int superClass = cursor.next();
+        if(superClass > 0) {
+            info.superClass = pool.get(superClass - 1);
+        }
+
+        final int interfaces = cursor.next();
+        for(int i=0;i<interfaces;i++) {
+            info.interfaces.add(pool.get(cursor.next()));
+        }
+
+        final int fields = cursor.next();
+        for(int i=0;i<fields;i++) {
+            final FieldInfo field = new FieldInfo();
+            field.name = pool.get(cursor.next());
+            field.since = cursor.next() - 1;
+            field.deprecated = cursor.next() - 1;
+            field.removed = cursor.next() - 1;
+            info.fields.put(field.name, field);
+        }
+
+        final int methods = cursor.next();
+        for(int i=0;i<methods;i++) {
+            final MethodInfo method = new MethodInfo();
+            method.name = pool.get(cursor.next());
+            method.since = cursor.next() - 1;
+            method.deprecated = cursor.next() - 1;
+            method.removed = cursor.next() - 1;
+
+            final int paren = method.name.indexOf("(");
+            method.simpleName = paren < 0 ? method.name : method.name.substring(0, paren);
+            info.methods.put(method.name, method);
+        }
+
+        return info;
+    }
+
+    private String intern(String name) {
+        return pool.get(indexOf(name));
+    }
+
+    private int indexOf(String name) {
+        Integer index = poolIndex.get(name);
+        if(index == null) {
+            index = pool.size();
+            pool.add(name);
+            poolIndex.put(name, index);
+        }
+        return index;
+    }
+
+    private void writeVarInt(int value) {
+        ensureCapacity(5);
+        while((value & ~0x7F) != 0) {
+            data[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[size++] = (byte) value;
+    }
+
+    private void ensureCapacity(int extra) {
+        if(size + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + extra));
+        }
+    }
+
+    private class Cursor {
+
+        private int position;
+
+        Cursor(int position) {
+            this.position = position;
+        }
+
+        int next() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while((b & 0x80) != 0);
+            return value;
+        }
+    }
+}
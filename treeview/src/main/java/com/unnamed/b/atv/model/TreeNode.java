@@ -74,6 +74,24 @@ public class TreeNode {
         return this;
     }
 	
+    /**
+     * Replace the children of this node, without sorting them again. Nodes that were
+     * already children of this node keep their id.
+     */
+    public TreeNode setChildren(Collection<TreeNode> nodes) {
+        synchronized (children) {
+            children.clear();
+            for (TreeNode n : nodes) {
+                if (n.mParent != this) {
+                    n.mParent = this;
+                    n.mId = generateId();
+                }
+                children.add(n);
+            }
+        }
+        return this;
+    }
+
 	public TreeNode childAt(int index) {
 		return children == null ? null : children.get(index);
 	}